@@ -2,28 +2,27 @@
 set -e
 
 SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$SCRIPT_DIR/.."
+BENCHMARKS_JAR="$ROOT_DIR/jq4java-benchmarks/target/benchmarks.jar"
+DATA_DIR="$SCRIPT_DIR/data"
 
-echo "Generating large test datasets..."
+# Sizes to generate; override with e.g. SIZES="1MB 1GB"
+SIZES="${SIZES:-50MB 100MB}"
+# Corpora to generate (records, wide-object, nested, access-log, numbers, strings); default all
+CORPORA=("$@")
 
-# 50MB JSON array
-echo "Generating 50MB.json..."
-jq -n '[range(500000) | {
-  id: .,
-  name: "user\(.)",
-  email: "user\(.)@example.com",
-  age: (. % 80) + 18,
-  active: (. % 2 == 0)
-}]' > "$SCRIPT_DIR/50MB.json"
+if [ ! -f "$BENCHMARKS_JAR" ]; then
+    echo "Building jq4java-benchmarks..."
+    cd "$ROOT_DIR"
+    ./mvnw -P benchmarks -pl jq4java-benchmarks -am package -DskipTests -q
+    echo
+fi
 
-# 100MB JSON array
-echo "Generating 100MB.json..."
-jq -n '[range(1000000) | {
-  id: .,
-  name: "user\(.)",
-  email: "user\(.)@example.com",
-  age: (. % 80) + 18,
-  active: (. % 2 == 0)
-}]' > "$SCRIPT_DIR/100MB.json"
+echo "Generating datasets in $DATA_DIR..."
+for size in $SIZES; do
+    java -cp "$BENCHMARKS_JAR" com.dortegau.jq4java.benchmarks.DatasetGenerator \
+        --output "$DATA_DIR" --size "$size" "${CORPORA[@]}"
+done
 
 echo "Done!"
-ls -lh "$SCRIPT_DIR"/*.json
+ls -lh "$DATA_DIR"
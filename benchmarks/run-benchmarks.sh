@@ -2,7 +2,7 @@
 set -e
 
 SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
-DATA_FILE="$SCRIPT_DIR/5MB.json"
+DATA_FILE="$SCRIPT_DIR/data/records-5MB.json"
 JQ4JAVA_JAR="$SCRIPT_DIR/../jq4java-cli/target/jq4java.jar"
 
 echo "=== jq4java Performance Benchmarks ==="
@@ -22,9 +22,9 @@ if ! command -v jq &> /dev/null; then
 fi
 
 if [ ! -f "$DATA_FILE" ]; then
-    echo "Downloading test data..."
-    curl -sL "https://microsoftedge.github.io/Demos/json-dummy-data/5MB.json" -o "$DATA_FILE"
-    echo "Downloaded 5MB.json"
+    echo "Generating test data..."
+    SIZES=5MB bash "$SCRIPT_DIR/generate-large.sh" records > /dev/null
+    echo "Generated records-5MB.json"
     echo
 fi
 
@@ -89,28 +89,28 @@ hyperfine \
 cat /tmp/bench4.md >> "$RESULTS"
 echo "" >> "$RESULTS"
 
-if [ -f "$SCRIPT_DIR/50MB.json" ]; then
+if [ -f "$SCRIPT_DIR/data/records-50MB.json" ]; then
     echo "## Large file (50MB): .[0].name" | tee -a "$RESULTS"
     echo "" >> "$RESULTS"
     hyperfine \
         --warmup 2 \
         --runs 5 \
         --export-markdown /tmp/bench5.md \
-        "jq '.[0].name' $SCRIPT_DIR/50MB.json > /dev/null" \
-        "java -jar $JQ4JAVA_JAR '.[0].name' $SCRIPT_DIR/50MB.json > /dev/null"
+        "jq '.[0].name' $SCRIPT_DIR/data/records-50MB.json > /dev/null" \
+        "java -jar $JQ4JAVA_JAR '.[0].name' $SCRIPT_DIR/data/records-50MB.json > /dev/null"
     cat /tmp/bench5.md >> "$RESULTS"
     echo "" >> "$RESULTS"
 fi
 
-if [ -f "$SCRIPT_DIR/100MB.json" ]; then
+if [ -f "$SCRIPT_DIR/data/records-100MB.json" ]; then
     echo "## Large file (100MB): .[0].name" | tee -a "$RESULTS"
     echo "" >> "$RESULTS"
     hyperfine \
         --warmup 2 \
         --runs 5 \
         --export-markdown /tmp/bench6.md \
-        "jq '.[0].name' $SCRIPT_DIR/100MB.json > /dev/null" \
-        "java -jar $JQ4JAVA_JAR '.[0].name' $SCRIPT_DIR/100MB.json > /dev/null"
+        "jq '.[0].name' $SCRIPT_DIR/data/records-100MB.json > /dev/null" \
+        "java -jar $JQ4JAVA_JAR '.[0].name' $SCRIPT_DIR/data/records-100MB.json > /dev/null"
     cat /tmp/bench6.md >> "$RESULTS"
     echo "" >> "$RESULTS"
 fi
@@ -0,0 +1,25 @@
+#!/bin/bash
+set -e
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$SCRIPT_DIR/.."
+BENCHMARKS_JAR="$ROOT_DIR/jq4java-benchmarks/target/benchmarks.jar"
+RESULTS_DIR="$SCRIPT_DIR/jmh-results"
+
+echo "=== jq4java JMH Benchmarks ==="
+echo
+
+echo "Building jq4java-benchmarks..."
+cd "$ROOT_DIR"
+./mvnw -P benchmarks -pl jq4java-benchmarks -am package -DskipTests -q
+echo
+
+REVISION="$(git rev-parse --short HEAD 2>/dev/null || echo local)"
+mkdir -p "$RESULTS_DIR"
+RESULTS="$RESULTS_DIR/$REVISION.json"
+
+# Any extra arguments go to JMH, e.g. a benchmark regex or "-p shape=records"
+java -jar "$BENCHMARKS_JAR" -rf json -rff "$RESULTS" "$@"
+
+echo
+echo "Results saved to $RESULTS"
@@ -0,0 +1,249 @@
+package com.dortegau.jq4java.benchmarks;
+
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * The shapes of generated benchmark data.
+ *
+ * <p>Every corpus is a header, a sequence of elements and a footer, so any of them can be
+ * generated to an approximate byte size by emitting elements until the target is reached. All
+ * content derives from a seeded {@link Random}, and numbers are formatted from integers rather
+ * than with {@link Double#toString(double)}, whose output differs between JDK releases. The
+ * same seed and size therefore produce the same bytes on every JVM.
+ */
+public enum Corpus {
+  RECORDS("records", "json", "Array of homogeneous user records with a nested address",
+      "[", ",", "]") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      String word = pick(random, WORDS);
+      sb.append("{\"id\":").append(index)
+          .append(",\"name\":\"").append(word).append(' ').append(index).append('"')
+          .append(",\"email\":\"").append(word).append(index).append("@example.com\"")
+          .append(",\"language\":\"").append(pick(random, LANGUAGES)).append('"')
+          .append(",\"age\":").append(18 + random.nextInt(80))
+          .append(",\"active\":").append(random.nextBoolean())
+          .append(",\"score\":");
+      appendDecimal(sb, random.nextInt(10000), 2);
+      sb.append(",\"tags\":[\"").append(pick(random, WORDS)).append("\",\"")
+          .append(pick(random, WORDS)).append("\"]")
+          .append(",\"address\":{\"city\":\"").append(pick(random, CITIES))
+          .append("\",\"zip\":\"").append(10000 + random.nextInt(90000)).append("\"}}");
+    }
+  },
+
+  WIDE_OBJECT("wide-object", "json", "Single object with one numbered key per field",
+      "{", ",", "}") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      sb.append("\"field").append(index).append("\":");
+      switch (random.nextInt(4)) {
+        case 0:
+          sb.append(random.nextInt(1_000_000));
+          break;
+        case 1:
+          appendDecimal(sb, random.nextInt(1_000_000), 3);
+          break;
+        case 2:
+          sb.append('"').append(pick(random, WORDS)).append('"');
+          break;
+        default:
+          sb.append(random.nextBoolean());
+      }
+    }
+  },
+
+  NESTED("nested", "json", "Array of trees, each a chain of 16 to 255 nested objects",
+      "[", ",", "]") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      int depth = 16 + random.nextInt(240);
+      for (int level = 0; level < depth; level++) {
+        sb.append("{\"id\":\"n").append(index).append('-').append(level)
+            .append("\",\"weight\":").append(random.nextInt(100))
+            .append(",\"children\":[{\"leaf\":true,\"value\":").append(random.nextInt(1000))
+            .append("},");
+      }
+      sb.append("{\"leaf\":true,\"value\":").append(random.nextInt(1000)).append('}');
+      for (int level = 0; level < depth; level++) {
+        sb.append("]}");
+      }
+    }
+  },
+
+  ACCESS_LOG("access-log", "ndjson", "Newline-delimited HTTP access log entries",
+      "", "", "") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      int roll = random.nextInt(100);
+      int status = roll < 2 ? 500 + random.nextInt(4) : roll < 10 ? 400 + random.nextInt(5) : 200;
+      sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(LOG_START + index * 37))
+          .append("\",\"level\":\"").append(status >= 500 ? "error" : "info")
+          .append("\",\"method\":\"").append(pick(random, METHODS))
+          .append("\",\"path\":\"/api/v1/").append(pick(random, RESOURCES)).append('/')
+          .append(random.nextInt(100000))
+          .append("\",\"status\":").append(status)
+          .append(",\"bytes\":").append(random.nextInt(65536))
+          .append(",\"duration_ms\":");
+      appendDecimal(sb, random.nextInt(5_000_000), 3);
+      sb.append(",\"ip\":\"10.").append(random.nextInt(256)).append('.')
+          .append(random.nextInt(256)).append('.').append(random.nextInt(256))
+          .append("\",\"user_agent\":\"").append(pick(random, USER_AGENTS)).append("\"}\n");
+    }
+  },
+
+  NUMBERS("numbers", "json", "Array of integers, decimals and exponent-form numbers",
+      "[", ",", "]") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      switch (random.nextInt(4)) {
+        case 0:
+          sb.append(random.nextInt() / 1000);
+          break;
+        case 1:
+          sb.append(random.nextLong() / 1000);
+          break;
+        case 2:
+          appendDecimal(sb, random.nextInt(2_000_000_000) - 1_000_000_000L, 4);
+          break;
+        default:
+          appendDecimal(sb, 1 + random.nextInt(999_999), 5);
+          sb.append('e').append(random.nextInt(600) - 300);
+      }
+    }
+  },
+
+  STRINGS("strings", "json", "Array of strings with escapes and non-ASCII text",
+      "[", ",", "]") {
+    @Override
+    void element(Random random, long index, StringBuilder sb) {
+      sb.append('"');
+      int words = 1 + random.nextInt(24);
+      for (int w = 0; w < words; w++) {
+        switch (random.nextInt(10)) {
+          case 0:
+            sb.append("\\n");
+            break;
+          case 1:
+            sb.append("\\\"quoted\\\" ");
+            break;
+          case 2:
+            sb.append("tab\\tand\\\\backslash ");
+            break;
+          case 3:
+            sb.append(pick(random, CITIES)).append(' ');
+            break;
+          case 4:
+            sb.append("中文 😀 ");
+            break;
+          case 5:
+            sb.append("\\u00e9\\u0001 ");
+            break;
+          default:
+            sb.append(pick(random, WORDS)).append(' ');
+        }
+      }
+      sb.append('"');
+    }
+  };
+
+  private static final String[] WORDS = {
+      "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india"
+  };
+  private static final String[] CITIES = {
+      "Madrid", "Zürich", "Kraków", "Lisboa", "東京", "São Paulo"
+  };
+  private static final String[] LANGUAGES = {"en", "es", "de", "pl", "pt", "ja"};
+  private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+  private static final String[] RESOURCES = {"users", "orders", "products", "carts", "search"};
+  private static final String[] USER_AGENTS = {
+      "Mozilla/5.0 (X11; Linux x86_64)", "curl/8.4.0", "okhttp/4.12.0", "python-requests/2.31"
+  };
+  private static final long LOG_START = 1_700_000_000_000L;
+
+  private final String label;
+  private final String extension;
+  private final String description;
+  private final String header;
+  private final String separator;
+  private final String footer;
+
+  Corpus(String label, String extension, String description, String header, String separator,
+      String footer) {
+    this.label = label;
+    this.extension = extension;
+    this.description = description;
+    this.header = header;
+    this.separator = separator;
+    this.footer = footer;
+  }
+
+  /**
+   * Appends the element with the given index, drawing all varying content from {@code random}.
+   */
+  abstract void element(Random random, long index, StringBuilder sb);
+
+  public String label() {
+    return label;
+  }
+
+  public String extension() {
+    return extension;
+  }
+
+  public String description() {
+    return description;
+  }
+
+  String header() {
+    return header;
+  }
+
+  String separator() {
+    return separator;
+  }
+
+  String footer() {
+    return footer;
+  }
+
+  /**
+   * Returns the corpus with the given label.
+   *
+   * @param label a label such as {@code records} or {@code access-log}
+   * @return the matching corpus
+   */
+  public static Corpus fromLabel(String label) {
+    for (Corpus corpus : values()) {
+      if (corpus.label.equals(label)) {
+        return corpus;
+      }
+    }
+    throw new IllegalArgumentException("Unknown corpus: " + label);
+  }
+
+  private static String pick(Random random, String[] choices) {
+    return choices[random.nextInt(choices.length)];
+  }
+
+  /**
+   * Appends {@code scaled / 10^fractionDigits} in plain decimal notation.
+   */
+  private static void appendDecimal(StringBuilder sb, long scaled, int fractionDigits) {
+    long magnitude = Math.abs(scaled);
+    if (scaled < 0) {
+      sb.append('-');
+    }
+    long unit = 1;
+    for (int i = 0; i < fractionDigits; i++) {
+      unit *= 10;
+    }
+    sb.append(magnitude / unit).append('.');
+    String fraction = Long.toString(magnitude % unit);
+    for (int i = fraction.length(); i < fractionDigits; i++) {
+      sb.append('0');
+    }
+    sb.append(fraction);
+  }
+}
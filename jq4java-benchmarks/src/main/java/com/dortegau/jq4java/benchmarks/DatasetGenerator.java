@@ -0,0 +1,264 @@
+package com.dortegau.jq4java.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates seeded, reproducible benchmark corpora without any external tools.
+ *
+ * <p>Each corpus is streamed to {@code <corpus>-<size>.<json|ndjson>} next to a
+ * {@code .manifest.json} file recording its shape, seed, size, element count and SHA-256, so
+ * two machines can confirm they benchmark identical bytes.
+ *
+ * <pre>
+ * java -cp jq4java-benchmarks/target/benchmarks.jar \
+ *     com.dortegau.jq4java.benchmarks.DatasetGenerator \
+ *     --output benchmarks/data --size 64MB --seed 42 records access-log
+ * </pre>
+ */
+public final class DatasetGenerator {
+  static final long DEFAULT_SEED = 42;
+
+  private static final Pattern SIZE = Pattern.compile("(\\d+)\\s*(B|KB|MB|GB)?",
+      Pattern.CASE_INSENSITIVE);
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private DatasetGenerator() {
+  }
+
+  /**
+   * Command-line entry point; run without arguments for usage.
+   *
+   * @param args {@code --output DIR --size SIZE [--seed N] [corpus...]}
+   * @throws IOException if a file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    Path output = Paths.get("benchmarks", "data");
+    String size = null;
+    long seed = DEFAULT_SEED;
+    List<Corpus> corpora = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--output") && i + 1 < args.length) {
+        output = Paths.get(args[++i]);
+      } else if (arg.equals("--size") && i + 1 < args.length) {
+        size = args[++i];
+      } else if (arg.equals("--seed") && i + 1 < args.length) {
+        seed = Long.parseLong(args[++i]);
+      } else if (arg.startsWith("--")) {
+        usage();
+        return;
+      } else {
+        corpora.add(Corpus.fromLabel(arg));
+      }
+    }
+    if (size == null) {
+      usage();
+      return;
+    }
+    if (corpora.isEmpty()) {
+      corpora.addAll(Arrays.asList(Corpus.values()));
+    }
+
+    Files.createDirectories(output);
+    long targetBytes = parseSize(size);
+    String sizeLabel = size.replaceAll("\\s", "").toUpperCase(Locale.ROOT);
+    for (Corpus corpus : corpora) {
+      Manifest manifest = generate(corpus, targetBytes, seed, output, sizeLabel);
+      System.out.printf("%-12s %,15d bytes %,12d elements  %s%n", corpus.label(),
+          manifest.bytes, manifest.elements, manifest.file);
+    }
+  }
+
+  private static void usage() {
+    System.err.println("Usage: DatasetGenerator --size SIZE [--output DIR] [--seed N] [corpus...]");
+    System.err.println();
+    System.err.println("SIZE is a byte count with an optional KB, MB or GB suffix "
+        + "(powers of 1024).");
+    System.err.println("Corpora (default: all):");
+    for (Corpus corpus : Corpus.values()) {
+      System.err.printf("  %-12s %s%n", corpus.label(), corpus.description());
+    }
+  }
+
+  /**
+   * Parses a size such as {@code 512KB}, {@code 64MB} or {@code 1GB} into bytes.
+   *
+   * @param size the size text; units are powers of 1024
+   * @return the number of bytes
+   */
+  public static long parseSize(String size) {
+    Matcher matcher = SIZE.matcher(size.trim());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("Invalid size: " + size);
+    }
+    long value = Long.parseLong(matcher.group(1));
+    String unit = matcher.group(2) == null ? "B" : matcher.group(2).toUpperCase(Locale.ROOT);
+    switch (unit) {
+      case "KB":
+        return value << 10;
+      case "MB":
+        return value << 20;
+      case "GB":
+        return value << 30;
+      default:
+        return value;
+    }
+  }
+
+  /**
+   * Writes one corpus and its manifest into a directory.
+   *
+   * @param corpus the shape to generate
+   * @param targetBytes the approximate size; generation stops at the first element boundary
+   *     at or past it
+   * @param seed the random seed
+   * @param directory the output directory
+   * @param sizeLabel the size as it should appear in the file name, e.g. {@code 64MB}
+   * @return the manifest written next to the corpus
+   * @throws IOException if a file cannot be written
+   */
+  public static Manifest generate(Corpus corpus, long targetBytes, long seed, Path directory,
+      String sizeLabel) throws IOException {
+    String fileName = corpus.label() + "-" + sizeLabel + "." + corpus.extension();
+    Manifest manifest;
+    try (OutputStream out = new BufferedOutputStream(
+        Files.newOutputStream(directory.resolve(fileName)), BUFFER_SIZE)) {
+      manifest = write(corpus, targetBytes, seed, out, fileName);
+    }
+    Files.write(directory.resolve(fileName.substring(0, fileName.lastIndexOf('.'))
+        + ".manifest.json"), manifest.toJson().getBytes(StandardCharsets.UTF_8));
+    return manifest;
+  }
+
+  /**
+   * Generates a corpus in memory, for benchmarks that need a document of a known shape.
+   *
+   * @param corpus the shape to generate
+   * @param targetBytes the approximate size in bytes
+   * @param seed the random seed
+   * @return the generated JSON text
+   */
+  public static String generate(Corpus corpus, long targetBytes, long seed) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream((int) targetBytes + 4096);
+    try {
+      write(corpus, targetBytes, seed, out, null);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Streams a corpus, emitting elements until the output reaches {@code targetBytes}.
+   */
+  static Manifest write(Corpus corpus, long targetBytes, long seed, OutputStream out,
+      String fileName) throws IOException {
+    MessageDigest digest = sha256();
+    Random random = new Random(seed);
+    byte[] footer = corpus.footer().getBytes(StandardCharsets.UTF_8);
+    StringBuilder sb = new StringBuilder(4096);
+    long bytes = emit(corpus.header().getBytes(StandardCharsets.UTF_8), out, digest);
+    long elements = 0;
+    while (elements == 0 || bytes + footer.length < targetBytes) {
+      sb.setLength(0);
+      if (elements > 0) {
+        sb.append(corpus.separator());
+      }
+      corpus.element(random, elements, sb);
+      bytes += emit(sb.toString().getBytes(StandardCharsets.UTF_8), out, digest);
+      elements++;
+    }
+    bytes += emit(footer, out, digest);
+    return new Manifest(corpus, fileName, seed, targetBytes, bytes, elements,
+        hex(digest.digest()));
+  }
+
+  private static long emit(byte[] chunk, OutputStream out, MessageDigest digest)
+      throws IOException {
+    out.write(chunk);
+    digest.update(chunk);
+    return chunk.length;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Description of a generated corpus, written as {@code <file>.manifest.json}.
+   */
+  public static final class Manifest {
+    final Corpus corpus;
+    final String file;
+    final long seed;
+    final long targetBytes;
+    final long bytes;
+    final long elements;
+    final String sha256;
+
+    Manifest(Corpus corpus, String file, long seed, long targetBytes, long bytes, long elements,
+        String sha256) {
+      this.corpus = corpus;
+      this.file = file;
+      this.seed = seed;
+      this.targetBytes = targetBytes;
+      this.bytes = bytes;
+      this.elements = elements;
+      this.sha256 = sha256;
+    }
+
+    public long bytes() {
+      return bytes;
+    }
+
+    public long elements() {
+      return elements;
+    }
+
+    public String sha256() {
+      return sha256;
+    }
+
+    String toJson() {
+      return "{\n"
+          + "  \"corpus\": \"" + corpus.label() + "\",\n"
+          + "  \"description\": \"" + corpus.description() + "\",\n"
+          + "  \"format\": \"" + corpus.extension() + "\",\n"
+          + "  \"file\": \"" + file + "\",\n"
+          + "  \"seed\": " + seed + ",\n"
+          + "  \"targetBytes\": " + targetBytes + ",\n"
+          + "  \"bytes\": " + bytes + ",\n"
+          + "  \"elements\": " + elements + ",\n"
+          + "  \"sha256\": \"" + sha256 + "\"\n"
+          + "}\n";
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.dortegau.jq4java.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The single-document corpora used by the benchmark suites, generated in memory at 2 MB.
+ *
+ * <p>Documents come from {@link DatasetGenerator} with its default seed, so two runs on
+ * different commits measure the same bytes and their results can be compared directly.
+ */
+final class Documents {
+  static final String RECORDS = "records";
+  static final String NUMBERS = "numbers";
+  static final String STRINGS = "strings";
+  static final String NESTED = "nested";
+  static final String WIDE_OBJECT = "wide-object";
+
+  private static final long SIZE = 2L << 20;
+
+  private Documents() {
+  }
+
+  static byte[] bytes(String shape) {
+    return json(shape).getBytes(StandardCharsets.UTF_8);
+  }
+
+  static String json(String shape) {
+    return DatasetGenerator.generate(Corpus.fromLabel(shape), SIZE, DatasetGenerator.DEFAULT_SEED);
+  }
+}
@@ -0,0 +1,85 @@
+package com.dortegau.jq4java.benchmarks;
+
+import com.dortegau.jq4java.CompileOption;
+import com.dortegau.jq4java.Jq;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.json.JqValue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluating representative filters over 2 MB of homogeneous records, with the interpreter and
+ * with the bytecode backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+  @Param({"identity", "field-access", "iteration", "select", "object-construction", "sort",
+      "update-assignment"})
+  public String filter;
+
+  @Param({"interpreter", "bytecode"})
+  public String backend;
+
+  private JqValue input;
+  private Expression expression;
+
+  /**
+   * Parses the records document and compiles the selected filter.
+   */
+  @Setup
+  public void setUp() {
+    input = JqValue.parse(Documents.json(Documents.RECORDS));
+    String program = program(filter);
+    expression = backend.equals("bytecode")
+        ? Jq.compile(program, CompileOption.BYTECODE)
+        : Jq.compile(program);
+  }
+
+  private static String program(String filter) {
+    switch (filter) {
+      case "identity":
+        return ".";
+      case "field-access":
+        return ".[1000].address.city";
+      case "iteration":
+        return ".[]";
+      case "select":
+        return ".[] | select(.score > 50)";
+      case "object-construction":
+        return ".[] | {id, name, city: .address.city, total: (.score * 2)}";
+      case "sort":
+        return "map(.score) | sort";
+      case "update-assignment":
+        return ".[].score += 1";
+      default:
+        throw new IllegalArgumentException("Unknown filter: " + filter);
+    }
+  }
+
+  /**
+   * Runs the filter once, handing every result to the blackhole.
+   */
+  @Benchmark
+  public boolean evaluate(Blackhole blackhole) {
+    return expression.evaluate(input, value -> {
+      blackhole.consume(value);
+      return true;
+    });
+  }
+}
@@ -0,0 +1,82 @@
+package com.dortegau.jq4java.benchmarks;
+
+import com.dortegau.jq4java.Jq;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Early termination of {@code limit}, {@code first} and {@code nth} over arrays of growing
+ * length. The matches sit at the front of the array, so the time per operation should stay flat
+ * as {@code length} grows; the {@code all-matches} filter is the baseline that visits every
+ * element.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorControlBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  public int length;
+
+  @Param({"limit", "first", "nth", "all-matches"})
+  public String filter;
+
+  private JqValue input;
+  private Expression expression;
+
+  /**
+   * Builds an array of {@code length} numbers and compiles the selected filter.
+   */
+  @Setup
+  public void setUp() {
+    List<JqValue> numbers = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      numbers.add(JqValue.fromLong(i));
+    }
+    input = JqValue.array(numbers);
+    expression = Jq.compile(program(filter));
+  }
+
+  private static String program(String filter) {
+    switch (filter) {
+      case "limit":
+        return "limit(10; .[] | select(. % 2 == 0))";
+      case "first":
+        return "first(.[] | select(. > 100))";
+      case "nth":
+        return "nth(500; .[])";
+      case "all-matches":
+        return ".[] | select(. % 2 == 0)";
+      default:
+        throw new IllegalArgumentException("Unknown filter: " + filter);
+    }
+  }
+
+  /**
+   * Runs the filter once, handing every result to the blackhole.
+   */
+  @Benchmark
+  public boolean evaluate(Blackhole blackhole) {
+    return expression.evaluate(input, value -> {
+      blackhole.consume(value);
+      return true;
+    });
+  }
+}
@@ -0,0 +1,60 @@
+package com.dortegau.jq4java.benchmarks;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing JSON documents of different shapes into {@link JqValue} trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseJsonBenchmark {
+  @Param({Documents.RECORDS, Documents.NUMBERS, Documents.STRINGS, Documents.NESTED,
+      Documents.WIDE_OBJECT})
+  public String shape;
+
+  private String text;
+  private byte[] bytes;
+
+  /**
+   * Generates the document for the selected shape.
+   */
+  @Setup
+  public void setUp() {
+    text = Documents.json(shape);
+    bytes = Documents.bytes(shape);
+  }
+
+  @Benchmark
+  public JqValue parseString() {
+    return JqValue.parse(text);
+  }
+
+  @Benchmark
+  public JqValue parseBytes() {
+    return JqValue.parse(ByteBuffer.wrap(bytes));
+  }
+
+  @Benchmark
+  public JqValue parseStream() throws IOException {
+    return JqValue.parse(new ByteArrayInputStream(bytes));
+  }
+}
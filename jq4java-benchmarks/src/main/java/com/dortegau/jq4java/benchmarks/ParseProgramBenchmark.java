@@ -0,0 +1,69 @@
+package com.dortegau.jq4java.benchmarks;
+
+import com.dortegau.jq4java.Jq;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.parser.JqParser;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing jq programs into an AST, and full compilation including the optimizer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseProgramBenchmark {
+  @Param({"small", "medium", "large"})
+  public String size;
+
+  private String program;
+
+  /**
+   * Builds the program text for the selected size.
+   */
+  @Setup
+  public void setUp() {
+    switch (size) {
+      case "small":
+        program = ".user.name";
+        break;
+      case "medium":
+        program = ".[] | select(.active and .score > 50) | {id, name, city: .address.city, "
+            + "tags: [.tags[] | select(. != \"golf\")], label: \"\\(.name) <\\(.email)>\"}";
+        break;
+      case "large":
+        StringBuilder sb = new StringBuilder(".[]");
+        for (int i = 0; i < 50; i++) {
+          sb.append(" | if .score > ").append(i).append(" then {id, step").append(i)
+              .append(": (.score * ").append(i).append(" + 1)} else . end");
+        }
+        program = sb.toString();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown program size: " + size);
+    }
+  }
+
+  @Benchmark
+  public Expression parse() {
+    return JqParser.parse(program);
+  }
+
+  @Benchmark
+  public Expression compile() {
+    return Jq.compile(program);
+  }
+}
@@ -0,0 +1,99 @@
+package com.dortegau.jq4java.benchmarks;
+
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.JsonWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializing {@link JqValue} trees back to JSON text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+  @Param({Documents.RECORDS, Documents.NUMBERS, Documents.STRINGS, Documents.NESTED,
+      Documents.WIDE_OBJECT})
+  public String shape;
+
+  private JqValue value;
+
+  @Setup
+  public void setUp() {
+    value = JqValue.parse(Documents.json(shape));
+  }
+
+  @Benchmark
+  public String toJson() {
+    return value.toJson();
+  }
+
+  /**
+   * Streams the document through a {@link JsonWriter} into a writer that only counts
+   * characters, so the measurement excludes any destination cost.
+   */
+  @Benchmark
+  public void writeToWriter(Blackhole blackhole) throws IOException {
+    CountingWriter out = new CountingWriter();
+    new JsonWriter(out).write(value).flush();
+    blackhole.consume(out.count);
+  }
+
+  /**
+   * Same as {@link #writeToWriter} but including UTF-8 encoding.
+   */
+  @Benchmark
+  public void writeToStream(Blackhole blackhole) throws IOException {
+    CountingStream out = new CountingStream();
+    new JsonWriter(out).write(value).flush();
+    blackhole.consume(out.count);
+  }
+
+  private static final class CountingWriter extends Writer {
+    long count;
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class CountingStream extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+      count += length;
+    }
+  }
+}
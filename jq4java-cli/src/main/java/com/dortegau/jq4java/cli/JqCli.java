@@ -1,12 +1,18 @@
 package com.dortegau.jq4java.cli;
 
 import com.dortegau.jq4java.Jq;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.JsonReader;
+import com.dortegau.jq4java.json.JsonWriter;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Command-line interface for jq4java.
@@ -22,35 +28,53 @@ public final class JqCli {
    * @param args command-line arguments
    */
   public static void main(final String[] args) {
+    int status = run(args, System.in, System.out, System.err);
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /**
+   * Runs the CLI on the given streams and returns its exit status: 0 on success, 1 when any
+   * input failed, and 2 on a usage error.
+   */
+  static int run(final String[] args, final InputStream stdin, final PrintStream stdout,
+      final PrintStream stderr) {
     if (args.length == 0) {
-      showHelp();
-      System.exit(1);
+      showHelp(stdout);
+      return 1;
     }
 
     String filter = null;
     String inputFile = null;
     boolean nullInput = false;
+    int parallel = 0;
 
     for (int i = 0; i < args.length; i++) {
       String arg = args[i];
       if (arg.equals("--run-tests")) {
         if (args.length <= i + 1) {
-          System.err.println("Error: --run-tests requires test file path");
-          System.exit(1);
+          stderr.println("Error: --run-tests requires test file path");
+          return 1;
         }
-        runTests(args[i + 1]);
-        System.exit(0);
+        return runTests(args[i + 1], stdout, stderr);
       } else if (arg.equals("-n") || arg.equals("--null-input")) {
         nullInput = true;
+      } else if (arg.equals("--parallel")) {
+        parallel = args.length > i + 1 ? parseThreadCount(args[++i]) : 0;
+        if (parallel < 1) {
+          stderr.println("Error: --parallel requires a positive number of threads");
+          return 2;
+        }
       } else if (arg.equals("-h") || arg.equals("--help")) {
-        showHelp();
-        System.exit(0);
+        showHelp(stdout);
+        return 0;
       } else if (arg.equals("-V") || arg.equals("--version")) {
-        System.out.println(
+        stdout.println(
             "jq4java-1.0 (Java port of jq)");
-        System.out.println(
+        stdout.println(
             "https://github.com/dortegau/jq4java");
-        System.exit(0);
+        return 0;
       } else if (filter == null) {
         filter = arg;
       } else if (inputFile == null) {
@@ -59,42 +83,94 @@ public final class JqCli {
     }
 
     if (filter == null) {
-      System.err.println(
+      stderr.println(
           "jq4java - commandline JSON processor [version 1.0]");
-      System.err.println(
+      stderr.println(
           "Java port of jq - https://github.com/dortegau/jq4java");
-      System.err.println();
-      System.err.println(
+      stderr.println();
+      stderr.println(
           "Use jq4java --help for help with command-line options,");
-      System.exit(2);
+      return 2;
     }
 
+    JsonWriter out = new JsonWriter(stdout);
+    boolean failed = false;
     try {
-      String input = nullInput ? "null" : readInput(inputFile);
-      String result = Jq.execute(filter, input);
-      System.out.println(result);
+      Expression expression = Jq.compile(filter);
+      if (nullInput) {
+        failed = !process(expression, JqValue.nullValue(), out, stderr);
+      } else if (parallel > 0) {
+        AtomicBoolean recordFailed = new AtomicBoolean();
+        try (InputStream in = openInput(inputFile, stdin)) {
+          Jq.executeParallel(expression, in, stdout, parallel, e -> {
+            recordFailed.set(true);
+            stderr.println("jq4java: error: " + e.getMessage());
+          });
+        }
+        failed = recordFailed.get();
+      } else {
+        try (JsonReader inputs = new JsonReader(openInput(inputFile, stdin))) {
+          JqValue input;
+          while ((input = inputs.next()) != null) {
+            failed |= !process(expression, input, out, stderr);
+          }
+        }
+      }
+      out.flush();
     } catch (Exception e) {
-      System.err.println("jq4java: error: " + e.getMessage());
-      System.exit(1);
+      reportError(out, e, stderr);
+      return 1;
+    }
+    return failed ? 1 : 0;
+  }
+
+  private static int parseThreadCount(final String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
     }
   }
 
-  private static String readInput(final String inputFile) throws IOException {
+  /**
+   * Opens the input file, or stdin when none is given. Sequential runs read it as a stream of
+   * whitespace-separated JSON texts, one at a time, so that memory stays bounded by the largest
+   * single text rather than the whole input.
+   */
+  private static InputStream openInput(final String inputFile, final InputStream stdin)
+      throws IOException {
     if (inputFile == null) {
-      StringBuilder sb = new StringBuilder();
-      try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-          sb.append(line).append("\n");
-        }
-      }
-      return sb.toString().trim();
-    } else {
-      return new String(Files.readAllBytes(Paths.get(inputFile)));
+      return stdin;
+    }
+    return Files.newInputStream(Paths.get(inputFile));
+  }
+
+  /**
+   * Runs the filter on one input. Like jq, an error only abandons the current input.
+   */
+  private static boolean process(final Expression expression, final JqValue input,
+      final JsonWriter out, final PrintStream stderr) throws IOException {
+    try {
+      Jq.execute(expression, input, out);
+      return true;
+    } catch (RuntimeException e) {
+      reportError(out, e, stderr);
+      return false;
+    }
+  }
+
+  private static void reportError(final JsonWriter out, final Exception e,
+      final PrintStream stderr) {
+    try {
+      out.flush();
+    } catch (IOException ignored) {
+      // The error itself is more useful than a failure to flush partial output.
     }
+    stderr.println("jq4java: error: " + e.getMessage());
   }
 
-  private static void runTests(final String testFile) {
+  private static int runTests(final String testFile, final PrintStream stdout,
+      final PrintStream stderr) {
     int passed = 0;
     int failed = 0;
     int skipped = 0;
@@ -128,16 +204,16 @@ public final class JqCli {
             } else {
               failed++;
               if (failed <= 10) {
-                System.out.println("FAIL (line " + (lineNumber - 2) + "): " + filter);
-                System.out.println("  Input:    " + input);
-                System.out.println("  Expected: " + expected);
-                System.out.println("  Got:      " + result);
+                stdout.println("FAIL (line " + (lineNumber - 2) + "): " + filter);
+                stdout.println("  Input:    " + input);
+                stdout.println("  Expected: " + expected);
+                stdout.println("  Got:      " + result);
               }
             }
           } catch (Exception e) {
             skipped++;
             if (skipped <= 5) {
-              System.out.println("SKIP (line " + (lineNumber - 2) + "): " + filter + " - "
+              stdout.println("SKIP (line " + (lineNumber - 2) + "): " + filter + " - "
                   + e.getMessage());
             }
           }
@@ -147,16 +223,17 @@ public final class JqCli {
         }
       }
     } catch (IOException e) {
-      System.err.println("Error reading test file: " + e.getMessage());
-      System.exit(1);
+      stderr.println("Error reading test file: " + e.getMessage());
+      return 1;
     }
 
-    System.out.println("\n=== Test Results ===");
-    System.out.println("Total:   " + total);
-    System.out.println("Passed:  " + passed + " (" + (total > 0 ? (passed * 100 / total) : 0)
+    stdout.println("\n=== Test Results ===");
+    stdout.println("Total:   " + total);
+    stdout.println("Passed:  " + passed + " (" + (total > 0 ? (passed * 100 / total) : 0)
         + "%)");
-    System.out.println("Failed:  " + failed);
-    System.out.println("Skipped: " + skipped);
+    stdout.println("Failed:  " + failed);
+    stdout.println("Skipped: " + skipped);
+    return 0;
   }
 
   private static boolean jsonEqual(String a, String b) {
@@ -173,32 +250,33 @@ public final class JqCli {
     }
   }
 
-  private static void showHelp() {
-    System.out.println(
+  private static void showHelp(final PrintStream stdout) {
+    stdout.println(
         "jq4java - commandline JSON processor [version 1.0]");
-    System.out.println(
+    stdout.println(
         "Java port of jq - https://github.com/dortegau/jq4java");
-    System.out.println();
-    System.out.println(
+    stdout.println();
+    stdout.println(
         "Usage: jq4java [options] <jq filter> [file...]");
-    System.out.println();
-    System.out.println(
+    stdout.println();
+    stdout.println(
         "jq4java is a Java port of jq, a tool for processing JSON inputs,");
-    System.out.println(
+    stdout.println(
         "applying the given filter to its JSON text inputs and producing");
-    System.out.println(
+    stdout.println(
         "the filter's results as JSON on standard output.");
-    System.out.println();
-    System.out.println(
+    stdout.println();
+    stdout.println(
         "For jq documentation see https://jqlang.github.io/jq");
-    System.out.println();
-    System.out.println("Some of the options include:");
-    System.out.println("  -n, --null-input         Use null as input");
-    System.out.println("  --run-tests <file>       Run jq test suite from file");
-    System.out.println("  -h, --help               Show this help");
-    System.out.println("  -V, --version            Show version");
-    System.out.println();
-    System.out.println(
+    stdout.println();
+    stdout.println("Some of the options include:");
+    stdout.println("  -n, --null-input         Use null as input");
+    stdout.println("  --parallel <n>           Filter newline-delimited JSON on n threads");
+    stdout.println("  --run-tests <file>       Run jq test suite from file");
+    stdout.println("  -h, --help               Show this help");
+    stdout.println("  -V, --version            Show version");
+    stdout.println();
+    stdout.println(
         "See https://github.com/dortegau/jq4java for implementation status.");
   }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.dortegau.jq4java.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JqCliTest {
+  private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+  private int run(String stdin, String... args) {
+    return JqCli.run(args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)),
+        new PrintStream(stdout, true), new PrintStream(stderr, true));
+  }
+
+  private String out() {
+    return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private String err() {
+    return new String(stderr.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testNewlineDelimitedInputs() {
+    assertEquals(0, run("{\"a\":1}\n{\"a\":2}\n{\"a\":3}\n", ".a"));
+    assertEquals("1\n2\n3\n", out());
+    assertEquals("", err());
+  }
+
+  @Test
+  void testConcatenatedInputs() {
+    assertEquals(0, run("1 2[3]{\"a\":4}\"s\"null", "."));
+    assertEquals("1\n2\n[3]\n{\"a\":4}\n\"s\"\nnull\n", out());
+  }
+
+  @Test
+  void testLeadingZerosStayInOneNumber() {
+    assertEquals(0, run("01 00.5 .5", "."));
+    assertEquals("1\n0.5\n0.5\n", out());
+  }
+
+  @Test
+  void testInvalidTrailingInput() {
+    assertEquals(1, run("1 2 tru", "."));
+    assertEquals("1\n2\n", out());
+    assertTrue(err().startsWith("jq4java: error: "), err());
+  }
+
+  @Test
+  void testRuntimeErrorSkipsOnlyItsInput() {
+    assertEquals(1, run("1 \"a\" 3", ". + 1"));
+    assertEquals("2\n4\n", out());
+    assertEquals("jq4java: error: Cannot add values of these types\n", err());
+  }
+
+  @Test
+  void testRuntimeErrorKeepsEarlierOutputs() {
+    assertEquals(1, run("[1,0,2]", ".[] | 10 / ."));
+    assertEquals("10\n", out());
+    assertTrue(err().contains("cannot be divided because the divisor is zero"), err());
+  }
+
+  @Test
+  void testEmptyInputProducesNoOutput() {
+    assertEquals(0, run("", "."));
+    assertEquals("", out());
+    assertEquals(0, run(" \n\t\n", ".a"));
+    assertEquals("", out());
+    assertEquals("", err());
+  }
+
+  @Test
+  void testNullInput() {
+    assertEquals(0, run("ignored", "-n", "[1, 2] | length"));
+    assertEquals("2\n", out());
+  }
+
+  @Test
+  void testUsageErrors() {
+    assertEquals(2, run("", "-n"));
+    assertEquals(2, run("", "--parallel", "0", "."));
+    assertEquals(1, run("1", "invalid syntax here"));
+    assertTrue(err().contains("Parse error"), err());
+  }
+}
@@ -7,7 +7,17 @@ program
 
 // Expression hierarchy (precedence from lowest to highest)
 expression
-    : commaExpr (PIPE commaExpr)*
+    : funcDef* commaExpr (PIPE funcDef* commaExpr)*
+    ;
+
+// Function definitions are in scope for the rest of the pipe they start
+funcDef
+    : DEF IDENTIFIER (LPAREN param (SEMICOLON param)* RPAREN)? COLON expression SEMICOLON
+    ;
+
+param
+    : IDENTIFIER
+    | VARIABLE
     ;
 
 commaExpr
@@ -41,7 +51,7 @@ logicalExpr
     ;
 
 comparisonExpr
-    : arithmeticExpr ((EQ | NE | LT | LE | GT | GE) arithmeticExpr)*
+    : arithmeticExpr ((EQ | NE | LT | LE | GT | GE) arithmeticExpr)?
     ;
 
 arithmeticExpr
@@ -54,6 +64,7 @@ postfix
     | postfix LBRACKET expression RBRACKET          # ArrayIndexExpr
     | postfix DOT IDENTIFIER                        # FieldAccessExpr
     | postfix DOT STRING                            # FieldAccessStringExpr
+    | postfix AS pattern                            # BindingHead
     | DOT IDENTIFIER                                # RootFieldAccess
     | DOT STRING                                    # RootFieldAccessString
     | DOT LBRACKET RBRACKET                         # RootArrayIteration
@@ -73,12 +84,17 @@ slice
 
 primary
     : DOT                                           # IdentityExpr
+    | DOTDOT                                        # RecursiveDescentExpr
     | TRUE                                          # TrueLiteral
     | FALSE                                         # FalseLiteral
     | NULL                                          # NullLiteral
     | NUMBER                                        # NumberLiteral
     | STRING                                        # StringLiteral
     | NOT                                           # NotExpr
+    | VARIABLE                                      # VariableExpr
+    | REDUCE postfix AS pattern LPAREN expression SEMICOLON expression RPAREN   # ReduceExpr
+    | FOREACH postfix AS pattern
+      LPAREN expression SEMICOLON expression (SEMICOLON expression)? RPAREN    # ForeachExpr
     | IDENTIFIER LPAREN expression (SEMICOLON expression)* RPAREN  # FunctionCall
     | IDENTIFIER                                    # ZeroArgFunction
     | AT IDENTIFIER                                 # FormatFunction
@@ -91,9 +107,25 @@ objectField
     : IDENTIFIER COLON expression    # ExplicitField
     | STRING COLON expression        # StringField
     | IDENTIFIER                     # ShorthandField
+    | VARIABLE                       # VariableField
+    ;
+
+// Destructuring patterns of "as", "reduce" and "foreach"
+pattern
+    : VARIABLE                                                      # VariablePattern
+    | LBRACKET pattern (COMMA pattern)* RBRACKET                    # ArrayPattern
+    | LBRACE objectPatternField (COMMA objectPatternField)* RBRACE  # ObjectPattern
+    ;
+
+objectPatternField
+    : VARIABLE (COLON pattern)?                 # VariableKeyPattern
+    | IDENTIFIER COLON pattern                  # IdentifierKeyPattern
+    | STRING COLON pattern                      # StringKeyPattern
+    | LPAREN expression RPAREN COLON pattern    # ComputedKeyPattern
     ;
 
 // Lexer rules
+DOTDOT      : '..' ;
 DOT         : '.' ;
 PIPE        : '|' ;
 COMMA       : ',' ;
@@ -136,9 +168,14 @@ THEN        : 'then' ;
 ELSE        : 'else' ;
 ELIF        : 'elif' ;
 END         : 'end' ;
+REDUCE      : 'reduce' ;
+FOREACH     : 'foreach' ;
+AS          : 'as' ;
+DEF         : 'def' ;
 
 NUMBER      : '-'? [0-9]+ ('.' [0-9]+)? ;
 IDENTIFIER  : [a-zA-Z_][a-zA-Z0-9_]* ;
+VARIABLE    : '$' [a-zA-Z_][a-zA-Z0-9_]* ;
 STRING      : '"' (~["\\] | '\\' .)* '"' ;
 
 WS          : [ \t\r\n]+ -> skip ;
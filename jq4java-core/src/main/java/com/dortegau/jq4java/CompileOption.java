@@ -0,0 +1,12 @@
+package com.dortegau.jq4java;
+
+/**
+ * Options accepted by {@link Jq#compile(String, CompileOption...)}.
+ */
+public enum CompileOption {
+  /**
+   * Compiles single-output parts of the program into generated JVM classes. Parts that cannot
+   * be compiled keep running on the interpreter.
+   */
+  BYTECODE
+}
@@ -1,23 +1,44 @@
 package com.dortegau.jq4java;
 
+import com.dortegau.jq4java.ast.Environment;
 import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.OutputWindow;
+import com.dortegau.jq4java.compiler.BytecodeCompiler;
 import com.dortegau.jq4java.json.JqValue;
-import com.dortegau.jq4java.json.OrgJsonValue;
+import com.dortegau.jq4java.json.JsonWriter;
+import com.dortegau.jq4java.optimizer.Optimizer;
 import com.dortegau.jq4java.parser.JqParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Main entry point for jq4java library.
  */
 public class Jq {
+  private static volatile ProgramCache programCache = ProgramCache.builder().build();
+
   /**
    * Executes a jq expression on JSON input.
    *
+   * <p>The compiled program is looked up in {@link #programCache()}.
+   *
    * @param program the jq expression to execute
    * @param input the JSON input string
    * @return the result as a JSON string
    */
   public static String execute(String program, String input) {
-    Expression expr = compile(program);
+    Expression expr = programCache.get(program);
     return execute(expr, input);
   }
 
@@ -29,7 +50,7 @@ public class Jq {
    * @return the result as a JSON string
    */
   public static String execute(Expression expression, String input) {
-    JqValue inputValue = OrgJsonValue.parse(input);
+    JqValue inputValue = JqValue.parse(input);
     return execute(expression, inputValue);
   }
 
@@ -41,23 +62,260 @@ public class Jq {
    * @return the result as a JSON string
    */
   public static String execute(Expression expression, JqValue inputValue) {
-    StringBuilder sb = new StringBuilder();
-    expression.evaluate(inputValue).forEach(value -> {
-      if (sb.length() > 0) {
-        sb.append('\n');
-      }
-      sb.append(value.toJson());
+    StringWriter out = new StringWriter();
+    try {
+      execute(expression, inputValue, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    StringBuffer text = out.getBuffer();
+    if (text.length() > 0) {
+      text.setLength(text.length() - 1);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Executes a precompiled jq expression and streams each result to a writer.
+   *
+   * <p>Every result is serialized by a {@link JsonWriter} as compact JSON followed by a newline,
+   * without building an intermediate string. The writer is flushed but not closed, including
+   * when evaluation fails part way through.
+   *
+   * @param expression the precompiled jq expression
+   * @param inputValue the JSON input value
+   * @param out the destination for the results
+   * @throws IOException if writing to {@code out} fails
+   */
+  public static void execute(Expression expression, JqValue inputValue, Writer out)
+      throws IOException {
+    JsonWriter writer = new JsonWriter(out);
+    try {
+      execute(expression, inputValue, writer);
+    } finally {
+      writer.flush();
+    }
+  }
+
+  /**
+   * Executes a precompiled jq expression and writes each result to a shared JSON writer.
+   *
+   * <p>Nothing is flushed, so a caller processing a stream of inputs can keep one writer and one
+   * output buffer across all of them.
+   *
+   * @param expression the precompiled jq expression
+   * @param inputValue the JSON input value
+   * @param out the writer receiving one line per result
+   * @throws IOException if writing to {@code out} fails
+   */
+  public static void execute(Expression expression, JqValue inputValue, JsonWriter out)
+      throws IOException {
+    try {
+      expression.evaluate(inputValue, value -> {
+        try {
+          out.write(value).newLine();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return true;
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Runs a precompiled jq expression over newline-delimited JSON using several threads.
+   *
+   * <p>The first error raised while filtering a record is rethrown once the output of the
+   * records before it has been written.
+   *
+   * @param expression the precompiled jq expression, shared by all workers
+   * @param input UTF-8 encoded JSON texts, each ending on the line it starts on
+   * @param output the destination for the UTF-8 encoded results, one per line
+   * @param threads the number of worker threads
+   * @throws IOException if reading the input or writing the output fails
+   * @see #executeParallel(Expression, InputStream, OutputStream, int, Consumer)
+   */
+  public static void executeParallel(Expression expression, InputStream input,
+      OutputStream output, int threads) throws IOException {
+    executeParallel(expression, input, output, threads, error -> {
+      throw error;
     });
-    return sb.toString();
+  }
+
+  /**
+   * Runs a precompiled jq expression over newline-delimited JSON using several threads.
+   *
+   * <p>The input is cut into line-aligned chunks that are parsed and evaluated on a pool of
+   * {@code threads} workers, and results are written in input order exactly as a sequential
+   * run would write them. At most two chunks per worker are buffered, so memory stays bounded
+   * regardless of input size. An error while filtering a record is passed to
+   * {@code errorHandler} on the calling thread, in input order and after the output of earlier
+   * records has been flushed; processing continues unless the handler throws. Invalid JSON
+   * stops processing.
+   *
+   * @param expression the precompiled jq expression, shared by all workers
+   * @param input UTF-8 encoded JSON texts, each ending on the line it starts on
+   * @param output the destination for the UTF-8 encoded results, one per line
+   * @param threads the number of worker threads
+   * @param errorHandler receives errors raised while filtering individual records
+   * @throws IOException if reading the input or writing the output fails
+   */
+  public static void executeParallel(Expression expression, InputStream input,
+      OutputStream output, int threads, Consumer<RuntimeException> errorHandler)
+      throws IOException {
+    new ParallelExecutor(expression, threads, ParallelExecutor.DEFAULT_CHUNK_SIZE, errorHandler)
+        .run(input, output);
+  }
+
+  /**
+   * Evaluates a precompiled jq expression and returns its results as a lazy stream.
+   *
+   * <p>Results are computed as the stream is consumed. Operations that may stop early, such as
+   * {@code findFirst()}, {@code limit(n)} or the stream's iterator, read them in
+   * {@link OutputWindow}s, so a large or infinite generator only evaluates the results it needs,
+   * at the cost of evaluating the expression again for each window. Operations that consume
+   * every result, such as {@code forEach} or {@code collect}, evaluate it once.
+   *
+   * @param expression the precompiled jq expression
+   * @param inputValue the JSON input value
+   * @return the results in output order
+   */
+  public static Stream<JqValue> stream(Expression expression, JqValue inputValue) {
+    return StreamSupport.stream(new Results(expression, inputValue), false);
   }
 
   /**
    * Compiles a jq expression for reuse across multiple executions.
    *
+   * <p>The parsed AST is run through {@link Optimizer#standard()}. The returned expression is
+   * immutable and may be shared by any number of threads without synchronization.
+   *
    * @param program the jq expression to compile
    * @return the compiled expression AST
    */
   public static Expression compile(String program) {
-    return JqParser.parse(program);
+    return compile(program, Optimizer.standard());
+  }
+
+  /**
+   * Compiles a jq expression with the given options.
+   *
+   * @param program the jq expression to compile
+   * @param options the compilation options, such as {@link CompileOption#BYTECODE}
+   * @return the compiled expression
+   */
+  public static Expression compile(String program, CompileOption... options) {
+    return compile(program, Optimizer.standard(), options);
+  }
+
+  /**
+   * Compiles a jq expression with a specific set of optimization passes.
+   *
+   * @param program the jq expression to compile
+   * @param optimizer the passes applied to the parsed AST, e.g. {@link Optimizer#none()}
+   * @param options the compilation options, such as {@link CompileOption#BYTECODE}
+   * @return the compiled expression
+   */
+  public static Expression compile(String program, Optimizer optimizer,
+                                   CompileOption... options) {
+    Expression expression = optimizer.optimize(JqParser.parse(program));
+    if (Arrays.asList(options).contains(CompileOption.BYTECODE)) {
+      expression = BytecodeCompiler.compile(expression);
+    }
+    return expression;
+  }
+
+  /**
+   * Returns the cache used by {@link #execute(String, String)}.
+   *
+   * @return the shared program cache
+   */
+  public static ProgramCache programCache() {
+    return programCache;
+  }
+
+  /**
+   * Replaces the cache used by {@link #execute(String, String)}.
+   *
+   * @param cache the new shared program cache
+   */
+  public static void setProgramCache(ProgramCache cache) {
+    programCache = Objects.requireNonNull(cache, "cache");
+  }
+
+  /**
+   * The results of one evaluation, read one {@link OutputWindow} at a time.
+   */
+  private static final class Results extends Spliterators.AbstractSpliterator<JqValue> {
+    private final Expression expression;
+    private final JqValue input;
+    private OutputWindow window;
+    private int position;
+    private long consumed;
+    private boolean done;
+
+    Results(Expression expression, JqValue input) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.expression = expression;
+      this.input = input;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super JqValue> action) {
+      if (done) {
+        return false;
+      }
+      if (window == null) {
+        window = OutputWindow.first(expression, input, new Environment());
+      } else if (position == window.values().size() && window.hasMore()) {
+        window = window.next(expression, input, new Environment());
+        position = 0;
+      }
+      if (position == window.values().size()) {
+        done = true;
+        if (window.failure() != null) {
+          throw window.failure();
+        }
+        return false;
+      }
+      consumed++;
+      action.accept(window.values().get(position++));
+      return true;
+    }
+
+    /**
+     * Pushes the remaining results straight to {@code action} in one evaluation rather than
+     * window by window, since the consumer wants all of them anyway.
+     */
+    @Override
+    public void forEachRemaining(Consumer<? super JqValue> action) {
+      if (done) {
+        return;
+      }
+      done = true;
+      if (window != null) {
+        while (position < window.values().size()) {
+          consumed++;
+          action.accept(window.values().get(position++));
+        }
+        if (!window.hasMore()) {
+          if (window.failure() != null) {
+            throw window.failure();
+          }
+          return;
+        }
+      }
+      long[] skipped = {0};
+      expression.evaluate(input, new Environment(), value -> {
+        if (skipped[0] < consumed) {
+          skipped[0]++;
+        } else {
+          action.accept(value);
+        }
+        return true;
+      });
+    }
   }
 }
@@ -0,0 +1,252 @@
+package com.dortegau.jq4java;
+
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.JsonReader;
+import com.dortegau.jq4java.json.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs one compiled program over newline-delimited JSON on a pool of worker threads.
+ *
+ * <p>The calling thread cuts the input into chunks that end on a line feed and hands each chunk
+ * to a worker, which parses and evaluates its records and serializes the results into a private
+ * buffer. The calling thread then writes the buffers out in input order. At most two chunks per
+ * worker are in flight, which bounds the reorder buffer and therefore memory.
+ *
+ * <p>Since chunks are cut at line feeds, every JSON text must end on the line it starts on.
+ */
+final class ParallelExecutor {
+  static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private final Expression expression;
+  private final int threads;
+  private final int chunkSize;
+  private final Consumer<RuntimeException> errorHandler;
+
+  ParallelExecutor(Expression expression, int threads, int chunkSize,
+      Consumer<RuntimeException> errorHandler) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    this.expression = expression;
+    this.threads = threads;
+    this.chunkSize = chunkSize;
+    this.errorHandler = errorHandler;
+  }
+
+  void run(InputStream input, OutputStream output) throws IOException {
+    AtomicInteger workerCount = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+      Thread thread = new Thread(task, "jq4java-worker-" + workerCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      Deque<Future<Chunk>> pending = new ArrayDeque<>();
+      int lines = 0;
+      Splitter splitter = new Splitter(input);
+      Chunk next;
+      while ((next = splitter.next()) != null) {
+        if (pending.size() == threads * 2) {
+          lines = emit(await(pending.removeFirst()), lines, output);
+        }
+        Chunk chunk = next;
+        pending.addLast(workers.submit(() -> evaluate(chunk)));
+      }
+      while (!pending.isEmpty()) {
+        lines = emit(await(pending.removeFirst()), lines, output);
+      }
+      output.flush();
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  private Chunk evaluate(Chunk chunk) throws IOException {
+    JsonReader reader = new JsonReader(ByteBuffer.wrap(chunk.data, 0, chunk.length));
+    JsonWriter writer = new JsonWriter(chunk.output);
+    try {
+      JqValue input;
+      while ((input = reader.next()) != null) {
+        try {
+          Jq.execute(expression, input, writer);
+        } catch (RuntimeException e) {
+          writer.flush();
+          chunk.fail(e);
+        }
+      }
+    } catch (RuntimeException e) {
+      chunk.invalid = true;
+    }
+    writer.flush();
+    chunk.lines = countLines(chunk.data, chunk.length);
+    return chunk;
+  }
+
+  /**
+   * Writes a finished chunk, reporting its errors in order, and returns the number of lines
+   * consumed so far.
+   */
+  private int emit(Chunk chunk, int linesBefore, OutputStream output) throws IOException {
+    int written = 0;
+    for (int i = 0; i < chunk.errors.size(); i++) {
+      int offset = chunk.errorOffsets.get(i);
+      chunk.output.writeTo(output, written, offset);
+      written = offset;
+      output.flush();
+      errorHandler.accept(chunk.errors.get(i));
+    }
+    chunk.output.writeTo(output, written, chunk.output.size());
+    if (chunk.invalid) {
+      output.flush();
+      throw parseError(chunk, linesBefore + 1);
+    }
+    return linesBefore + chunk.lines;
+  }
+
+  /**
+   * Re-reads an invalid chunk with its absolute first line so that the error reports the
+   * position in the whole input.
+   */
+  private static RuntimeException parseError(Chunk chunk, int firstLine) throws IOException {
+    JsonReader reader = new JsonReader(ByteBuffer.wrap(chunk.data, 0, chunk.length), firstLine);
+    try {
+      while (reader.next() != null) {
+        continue;
+      }
+    } catch (RuntimeException e) {
+      return e;
+    }
+    throw new IllegalStateException("Chunk failed to parse only once");
+  }
+
+  private static Chunk await(Future<Chunk> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for results");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static int countLines(byte[] data, int length) {
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      if (data[i] == '\n') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A line-aligned slice of the input together with the results produced from it.
+   */
+  private static final class Chunk {
+    final byte[] data;
+    final int length;
+    final Output output = new Output();
+    final List<Integer> errorOffsets = new ArrayList<>();
+    final List<RuntimeException> errors = new ArrayList<>();
+    boolean invalid;
+    int lines;
+
+    Chunk(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+    }
+
+    void fail(RuntimeException error) {
+      errorOffsets.add(output.size());
+      errors.add(error);
+    }
+  }
+
+  /**
+   * Result buffer that can copy out a range without cloning its array.
+   */
+  private static final class Output extends ByteArrayOutputStream {
+    void writeTo(OutputStream out, int from, int to) throws IOException {
+      out.write(buf, from, to - from);
+    }
+  }
+
+  /**
+   * Reads the input into chunks of at least the configured size that end just after a line
+   * feed. A line longer than the chunk size grows the chunk until the line ends.
+   */
+  private final class Splitter {
+    private final InputStream input;
+    private byte[] carry = new byte[0];
+    private int carryLength;
+    private boolean finished;
+
+    Splitter(InputStream input) {
+      this.input = input;
+    }
+
+    Chunk next() throws IOException {
+      if (finished) {
+        return null;
+      }
+      byte[] buffer = new byte[Math.max(chunkSize, carryLength * 2)];
+      System.arraycopy(carry, 0, buffer, 0, carryLength);
+      int length = carryLength;
+      while (true) {
+        if (length == buffer.length) {
+          int end = lastLineEnd(buffer, length);
+          if (end > 0) {
+            carry = Arrays.copyOfRange(buffer, end, length);
+            carryLength = carry.length;
+            return new Chunk(buffer, end);
+          }
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = input.read(buffer, length, buffer.length - length);
+        if (read < 0) {
+          finished = true;
+          return length == 0 ? null : new Chunk(buffer, length);
+        }
+        length += read;
+      }
+    }
+
+    private int lastLineEnd(byte[] buffer, int length) {
+      for (int i = length - 1; i >= 0; i--) {
+        if (buffer[i] == '\n') {
+          return i + 1;
+        }
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package com.dortegau.jq4java;
+
+import com.dortegau.jq4java.ast.Expression;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe cache of compiled programs keyed by program text.
+ *
+ * <p>Entries are evicted least recently used first once the cache holds more than
+ * {@link Builder#maximumSize(int)} programs, or once they are older than
+ * {@link Builder#expireAfterWrite(long, TimeUnit)}. Lookups of cached programs take no lock.
+ * Concurrent misses for the same program share a single compilation, while compiles of other
+ * programs proceed in parallel; failed compilations are not cached.
+ *
+ * <pre>{@code
+ * ProgramCache cache = ProgramCache.builder()
+ *     .maximumSize(5000)
+ *     .expireAfterWrite(10, TimeUnit.MINUTES)
+ *     .build();
+ * String result = Jq.execute(cache.get(filter), input);
+ * }</pre>
+ *
+ * <p>The static {@link Jq#execute(String, String)} uses {@link Jq#programCache()}.
+ */
+public final class ProgramCache {
+  private final int maximumSize;
+  private final long expireAfterWriteNanos;
+  private final Function<String, Expression> compiler;
+  private final LongSupplier ticker;
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  // Orders accesses for eviction; cheaper and steadier than reading a clock on every hit
+  private final AtomicLong accessOrder = new AtomicLong();
+  private final Object evictionLock = new Object();
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder compileCount = new LongAdder();
+  private final LongAdder totalCompileNanos = new LongAdder();
+
+  private static final class Entry {
+    final CompletableFuture<Expression> expression = new CompletableFuture<>();
+    final long writtenAt;
+    volatile long lastAccess;
+
+    Entry(long writtenAt, long lastAccess) {
+      this.writtenAt = writtenAt;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private ProgramCache(Builder builder) {
+    this.maximumSize = builder.maximumSize;
+    this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+    this.compiler = builder.compiler;
+    this.ticker = builder.ticker;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the compiled program for the given text, compiling and caching it on a miss. A caller
+   * that misses while another thread compiles the same program waits for that compilation.
+   *
+   * @param program the jq program text
+   * @return the compiled expression
+   * @throws RuntimeException if the program does not compile
+   */
+  public Expression get(String program) {
+    long now = ticker.getAsLong();
+    while (true) {
+      Entry entry = entries.get(program);
+      if (entry != null && isExpired(entry, now)) {
+        if (entries.remove(program, entry)) {
+          evictionCount.increment();
+        }
+        continue;
+      }
+      if (entry != null) {
+        hitCount.increment();
+        entry.lastAccess = accessOrder.incrementAndGet();
+        return await(entry.expression);
+      }
+
+      Entry created = new Entry(now, accessOrder.incrementAndGet());
+      if (entries.putIfAbsent(program, created) != null) {
+        continue;
+      }
+      missCount.increment();
+      return compile(program, created);
+    }
+  }
+
+  private Expression compile(String program, Entry entry) {
+    long start = System.nanoTime();
+    Expression compiled;
+    try {
+      compiled = compiler.apply(program);
+    } catch (RuntimeException | Error e) {
+      entries.remove(program, entry);
+      entry.expression.completeExceptionally(e);
+      throw e;
+    } finally {
+      compileCount.increment();
+      totalCompileNanos.add(System.nanoTime() - start);
+    }
+    entry.expression.complete(compiled);
+    evictOverflow();
+    return compiled;
+  }
+
+  private static Expression await(CompletableFuture<Expression> expression) {
+    try {
+      return expression.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return expireAfterWriteNanos > 0 && now - entry.writtenAt >= expireAfterWriteNanos;
+  }
+
+  /**
+   * Removes least recently used entries until the cache fits. Only misses get here, and they
+   * just paid for a compile, so a linear scan for the eldest entry is cheap in comparison.
+   */
+  private void evictOverflow() {
+    synchronized (evictionLock) {
+      while (entries.size() > maximumSize) {
+        Map.Entry<String, Entry> eldest = null;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+          if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+            eldest = candidate;
+          }
+        }
+        if (eldest == null) {
+          return;
+        }
+        if (entries.remove(eldest.getKey(), eldest.getValue())) {
+          evictionCount.increment();
+        }
+      }
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes every cached program. Statistics are kept.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns a snapshot of the cache statistics.
+   *
+   * @return the counters accumulated since the cache was created
+   */
+  public Stats stats() {
+    return new Stats(hitCount.sum(), missCount.sum(), evictionCount.sum(), compileCount.sum(),
+        totalCompileNanos.sum());
+  }
+
+  /**
+   * Immutable snapshot of cache counters.
+   */
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long compileCount;
+    private final long totalCompileNanos;
+
+    Stats(long hitCount, long missCount, long evictionCount, long compileCount,
+          long totalCompileNanos) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.compileCount = compileCount;
+      this.totalCompileNanos = totalCompileNanos;
+    }
+
+    public long hitCount() {
+      return hitCount;
+    }
+
+    public long missCount() {
+      return missCount;
+    }
+
+    /**
+     * Returns the fraction of lookups served from the cache, or 1.0 if there were none.
+     *
+     * @return the hit rate between 0.0 and 1.0
+     */
+    public double hitRate() {
+      long requests = hitCount + missCount;
+      return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long evictionCount() {
+      return evictionCount;
+    }
+
+    public long compileCount() {
+      return compileCount;
+    }
+
+    public long totalCompileTimeNanos() {
+      return totalCompileNanos;
+    }
+
+    public double averageCompileTimeNanos() {
+      return compileCount == 0 ? 0.0 : (double) totalCompileNanos / compileCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+          + ", compiles=" + compileCount + ", compileNanos=" + totalCompileNanos + "}";
+    }
+  }
+
+  /**
+   * Configures a {@link ProgramCache}.
+   */
+  public static final class Builder {
+    private int maximumSize = 1024;
+    private long expireAfterWriteNanos;
+    private Function<String, Expression> compiler = Jq::compile;
+    private LongSupplier ticker = System::nanoTime;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the maximum number of cached programs; the least recently used is evicted first.
+     *
+     * @param maximumSize the maximum number of entries, at least 1
+     * @return this builder
+     */
+    public Builder maximumSize(int maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Expires programs the given time after they were compiled. Zero disables expiry.
+     *
+     * @param duration the time to live
+     * @param unit the unit of {@code duration}
+     * @return this builder
+     */
+    public Builder expireAfterWrite(long duration, TimeUnit unit) {
+      if (duration < 0) {
+        throw new IllegalArgumentException("duration must not be negative: " + duration);
+      }
+      this.expireAfterWriteNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Sets how programs are compiled on a miss, e.g. with {@link CompileOption#BYTECODE}.
+     *
+     * @param compiler the function compiling program text
+     * @return this builder
+     */
+    public Builder compiler(Function<String, Expression> compiler) {
+      this.compiler = compiler;
+      return this;
+    }
+
+    Builder ticker(LongSupplier ticker) {
+      this.ticker = ticker;
+      return this;
+    }
+
+    public ProgramCache build() {
+      return new ProgramCache(this);
+    }
+  }
+}
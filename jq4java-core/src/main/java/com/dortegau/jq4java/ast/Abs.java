@@ -1,19 +1,14 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the abs function.
  * Returns the absolute value of a number.
  */
 public class Abs implements Expression {
-  static {
-    BuiltinRegistry.register("abs", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return Stream.of(input.abs());
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(input.abs());
   }
 }
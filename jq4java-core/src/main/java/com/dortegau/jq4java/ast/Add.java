@@ -1,19 +1,14 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the add function.
  * Adds/concatenates all elements in an array.
  */
 public class Add implements Expression {
-  static {
-    BuiltinRegistry.register("add", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (input.isNull()) {
       throw new RuntimeException("Cannot iterate over null (null)");
     }
@@ -22,6 +17,6 @@ public class Add implements Expression {
       throw new RuntimeException("Cannot iterate over " + input.type() + " (" + input + ")");
     }
 
-    return Stream.of(input.add());
+    return out.accept(input.add());
   }
 }
\ No newline at end of file
@@ -1,10 +1,11 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
- * Alternative operator (//): returns right if left is null or false.
+ * Alternative operator (//): emits every output of left that is neither null nor false, or
+ * the outputs of right if there are none. Left is streamed, so a consumer that stops early
+ * stops it too.
  */
 public class Alternative implements Expression {
   private final Expression left;
@@ -15,19 +16,24 @@ public class Alternative implements Expression {
     this.right = right;
   }
 
-  @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    Stream<JqValue> leftResult = left.evaluate(input);
-    JqValue leftValue = leftResult.findFirst().orElse(JqValue.nullValue());
-    
-    if (isNullOrFalse(leftValue)) {
-      return right.evaluate(input);
-    }
-    return Stream.of(leftValue);
+  public Expression getLeft() {
+    return left;
+  }
+
+  public Expression getRight() {
+    return right;
   }
 
-  private boolean isNullOrFalse(JqValue value) {
-    String str = value.toString();
-    return str.equals("null") || str.equals("false");
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    boolean[] produced = new boolean[1];
+    boolean more = left.evaluate(input, env, value -> {
+      if (!value.isTruthy()) {
+        return true;
+      }
+      produced[0] = true;
+      return out.accept(value);
+    });
+    return produced[0] ? more : right.evaluate(input, env, out);
   }
 }
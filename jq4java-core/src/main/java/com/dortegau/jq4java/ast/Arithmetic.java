@@ -1,49 +1,73 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
- * Represents arithmetic operations between two expressions.
- * Supports +, -, *, /, % operators.
+ * Base class for arithmetic operations between two expressions.
+ *
+ * <p>Each operator (+, -, *, /, %) is its own subclass, chosen once by {@link #of} when the AST
+ * is built, so evaluation never dispatches on the operator text.
  */
-public class Arithmetic implements Expression {
+public abstract class Arithmetic implements Expression {
   private final Expression left;
-  private final String operator;
   private final Expression right;
 
+  protected Arithmetic(Expression left, Expression right) {
+    this.left = left;
+    this.right = right;
+  }
+
   /**
-   * Creates a new Arithmetic expression.
+   * Creates the arithmetic node for the given operator.
    *
    * @param left the left-hand side expression
    * @param operator the arithmetic operator (+, -, *, /, %)
    * @param right the right-hand side expression
+   * @return the node implementing the operator
    */
-  public Arithmetic(Expression left, String operator, Expression right) {
-    this.left = left;
-    this.operator = operator;
-    this.right = right;
+  public static Arithmetic of(Expression left, String operator, Expression right) {
+    switch (operator) {
+      case "+":
+        return new AddNode(left, right);
+      case "-":
+        return new SubtractNode(left, right);
+      case "*":
+        return new MultiplyNode(left, right);
+      case "/":
+        return new DivideNode(left, right);
+      case "%":
+        return new ModuloNode(left, right);
+      default:
+        throw new RuntimeException("Unknown arithmetic operator: " + operator);
+    }
+  }
+
+  public Expression getLeft() {
+    return left;
+  }
+
+  public abstract String getOperator();
+
+  public Expression getRight() {
+    return right;
+  }
+
+  /**
+   * Returns a node of the same operator over new operands.
+   *
+   * @param left the new left-hand side expression
+   * @param right the new right-hand side expression
+   * @return the rebuilt node
+   */
+  public Arithmetic withOperands(Expression left, Expression right) {
+    return of(left, getOperator(), right);
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return left.evaluate(input).flatMap(leftValue ->
-        right.evaluate(input).map(rightValue -> {
-          switch (operator) {
-            case "+":
-              return leftValue.add(rightValue);
-            case "-":
-              return leftValue.subtract(rightValue);
-            case "*":
-              return leftValue.multiply(rightValue);
-            case "/":
-              return leftValue.divide(rightValue);
-            case "%":
-              return leftValue.modulo(rightValue);
-            default:
-              throw new RuntimeException("Unknown arithmetic operator: " + operator);
-          }
-        })
-    );
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return left.evaluate(input, env, leftValue ->
+        right.evaluate(input, env, rightValue -> out.accept(apply(leftValue, rightValue))));
   }
+
+  protected abstract JqValue apply(JqValue leftValue, JqValue rightValue);
 }
@@ -1,8 +1,9 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * Array construction expression.
@@ -11,14 +12,23 @@ public class ArrayConstruction implements Expression {
   private final List<Expression> elements;
 
   public ArrayConstruction(List<Expression> elements) {
-    this.elements = elements;
+    this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+  }
+
+  public List<Expression> getElements() {
+    return elements;
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    List<JqValue> values = elements.stream()
-        .flatMap(expr -> expr.evaluate(input))
-        .collect(java.util.stream.Collectors.toList());
-    return Stream.of(JqValue.array(values));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    List<JqValue> values = new ArrayList<>();
+    ValueSink collector = value -> {
+      values.add(value);
+      return true;
+    };
+    for (Expression expr : elements) {
+      expr.evaluate(input, env, collector);
+    }
+    return out.accept(JqValue.array(values));
   }
 }
\ No newline at end of file
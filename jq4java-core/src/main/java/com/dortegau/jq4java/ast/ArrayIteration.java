@@ -1,20 +1,41 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 /**
  * Array iteration expression.
  */
-public class ArrayIteration implements Expression {
+public class ArrayIteration implements UpdatableExpression {
   private final Expression base;
 
   public ArrayIteration(Expression base) {
     this.base = base;
   }
 
+  public Expression getBase() {
+    return base;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return base.evaluate(input, env, value -> {
+      for (JqValue element : value.elements()) {
+        if (!out.accept(element)) {
+          return false;
+        }
+      }
+      return true;
+    });
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return base.evaluate(input).flatMap(JqValue::stream);
+  public JqValue update(JqValue input, Environment env, Function<JqValue, JqValue> updater) {
+    if (!(base instanceof UpdatableExpression)) {
+      throw new RuntimeException("Base expression is not updatable");
+    }
+
+    UpdatableExpression updatableBase = (UpdatableExpression) base;
+    return updatableBase.update(input, env, container -> container.updateElements(updater));
   }
-}
\ No newline at end of file
+}
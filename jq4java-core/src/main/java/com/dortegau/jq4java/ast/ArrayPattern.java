@@ -0,0 +1,39 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Array destructuring pattern such as {@code [$first, [$x, $y]]}. The pattern at position
+ * {@code i} is matched against {@code .[i]}, so missing elements bind {@code null}.
+ */
+public class ArrayPattern implements Pattern {
+  private final List<Pattern> elements;
+
+  public ArrayPattern(List<Pattern> elements) {
+    this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+  }
+
+  public List<Pattern> getElements() {
+    return elements;
+  }
+
+  @Override
+  public boolean bind(JqValue value, Environment env, BooleanSupplier body) {
+    if (!value.isArray() && !value.isNull()) {
+      throw new RuntimeException("Cannot index " + value.typeName() + " with number");
+    }
+    return bindFrom(0, value, env, body);
+  }
+
+  private boolean bindFrom(int position, JqValue value, Environment env, BooleanSupplier body) {
+    if (position == elements.size()) {
+      return body.getAsBoolean();
+    }
+    return elements.get(position).bind(value.get(position), env,
+        () -> bindFrom(position + 1, value, env, body));
+  }
+}
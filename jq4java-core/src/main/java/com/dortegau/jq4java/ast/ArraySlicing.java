@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Array slicing expression.
@@ -25,7 +24,7 @@ public class ArraySlicing implements Expression {
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return base.evaluate(input).map(value -> value.slice(start, end));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return base.evaluate(input, env, value -> out.accept(value.slice(start, end)));
   }
 }
\ No newline at end of file
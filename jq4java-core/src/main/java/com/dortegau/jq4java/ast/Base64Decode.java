@@ -3,7 +3,6 @@ package com.dortegau.jq4java.ast;
 import com.dortegau.jq4java.json.JqValue;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the @base64d base64 decode function.
@@ -12,18 +11,18 @@ import java.util.stream.Stream;
 public class Base64Decode implements Expression {
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isString()) {
       throw new RuntimeException(
           "Cannot base64 decode " + input.typeName() + " (" + input + ")");
     }
 
+    byte[] decoded;
     try {
-      byte[] decoded = Base64.getDecoder().decode(input.asString());
-      String result = new String(decoded, StandardCharsets.UTF_8);
-      return Stream.of(JqValue.fromString(result));
+      decoded = Base64.getDecoder().decode(input.asString());
     } catch (IllegalArgumentException e) {
       throw new RuntimeException("Invalid base64 string: " + input, e);
     }
+    return out.accept(JqValue.fromString(new String(decoded, StandardCharsets.UTF_8)));
   }
 }
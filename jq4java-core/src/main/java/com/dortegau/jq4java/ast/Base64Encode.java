@@ -2,10 +2,9 @@ package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the @base64 base64 encode function.
@@ -14,13 +13,16 @@ import java.util.stream.Stream;
 public class Base64Encode implements Expression {
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (input.isString()) {
-      return Stream.of(encodeBytes(input.asString().getBytes(StandardCharsets.UTF_8)));
+      return out.accept(encodeBytes(input.asString().getBytes(StandardCharsets.UTF_8)));
     }
 
     if (input.isArray()) {
-      List<JqValue> elements = input.stream().collect(Collectors.toList());
+      List<JqValue> elements = new ArrayList<>();
+      for (JqValue element : input.elements()) {
+        elements.add(element);
+      }
       byte[] bytes = new byte[elements.size()];
       for (int i = 0; i < elements.size(); i++) {
         JqValue element = elements.get(i);
@@ -38,7 +40,7 @@ public class Base64Encode implements Expression {
         }
         bytes[i] = (byte) ((int) numericValue);
       }
-      return Stream.of(encodeBytes(bytes));
+      return out.accept(encodeBytes(bytes));
     }
 
     throw new RuntimeException(
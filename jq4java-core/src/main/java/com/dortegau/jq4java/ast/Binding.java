@@ -0,0 +1,47 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code SOURCE as PATTERN | BODY}.
+ *
+ * <p>Every output of {@code SOURCE} is matched against the pattern and {@code BODY} runs once
+ * per binding, against the same input as {@code SOURCE}: in {@code .config as $cfg | .events[]}
+ * the body still reads the whole document.
+ */
+public class Binding implements Expression {
+  private final Expression source;
+  private final Pattern pattern;
+  private final Expression body;
+
+  /**
+   * Creates a binding.
+   *
+   * @param source the expression producing the values to bind
+   * @param pattern the variable or destructuring pattern
+   * @param body the expression evaluated in the scope of the pattern
+   */
+  public Binding(Expression source, Pattern pattern, Expression body) {
+    this.source = source;
+    this.pattern = pattern;
+    this.body = body;
+  }
+
+  public Expression getSource() {
+    return source;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public Expression getBody() {
+    return body;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return source.evaluate(input, env, value ->
+        pattern.bind(value, env, () -> body.evaluate(input, env, out)));
+  }
+}
@@ -2,58 +2,140 @@ package com.dortegau.jq4java.ast;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
- * Registry for builtin function names and their arities.
- * This class manages the registration and listing of all available builtin functions.
+ * Immutable table of builtin functions and format filters, keyed by name and arity.
+ *
+ * <p>Builtins are resolved once while the AST is built. Zero-argument builtins and formats are
+ * stateless, so every call site shares a single instance; builtins taking arguments get a
+ * factory that builds the node from its argument expressions. The table is declared explicitly
+ * here, so its contents and the order reported by {@code builtins} do not depend on which
+ * classes happen to be loaded.
+ *
+ * <p>The maps are filled by this class's static initializer and only then made unmodifiable, so
+ * the JVM's class initialization lock publishes them safely to every thread that compiles a
+ * program, including the first concurrent ones.
  */
-public class BuiltinRegistry {
-  private static final List<String> BUILTINS = new ArrayList<>();
+public final class BuiltinRegistry {
+  private static final Map<String, Function<List<Expression>, Expression>> FUNCTIONS;
+  private static final Map<String, Expression> FORMATS;
+  private static final List<String> NAMES;
 
   static {
-    try {
-      Class.forName("com.dortegau.jq4java.ast.Length");
-      Class.forName("com.dortegau.jq4java.ast.Utf8ByteLength");
-      Class.forName("com.dortegau.jq4java.ast.Keys");
-      Class.forName("com.dortegau.jq4java.ast.In");
-      Class.forName("com.dortegau.jq4java.ast.Type");
-      Class.forName("com.dortegau.jq4java.ast.Builtins");
-      Class.forName("com.dortegau.jq4java.ast.MapFunction");
-      Class.forName("com.dortegau.jq4java.ast.MapValuesFunction");
-      Class.forName("com.dortegau.jq4java.ast.Select");
-      Class.forName("com.dortegau.jq4java.ast.Flatten");
-      Class.forName("com.dortegau.jq4java.ast.Add");
-      Class.forName("com.dortegau.jq4java.ast.Abs");
-      Class.forName("com.dortegau.jq4java.ast.Sort");
-      Class.forName("com.dortegau.jq4java.ast.Reverse");
-      Class.forName("com.dortegau.jq4java.ast.Unique");
-      Class.forName("com.dortegau.jq4java.ast.Transpose");
-      Class.forName("com.dortegau.jq4java.ast.Range");
-      Class.forName("com.dortegau.jq4java.ast.ToEntries");
-      Class.forName("com.dortegau.jq4java.ast.FromEntries");
-      Class.forName("com.dortegau.jq4java.ast.WithEntries");
-      Class.forName("com.dortegau.jq4java.ast.ToJson");
-      Class.forName("com.dortegau.jq4java.ast.FromJson");
-    } catch (ClassNotFoundException e) {
-      // Ignore
-    }
+    Map<String, Function<List<Expression>, Expression>> functions = new LinkedHashMap<>();
+    constant(functions, "length", new Length());
+    constant(functions, "utf8bytelength", new Utf8ByteLength());
+    constant(functions, "keys", new Keys());
+    unary(functions, "in", In::new);
+    constant(functions, "type", new Type());
+    constant(functions, "builtins", new Builtins());
+    unary(functions, "map", MapFunction::new);
+    unary(functions, "map_values", MapValuesFunction::new);
+    unary(functions, "select", Select::new);
+    constant(functions, "flatten", new Flatten());
+    constant(functions, "add", new Add());
+    constant(functions, "abs", new Abs());
+    constant(functions, "sort", new Sort());
+    constant(functions, "reverse", new Reverse());
+    constant(functions, "unique", new Unique());
+    constant(functions, "transpose", new Transpose());
+    functions.put("range/1", Range::new);
+    functions.put("range/2", Range::new);
+    functions.put("range/3", Range::new);
+    binary(functions, "limit", Limit::new);
+    constant(functions, "first", new ArrayIndexing(0, new Identity()));
+    unary(functions, "first", First::new);
+    constant(functions, "last", new ArrayIndexing(-1, new Identity()));
+    unary(functions, "last", Last::new);
+    binary(functions, "nth", Nth::new);
+    binary(functions, "until", Until::new);
+    binary(functions, "while", While::new);
+    unary(functions, "repeat", Repeat::new);
+    constant(functions, "recurse", new RecursiveDescent());
+    unary(functions, "recurse", Repeat::new);
+    binary(functions, "recurse", (f, condition) -> new Repeat(new Pipe(f, new Select(condition))));
+    unary(functions, "walk", Walk::new);
+    constant(functions, "paths", new Paths(null));
+    unary(functions, "paths", Paths::new);
+    constant(functions, "to_entries", new ToEntries());
+    constant(functions, "from_entries", new FromEntries());
+    unary(functions, "with_entries", WithEntries::new);
+    constant(functions, "tojson", new ToJson());
+    constant(functions, "fromjson", new FromJson());
+    FUNCTIONS = Collections.unmodifiableMap(functions);
+    NAMES = Collections.unmodifiableList(new ArrayList<>(functions.keySet()));
+
+    Map<String, Expression> formats = new HashMap<>();
+    formats.put("base64", new Base64Encode());
+    formats.put("base64d", new Base64Decode());
+    formats.put("uri", new UriEncode());
+    formats.put("urid", new UriDecode());
+    formats.put("text", new TextFormat());
+    formats.put("json", new JsonFormat());
+    formats.put("html", new HtmlFormat());
+    formats.put("csv", new CsvFormat());
+    formats.put("tsv", new TsvFormat());
+    formats.put("sh", new ShellFormat());
+    FORMATS = Collections.unmodifiableMap(formats);
+  }
+
+  private BuiltinRegistry() {
+  }
+
+  private static void constant(Map<String, Function<List<Expression>, Expression>> functions,
+                               String name, Expression instance) {
+    functions.put(name + "/0", arguments -> instance);
+  }
+
+  private static void unary(Map<String, Function<List<Expression>, Expression>> functions,
+                            String name, Function<Expression, Expression> factory) {
+    functions.put(name + "/1", arguments -> factory.apply(arguments.get(0)));
+  }
+
+  private static void binary(Map<String, Function<List<Expression>, Expression>> functions,
+                             String name, BiFunction<Expression, Expression, Expression> factory) {
+    functions.put(name + "/2", arguments -> factory.apply(arguments.get(0), arguments.get(1)));
   }
 
   /**
-   * Registers a builtin function with its name and arity.
+   * Resolves a builtin call to its AST node.
    *
    * @param name the function name
-   * @param arity the number of arguments the function takes
+   * @param arguments the argument expressions; empty for zero-argument calls
+   * @return the node implementing the call
+   * @throws RuntimeException if no builtin has this name and arity
+   */
+  public static Expression resolve(String name, List<Expression> arguments) {
+    String key = name + "/" + arguments.size();
+    Function<List<Expression>, Expression> factory = FUNCTIONS.get(key);
+    if (factory == null) {
+      throw new RuntimeException(key + " is not defined");
+    }
+    return factory.apply(arguments);
+  }
+
+  /**
+   * Resolves a format filter such as {@code @base64} to its shared node.
+   *
+   * @param name the format name without the leading {@code @}
+   * @return the node implementing the format
+   * @throws RuntimeException if the format is unknown
    */
-  public static void register(String name, int arity) {
-    String entry = name + "/" + arity;
-    if (!BUILTINS.contains(entry)) {
-      BUILTINS.add(entry);
+  public static Expression resolveFormat(String name) {
+    Expression format = FORMATS.get(name);
+    if (format == null) {
+      throw new RuntimeException("Unknown format: @" + name);
     }
+    return format;
   }
 
   public static List<String> list() {
-    return Collections.unmodifiableList(BUILTINS);
+    return NAMES;
   }
 }
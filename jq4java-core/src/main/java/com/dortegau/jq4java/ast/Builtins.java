@@ -1,25 +1,19 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import com.dortegau.jq4java.json.OrgJsonValue;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the builtins function that returns an array
  * of all available builtin function names.
  */
 public class Builtins implements Expression {
-  static {
-    BuiltinRegistry.register("builtins", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     List<JqValue> functions = BuiltinRegistry.list().stream()
-        .map(name -> OrgJsonValue.literal("\"" + name + "\""))
+        .map(name -> JqValue.fromString(name))
         .collect(Collectors.toList());
-    return Stream.of(OrgJsonValue.array(functions));
+    return out.accept(JqValue.array(functions));
   }
 }
@@ -0,0 +1,379 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Evaluation of user-defined functions on a stack kept on the heap, so that recursion is not
+ * bounded by the Java stack of the calling thread.
+ *
+ * <p>Push evaluation keeps every unfinished expression on the Java stack: in
+ * {@code def cnt: if length == 0 then 0 else (.[1:] | cnt) + 1 end;} each level holds the
+ * frames of its addition, pipe and call until the level below returns. Here what is left to do
+ * with an output is a {@link Continuation} object instead, and work that has to wait, such as
+ * the next output of a generator, is a task on an explicit stack that runs once everything
+ * pushed after it is done. That is the depth-first order push evaluation follows, so outputs
+ * come in the same order, and a tail call simply hands its continuation on.
+ *
+ * <p>Calls, filter parameters, pipes, commas, conditionals, operators, {@code select},
+ * {@code .[]}, {@code map}, array and object construction, {@code //} and {@code as $x} are
+ * evaluated this way. Any other expression is evaluated as usual and its outputs passed on; a
+ * call inside it starts a stack of its own, so recursion through it, such as through the update
+ * of a {@code reduce}, still takes Java stack at every level. {@code .}, literals, variables and
+ * operators on them have a single output and are computed directly.
+ *
+ * <p>Steps follow one rule to keep the order right: work that comes after an evaluation is
+ * pushed before starting it, and starting an evaluation or passing on an output is the last
+ * thing a step does.
+ */
+final class CallStack {
+  // Steps call each other directly up to this depth, then continue from the task stack
+  private static final int MAX_NESTING = 64;
+
+  private final Deque<Task> tasks = new ArrayDeque<>();
+  private int nesting;
+  private boolean stopped;
+
+  /**
+   * What is left to do with each output of an expression.
+   */
+  @FunctionalInterface
+  interface Continuation {
+    void accept(CallStack stack, JqValue value);
+  }
+
+  @FunctionalInterface
+  private interface Task {
+    void run(CallStack stack);
+  }
+
+  /**
+   * Evaluates an expression on a new stack, passing its outputs to {@code out}.
+   *
+   * @return {@code false} if {@code out} asked to stop, {@code true} otherwise
+   */
+  static boolean evaluate(Expression expression, JqValue input, Environment env, ValueSink out) {
+    CallStack stack = new CallStack();
+    stack.eval(expression, input, env, (current, value) -> {
+      if (!out.accept(value)) {
+        current.stop();
+      }
+    });
+    return stack.run();
+  }
+
+  private boolean run() {
+    while (!stopped && !tasks.isEmpty()) {
+      tasks.pop().run(this);
+    }
+    return !stopped;
+  }
+
+  private void stop() {
+    stopped = true;
+    tasks.clear();
+  }
+
+  private void eval(Expression expression, JqValue input, Environment env, Continuation rest) {
+    if (nesting == MAX_NESTING) {
+      tasks.push(stack -> stack.eval(expression, input, env, rest));
+      return;
+    }
+    nesting++;
+    dispatch(expression, input, env, rest);
+    nesting--;
+  }
+
+  private void emit(Continuation rest, JqValue value) {
+    if (nesting == MAX_NESTING) {
+      tasks.push(stack -> stack.emit(rest, value));
+      return;
+    }
+    nesting++;
+    rest.accept(this, value);
+    nesting--;
+  }
+
+  private void dispatch(Expression expression, JqValue input, Environment env, Continuation rest) {
+    JqValue constant = value(expression, input, env);
+    if (constant != null) {
+      emit(rest, constant);
+    } else if (expression instanceof FunctionCall) {
+      FunctionCall call = (FunctionCall) expression;
+      FunctionDefinition definition = call.definition(env);
+      eval(definition.getBody(), input, call.frame(definition, env), rest);
+    } else if (expression instanceof ClosureCall) {
+      Environment.Closure closure = ((ClosureCall) expression).resolve(env);
+      eval(closure.expression, input, closure.env, rest);
+    } else if (expression instanceof OuterFrame) {
+      OuterFrame outer = (OuterFrame) expression;
+      eval(outer.getExpression(), input, env.up(outer.getDepth()), rest);
+    } else if (expression instanceof Pipe) {
+      Pipe pipe = (Pipe) expression;
+      Expression right = pipe.getRight();
+      eval(pipe.getLeft(), input, env, (stack, value) -> stack.eval(right, value, env, rest));
+    } else if (expression instanceof Comma) {
+      List<Expression> expressions = ((Comma) expression).getExpressions();
+      for (int i = expressions.size() - 1; i > 0; i--) {
+        Expression next = expressions.get(i);
+        tasks.push(stack -> stack.eval(next, input, env, rest));
+      }
+      eval(expressions.get(0), input, env, rest);
+    } else if (expression instanceof Conditional) {
+      branch((Conditional) expression, 0, input, env, rest);
+    } else if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      Expression right = arithmetic.getRight();
+      eval(arithmetic.getLeft(), input, env, (stack, left) -> stack.eval(right, input, env,
+          (inner, value) -> inner.emit(rest, arithmetic.apply(left, value))));
+    } else if (expression instanceof Comparison) {
+      Comparison comparison = (Comparison) expression;
+      Expression right = comparison.getRight();
+      eval(comparison.getLeft(), input, env, (stack, left) -> stack.eval(right, input, env,
+          (inner, value) -> inner.emit(rest, JqValue.fromBoolean(comparison.test(left, value)))));
+    } else if (expression instanceof And) {
+      Expression right = ((And) expression).getRight();
+      eval(((And) expression).getLeft(), input, env, (stack, left) -> {
+        if (!left.isTruthy()) {
+          stack.emit(rest, JqValue.fromBoolean(false));
+        } else {
+          stack.eval(right, input, env,
+              (inner, value) -> inner.emit(rest, JqValue.fromBoolean(value.isTruthy())));
+        }
+      });
+    } else if (expression instanceof Or) {
+      Expression right = ((Or) expression).getRight();
+      eval(((Or) expression).getLeft(), input, env, (stack, left) -> {
+        if (left.isTruthy()) {
+          stack.emit(rest, JqValue.fromBoolean(true));
+        } else {
+          stack.eval(right, input, env,
+              (inner, value) -> inner.emit(rest, JqValue.fromBoolean(value.isTruthy())));
+        }
+      });
+    } else if (expression instanceof Alternative) {
+      Alternative alternative = (Alternative) expression;
+      Expression right = alternative.getRight();
+      boolean[] produced = new boolean[1];
+      tasks.push(stack -> {
+        if (!produced[0]) {
+          stack.eval(right, input, env, rest);
+        }
+      });
+      eval(alternative.getLeft(), input, env, (stack, value) -> {
+        if (value.isTruthy()) {
+          produced[0] = true;
+          stack.emit(rest, value);
+        }
+      });
+    } else if (expression instanceof Select) {
+      eval(((Select) expression).getCondition(), input, env, (stack, value) -> {
+        if (value.isTruthy()) {
+          stack.emit(rest, input);
+        }
+      });
+    } else if (expression instanceof ArrayIteration) {
+      eval(((ArrayIteration) expression).getBase(), input, env,
+          (stack, value) -> stack.iterate(value.elements().iterator(), rest));
+    } else if (expression instanceof MapFunction) {
+      if (!input.isArray()) {
+        throw new RuntimeException(
+            "Cannot iterate over " + input.typeName() + " (" + input + ")");
+      }
+      List<JqValue> results = new ArrayList<>();
+      tasks.push(stack -> stack.emit(rest, JqValue.array(results)));
+      collect(((MapFunction) expression).getExpr(), input.elements().iterator(), env, results);
+    } else if (expression instanceof ArrayConstruction) {
+      List<Expression> elements = ((ArrayConstruction) expression).getElements();
+      List<JqValue> results = new ArrayList<>();
+      tasks.push(stack -> stack.emit(rest, JqValue.array(results)));
+      collect(elements.iterator(), input, env, results);
+    } else if (expression instanceof ObjectConstruction) {
+      fields((ObjectConstruction) expression, 0, JqValue.object(Collections.emptyMap()), input,
+          env, rest);
+    } else if (expression instanceof Binding
+        && ((Binding) expression).getPattern() instanceof Variable) {
+      Binding binding = (Binding) expression;
+      int slot = ((Variable) binding.getPattern()).getSlot();
+      Expression body = binding.getBody();
+      eval(binding.getSource(), input, env, (stack, value) -> {
+        env.set(slot, value);
+        stack.eval(body, input, env, rest);
+      });
+    } else {
+      evaluateAsUsual(expression, input, env, rest);
+    }
+  }
+
+  /**
+   * Returns the only output of {@code .}, a literal, a variable or an operator applied to
+   * those, which need no steps of their own, or {@code null} for any other expression.
+   */
+  private static JqValue value(Expression expression, JqValue input, Environment env) {
+    if (expression instanceof Identity) {
+      return input;
+    } else if (expression instanceof Literal) {
+      return ((Literal) expression).getValue();
+    } else if (expression instanceof Variable) {
+      Variable variable = (Variable) expression;
+      return variable.getDepth() == 0
+          ? env.get(variable.getSlot()) : env.get(variable.getDepth(), variable.getSlot());
+    } else if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      JqValue left = value(arithmetic.getLeft(), input, env);
+      JqValue right = left == null ? null : value(arithmetic.getRight(), input, env);
+      return right == null ? null : arithmetic.apply(left, right);
+    } else if (expression instanceof Comparison) {
+      Comparison comparison = (Comparison) expression;
+      JqValue left = value(comparison.getLeft(), input, env);
+      JqValue right = left == null ? null : value(comparison.getRight(), input, env);
+      return right == null ? null : JqValue.fromBoolean(comparison.test(left, right));
+    }
+    return null;
+  }
+
+  /**
+   * Evaluates the condition of the given branch, 0 for {@code if} and 1 onwards for each
+   * {@code elif}, as {@link Conditional#evaluate} does.
+   */
+  private void branch(Conditional conditional, int branch, JqValue input, Environment env,
+      Continuation rest) {
+    List<Conditional.ElifBranch> elifBranches = conditional.getElifBranches();
+    if (branch > elifBranches.size()) {
+      if (conditional.getElseExpr() != null) {
+        eval(conditional.getElseExpr(), input, env, rest);
+      } else {
+        emit(rest, input);
+      }
+      return;
+    }
+    Expression test = branch == 0
+        ? conditional.getCondition() : elifBranches.get(branch - 1).getCondition();
+    Expression then = branch == 0
+        ? conditional.getThenExpr() : elifBranches.get(branch - 1).getThenExpr();
+    eval(test, input, env, (stack, value) -> {
+      if (value.isTruthy()) {
+        stack.eval(then, input, env, rest);
+      } else {
+        stack.branch(conditional, branch + 1, input, env, rest);
+      }
+    });
+  }
+
+  private void iterate(Iterator<JqValue> elements, Continuation rest) {
+    if (!elements.hasNext()) {
+      return;
+    }
+    JqValue element = elements.next();
+    if (elements.hasNext()) {
+      tasks.push(stack -> stack.iterate(elements, rest));
+    }
+    emit(rest, element);
+  }
+
+  /**
+   * Adds the outputs of {@code expression} for each remaining input to {@code results}.
+   */
+  private void collect(Expression expression, Iterator<JqValue> inputs, Environment env,
+      List<JqValue> results) {
+    if (!inputs.hasNext()) {
+      return;
+    }
+    JqValue input = inputs.next();
+    if (inputs.hasNext()) {
+      tasks.push(stack -> stack.collect(expression, inputs, env, results));
+    }
+    eval(expression, input, env, (stack, value) -> results.add(value));
+  }
+
+  /**
+   * Adds the outputs of each remaining expression to {@code results}.
+   */
+  private void collect(Iterator<Expression> expressions, JqValue input, Environment env,
+      List<JqValue> results) {
+    if (!expressions.hasNext()) {
+      return;
+    }
+    Expression expression = expressions.next();
+    if (expressions.hasNext()) {
+      tasks.push(stack -> stack.collect(expressions, input, env, results));
+    }
+    eval(expression, input, env, (stack, value) -> results.add(value));
+  }
+
+  /**
+   * Emits one object for every combination of field values, as
+   * {@link ObjectConstruction#evaluate} does.
+   */
+  private void fields(ObjectConstruction object, int field, JqValue partial, JqValue input,
+      Environment env, Continuation rest) {
+    if (field == object.getKeys().size()) {
+      emit(rest, partial);
+      return;
+    }
+    String key = object.getKeys().get(field);
+    eval(object.getValues().get(field), input, env, (stack, value) ->
+        stack.fields(object, field + 1, partial.set(key, value), input, env, rest));
+  }
+
+  /**
+   * Evaluates an expression this class has no steps for. Each output is held until the next
+   * one arrives, so every output but the last is passed on from a stack of its own while the
+   * evaluation waits for it, and the last one, often the only one, from this stack.
+   */
+  private void evaluateAsUsual(Expression expression, JqValue input, Environment env,
+      Continuation rest) {
+    Held held = new Held(rest);
+    boolean more;
+    try {
+      more = expression.evaluate(input, env, held);
+    } catch (RuntimeException e) {
+      // The outputs before an error are passed on before it
+      if (held.value != null && !held.pass(held.value)) {
+        stop();
+        return;
+      }
+      throw e;
+    }
+    if (!more) {
+      stop();
+    } else if (held.value != null) {
+      emit(rest, held.value);
+    }
+  }
+
+  private static final class Held implements ValueSink {
+    private final Continuation rest;
+    private CallStack stack;
+    JqValue value;
+
+    Held(Continuation rest) {
+      this.rest = rest;
+    }
+
+    @Override
+    public boolean accept(JqValue next) {
+      JqValue previous = value;
+      // Cleared first: an error passing it on must not pass it on again
+      value = null;
+      if (previous != null && !pass(previous)) {
+        return false;
+      }
+      value = next;
+      return true;
+    }
+
+    boolean pass(JqValue output) {
+      if (stack == null) {
+        stack = new CallStack();
+      }
+      stack.emit(rest, output);
+      return stack.run();
+    }
+  }
+}
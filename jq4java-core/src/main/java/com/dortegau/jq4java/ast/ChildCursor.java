@@ -0,0 +1,67 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqArray;
+import com.dortegau.jq4java.json.JqNumber;
+import com.dortegau.jq4java.json.JqObject;
+import com.dortegau.jq4java.json.JqString;
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Position among the children of an array or object, the frame of the explicit stacks that
+ * {@link RecursiveDescent}, {@link Paths} and {@link Walk} traverse documents with. Object
+ * children come in insertion order, as {@code .[]} produces them in jq.
+ */
+final class ChildCursor {
+  private final JqArray array;
+  private final JqObject object;
+  private final int size;
+  private final JqArray path;
+  private int position;
+
+  /**
+   * Creates a cursor before the first child of a container.
+   *
+   * @param container an array or object, see {@link #isContainer(JqValue)}
+   * @param path the path of the container, or {@code null} when paths are not tracked
+   */
+  ChildCursor(JqValue container, JqArray path) {
+    this.array = container instanceof JqArray ? (JqArray) container : null;
+    this.object = container instanceof JqObject ? (JqObject) container : null;
+    this.size = array != null ? array.size() : object.size();
+    this.path = path;
+  }
+
+  static boolean isContainer(JqValue value) {
+    return value instanceof JqArray || value instanceof JqObject;
+  }
+
+  JqValue container() {
+    return array != null ? array : object;
+  }
+
+  boolean hasNext() {
+    return position < size;
+  }
+
+  /**
+   * Returns the position of the child {@link #next()} returns next.
+   */
+  int position() {
+    return position;
+  }
+
+  JqValue next() {
+    JqValue child = array != null ? array.get(position) : object.valueAt(position);
+    position++;
+    return child;
+  }
+
+  /**
+   * Returns the path of the child last returned by {@link #next()}.
+   */
+  JqArray childPath() {
+    JqValue key = array != null
+        ? JqNumber.of(position - 1) : JqString.of(object.keyAt(position - 1));
+    return path.asTransient().add(key).persistent();
+  }
+}
@@ -0,0 +1,44 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Call of a filter parameter, such as {@code f} in {@code def twice(f): f | f;}. The argument
+ * runs on the current input but in the frame of the caller that passed it, as in jq.
+ */
+public class ClosureCall implements Expression {
+  private final String name;
+  private final int index;
+  private final int depth;
+
+  /**
+   * Creates a parameter call.
+   *
+   * @param name the parameter name
+   * @param index the position of the parameter
+   * @param depth how many frames up the function owning the parameter runs
+   */
+  public ClosureCall(String name, int index, int depth) {
+    this.name = name;
+    this.index = index;
+    this.depth = depth;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the argument this parameter stands for. A parameter passed on to another call is
+   * passed as this argument itself, so recursion does not build chains of closures.
+   */
+  Environment.Closure resolve(Environment env) {
+    return env.up(depth).closure(index);
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    Environment.Closure closure = resolve(env);
+    return closure.expression.evaluate(input, closure.env, out);
+  }
+}
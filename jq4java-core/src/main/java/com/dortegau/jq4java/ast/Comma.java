@@ -1,8 +1,9 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * Comma expression.
@@ -11,11 +12,20 @@ public class Comma implements Expression {
   private final List<Expression> expressions;
 
   public Comma(List<Expression> expressions) {
-    this.expressions = expressions;
+    this.expressions = Collections.unmodifiableList(new ArrayList<>(expressions));
+  }
+
+  public List<Expression> getExpressions() {
+    return expressions;
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return expressions.stream().flatMap(expr -> expr.evaluate(input));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    for (Expression expr : expressions) {
+      if (!expr.evaluate(input, env, out)) {
+        return false;
+      }
+    }
+    return true;
   }
 }
\ No newline at end of file
@@ -1,59 +1,76 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Stream;
 
 /**
- * Represents comparison operations between two expressions.
- * Supports ==, !=, <, <=, >, >= operators.
+ * Base class for comparison operations between two expressions.
+ *
+ * <p>Each operator (==, !=, <, <=, >, >=) is its own subclass, chosen once by {@link #of} when
+ * the AST is built, so evaluation never dispatches on the operator text.
  */
-public class Comparison implements Expression {
+public abstract class Comparison implements Expression {
   private final Expression left;
-  private final String operator;
   private final Expression right;
 
+  protected Comparison(Expression left, Expression right) {
+    this.left = left;
+    this.right = right;
+  }
+
   /**
-   * Creates a new Comparison expression.
+   * Creates the comparison node for the given operator.
    *
    * @param left the left-hand side expression
    * @param operator the comparison operator
    * @param right the right-hand side expression
+   * @return the node implementing the operator
    */
-  public Comparison(Expression left, String operator, Expression right) {
-    this.left = left;
-    this.operator = operator;
-    this.right = right;
-  }
-
-  @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    List<JqValue> results = new ArrayList<>();
-    left.evaluate(input).forEach(leftValue -> {
-      right.evaluate(input).forEach(rightValue -> {
-        results.add(JqValue.fromBoolean(compare(leftValue, rightValue)));
-      });
-    });
-    return results.stream();
-  }
-
-  private boolean compare(JqValue left, JqValue right) {
+  public static Comparison of(Expression left, String operator, Expression right) {
     switch (operator) {
       case "==":
-        return left.equals(right);
+        return new EqNode(left, right);
       case "!=":
-        return !left.equals(right);
+        return new NeNode(left, right);
       case "<":
-        return left.compareTo(right) < 0;
+        return new LtNode(left, right);
       case "<=":
-        return left.compareTo(right) <= 0;
+        return new LeNode(left, right);
       case ">":
-        return left.compareTo(right) > 0;
+        return new GtNode(left, right);
       case ">=":
-        return left.compareTo(right) >= 0;
+        return new GeNode(left, right);
       default:
         throw new RuntimeException("Unknown operator: " + operator);
     }
   }
+
+  public Expression getLeft() {
+    return left;
+  }
+
+  public abstract String getOperator();
+
+  public Expression getRight() {
+    return right;
+  }
+
+  /**
+   * Returns a node of the same operator over new operands.
+   *
+   * @param left the new left-hand side expression
+   * @param right the new right-hand side expression
+   * @return the rebuilt node
+   */
+  public Comparison withOperands(Expression left, Expression right) {
+    return of(left, getOperator(), right);
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return left.evaluate(input, env, leftValue ->
+        right.evaluate(input, env, rightValue ->
+            out.accept(JqValue.fromBoolean(test(leftValue, rightValue)))));
+  }
+
+  protected abstract boolean test(JqValue leftValue, JqValue rightValue);
 }
@@ -1,8 +1,9 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * Conditional expression (if-then-else-elif-end): evaluates condition and returns
@@ -47,42 +48,44 @@ public class Conditional implements Expression {
                     List<ElifBranch> elifBranches, Expression elseExpr) {
     this.condition = condition;
     this.thenExpr = thenExpr;
-    this.elifBranches = elifBranches;
+    this.elifBranches = Collections.unmodifiableList(new ArrayList<>(elifBranches));
     this.elseExpr = elseExpr;
   }
 
-  @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    // Evaluate main condition
-    Stream<JqValue> conditionResults = condition.evaluate(input);
-    return conditionResults.flatMap(condValue -> {
-      if (isTruthy(condValue)) {
-        return thenExpr.evaluate(input);
-      }
+  public Expression getCondition() {
+    return condition;
+  }
 
-      // Check elif branches
-      for (ElifBranch elifBranch : elifBranches) {
-        Stream<JqValue> elifConditionResults = elifBranch.getCondition().evaluate(input);
-        JqValue elifCondValue = elifConditionResults.findFirst().orElse(JqValue.nullValue());
-        if (isTruthy(elifCondValue)) {
-          return elifBranch.getThenExpr().evaluate(input);
-        }
-      }
+  public Expression getThenExpr() {
+    return thenExpr;
+  }
+
+  public List<ElifBranch> getElifBranches() {
+    return elifBranches;
+  }
 
-      // If no conditions match, use else branch or pass through input
-      if (elseExpr != null) {
-        return elseExpr.evaluate(input);
-      } else {
-        return Stream.of(input);
-      }
-    });
+  public Expression getElseExpr() {
+    return elseExpr;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return evaluateBranch(0, input, env, out);
   }
 
   /**
-   * Implements jq truthiness rules: false and null are falsy, everything else is truthy.
+   * Evaluates the condition of the given branch, 0 for {@code if} and 1 onwards for each
+   * {@code elif}. Every output of a condition selects a branch, so a condition producing
+   * several values yields the results of each selected branch in turn.
    */
-  private boolean isTruthy(JqValue value) {
-    String str = value.toString();
-    return !str.equals("null") && !str.equals("false");
+  private boolean evaluateBranch(int branch, JqValue input, Environment env, ValueSink out) {
+    if (branch > elifBranches.size()) {
+      return elseExpr != null ? elseExpr.evaluate(input, env, out) : out.accept(input);
+    }
+    Expression test = branch == 0 ? condition : elifBranches.get(branch - 1).getCondition();
+    Expression then = branch == 0 ? thenExpr : elifBranches.get(branch - 1).getThenExpr();
+    return test.evaluate(input, env, value -> value.isTruthy()
+        ? then.evaluate(input, env, out)
+        : evaluateBranch(branch + 1, input, env, out));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Root of a program that defines functions running in frames of their own. Calls refer to
+ * definitions by position, so the definitions form a table rather than a cyclic graph and
+ * their bodies can be optimized and compiled like any other subtree.
+ */
+public class Definitions implements Expression {
+  private final List<FunctionDefinition> definitions;
+  private final Expression body;
+
+  public Definitions(List<FunctionDefinition> definitions, Expression body) {
+    this.definitions = Collections.unmodifiableList(new ArrayList<>(definitions));
+    this.body = body;
+  }
+
+  public List<FunctionDefinition> getDefinitions() {
+    return definitions;
+  }
+
+  public Expression getBody() {
+    return body;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    env.calls().definitions = definitions;
+    return body.evaluate(input, env, out);
+  }
+}
@@ -0,0 +1,22 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * The {@code /} operator: numeric division.
+ */
+public class DivideNode extends Arithmetic {
+  public DivideNode(Expression left, Expression right) {
+    super(left, right);
+  }
+
+  @Override
+  public String getOperator() {
+    return "/";
+  }
+
+  @Override
+  protected JqValue apply(JqValue leftValue, JqValue rightValue) {
+    return leftValue.divide(rightValue);
+  }
+}
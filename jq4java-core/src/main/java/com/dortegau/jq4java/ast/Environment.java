@@ -0,0 +1,131 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The variable bindings of one evaluation.
+ *
+ * <p>Variables are resolved to numbered slots when the AST is built, so a binding is a plain
+ * array store and a lookup a plain array load. Every declaration in a program gets its own slot,
+ * which makes shadowing free: an inner {@code $x} simply uses a different slot than the outer
+ * one. An environment is created for each evaluation and only used by the thread running it,
+ * which keeps compiled programs themselves immutable.
+ *
+ * <p>A call of a user-defined function that is not inlined runs in a frame of its own, whose
+ * parent is the frame the function was defined in. Variables of enclosing frames are addressed
+ * by how many frames up they live, so recursive calls never see each other's bindings.
+ */
+public final class Environment {
+  private static final JqValue[] EMPTY = new JqValue[0];
+
+  private final Environment parent;
+  private final Closure[] closures;
+  private final Calls calls;
+  private JqValue[] slots;
+
+  /**
+   * Creates the root frame of an evaluation.
+   */
+  public Environment() {
+    this.parent = null;
+    this.closures = null;
+    this.calls = new Calls();
+    this.slots = EMPTY;
+  }
+
+  private Environment(Environment parent, Closure[] closures, int size, Calls calls) {
+    this.parent = parent;
+    this.closures = closures;
+    this.calls = calls;
+    this.slots = size == 0 ? EMPTY : new JqValue[size];
+  }
+
+  /**
+   * Returns the value bound to a slot.
+   *
+   * @param slot the slot the variable was resolved to
+   * @return the bound value
+   * @throws RuntimeException if nothing is bound to the slot yet
+   */
+  public JqValue get(int slot) {
+    JqValue value = slot < slots.length ? slots[slot] : null;
+    if (value == null) {
+      throw new RuntimeException("Variable slot " + slot + " is not bound");
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value bound to a slot of an enclosing frame.
+   *
+   * @param depth how many frames up the variable was declared
+   * @param slot the slot the variable was resolved to
+   * @return the bound value
+   * @throws RuntimeException if nothing is bound to the slot yet
+   */
+  public JqValue get(int depth, int slot) {
+    return up(depth).get(slot);
+  }
+
+  /**
+   * Binds a value to a slot, replacing any earlier binding.
+   *
+   * @param slot the slot the variable was resolved to
+   * @param value the value to bind
+   */
+  public void set(int slot, JqValue value) {
+    if (slot >= slots.length) {
+      slots = Arrays.copyOf(slots, Math.max(slot + 1, slots.length * 2));
+    }
+    slots[slot] = value;
+  }
+
+  /**
+   * Returns the frame {@code depth} levels up from this one.
+   */
+  Environment up(int depth) {
+    Environment frame = this;
+    for (int i = 0; i < depth; i++) {
+      frame = frame.parent;
+    }
+    return frame;
+  }
+
+  /**
+   * Creates the frame of a call whose function was defined {@code depth} frames up.
+   */
+  Environment call(int depth, Closure[] arguments, int size) {
+    return new Environment(up(depth), arguments, size, calls);
+  }
+
+  Closure closure(int index) {
+    return closures[index];
+  }
+
+  Calls calls() {
+    return calls;
+  }
+
+  /**
+   * A filter argument of a call, evaluated in the frame of the caller.
+   */
+  static final class Closure {
+    final Expression expression;
+    final Environment env;
+
+    Closure(Expression expression, Environment env) {
+      this.expression = expression;
+      this.env = env;
+    }
+  }
+
+  /**
+   * Call state shared by every frame of one evaluation.
+   */
+  static final class Calls {
+    List<FunctionDefinition> definitions = Collections.emptyList();
+  }
+}
@@ -1,17 +1,91 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Base interface for all jq expressions.
+ *
+ * <p>Expressions are immutable: every field is final, child lists are unmodifiable copies, and
+ * evaluation keeps its state in locals, in the values it creates and in the {@link Environment}
+ * of the evaluation. A compiled program can therefore be evaluated concurrently from many
+ * threads. Implementations must preserve this.
  */
 public interface Expression {
   /**
-   * Evaluates this expression against the given input.
+   * Evaluates this expression against the given input, pushing every result into the sink.
+   *
+   * <p>Implementations stop producing values as soon as the sink returns {@code false} and
+   * report that by returning {@code false} themselves.
+   *
+   * @param input the input value
+   * @param env the variable bindings of the running evaluation
+   * @param out the sink receiving the results
+   * @return {@code false} if the sink asked to stop, {@code true} otherwise
+   */
+  boolean evaluate(JqValue input, Environment env, ValueSink out);
+
+  /**
+   * Evaluates this expression as a whole program, with no variables bound yet.
+   *
+   * @param input the input value
+   * @param out the sink receiving the results
+   * @return {@code false} if the sink asked to stop, {@code true} otherwise
+   */
+  default boolean evaluate(JqValue input, ValueSink out) {
+    return evaluate(input, new Environment(), out);
+  }
+
+  /**
+   * Evaluates this expression and returns its first result.
+   *
+   * @param input the input value
+   * @return the first result, or {@code null} if the expression produced no values
+   */
+  default JqValue first(JqValue input) {
+    return first(input, new Environment());
+  }
+
+  /**
+   * Evaluates this expression within a running evaluation and returns its first result.
+   *
+   * @param input the input value
+   * @param env the variable bindings of the running evaluation
+   * @return the first result, or {@code null} if the expression produced no values
+   */
+  default JqValue first(JqValue input, Environment env) {
+    JqValue[] result = new JqValue[1];
+    evaluate(input, env, value -> {
+      result[0] = value;
+      return false;
+    });
+    return result[0];
+  }
+
+  /**
+   * Evaluates this expression and collects all of its results.
+   *
+   * @param input the input value
+   * @return the results in output order
+   */
+  default List<JqValue> collect(JqValue input) {
+    return collect(input, new Environment());
+  }
+
+  /**
+   * Evaluates this expression within a running evaluation and collects all of its results.
    *
    * @param input the input value
-   * @return a stream of result values
+   * @param env the variable bindings of the running evaluation
+   * @return the results in output order
    */
-  Stream<JqValue> evaluate(JqValue input);
+  default List<JqValue> collect(JqValue input, Environment env) {
+    List<JqValue> results = new ArrayList<>();
+    evaluate(input, env, value -> {
+      results.add(value);
+      return true;
+    });
+    return results;
+  }
 }
@@ -2,7 +2,6 @@ package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 /**
  * Field access expression.
@@ -16,19 +15,27 @@ public class FieldAccess implements UpdatableExpression {
     this.base = base;
   }
 
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  public Expression getBase() {
+    return base;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return base.evaluate(input).map(value -> value.get(fieldName));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return base.evaluate(input, env, value -> out.accept(value.get(fieldName)));
   }
 
   @Override
-  public JqValue update(JqValue input, Function<JqValue, JqValue> updater) {
+  public JqValue update(JqValue input, Environment env, Function<JqValue, JqValue> updater) {
     if (!(base instanceof UpdatableExpression)) {
       throw new RuntimeException("Base expression is not updatable");
     }
 
     UpdatableExpression updatableBase = (UpdatableExpression) base;
-    return updatableBase.update(input, currentBase -> {
+    return updatableBase.update(input, env, currentBase -> {
       JqValue currentValue = currentBase.get(fieldName);
       JqValue updatedValue = updater.apply(currentValue);
       return currentBase.set(fieldName, updatedValue);
@@ -0,0 +1,41 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chain of field accesses such as {@code .a.b.c} looked up in a single step.
+ *
+ * <p>Produced by the optimizer from nested {@link FieldAccess} nodes so that each value of the
+ * base expression walks the whole path without intermediate sinks.
+ */
+public class FieldPath implements Expression {
+  private final List<String> fieldNames;
+  private final Expression base;
+
+  public FieldPath(List<String> fieldNames, Expression base) {
+    this.fieldNames = Collections.unmodifiableList(new ArrayList<>(fieldNames));
+    this.base = base;
+  }
+
+  public List<String> getFieldNames() {
+    return fieldNames;
+  }
+
+  public Expression getBase() {
+    return base;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return base.evaluate(input, env, value -> {
+      JqValue current = value;
+      for (String fieldName : fieldNames) {
+        current = current.get(fieldName);
+      }
+      return out.accept(current);
+    });
+  }
+}
@@ -0,0 +1,25 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code first(f)}: the first output of {@code f}, if any. The generator is
+ * stopped right after it, so {@code first(range(n))} costs the same for every {@code n}.
+ */
+public class First implements Expression {
+  private final Expression expr;
+
+  public First(Expression expr) {
+    this.expr = expr;
+  }
+
+  public Expression getExpr() {
+    return expr;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    JqValue value = expr.first(input, env);
+    return value == null || out.accept(value);
+  }
+}
@@ -0,0 +1,70 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code foreach SOURCE as $x (INIT; UPDATE; EXTRACT)}, where {@code $x} may
+ * also be a destructuring {@link Pattern}.
+ *
+ * <p>Works like {@link Reduce}, but every output of {@code UPDATE} is emitted through
+ * {@code EXTRACT}, which defaults to {@code .}, and becomes the state for the next source value.
+ * When {@code UPDATE} produces nothing the state is left as it was. Because every intermediate
+ * state escapes to the consumer, states are always persistent values.
+ */
+public class Foreach implements Expression {
+  private final Expression source;
+  private final Pattern pattern;
+  private final Expression init;
+  private final Expression update;
+  private final Expression extract;
+
+  /**
+   * Creates a foreach loop.
+   *
+   * @param source the expression whose outputs are iterated
+   * @param pattern the pattern each source output is bound to
+   * @param init the expression producing the initial states
+   * @param update the expression producing the next states from the current one
+   * @param extract the expression applied to each state before it is emitted
+   */
+  public Foreach(Expression source, Pattern pattern, Expression init, Expression update,
+                 Expression extract) {
+    this.source = source;
+    this.pattern = pattern;
+    this.init = init;
+    this.update = update;
+    this.extract = extract;
+  }
+
+  public Expression getSource() {
+    return source;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public Expression getInit() {
+    return init;
+  }
+
+  public Expression getUpdate() {
+    return update;
+  }
+
+  public Expression getExtract() {
+    return extract;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return init.evaluate(input, env, initial -> {
+      JqValue[] state = {initial};
+      return source.evaluate(input, env, item -> pattern.bind(item, env, () ->
+          update.evaluate(state[0], env, next -> {
+            state[0] = next;
+            return extract.evaluate(next, env, out);
+          })));
+    });
+  }
+}
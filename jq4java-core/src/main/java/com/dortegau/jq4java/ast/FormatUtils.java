@@ -1,5 +1,6 @@
 package com.dortegau.jq4java.ast;
 
+import com.dortegau.jq4java.json.JqType;
 import com.dortegau.jq4java.json.JqValue;
 import java.util.stream.Collectors;
 
@@ -55,10 +56,10 @@ final class FormatUtils {
     if (value.isNull()) {
       return "";
     }
-    String typeName = value.typeName();
-    if ("array".equals(typeName) || "object".equals(typeName)) {
+    JqType type = value.jqType();
+    if (type == JqType.ARRAY || type == JqType.OBJECT) {
       throw new RuntimeException(
-          "Cannot csv format nested " + typeName + " values: " + value);
+          "Cannot csv format nested " + type.typeName() + " values: " + value);
     }
     String text = toText(value);
     boolean needsQuoting =
@@ -84,10 +85,10 @@ final class FormatUtils {
     if (value.isNull()) {
       return "";
     }
-    String typeName = value.typeName();
-    if ("array".equals(typeName) || "object".equals(typeName)) {
+    JqType type = value.jqType();
+    if (type == JqType.ARRAY || type == JqType.OBJECT) {
       throw new RuntimeException(
-          "Cannot tsv format nested " + typeName + " values: " + value);
+          "Cannot tsv format nested " + type.typeName() + " values: " + value);
     }
     String text = toText(value);
     String escaped =
@@ -102,8 +103,7 @@ final class FormatUtils {
     if (value.isArray()) {
       return value.stream().map(FormatUtils::shellQuote).collect(Collectors.joining(" "));
     }
-    String type = value.typeName();
-    if ("object".equals(type)) {
+    if (value.jqType() == JqType.OBJECT) {
       throw new RuntimeException("Cannot shell format object values: " + value);
     }
     return shellQuote(value);
@@ -3,27 +3,22 @@ package com.dortegau.jq4java.ast;
 import com.dortegau.jq4java.json.JqValue;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the from_entries function.
  * Converts an array of key-value pair objects into a single object.
  */
 public class FromEntries implements Expression {
-  static {
-    BuiltinRegistry.register("from_entries", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isArray()) {
-      String typeName = input.type().toString().replace("\"", "");
+      String typeName = input.typeName();
       throw new RuntimeException("Cannot iterate over " + typeName + " (" + input + ")");
     }
 
     Map<String, JqValue> resultObject = new LinkedHashMap<>();
 
-    input.stream().forEach(entry -> {
+    for (JqValue entry : input.elements()) {
       // Each entry should be an object with "key"/"name" and "value" fields
       JqValue keyValue = null;
       JqValue valueValue = null;
@@ -33,7 +28,7 @@ public class FromEntries implements Expression {
         keyValue = entry.get("key");
       } catch (RuntimeException e) {
         // If "key" access fails, the entry is not an object
-        String typeName = entry.type().toString().replace("\"", "");
+        String typeName = entry.typeName();
         throw new RuntimeException("Cannot index " + typeName + " with string \"key\"");
       }
 
@@ -59,15 +54,12 @@ public class FromEntries implements Expression {
         valueValue = JqValue.nullValue();
       }
 
-      // Convert key to string (remove quotes if it's a string literal)
-      String key = keyValue.toString();
-      if (key.startsWith("\"") && key.endsWith("\"")) {
-        key = key.substring(1, key.length() - 1);
-      }
+      // Strings are used as they are; other keys use their JSON text
+      String key = keyValue.isString() ? keyValue.asString() : keyValue.toString();
 
       resultObject.put(key, valueValue);
-    });
+    }
 
-    return Stream.of(JqValue.object(resultObject));
+    return out.accept(JqValue.object(resultObject));
   }
 }
\ No newline at end of file
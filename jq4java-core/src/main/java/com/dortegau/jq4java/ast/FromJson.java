@@ -1,27 +1,22 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import com.dortegau.jq4java.json.OrgJsonValue;
-import java.util.stream.Stream;
-import org.json.JSONException;
 
 /** Builtin that parses the current string input as JSON. */
 public class FromJson implements Expression {
-  static {
-    BuiltinRegistry.register("fromjson", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isString()) {
       throw new RuntimeException("fromjson requires string input");
     }
 
     String jsonText = input.asString();
+    JqValue parsed;
     try {
-      return Stream.of(OrgJsonValue.parse(jsonText));
-    } catch (JSONException e) {
+      parsed = JqValue.parse(jsonText);
+    } catch (RuntimeException e) {
       throw new RuntimeException("Invalid JSON text for fromjson: " + jsonText, e);
     }
+    return out.accept(parsed);
   }
 }
@@ -0,0 +1,75 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Call of a {@link FunctionDefinition}, which runs its body in a new frame whose parent is the
+ * frame the function was defined in.
+ *
+ * <p>The body runs on a {@link CallStack}, which keeps pending work on the heap: a tail call,
+ * such as the recursive call in
+ * {@code def upto($n): if . < $n then ., (. + 1 | upto($n)) else select(false) end;}, runs in
+ * constant space, and a call whose caller still has work to do with its outputs, as in
+ * {@code (.[1:] | cnt) + 1} or a recursive {@code walk}, costs heap rather than Java stack.
+ */
+public class FunctionCall implements Expression {
+  private final String name;
+  private final int index;
+  private final int depth;
+  private final List<Expression> arguments;
+
+  /**
+   * Creates a call.
+   *
+   * @param name the function name
+   * @param index the position of the definition in the program's {@link Definitions}
+   * @param depth how many frames up the function was defined
+   * @param arguments the filter arguments
+   */
+  public FunctionCall(String name, int index, int depth, List<Expression> arguments) {
+    this.name = name;
+    this.index = index;
+    this.depth = depth;
+    this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<Expression> getArguments() {
+    return arguments;
+  }
+
+  public FunctionCall withArguments(List<Expression> newArguments) {
+    return new FunctionCall(name, index, depth, newArguments);
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return CallStack.evaluate(this, input, env, out);
+  }
+
+  FunctionDefinition definition(Environment env) {
+    return env.calls().definitions.get(index);
+  }
+
+  /**
+   * Creates the frame a call of {@code definition} runs its body in.
+   */
+  Environment frame(FunctionDefinition definition, Environment env) {
+    Environment.Closure[] closures = null;
+    if (!arguments.isEmpty()) {
+      closures = new Environment.Closure[arguments.size()];
+      for (int i = 0; i < closures.length; i++) {
+        Expression argument = arguments.get(i);
+        closures[i] = argument instanceof ClosureCall
+            ? ((ClosureCall) argument).resolve(env) : new Environment.Closure(argument, env);
+      }
+    }
+    return env.call(depth, closures, definition.getFrameSize());
+  }
+}
@@ -0,0 +1,48 @@
+package com.dortegau.jq4java.ast;
+
+/**
+ * A user-defined function that runs in a frame of its own, such as a recursive
+ * {@code def fact: if . <= 1 then 1 else . * (. - 1 | fact) end;}. Small definitions that do
+ * not call themselves are expanded at their call sites instead and never get one.
+ */
+public final class FunctionDefinition {
+  private final String name;
+  private final int arity;
+  private final int frameSize;
+  private final Expression body;
+
+  /**
+   * Creates a definition.
+   *
+   * @param name the function name
+   * @param arity the number of parameters
+   * @param frameSize the number of variable slots a call needs
+   * @param body the body, whose parameters are {@link ClosureCall}s
+   */
+  public FunctionDefinition(String name, int arity, int frameSize, Expression body) {
+    this.name = name;
+    this.arity = arity;
+    this.frameSize = frameSize;
+    this.body = body;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getArity() {
+    return arity;
+  }
+
+  public int getFrameSize() {
+    return frameSize;
+  }
+
+  public Expression getBody() {
+    return body;
+  }
+
+  public FunctionDefinition withBody(Expression newBody) {
+    return new FunctionDefinition(name, arity, frameSize, newBody);
+  }
+}
@@ -1,19 +1,19 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 /**
  * Identity expression that returns the input unchanged.
  */
 public class Identity implements UpdatableExpression {
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return Stream.of(input);
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(input);
   }
 
   @Override
-  public JqValue update(JqValue input, java.util.function.Function<JqValue, JqValue> updater) {
+  public JqValue update(JqValue input, Environment env, Function<JqValue, JqValue> updater) {
     return updater.apply(input);
   }
 }
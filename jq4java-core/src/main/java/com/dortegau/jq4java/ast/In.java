@@ -1,17 +1,13 @@
 package com.dortegau.jq4java.ast;
 
+import com.dortegau.jq4java.json.JqType;
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the in function.
  * Checks whether the input key or index exists in the provided object or array.
  */
 public class In implements Expression {
-  static {
-    BuiltinRegistry.register("in", 1);
-  }
-
   private final Expression containerExpression;
 
   public In(Expression containerExpression) {
@@ -19,9 +15,9 @@ public class In implements Expression {
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return containerExpression.evaluate(input)
-        .map(container -> evaluateContainer(input, container));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return containerExpression.evaluate(input, env,
+        container -> out.accept(evaluateContainer(input, container)));
   }
 
   private JqValue evaluateContainer(JqValue key, JqValue container) {
@@ -29,10 +25,9 @@ public class In implements Expression {
       return JqValue.fromBoolean(false);
     }
 
-    String containerType = container.typeName();
     String keyType = key.typeName();
 
-    if ("object".equals(containerType)) {
+    if (container.jqType() == JqType.OBJECT) {
       if (!key.isString()) {
         throw new RuntimeException("Cannot check whether object has a " + keyType + " key");
       }
@@ -62,6 +57,6 @@ public class In implements Expression {
     }
 
     throw new RuntimeException(
-        "Cannot check whether " + containerType + " has a " + keyType + " key");
+        "Cannot check whether " + container.typeName() + " has a " + keyType + " key");
   }
 }
@@ -0,0 +1,75 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Index expression with a computed key, such as {@code .[$x.k]} or {@code .[.i + 1]}.
+ *
+ * <p>The key is evaluated against the same input as the base, as in jq, so in
+ * {@code .a[.k]} the key {@code .k} is read from {@code .}, not from {@code .a}. A string key
+ * looks up an object field and a number an array element; each key output is applied to each
+ * base output in turn. Literal keys are still built as {@link FieldAccess} or
+ * {@link ArrayIndexing}.
+ */
+public class Index implements UpdatableExpression {
+  private final Expression base;
+  private final Expression index;
+
+  public Index(Expression base, Expression index) {
+    this.base = base;
+    this.index = index;
+  }
+
+  public Expression getBase() {
+    return base;
+  }
+
+  public Expression getIndex() {
+    return index;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return index.evaluate(input, env, key ->
+        base.evaluate(input, env, value -> out.accept(lookup(value, key))));
+  }
+
+  private static JqValue lookup(JqValue value, JqValue key) {
+    if (key.isString()) {
+      return value.get(key.asString());
+    }
+    if (key.isNumber() && (value.isArray() || value.isNull())) {
+      return value.get((int) Math.floor(key.asNumber()));
+    }
+    throw new RuntimeException(
+        "Cannot index " + value.typeName() + " with " + key.typeName());
+  }
+
+  @Override
+  public JqValue update(JqValue input, Environment env, Function<JqValue, JqValue> updater) {
+    if (!(base instanceof UpdatableExpression)) {
+      throw new RuntimeException("Base expression is not updatable");
+    }
+
+    List<JqValue> keys = index.collect(input, env);
+    UpdatableExpression updatableBase = (UpdatableExpression) base;
+    return updatableBase.update(input, env, currentBase -> {
+      JqValue updated = currentBase;
+      for (JqValue key : keys) {
+        if (key.isString()) {
+          String name = key.asString();
+          updated = updated.set(name, updater.apply(updated.get(name)));
+        } else if (key.isNumber()) {
+          int position = (int) Math.floor(key.asNumber());
+          updated = updated.set(position, updater.apply(lookup(updated, key)));
+        } else {
+          throw new RuntimeException(
+              "Cannot index " + updated.typeName() + " with " + key.typeName());
+        }
+      }
+      return updated;
+    });
+  }
+}
@@ -4,7 +4,6 @@ import com.dortegau.jq4java.json.JqValue;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * String literal that contains jq-style interpolations.
@@ -33,22 +32,23 @@ public class InterpolatedString implements Expression {
 
   /** {@inheritDoc} */
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return evaluateRecursive(input, 0, literalParts.get(0)).map(JqValue::fromString);
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return evaluateRecursive(input, env, 0, literalParts.get(0), out);
   }
 
-  private Stream<String> evaluateRecursive(JqValue input, int expressionIndex, String prefix) {
+  private boolean evaluateRecursive(
+      JqValue input, Environment env, int expressionIndex, String prefix, ValueSink out) {
     if (expressionIndex >= expressions.size()) {
-      return Stream.of(prefix);
+      return out.accept(JqValue.fromString(prefix));
     }
 
     Expression expression = expressions.get(expressionIndex);
     String nextLiteral = literalParts.get(expressionIndex + 1);
-    return expression.evaluate(input)
-        .flatMap(
-            value ->
-                evaluateRecursive(
-                    input, expressionIndex + 1, prefix + FormatUtils.toText(value) + nextLiteral));
+    return expression.evaluate(input, env,
+        value ->
+            evaluateRecursive(
+                input, env, expressionIndex + 1, prefix + FormatUtils.toText(value) + nextLiteral,
+                out));
   }
 
   /**
@@ -0,0 +1,29 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code last(f)}: the last output of {@code f}, if any. Every output has to
+ * be produced, but only the most recent one is kept, so memory stays constant.
+ */
+public class Last implements Expression {
+  private final Expression expr;
+
+  public Last(Expression expr) {
+    this.expr = expr;
+  }
+
+  public Expression getExpr() {
+    return expr;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    JqValue[] last = new JqValue[1];
+    expr.evaluate(input, env, value -> {
+      last[0] = value;
+      return true;
+    });
+    return last[0] == null || out.accept(last[0]);
+  }
+}
@@ -1,19 +1,14 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the length function.
  * Returns the length/size of arrays, objects, strings, or null.
  */
 public class Length implements Expression {
-  static {
-    BuiltinRegistry.register("length", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return Stream.of(input.length());
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(input.length());
   }
 }
@@ -0,0 +1,59 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code limit(n; f)}: the first {@code n} outputs of {@code f}.
+ *
+ * <p>Once the quota is met the inner generator is told to stop, which propagates through every
+ * producer above it, so {@code limit(10; .[] | select(...))} visits only as many elements as it
+ * needs. As in jq 1.7, a count of zero yields nothing and a negative count yields every output
+ * of {@code f}.
+ */
+public class Limit implements Expression {
+  private final Expression count;
+  private final Expression expr;
+
+  public Limit(Expression count, Expression expr) {
+    this.count = count;
+    this.expr = expr;
+  }
+
+  public Expression getCount() {
+    return count;
+  }
+
+  public Expression getExpr() {
+    return expr;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return count.evaluate(input, env, limit -> {
+      if (!limit.isNumber()) {
+        throw new RuntimeException("Invalid limit: " + limit.typeName() + " (" + limit
+            + ") is not a number");
+      }
+      return take(input, env, limit.asNumber(), out);
+    });
+  }
+
+  private boolean take(JqValue input, Environment env, double limit, ValueSink out) {
+    if (limit == 0) {
+      return true;
+    }
+    if (limit < 0) {
+      return expr.evaluate(input, env, out);
+    }
+    long[] taken = new long[1];
+    boolean[] stopped = new boolean[1];
+    expr.evaluate(input, env, value -> {
+      if (!out.accept(value)) {
+        stopped[0] = true;
+        return false;
+      }
+      return ++taken[0] < limit;
+    });
+    return !stopped[0];
+  }
+}
@@ -1,24 +1,44 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
- * Literal expression.
+ * Literal expression. The value is parsed once when the node is built.
  */
 public class Literal implements Expression {
-  private final String value;
+  private final String text;
+  private final JqValue value;
 
-  public Literal(String value) {
+  /**
+   * Creates a literal from its source text, such as {@code 42} or {@code "hello"}.
+   *
+   * @param text the literal as written in the program
+   */
+  public Literal(String text) {
+    this.text = text;
+    this.value = JqValue.literal(text);
+  }
+
+  /**
+   * Creates a literal holding an already computed value.
+   *
+   * @param value the value the literal produces
+   */
+  public Literal(JqValue value) {
+    this.text = value.toJson();
     this.value = value;
   }
 
-  public String getValue() {
+  public String getText() {
+    return text;
+  }
+
+  public JqValue getValue() {
     return value;
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return Stream.of(JqValue.literal(value));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(value);
   }
-}
\ No newline at end of file
+}
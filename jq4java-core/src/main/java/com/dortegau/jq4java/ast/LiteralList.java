@@ -0,0 +1,31 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A comma-separated sequence of literals, such as {@code 1, 2, 3}, with its values built once.
+ */
+public class LiteralList implements Expression {
+  private final List<JqValue> values;
+
+  public LiteralList(List<JqValue> values) {
+    this.values = Collections.unmodifiableList(new ArrayList<>(values));
+  }
+
+  public List<JqValue> getValues() {
+    return values;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    for (JqValue value : values) {
+      if (!out.accept(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,22 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * The {@code <} operator: less than in jq value order.
+ */
+public class LtNode extends Comparison {
+  public LtNode(Expression left, Expression right) {
+    super(left, right);
+  }
+
+  @Override
+  public String getOperator() {
+    return "<";
+  }
+
+  @Override
+  protected boolean test(JqValue leftValue, JqValue rightValue) {
+    return leftValue.compareTo(rightValue) < 0;
+  }
+}
@@ -0,0 +1,22 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * The {@code %} operator: integer remainder.
+ */
+public class ModuloNode extends Arithmetic {
+  public ModuloNode(Expression left, Expression right) {
+    super(left, right);
+  }
+
+  @Override
+  public String getOperator() {
+    return "%";
+  }
+
+  @Override
+  protected JqValue apply(JqValue leftValue, JqValue rightValue) {
+    return leftValue.modulo(rightValue);
+  }
+}
@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the logical 'not' operator.
@@ -9,7 +8,7 @@ import java.util.stream.Stream;
  */
 public class Not implements Expression {
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return Stream.of(JqValue.fromBoolean(!input.isTruthy()));
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(JqValue.fromBoolean(!input.isTruthy()));
   }
 }
@@ -0,0 +1,48 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code nth(n; f)}: the output of {@code f} at zero-based position
+ * {@code n}, if there is one. The generator is stopped as soon as that output is reached.
+ */
+public class Nth implements Expression {
+  private final Expression index;
+  private final Expression expr;
+
+  public Nth(Expression index, Expression expr) {
+    this.index = index;
+    this.expr = expr;
+  }
+
+  public Expression getIndex() {
+    return index;
+  }
+
+  public Expression getExpr() {
+    return expr;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return index.evaluate(input, env, position -> {
+      if (!position.isNumber()) {
+        throw new RuntimeException("Cannot index generator with " + position.typeName());
+      }
+      double n = position.asNumber();
+      if (n < 0) {
+        throw new RuntimeException("Out of bounds negative array index");
+      }
+      long[] seen = new long[1];
+      JqValue[] found = new JqValue[1];
+      expr.evaluate(input, env, value -> {
+        if (seen[0]++ < n) {
+          return true;
+        }
+        found[0] = value;
+        return false;
+      });
+      return found[0] == null || out.accept(found[0]);
+    });
+  }
+}
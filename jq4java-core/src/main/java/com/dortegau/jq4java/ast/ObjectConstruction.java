@@ -1,29 +1,60 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
 /**
  * Object construction expression.
  */
 public class ObjectConstruction implements Expression {
   private final Map<String, Expression> fields;
+  private final List<String> keys;
+  private final List<Expression> values;
 
+  /**
+   * Creates an object construction from its fields in output order.
+   *
+   * @param fields the field names and the expressions producing their values
+   */
   public ObjectConstruction(Map<String, Expression> fields) {
-    this.fields = fields;
+    this.fields = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+    this.keys = Collections.unmodifiableList(new ArrayList<>(fields.keySet()));
+    this.values = Collections.unmodifiableList(new ArrayList<>(fields.values()));
+  }
+
+  public Map<String, Expression> getFields() {
+    return fields;
+  }
+
+  List<String> getKeys() {
+    return keys;
+  }
+
+  List<Expression> getValues() {
+    return values;
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    Map<String, JqValue> result = new LinkedHashMap<>();
-    for (Map.Entry<String, Expression> entry : fields.entrySet()) {
-      String key = entry.getKey();
-      Expression expr = entry.getValue();
-      JqValue value = expr.evaluate(input).findFirst().orElse(JqValue.nullValue());
-      result.put(key, value);
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return evaluateFields(0, JqValue.object(Collections.emptyMap()), input, env, out);
+  }
+
+  /**
+   * Emits one object for every combination of field values, as jq does for
+   * {@code {a: (1, 2)}}. Each partial object is extended with the persistent
+   * {@link JqValue#set(String, JqValue)}, so objects sharing a prefix share its storage.
+   */
+  private boolean evaluateFields(int field, JqValue partial, JqValue input, Environment env,
+      ValueSink out) {
+    if (field == keys.size()) {
+      return out.accept(partial);
     }
-    return Stream.of(JqValue.object(result));
+    String key = keys.get(field);
+    return values.get(field).evaluate(input, env, value ->
+        evaluateFields(field + 1, partial.set(key, value), input, env, out));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Object destructuring pattern such as {@code {name: $n, $id, (.key): [$a]}}.
+ *
+ * <p>Each entry looks up a key of the value and matches the field against its pattern.
+ * {@code $id} binds {@code $id} to {@code .id}; {@code $id: p} does that and also matches
+ * {@code .id} against {@code p}. Computed keys are evaluated against the value being
+ * destructured and may use variables bound by earlier entries.
+ */
+public class ObjectPattern implements Pattern {
+  private final List<Entry> entries;
+
+  public ObjectPattern(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  @Override
+  public boolean bind(JqValue value, Environment env, BooleanSupplier body) {
+    return bindFrom(0, value, env, body);
+  }
+
+  private boolean bindFrom(int position, JqValue value, Environment env, BooleanSupplier body) {
+    if (position == entries.size()) {
+      return body.getAsBoolean();
+    }
+    Entry entry = entries.get(position);
+    BooleanSupplier rest = () -> bindFrom(position + 1, value, env, body);
+    return entry.key.evaluate(value, env, key -> {
+      if (!key.isString()) {
+        throw new RuntimeException("Cannot index " + value.typeName() + " with " + key.typeName());
+      }
+      JqValue field = value.get(key.asString());
+      if (entry.variable == null) {
+        return entry.pattern.bind(field, env, rest);
+      }
+      return entry.variable.bind(field, env,
+          entry.pattern == null ? rest : () -> entry.pattern.bind(field, env, rest));
+    });
+  }
+
+  /**
+   * One {@code key: pattern} entry. Either the variable or the pattern may be absent.
+   */
+  public static final class Entry {
+    private final Expression key;
+    private final Variable variable;
+    private final Pattern pattern;
+
+    /**
+     * Creates an entry.
+     *
+     * @param key the expression producing the key to look up
+     * @param variable the variable bound to the whole field, or {@code null}
+     * @param pattern the pattern the field is matched against, or {@code null}
+     */
+    public Entry(Expression key, Variable variable, Pattern pattern) {
+      this.key = key;
+      this.variable = variable;
+      this.pattern = pattern;
+    }
+
+    public Expression getKey() {
+      return key;
+    }
+
+    public Variable getVariable() {
+      return variable;
+    }
+
+    public Pattern getPattern() {
+      return pattern;
+    }
+  }
+}
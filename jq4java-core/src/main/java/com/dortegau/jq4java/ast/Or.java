@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the logical 'or' operator.
@@ -16,15 +15,22 @@ public class Or implements Expression {
     this.right = right;
   }
 
+  public Expression getLeft() {
+    return left;
+  }
+
+  public Expression getRight() {
+    return right;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return left.evaluate(input).flatMap(leftValue -> {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return left.evaluate(input, env, leftValue -> {
       if (leftValue.isTruthy()) {
-        return Stream.of(JqValue.fromBoolean(true));
+        return out.accept(JqValue.fromBoolean(true));
       }
-      return right.evaluate(input).map(rightValue ->
-          JqValue.fromBoolean(rightValue.isTruthy())
-      );
+      return right.evaluate(input, env, rightValue ->
+          out.accept(JqValue.fromBoolean(rightValue.isTruthy())));
     });
   }
 }
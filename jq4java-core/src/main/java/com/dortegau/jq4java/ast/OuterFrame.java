@@ -0,0 +1,30 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Evaluates an expression built for an enclosing frame. This happens when the argument of an
+ * inlined function is used inside a function that runs in a frame of its own.
+ */
+public class OuterFrame implements Expression {
+  private final Expression expression;
+  private final int depth;
+
+  public OuterFrame(Expression expression, int depth) {
+    this.expression = expression;
+    this.depth = depth;
+  }
+
+  public Expression getExpression() {
+    return expression;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return expression.evaluate(input, env.up(depth), out);
+  }
+}
@@ -0,0 +1,35 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the outputs of the given expressions, equivalent to {@code [f] | length} without
+ * building the intermediate array.
+ */
+public class OutputCount implements Expression {
+  private final List<Expression> elements;
+
+  public OutputCount(List<Expression> elements) {
+    this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+  }
+
+  public List<Expression> getElements() {
+    return elements;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    long[] count = new long[1];
+    ValueSink counter = value -> {
+      count[0]++;
+      return true;
+    };
+    for (Expression expr : elements) {
+      expr.evaluate(input, env, counter);
+    }
+    return out.accept(JqValue.fromLong(count[0]));
+  }
+}
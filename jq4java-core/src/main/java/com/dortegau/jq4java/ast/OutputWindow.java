@@ -0,0 +1,100 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A run of consecutive outputs of an expression, for consumers that pull outputs instead of
+ * having them pushed.
+ *
+ * <p>Evaluation cannot be paused half way, so each window evaluates the expression again,
+ * skips the outputs before it and stops the evaluation at the first output after it. Windows
+ * start with a single output and double in size, so reading n outputs takes at most
+ * log2(n) + 1 evaluations that produce fewer than 4n outputs between them, while a consumer that
+ * stops early never evaluates far beyond what it read.
+ * Expressions are pure, which is what makes evaluating them again safe. An error raised by the
+ * evaluation is kept rather than thrown, so the outputs before it can still be read first.
+ */
+public final class OutputWindow implements ValueSink {
+  private final int start;
+  private final int size;
+  private final List<JqValue> values = new ArrayList<>();
+  private int skipped;
+  private boolean more;
+  private RuntimeException failure;
+
+  private OutputWindow(int start, int size) {
+    this.start = start;
+    this.size = size;
+  }
+
+  /**
+   * Evaluates the first output of an expression.
+   *
+   * @param expression the expression whose outputs are read
+   * @param input the input value
+   * @param env the variable bindings the expression is evaluated with
+   * @return the window holding the first output, if any
+   */
+  public static OutputWindow first(Expression expression, JqValue input, Environment env) {
+    return new OutputWindow(0, 1).fill(expression, input, env);
+  }
+
+  /**
+   * Evaluates the window following this one, twice as large. Only meaningful when
+   * {@link #hasMore()} is {@code true}.
+   *
+   * @param expression the expression this window was read from
+   * @param input the same input value
+   * @param env the variable bindings the expression is evaluated with
+   * @return the next window
+   */
+  public OutputWindow next(Expression expression, JqValue input, Environment env) {
+    return new OutputWindow(start + size, size * 2).fill(expression, input, env);
+  }
+
+  private OutputWindow fill(Expression expression, JqValue input, Environment env) {
+    try {
+      expression.evaluate(input, env, this);
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the outputs of this window in output order.
+   */
+  public List<JqValue> values() {
+    return values;
+  }
+
+  /**
+   * Returns whether the expression has outputs after this window.
+   */
+  public boolean hasMore() {
+    return more;
+  }
+
+  /**
+   * Returns the error the evaluation raised after the outputs of this window, or {@code null}.
+   */
+  public RuntimeException failure() {
+    return failure;
+  }
+
+  @Override
+  public boolean accept(JqValue value) {
+    if (skipped < start) {
+      skipped++;
+      return true;
+    }
+    if (values.size() < size) {
+      values.add(value);
+      return true;
+    }
+    more = true;
+    return false;
+  }
+}
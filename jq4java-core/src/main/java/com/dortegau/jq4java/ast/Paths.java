@@ -0,0 +1,63 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqArray;
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+
+/**
+ * Implementation of {@code paths} and {@code paths(f)}: emits the path of every value nested in
+ * the input, in the order {@code ..} reaches them. With a filter, a path is emitted once for
+ * each truthy output of {@code f} applied to the value at that path.
+ *
+ * <p>Paths are built while descending, each one extending its parent's, on the same explicit
+ * stack {@link RecursiveDescent} uses, so no value is looked up again from the root.
+ */
+public class Paths implements Expression {
+  private static final JqArray ROOT = JqArray.of(Collections.emptyList());
+
+  private final Expression filter;
+
+  /**
+   * Creates a paths expression.
+   *
+   * @param filter the condition a value must meet for its path to be emitted, or {@code null}
+   *     to emit every path
+   */
+  public Paths(Expression filter) {
+    this.filter = filter;
+  }
+
+  public Expression getFilter() {
+    return filter;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    if (!ChildCursor.isContainer(input)) {
+      return true;
+    }
+    Deque<ChildCursor> open = new ArrayDeque<>();
+    open.push(new ChildCursor(input, ROOT));
+    while (!open.isEmpty()) {
+      ChildCursor cursor = open.peek();
+      if (!cursor.hasNext()) {
+        open.pop();
+        continue;
+      }
+      JqValue child = cursor.next();
+      JqArray path = cursor.childPath();
+      boolean more = filter == null
+          ? out.accept(path)
+          : filter.evaluate(child, env, result -> !result.isTruthy() || out.accept(path));
+      if (!more) {
+        return false;
+      }
+      if (ChildCursor.isContainer(child)) {
+        open.push(new ChildCursor(child, path));
+      }
+    }
+    return true;
+  }
+}
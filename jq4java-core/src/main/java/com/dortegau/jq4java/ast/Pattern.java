@@ -0,0 +1,23 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The left-hand side of {@code as}, {@code reduce} and {@code foreach}: a variable such as
+ * {@code $x}, or a destructuring pattern such as {@code [$a, $b]} or {@code {name: $n}}.
+ */
+public interface Pattern {
+  /**
+   * Binds the variables of this pattern to the matching parts of a value and runs the body.
+   *
+   * <p>A pattern with computed keys producing several values binds once per combination, so
+   * the body may run several times, as in jq.
+   *
+   * @param value the value being destructured
+   * @param env the variable bindings of the running evaluation
+   * @param body the code in the scope of the pattern; returns {@code false} to stop
+   * @return {@code false} if the body asked to stop, {@code true} otherwise
+   */
+  boolean bind(JqValue value, Environment env, BooleanSupplier body);
+}
@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Pipe expression.
@@ -15,8 +14,16 @@ public class Pipe implements Expression {
     this.right = right;
   }
 
+  public Expression getLeft() {
+    return left;
+  }
+
+  public Expression getRight() {
+    return right;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return left.evaluate(input).flatMap(right::evaluate);
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return left.evaluate(input, env, value -> right.evaluate(value, env, out));
   }
 }
\ No newline at end of file
@@ -2,9 +2,8 @@ package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * AST node representing the range function for sequence generation.
@@ -13,68 +12,60 @@ public class Range implements Expression {
   private static final String FUNCTION_NAME = "range";
   private final List<Expression> arguments;
 
-  static {
-    BuiltinRegistry.register(FUNCTION_NAME, 1);
-    BuiltinRegistry.register(FUNCTION_NAME, 2);
-    BuiltinRegistry.register(FUNCTION_NAME, 3);
-  }
-
   public Range(List<Expression> arguments) {
-    this.arguments = arguments;
+    this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (arguments.size() < 1 || arguments.size() > 3) {
       throw new RuntimeException(FUNCTION_NAME + "/" + arguments.size() + " is not defined");
     }
+    return bindArguments(0, new double[arguments.size()], input, env, out);
+  }
 
-    List<JqValue> args = new ArrayList<>();
-    for (Expression arg : arguments) {
-      List<JqValue> values = arg.evaluate(input).collect(Collectors.toList());
-      if (values.size() != 1) {
-        throw new RuntimeException(FUNCTION_NAME + " arguments must produce exactly one value");
-      }
-      JqValue value = values.get(0);
+  /**
+   * Binds each argument in turn to every value it produces, as jq does for
+   * {@code range(0, 1; 3, 4)}, and generates one range per combination. Numbers are produced
+   * one at a time, so a consumer that stops early also stops the range.
+   */
+  private boolean bindArguments(int index, double[] bounds, JqValue input, Environment env,
+      ValueSink out) {
+    if (index == bounds.length) {
+      return generateRange(bounds, out);
+    }
+    return arguments.get(index).evaluate(input, env, value -> {
       if (!value.isNumber()) {
         throw new RuntimeException(FUNCTION_NAME + " argument must be a number");
       }
-      args.add(value);
-    }
-
-    return generateRange(args);
+      bounds[index] = value.asNumber();
+      return bindArguments(index + 1, bounds, input, env, out);
+    });
   }
 
-  private Stream<JqValue> generateRange(List<JqValue> args) {
-    List<JqValue> result = new ArrayList<>();
-
-    if (args.size() == 1) {
+  private boolean generateRange(double[] args, ValueSink out) {
+    if (args.length == 1) {
       // range(n) - generate [0, 1, ..., n-1]
-      double to = args.get(0).asNumber();
-      if (to <= 0) {
-        return Stream.empty();
-      }
-
+      double to = args[0];
       for (double i = 0; i < to; i += 1.0) {
-        result.add(createNumberValue(i));
+        if (!out.accept(createNumberValue(i))) {
+          return false;
+        }
       }
-    } else if (args.size() == 2) {
+    } else if (args.length == 2) {
       // range(from; to) - generate [from, from+1, ..., to-1]
-      double from = args.get(0).asNumber();
-      double to = args.get(1).asNumber();
-
-      if (from >= to) {
-        return Stream.empty();
-      }
-
+      double from = args[0];
+      double to = args[1];
       for (double i = from; i < to; i += 1.0) {
-        result.add(createNumberValue(i));
+        if (!out.accept(createNumberValue(i))) {
+          return false;
+        }
       }
-    } else if (args.size() == 3) {
+    } else {
       // range(from; to; step) - generate arithmetic sequence
-      double from = args.get(0).asNumber();
-      double to = args.get(1).asNumber();
-      double step = args.get(2).asNumber();
+      double from = args[0];
+      double to = args[1];
+      double step = args[2];
 
       if (step == 0) {
         throw new RuntimeException(FUNCTION_NAME + " step cannot be zero");
@@ -82,16 +73,20 @@ public class Range implements Expression {
 
       if (step > 0) {
         for (double i = from; i < to; i += step) {
-          result.add(createNumberValue(i));
+          if (!out.accept(createNumberValue(i))) {
+            return false;
+          }
         }
       } else {
         for (double i = from; i > to; i += step) {
-          result.add(createNumberValue(i));
+          if (!out.accept(createNumberValue(i))) {
+            return false;
+          }
         }
       }
     }
 
-    return result.stream();
+    return true;
   }
 
   private JqValue createNumberValue(double value) {
@@ -0,0 +1,42 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Implementation of {@code ..}, also available as {@code recurse}: emits the input and then
+ * every value nested in it, parents before their children, as {@code recurse(.[]?)} does in jq.
+ *
+ * <p>The traversal keeps one {@link ChildCursor} per open container on an explicit stack
+ * instead of recursing, so documents nested to any depth are walked in constant Java stack,
+ * and values are emitted as they are reached: {@code first(..)} reads nothing beyond the input.
+ */
+public class RecursiveDescent implements Expression {
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    if (!out.accept(input)) {
+      return false;
+    }
+    if (!ChildCursor.isContainer(input)) {
+      return true;
+    }
+    Deque<ChildCursor> open = new ArrayDeque<>();
+    open.push(new ChildCursor(input, null));
+    while (!open.isEmpty()) {
+      ChildCursor cursor = open.peek();
+      if (!cursor.hasNext()) {
+        open.pop();
+        continue;
+      }
+      JqValue child = cursor.next();
+      if (!out.accept(child)) {
+        return false;
+      }
+      if (ChildCursor.isContainer(child)) {
+        open.push(new ChildCursor(child, null));
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,300 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqArray;
+import com.dortegau.jq4java.json.JqNull;
+import com.dortegau.jq4java.json.JqObject;
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.TransientArray;
+import com.dortegau.jq4java.json.TransientObject;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Implementation of {@code reduce SOURCE as $x (INIT; UPDATE)}, where {@code $x} may also be a
+ * destructuring {@link Pattern}.
+ *
+ * <p>For each output of {@code INIT} the state starts at that value, and every output of
+ * {@code SOURCE}, bound to the pattern, replaces it with the last output of {@code UPDATE}
+ * applied to it, or with {@code null} when {@code UPDATE} produces nothing, as in jq.
+ *
+ * <p>The state is private to the reduction until it is emitted. So when {@code UPDATE} only
+ * appends to an array, {@code . + [E]}, or updates object keys, {@code .[K] op= V} or
+ * {@code .k op= V}, where {@code E}, {@code K} and {@code V} do not read {@code .}, the state is
+ * held in a {@link TransientArray} or {@link TransientObject} and written in place, then frozen
+ * once at the end. Such reductions are linear in the number of source values. Every other
+ * update works on persistent values, whose updates share structure with the previous state.
+ */
+public class Reduce implements Expression {
+  private final Expression source;
+  private final Pattern pattern;
+  private final Expression init;
+  private final Expression update;
+  // Parts of a recognized in-place shape of UPDATE; all null when there is none
+  private final Expression appended;
+  private final Expression key;
+  private final Expression value;
+  private final UpdateAssignment assignment;
+
+  /**
+   * Creates a reduction.
+   *
+   * @param source the expression whose outputs are reduced
+   * @param pattern the pattern each source output is bound to
+   * @param init the expression producing the initial states
+   * @param update the expression producing the next state from the current one
+   */
+  public Reduce(Expression source, Pattern pattern, Expression init, Expression update) {
+    this.source = source;
+    this.pattern = pattern;
+    this.init = init;
+    this.update = update;
+    this.appended = appendedValues(update);
+    UpdateAssignment keyed = appended == null ? keyedUpdate(update) : null;
+    this.assignment = keyed;
+    this.key = keyed == null ? null : updatedKey(keyed.getTarget());
+    this.value = keyed == null ? null : keyed.getValueExpression();
+  }
+
+  private Reduce(Reduce original, UnaryOperator<Expression> transform) {
+    this.source = transform.apply(original.source);
+    this.pattern = original.pattern;
+    this.init = transform.apply(original.init);
+    this.update = transform.apply(original.update);
+    this.appended = original.appended == null ? null : transform.apply(original.appended);
+    this.key = original.key == null ? null : transform.apply(original.key);
+    this.value = original.value == null ? null : transform.apply(original.value);
+    this.assignment = original.assignment;
+  }
+
+  public Expression getSource() {
+    return source;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public Expression getInit() {
+    return init;
+  }
+
+  public Expression getUpdate() {
+    return update;
+  }
+
+  /**
+   * Returns this reduction with every subexpression replaced by {@code transform} applied to
+   * it. The in-place shape recognized from the original update is kept, so the update may be
+   * replaced by an equivalent the shape can no longer be read from, such as compiled code.
+   *
+   * @param transform the replacement applied to each subexpression
+   * @return the transformed reduction
+   */
+  public Reduce transformParts(UnaryOperator<Expression> transform) {
+    return new Reduce(this, transform);
+  }
+
+  /**
+   * Returns an expression producing the values {@code update} appends to its input, or
+   * {@code null} when it is not an append of values independent of the input.
+   */
+  private static Expression appendedValues(Expression update) {
+    if (!(update instanceof Arithmetic)) {
+      return null;
+    }
+    Arithmetic arithmetic = (Arithmetic) update;
+    if (!"+".equals(arithmetic.getOperator()) || !(arithmetic.getLeft() instanceof Identity)) {
+      return null;
+    }
+    Expression right = arithmetic.getRight();
+    if (right instanceof Literal && ((Literal) right).getValue().isArray()) {
+      return new ArrayIteration(right);
+    }
+    if (!(right instanceof ArrayConstruction) || !isIndependent(right)) {
+      return null;
+    }
+    List<Expression> elements = ((ArrayConstruction) right).getElements();
+    return elements.size() == 1 ? elements.get(0) : new Comma(elements);
+  }
+
+  /**
+   * Returns {@code update} when it updates keys of its input, {@code .k op= V} or
+   * {@code .[K] op= V}, with keys and values independent of the input; {@code null} otherwise.
+   */
+  private static UpdateAssignment keyedUpdate(Expression update) {
+    if (!(update instanceof UpdateAssignment)) {
+      return null;
+    }
+    UpdateAssignment assignment = (UpdateAssignment) update;
+    Expression target = assignment.getTarget();
+    boolean keyed = target instanceof FieldAccess
+        && ((FieldAccess) target).getBase() instanceof Identity
+        || target instanceof Index && ((Index) target).getBase() instanceof Identity
+        && isIndependent(((Index) target).getIndex());
+    return keyed && isIndependent(assignment.getValueExpression()) ? assignment : null;
+  }
+
+  private static Expression updatedKey(UpdatableExpression target) {
+    if (target instanceof FieldAccess) {
+      return new Literal(JqValue.fromString(((FieldAccess) target).getFieldName()));
+    }
+    return ((Index) target).getIndex();
+  }
+
+  /**
+   * Returns whether an expression never reads its input, so it produces the same values
+   * whatever the current state is. Unknown nodes are assumed to read it.
+   */
+  private static boolean isIndependent(Expression expression) {
+    if (expression instanceof Literal || expression instanceof LiteralList
+        || expression instanceof Variable) {
+      return true;
+    }
+    if (expression instanceof FieldAccess) {
+      return isIndependent(((FieldAccess) expression).getBase());
+    }
+    if (expression instanceof FieldPath) {
+      return isIndependent(((FieldPath) expression).getBase());
+    }
+    if (expression instanceof ArrayIndexing) {
+      return isIndependent(((ArrayIndexing) expression).getBase());
+    }
+    if (expression instanceof ArrayIteration) {
+      return isIndependent(((ArrayIteration) expression).getBase());
+    }
+    if (expression instanceof Index) {
+      Index index = (Index) expression;
+      return isIndependent(index.getBase()) && isIndependent(index.getIndex());
+    }
+    if (expression instanceof Pipe) {
+      // The right side only sees the outputs of the left one
+      return isIndependent(((Pipe) expression).getLeft());
+    }
+    if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      return isIndependent(arithmetic.getLeft()) && isIndependent(arithmetic.getRight());
+    }
+    if (expression instanceof UnaryMinus) {
+      return isIndependent(((UnaryMinus) expression).getOperand());
+    }
+    if (expression instanceof Comma) {
+      return allIndependent(((Comma) expression).getExpressions());
+    }
+    if (expression instanceof ArrayConstruction) {
+      return allIndependent(((ArrayConstruction) expression).getElements());
+    }
+    if (expression instanceof ObjectConstruction) {
+      return allIndependent(((ObjectConstruction) expression).getFields().values());
+    }
+    return false;
+  }
+
+  private static boolean allIndependent(Iterable<Expression> expressions) {
+    for (Expression expression : expressions) {
+      if (!isIndependent(expression)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return init.evaluate(input, env, initial -> {
+      Accumulator accumulator = new Accumulator(initial, env);
+      source.evaluate(input, env, accumulator);
+      return out.accept(accumulator.result());
+    });
+  }
+
+  /**
+   * The state of one reduction. It starts in place when the update has a recognized shape and
+   * the initial state has the matching type, and drops to persistent values for good as soon
+   * as a step does not fit the shape, such as a key that is not a string.
+   */
+  private final class Accumulator implements ValueSink {
+    private final Environment env;
+    private final BooleanSupplier step = this::step;
+    private JqValue state;
+    private TransientArray array;
+    private TransientObject object;
+
+    Accumulator(JqValue initial, Environment env) {
+      this.env = env;
+      if (appended != null && initial instanceof JqArray) {
+        array = ((JqArray) initial).asTransient();
+      } else if (value != null && initial instanceof JqObject) {
+        object = ((JqObject) initial).asTransient();
+      } else {
+        state = initial;
+      }
+    }
+
+    @Override
+    public boolean accept(JqValue item) {
+      pattern.bind(item, env, step);
+      return true;
+    }
+
+    /**
+     * Applies the update to the state once the source value is bound.
+     */
+    private boolean step() {
+      if (array != null) {
+        appended.evaluate(JqNull.NULL, env, element -> {
+          array.add(element);
+          return true;
+        });
+        return true;
+      }
+      if (object != null && updateInPlace()) {
+        return true;
+      }
+      JqValue[] next = {JqNull.NULL};
+      update.evaluate(result(), env, output -> {
+        next[0] = output;
+        return true;
+      });
+      state = next[0];
+      return true;
+    }
+
+    /**
+     * Applies {@code .[K] op= V} to the transient object, returning {@code false} without
+     * touching it when this step needs the general path.
+     */
+    private boolean updateInPlace() {
+      List<JqValue> rights = value.collect(JqNull.NULL, env);
+      if (rights.isEmpty()) {
+        return false;
+      }
+      List<JqValue> keys = key.collect(JqNull.NULL, env);
+      for (JqValue name : keys) {
+        if (!name.isString()) {
+          return false;
+        }
+      }
+      // Each right-hand value yields its own updated copy; the reduction keeps the last one
+      JqValue right = rights.get(rights.size() - 1);
+      for (JqValue name : keys) {
+        object.set(name.asString(), assignment.apply(object.get(name.asString()), right));
+      }
+      return true;
+    }
+
+    /**
+     * Returns the current state, freezing a transient one. Freezing ends in-place updates.
+     */
+    JqValue result() {
+      if (array != null) {
+        state = array.persistent();
+        array = null;
+      } else if (object != null) {
+        state = object.persistent();
+        object = null;
+      }
+      return state;
+    }
+  }
+}
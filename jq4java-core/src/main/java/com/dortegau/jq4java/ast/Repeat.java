@@ -0,0 +1,22 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code repeat(f)}: emits the input, then repeats on every output of
+ * {@code f}. The generator is infinite unless {@code f} eventually produces nothing, so it is
+ * normally bounded with {@code limit}, {@code first} or {@code until}.
+ * jq's {@code recurse(f)} has the same definition, and {@code recurse(f; cond)} is
+ * {@code recurse(f | select(cond))}, so both are built on this class too.
+ */
+public class Repeat extends Unfold {
+  public Repeat(Expression update) {
+    super(update);
+  }
+
+  @Override
+  void step(JqValue state, Environment env, Steps steps) {
+    steps.emit(state);
+    steps.apply(state);
+  }
+}
@@ -1,23 +1,18 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the reverse function.
  * Reverses the order of elements in an array.
  */
 public class Reverse implements Expression {
-  static {
-    BuiltinRegistry.register("reverse", 0);
-  }
-
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isArray()) {
       throw new RuntimeException("Cannot reverse non-array type: " + input.type());
     }
 
-    return Stream.of(input.reverse());
+    return out.accept(input.reverse());
   }
 }
\ No newline at end of file
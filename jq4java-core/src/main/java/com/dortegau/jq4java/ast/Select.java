@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Represents the select() function that filters values based on a condition.
@@ -10,10 +9,6 @@ import java.util.stream.Stream;
 public class Select implements Expression {
   private final Expression condition;
 
-  static {
-    BuiltinRegistry.register("select", 1);
-  }
-
   /**
    * Creates a new Select expression with the given condition.
    *
@@ -23,15 +18,13 @@ public class Select implements Expression {
     this.condition = condition;
   }
 
+  public Expression getCondition() {
+    return condition;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return condition.evaluate(input)
-        .flatMap(conditionResult -> {
-          if (conditionResult.isTruthy()) {
-            return Stream.of(input);
-          } else {
-            return Stream.empty();
-          }
-        });
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return condition.evaluate(input, env,
+        conditionResult -> !conditionResult.isTruthy() || out.accept(input));
   }
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the unary minus operator.
@@ -14,16 +13,26 @@ public class UnaryMinus implements Expression {
     this.operand = operand;
   }
 
+  public Expression getOperand() {
+    return operand;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return operand.evaluate(input).map(value -> {
-      if (!value.isNumber()) {
-        String valueType = value.isNull() ? "null" :
-                          value.type().toString().replace("\"", "");
-        throw new RuntimeException(valueType + " cannot be negated");
-      }
-      // Subtract the value from zero to get the negation
-      return JqValue.fromDouble(0).subtract(value);
-    });
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return operand.evaluate(input, env, value -> out.accept(negate(value)));
+  }
+
+  /**
+   * Negates a numeric value.
+   *
+   * @param value the value to negate
+   * @return the negated number
+   */
+  public static JqValue negate(JqValue value) {
+    if (!value.isNumber()) {
+      throw new RuntimeException(value.typeName() + " cannot be negated");
+    }
+    // Subtract the value from zero to get the negation
+    return JqValue.fromDouble(0).subtract(value);
   }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Shared evaluation for the recursive generators {@code until}, {@code while} and
+ * {@code repeat}.
+ *
+ * <p>jq defines each of them as a function that calls itself on every output of
+ * {@code update}. Evaluating that literally would use one Java stack frame per iteration, so
+ * this class runs the same depth-first search with an explicit work stack instead: loops of
+ * millions of iterations run in constant stack space, and the search stops as soon as the
+ * consumer does.
+ *
+ * <p>The outputs of {@code update} are read in {@link OutputWindow}s rather than all at once: a
+ * state whose update has more outputs than it has read so far leaves a step on the work stack
+ * that reads the next window once the search comes back to it. An update that is itself an
+ * infinite generator, as in {@code limit(3; repeat(range(infinite)))}, therefore only has the
+ * outputs the search actually reached evaluated. Each window evaluates the update again, so an
+ * update whose k outputs are all read runs at most log2(k) + 1 times; the usual update with a
+ * single output runs once.
+ */
+abstract class Unfold implements Expression {
+  private final Expression update;
+
+  Unfold(Expression update) {
+    this.update = update;
+  }
+
+  public Expression getUpdate() {
+    return update;
+  }
+
+  /**
+   * Adds, in output order, what one state leads to: values to emit with
+   * {@link Steps#emit(JqValue)} and states to apply {@code update} to with
+   * {@link Steps#apply(JqValue)}.
+   */
+  abstract void step(JqValue state, Environment env, Steps steps);
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    Deque<Step> pending = new ArrayDeque<>();
+    Steps steps = new Steps();
+    pending.push(new Step(Step.VISIT, input));
+    while (!pending.isEmpty()) {
+      Step next = pending.pop();
+      switch (next.kind) {
+        case Step.EMIT:
+          if (!out.accept(next.value)) {
+            return false;
+          }
+          break;
+        case Step.APPLY:
+          OutputWindow outputs = next.window == null
+              ? OutputWindow.first(update, next.value, env)
+              : next.window.next(update, next.value, env);
+          if (outputs.hasMore()) {
+            pending.push(new Step(Step.APPLY, next.value, outputs));
+          } else if (outputs.failure() != null) {
+            pending.push(new Step(Step.FAIL, null, outputs));
+          }
+          List<JqValue> results = outputs.values();
+          for (int i = results.size() - 1; i >= 0; i--) {
+            pending.push(new Step(Step.VISIT, results.get(i)));
+          }
+          break;
+        case Step.FAIL:
+          throw next.window.failure();
+        default:
+          steps.list.clear();
+          step(next.value, env, steps);
+          for (int i = steps.list.size() - 1; i >= 0; i--) {
+            pending.push(steps.list.get(i));
+          }
+      }
+    }
+    return true;
+  }
+
+  /** The work produced by one call to {@link #step}. */
+  static final class Steps {
+    private final List<Step> list = new ArrayList<>();
+
+    void emit(JqValue value) {
+      list.add(new Step(Step.EMIT, value));
+    }
+
+    void apply(JqValue value) {
+      list.add(new Step(Step.APPLY, value));
+    }
+  }
+
+  private static final class Step {
+    static final int VISIT = 0;
+    static final int EMIT = 1;
+    static final int APPLY = 2;
+    static final int FAIL = 3;
+
+    final int kind;
+    final JqValue value;
+    // The outputs of the update read so far, for a step resuming or failing an update
+    final OutputWindow window;
+
+    Step(int kind, JqValue value) {
+      this(kind, value, null);
+    }
+
+    Step(int kind, JqValue value, OutputWindow window) {
+      this.kind = kind;
+      this.value = value;
+      this.window = window;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code until(cond; update)}: applies {@code update} repeatedly until
+ * {@code cond} holds, then emits that value.
+ */
+public class Until extends Unfold {
+  private final Expression condition;
+
+  public Until(Expression condition, Expression update) {
+    super(update);
+    this.condition = condition;
+  }
+
+  public Expression getCondition() {
+    return condition;
+  }
+
+  @Override
+  void step(JqValue state, Environment env, Steps steps) {
+    condition.evaluate(state, env, test -> {
+      if (test.isTruthy()) {
+        steps.emit(state);
+      } else {
+        steps.apply(state);
+      }
+      return true;
+    });
+  }
+}
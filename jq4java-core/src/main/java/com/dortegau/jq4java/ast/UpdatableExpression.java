@@ -11,9 +11,10 @@ public interface UpdatableExpression extends Expression {
    * Applies the provided updater to the value targeted by this expression.
    *
    * @param input the original input value
+   * @param env the variable bindings of the running evaluation
    * @param updater a function that receives the current targeted value
    *                and returns the updated value
    * @return a new {@link JqValue} reflecting the applied update
    */
-  JqValue update(JqValue input, Function<JqValue, JqValue> updater);
+  JqValue update(JqValue input, Environment env, Function<JqValue, JqValue> updater);
 }
@@ -1,9 +1,7 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BinaryOperator;
 
 /**
  * Represents update-assignment expressions like ".foo += 1".
@@ -11,6 +9,7 @@ import java.util.stream.Stream;
 public class UpdateAssignment implements Expression {
   private final UpdatableExpression target;
   private final String operator;
+  private final BinaryOperator<JqValue> operation;
   private final Expression valueExpression;
 
   /**
@@ -23,38 +22,50 @@ public class UpdateAssignment implements Expression {
   public UpdateAssignment(UpdatableExpression target, String operator, Expression valueExpression) {
     this.target = target;
     this.operator = operator;
+    this.operation = operation(operator);
     this.valueExpression = valueExpression;
   }
 
+  public UpdatableExpression getTarget() {
+    return target;
+  }
+
+  public String getOperator() {
+    return operator;
+  }
+
+  public Expression getValueExpression() {
+    return valueExpression;
+  }
+
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    List<JqValue> values = valueExpression.evaluate(input).collect(Collectors.toList());
-    if (values.isEmpty()) {
-      throw new RuntimeException("Update expression produced no results");
-    }
-    if (values.size() > 1) {
-      throw new RuntimeException("Update expression produced multiple results");
-    }
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    // As in jq, every right-hand value yields its own updated copy of the input
+    return valueExpression.evaluate(input, env, rightValue ->
+        out.accept(target.update(input, env, current -> operation.apply(current, rightValue))));
+  }
 
-    JqValue rightValue = values.get(0);
-    JqValue updated = target.update(input, current -> applyOperator(current, rightValue));
-    return Stream.of(updated);
+  /**
+   * Combines the current value of the target with one right-hand value, as this operator does.
+   */
+  JqValue apply(JqValue current, JqValue rightValue) {
+    return operation.apply(current, rightValue);
   }
 
-  private JqValue applyOperator(JqValue left, JqValue right) {
+  private static BinaryOperator<JqValue> operation(String operator) {
     switch (operator) {
       case "+=":
-        return left.add(right);
+        return JqValue::add;
       case "-=":
-        return left.subtract(right);
+        return JqValue::subtract;
       case "*=":
-        return left.multiply(right);
+        return JqValue::multiply;
       case "/=":
-        return left.divide(right);
+        return JqValue::divide;
       case "%=":
-        return left.modulo(right);
+        return JqValue::modulo;
       case "//=":
-        return left.isTruthy() ? left : right;
+        return (left, right) -> left.isTruthy() ? left : right;
       default:
         throw new RuntimeException("Unsupported update operator: " + operator);
     }
@@ -4,7 +4,6 @@ import com.dortegau.jq4java.json.JqValue;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the @uri URI decode function.
@@ -13,19 +12,20 @@ import java.util.stream.Stream;
 public class UriDecode implements Expression {
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isString()) {
       throw new RuntimeException(
           "Cannot uri decode " + input.typeName() + " (" + input + ")");
     }
 
+    String decoded;
     try {
-      String decoded = URLDecoder.decode(input.asString(), StandardCharsets.UTF_8.name());
-      return Stream.of(JqValue.fromString(decoded));
+      decoded = URLDecoder.decode(input.asString(), StandardCharsets.UTF_8.name());
     } catch (IllegalArgumentException e) {
       throw new RuntimeException("Invalid percent-encoded string: " + input, e);
     } catch (UnsupportedEncodingException e) {
       throw new RuntimeException("Failed to uri decode string", e);
     }
+    return out.accept(JqValue.fromString(decoded));
   }
 }
@@ -4,7 +4,6 @@ import com.dortegau.jq4java.json.JqValue;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the @uri URI encode function.
@@ -13,7 +12,7 @@ import java.util.stream.Stream;
 public class UriEncode implements Expression {
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
     if (!input.isString()) {
       throw new RuntimeException(
           "Cannot uri encode " + input.typeName() + " (" + input + ")");
@@ -22,7 +21,7 @@ public class UriEncode implements Expression {
     try {
       String encoded = URLEncoder.encode(input.asString(), StandardCharsets.UTF_8.name());
       encoded = encoded.replace("+", "%20");
-      return Stream.of(JqValue.fromString(encoded));
+      return out.accept(JqValue.fromString(encoded));
     } catch (UnsupportedEncodingException e) {
       throw new RuntimeException("Failed to uri encode string", e);
     }
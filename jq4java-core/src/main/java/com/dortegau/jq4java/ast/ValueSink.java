@@ -0,0 +1,17 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Receives the values an expression produces, in output order.
+ */
+@FunctionalInterface
+public interface ValueSink {
+  /**
+   * Accepts the next output value.
+   *
+   * @param value the produced value
+   * @return {@code true} to keep receiving values, {@code false} to ask the producer to stop
+   */
+  boolean accept(JqValue value);
+}
@@ -0,0 +1,63 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Variable such as {@code $x}. The name is resolved to a slot of the {@link Environment} when
+ * the AST is built, so a reference is a single array load. The node built for the declaration
+ * is also the {@link Pattern} that binds it, and every reference in the same frame shares it;
+ * a reference from the body of a function called in a frame of its own also records how many
+ * frames up the declaration lives.
+ */
+public class Variable implements Expression, Pattern {
+  private final String name;
+  private final int slot;
+  private final int depth;
+
+  /**
+   * Creates a variable resolved to a slot of the current frame.
+   *
+   * @param name the variable name without the leading {@code $}
+   * @param slot the environment slot its declaration was given
+   */
+  public Variable(String name, int slot) {
+    this(name, slot, 0);
+  }
+
+  /**
+   * Creates a reference to a variable of an enclosing frame.
+   *
+   * @param name the variable name without the leading {@code $}
+   * @param slot the environment slot its declaration was given
+   * @param depth how many frames up the declaration lives
+   */
+  public Variable(String name, int slot, int depth) {
+    this.name = name;
+    this.slot = slot;
+    this.depth = depth;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getSlot() {
+    return slot;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return out.accept(depth == 0 ? env.get(slot) : env.get(depth, slot));
+  }
+
+  @Override
+  public boolean bind(JqValue value, Environment env, BooleanSupplier body) {
+    env.set(slot, value);
+    return body.getAsBoolean();
+  }
+}
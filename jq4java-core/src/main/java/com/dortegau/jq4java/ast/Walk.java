@@ -0,0 +1,168 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqArray;
+import com.dortegau.jq4java.json.JqObject;
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.TransientArray;
+import com.dortegau.jq4java.json.TransientObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Implementation of {@code walk(f)}: applies {@code f} to every value of the input bottom up,
+ * children before the container holding them, as jq 1.7 does. An array element is replaced by
+ * all outputs of {@code f}, an object value by its first output, and a key whose value produces
+ * nothing is deleted.
+ *
+ * <p>Containers are walked on an explicit stack of {@link ChildCursor}s, so documents nested to
+ * any depth are walked in constant Java stack. A container is only copied once one of its
+ * children actually changes, and then into a transient written in place; a branch {@code f}
+ * leaves as it was is returned as the same value, shared with the input. A walk is therefore
+ * linear in the size of the input, and touching one leaf only copies the containers above it.
+ */
+public class Walk implements Expression {
+  private final Expression function;
+
+  public Walk(Expression function) {
+    this.function = function;
+  }
+
+  public Expression getFunction() {
+    return function;
+  }
+
+  @Override
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    if (!ChildCursor.isContainer(input)) {
+      return function.evaluate(input, env, out);
+    }
+    Deque<Frame> open = new ArrayDeque<>();
+    open.push(new Frame(input));
+    while (true) {
+      Frame frame = open.peek();
+      if (frame.cursor.hasNext()) {
+        JqValue child = frame.cursor.next();
+        if (ChildCursor.isContainer(child)) {
+          open.push(new Frame(child));
+        } else {
+          frame.replace(child, child, env);
+        }
+        continue;
+      }
+      open.pop();
+      JqValue walked = frame.result();
+      if (open.isEmpty()) {
+        return function.evaluate(walked, env, out);
+      }
+      open.peek().replace(frame.cursor.container(), walked, env);
+    }
+  }
+
+  /**
+   * A container being walked, with the copy its replaced children are written to. The copy is
+   * only started at the first child that changes, from the container itself while children are
+   * replaced one for one, and restarted from the kept prefix once an element expands to other
+   * than one value or a key is deleted.
+   */
+  private final class Frame implements ValueSink {
+    private final ChildCursor cursor;
+    private final JqArray originalArray;
+    private final JqObject originalObject;
+    private final List<JqValue> outputs = new ArrayList<>();
+    private TransientArray array;
+    private TransientObject object;
+    // Whether the copy is rebuilt by appending instead of written in place
+    private boolean appending;
+
+    Frame(JqValue container) {
+      this.cursor = new ChildCursor(container, null);
+      this.originalArray = container instanceof JqArray ? (JqArray) container : null;
+      this.originalObject = container instanceof JqObject ? (JqObject) container : null;
+    }
+
+    @Override
+    public boolean accept(JqValue value) {
+      outputs.add(value);
+      // Only the first output replaces an object value
+      return originalArray != null;
+    }
+
+    /**
+     * Applies the function to the walked form of the child last returned by the cursor, and
+     * writes its outputs in place of the child.
+     */
+    void replace(JqValue child, JqValue walked, Environment env) {
+      outputs.clear();
+      function.evaluate(walked, env, this);
+      int position = cursor.position() - 1;
+      if (originalArray != null) {
+        replaceElement(child, position);
+      } else {
+        replaceValue(child, position);
+      }
+    }
+
+    private void replaceElement(JqValue child, int position) {
+      if (!appending && outputs.size() == 1) {
+        JqValue output = outputs.get(0);
+        if (array != null) {
+          array.set(position, output);
+        } else if (output != child) {
+          array = originalArray.asTransient().set(position, output);
+        }
+        return;
+      }
+      if (!appending) {
+        TransientArray copy = new TransientArray();
+        for (int i = 0; i < position; i++) {
+          copy.add(array != null ? array.get(i) : originalArray.get(i));
+        }
+        array = copy;
+        appending = true;
+      }
+      for (JqValue output : outputs) {
+        array.add(output);
+      }
+    }
+
+    private void replaceValue(JqValue child, int position) {
+      if (appending) {
+        if (!outputs.isEmpty()) {
+          object.set(originalObject.keyAt(position), outputs.get(0));
+        }
+        return;
+      }
+      if (!outputs.isEmpty()) {
+        JqValue output = outputs.get(0);
+        if (object != null) {
+          object.setValueAt(position, output);
+        } else if (output != child) {
+          object = originalObject.asTransient().setValueAt(position, output);
+        }
+        return;
+      }
+      TransientObject copy = new TransientObject();
+      for (int i = 0; i < position; i++) {
+        copy.set(originalObject.keyAt(i),
+            object != null ? object.valueAt(i) : originalObject.valueAt(i));
+      }
+      object = copy;
+      appending = true;
+    }
+
+    /**
+     * Returns the walked container, which is the original one when no child changed.
+     */
+    JqValue result() {
+      if (array != null) {
+        return array.persistent();
+      }
+      if (object != null) {
+        return object.persistent();
+      }
+      return cursor.container();
+    }
+  }
+}
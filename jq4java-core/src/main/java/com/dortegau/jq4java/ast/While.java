@@ -0,0 +1,31 @@
+package com.dortegau.jq4java.ast;
+
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Implementation of {@code while(cond; update)}: emits the input and every value reached by
+ * applying {@code update}, for as long as {@code cond} holds.
+ */
+public class While extends Unfold {
+  private final Expression condition;
+
+  public While(Expression condition, Expression update) {
+    super(update);
+    this.condition = condition;
+  }
+
+  public Expression getCondition() {
+    return condition;
+  }
+
+  @Override
+  void step(JqValue state, Environment env, Steps steps) {
+    condition.evaluate(state, env, test -> {
+      if (test.isTruthy()) {
+        steps.emit(state);
+        steps.apply(state);
+      }
+      return true;
+    });
+  }
+}
@@ -1,17 +1,12 @@
 package com.dortegau.jq4java.ast;
 
 import com.dortegau.jq4java.json.JqValue;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the with_entries function.
  * Converts an object to key-value pairs, applies a transformation, then converts back to an object.
  */
 public class WithEntries implements Expression {
-  static {
-    BuiltinRegistry.register("with_entries", 1);
-  }
-
   private final Expression pipeline;
 
   public WithEntries(Expression mapper) {
@@ -20,7 +15,7 @@ public class WithEntries implements Expression {
   }
 
   @Override
-  public Stream<JqValue> evaluate(JqValue input) {
-    return pipeline.evaluate(input);
+  public boolean evaluate(JqValue input, Environment env, ValueSink out) {
+    return pipeline.evaluate(input, env, out);
   }
 }
@@ -0,0 +1,445 @@
+package com.dortegau.jq4java.compiler;
+
+import com.dortegau.jq4java.ast.Arithmetic;
+import com.dortegau.jq4java.ast.ArrayConstruction;
+import com.dortegau.jq4java.ast.ArrayIndexing;
+import com.dortegau.jq4java.ast.ArrayIteration;
+import com.dortegau.jq4java.ast.Binding;
+import com.dortegau.jq4java.ast.Comma;
+import com.dortegau.jq4java.ast.Comparison;
+import com.dortegau.jq4java.ast.Definitions;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.FieldAccess;
+import com.dortegau.jq4java.ast.FieldPath;
+import com.dortegau.jq4java.ast.Foreach;
+import com.dortegau.jq4java.ast.FunctionCall;
+import com.dortegau.jq4java.ast.FunctionDefinition;
+import com.dortegau.jq4java.ast.Identity;
+import com.dortegau.jq4java.ast.Index;
+import com.dortegau.jq4java.ast.Literal;
+import com.dortegau.jq4java.ast.MapFunction;
+import com.dortegau.jq4java.ast.Not;
+import com.dortegau.jq4java.ast.ObjectConstruction;
+import com.dortegau.jq4java.ast.OuterFrame;
+import com.dortegau.jq4java.ast.OutputCount;
+import com.dortegau.jq4java.ast.Paths;
+import com.dortegau.jq4java.ast.Pipe;
+import com.dortegau.jq4java.ast.Reduce;
+import com.dortegau.jq4java.ast.Select;
+import com.dortegau.jq4java.ast.UnaryMinus;
+import com.dortegau.jq4java.ast.Variable;
+import com.dortegau.jq4java.ast.Walk;
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles jq ASTs into generated JVM classes.
+ *
+ * <p>Every maximal subtree that always produces exactly one value (field access, indexing,
+ * literals, variables, arithmetic, comparisons, object and array construction, and pipes of
+ * those) is turned into a class whose {@code evaluate} method is straight-line bytecode with
+ * direct calls into {@link JqValue}; variables are read from the evaluation's environment.
+ * Generator nodes such as {@code .[]}, {@code ,} and {@code select} stay interpreted and call
+ * into the generated classes for their scalar parts. Nodes the compiler does not know are left
+ * to the interpreter unchanged.
+ */
+public final class BytecodeCompiler {
+  private static final String OBJECT = "java/lang/Object";
+  private static final String EXPRESSION = "com/dortegau/jq4java/ast/Expression";
+  private static final String VALUE_SINK = "com/dortegau/jq4java/ast/ValueSink";
+  private static final String ENVIRONMENT = "com/dortegau/jq4java/ast/Environment";
+  private static final String JQ_VALUE = "com/dortegau/jq4java/json/JqValue";
+  private static final String TRANSIENT_ARRAY = "com/dortegau/jq4java/json/TransientArray";
+  private static final String TRANSIENT_OBJECT = "com/dortegau/jq4java/json/TransientObject";
+  private static final String INTRINSICS = "com/dortegau/jq4java/compiler/Intrinsics";
+  private static final String JQ_VALUE_DESC = "L" + JQ_VALUE + ";";
+  private static final String BINARY_DESC =
+      "(" + JQ_VALUE_DESC + JQ_VALUE_DESC + ")" + JQ_VALUE_DESC;
+  private static final String UNARY_DESC = "(" + JQ_VALUE_DESC + ")" + JQ_VALUE_DESC;
+
+  private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+  private BytecodeCompiler() {
+  }
+
+  /**
+   * Returns an expression equivalent to the given AST with its scalar subtrees compiled.
+   *
+   * @param expression the AST produced by the parser
+   * @return the compiled expression, or the original AST when nothing could be compiled
+   */
+  public static Expression compile(Expression expression) {
+    if (isScalar(expression)) {
+      if (expression instanceof Identity || expression instanceof Literal
+          || expression instanceof Variable) {
+        return expression;
+      }
+      return generate(expression);
+    }
+    if (expression instanceof Pipe) {
+      Pipe pipe = (Pipe) expression;
+      return new Pipe(compile(pipe.getLeft()), compile(pipe.getRight()));
+    }
+    if (expression instanceof Comma) {
+      return new Comma(compileAll(((Comma) expression).getExpressions()));
+    }
+    if (expression instanceof ArrayIteration) {
+      return new ArrayIteration(compile(((ArrayIteration) expression).getBase()));
+    }
+    if (expression instanceof FieldAccess) {
+      FieldAccess access = (FieldAccess) expression;
+      return new FieldAccess(access.getFieldName(), compile(access.getBase()));
+    }
+    if (expression instanceof FieldPath) {
+      FieldPath path = (FieldPath) expression;
+      return new FieldPath(path.getFieldNames(), compile(path.getBase()));
+    }
+    if (expression instanceof Select) {
+      return new Select(compile(((Select) expression).getCondition()));
+    }
+    if (expression instanceof MapFunction) {
+      return new MapFunction(compile(((MapFunction) expression).getExpr()));
+    }
+    if (expression instanceof Walk) {
+      return new Walk(compile(((Walk) expression).getFunction()));
+    }
+    if (expression instanceof Paths && ((Paths) expression).getFilter() != null) {
+      return new Paths(compile(((Paths) expression).getFilter()));
+    }
+    if (expression instanceof ArrayConstruction) {
+      return new ArrayConstruction(compileAll(((ArrayConstruction) expression).getElements()));
+    }
+    if (expression instanceof OutputCount) {
+      return new OutputCount(compileAll(((OutputCount) expression).getElements()));
+    }
+    if (expression instanceof Index) {
+      Index index = (Index) expression;
+      return new Index(compile(index.getBase()), compile(index.getIndex()));
+    }
+    if (expression instanceof Reduce) {
+      return ((Reduce) expression).transformParts(BytecodeCompiler::compile);
+    }
+    if (expression instanceof Binding) {
+      Binding binding = (Binding) expression;
+      return new Binding(compile(binding.getSource()), binding.getPattern(),
+          compile(binding.getBody()));
+    }
+    if (expression instanceof Definitions) {
+      Definitions definitions = (Definitions) expression;
+      List<FunctionDefinition> compiled = new ArrayList<>();
+      for (FunctionDefinition definition : definitions.getDefinitions()) {
+        compiled.add(definition.withBody(compile(definition.getBody())));
+      }
+      return new Definitions(compiled, compile(definitions.getBody()));
+    }
+    if (expression instanceof FunctionCall) {
+      FunctionCall call = (FunctionCall) expression;
+      return call.withArguments(compileAll(call.getArguments()));
+    }
+    if (expression instanceof OuterFrame) {
+      OuterFrame outer = (OuterFrame) expression;
+      return new OuterFrame(compile(outer.getExpression()), outer.getDepth());
+    }
+    if (expression instanceof Foreach) {
+      Foreach foreach = (Foreach) expression;
+      return new Foreach(compile(foreach.getSource()), foreach.getPattern(),
+          compile(foreach.getInit()), compile(foreach.getUpdate()),
+          compile(foreach.getExtract()));
+    }
+    if (expression instanceof ObjectConstruction) {
+      Map<String, Expression> fields = new LinkedHashMap<>();
+      for (Map.Entry<String, Expression> field
+          : ((ObjectConstruction) expression).getFields().entrySet()) {
+        fields.put(field.getKey(), compile(field.getValue()));
+      }
+      return new ObjectConstruction(fields);
+    }
+    return expression;
+  }
+
+  private static List<Expression> compileAll(List<Expression> expressions) {
+    List<Expression> compiled = new ArrayList<>(expressions.size());
+    for (Expression expression : expressions) {
+      compiled.add(compile(expression));
+    }
+    return compiled;
+  }
+
+  /**
+   * Returns whether the expression yields exactly one value for every input and can be
+   * emitted as straight-line code.
+   */
+  static boolean isScalar(Expression expression) {
+    if (expression instanceof Identity || expression instanceof Literal
+        || expression instanceof Not || expression instanceof Variable) {
+      return true;
+    }
+    if (expression instanceof FieldAccess) {
+      return isScalar(((FieldAccess) expression).getBase());
+    }
+    if (expression instanceof FieldPath) {
+      return isScalar(((FieldPath) expression).getBase());
+    }
+    if (expression instanceof ArrayIndexing) {
+      return isScalar(((ArrayIndexing) expression).getBase());
+    }
+    if (expression instanceof Pipe) {
+      Pipe pipe = (Pipe) expression;
+      return isScalar(pipe.getLeft()) && isScalar(pipe.getRight());
+    }
+    if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      return arithmeticMethod(arithmetic.getOperator()) != null
+          && isScalar(arithmetic.getLeft()) && isScalar(arithmetic.getRight());
+    }
+    if (expression instanceof Comparison) {
+      Comparison comparison = (Comparison) expression;
+      return comparisonMethod(comparison.getOperator()) != null
+          && isScalar(comparison.getLeft()) && isScalar(comparison.getRight());
+    }
+    if (expression instanceof UnaryMinus) {
+      return isScalar(((UnaryMinus) expression).getOperand());
+    }
+    if (expression instanceof ObjectConstruction) {
+      for (Expression value : ((ObjectConstruction) expression).getFields().values()) {
+        if (!isScalar(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (expression instanceof ArrayConstruction) {
+      for (Expression element : ((ArrayConstruction) expression).getElements()) {
+        for (Expression part : commaParts(element)) {
+          if (!isScalar(part)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static List<Expression> commaParts(Expression expression) {
+    if (expression instanceof Comma) {
+      return ((Comma) expression).getExpressions();
+    }
+    List<Expression> single = new ArrayList<>(1);
+    single.add(expression);
+    return single;
+  }
+
+  private static String arithmeticMethod(String operator) {
+    switch (operator) {
+      case "+":
+        return "add";
+      case "-":
+        return "subtract";
+      case "*":
+        return "multiply";
+      case "/":
+        return "divide";
+      case "%":
+        return "modulo";
+      default:
+        return null;
+    }
+  }
+
+  private static String comparisonMethod(String operator) {
+    switch (operator) {
+      case "==":
+        return "equal";
+      case "!=":
+        return "notEqual";
+      case "<":
+        return "less";
+      case "<=":
+        return "lessOrEqual";
+      case ">":
+        return "greater";
+      case ">=":
+        return "greaterOrEqual";
+      default:
+        return null;
+    }
+  }
+
+  private static Expression generate(Expression expression) {
+    String internalName =
+        "com/dortegau/jq4java/compiler/Compiled$" + CLASS_COUNTER.incrementAndGet();
+    Generator generator = new Generator(internalName);
+    byte[] bytes = generator.generate(expression);
+    Class<?> type = new GeneratedClassLoader(BytecodeCompiler.class.getClassLoader())
+        .define(internalName.replace('/', '.'), bytes);
+    try {
+      return (Expression) type.getConstructor(Object[].class)
+          .newInstance((Object) generator.constants.toArray());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to instantiate compiled expression", e);
+    }
+  }
+
+  private static final class GeneratedClassLoader extends ClassLoader {
+    GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> define(String name, byte[] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * Emits one class implementing {@link Expression} for a scalar subtree. Literal values are
+   * held in final instance fields initialized from the constructor's argument array.
+   */
+  private static final class Generator {
+    private final String internalName;
+    private final ClassWriter writer;
+    private final List<Object> constants = new ArrayList<>();
+    private ClassWriter.Code code;
+
+    Generator(String internalName) {
+      this.internalName = internalName;
+      this.writer = new ClassWriter(internalName, OBJECT, EXPRESSION);
+    }
+
+    byte[] generate(Expression expression) {
+      code = writer.addMethod(ClassWriter.ACC_PUBLIC, "evaluate",
+          "(" + JQ_VALUE_DESC + "L" + ENVIRONMENT + ";L" + VALUE_SINK + ";)Z", 4);
+      code.aload(3);
+      emit(expression, 1);
+      code.invokeinterface(VALUE_SINK, "accept", "(" + JQ_VALUE_DESC + ")Z");
+      code.ireturn();
+      code.finish();
+
+      ClassWriter.Code init =
+          writer.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", 2);
+      init.aload(0);
+      init.invokespecial(OBJECT, "<init>", "()V");
+      for (int i = 0; i < constants.size(); i++) {
+        writer.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_FINAL, "c" + i, JQ_VALUE_DESC);
+        init.aload(0);
+        init.aload(1);
+        init.pushInt(i);
+        init.aaload();
+        init.checkcast(JQ_VALUE);
+        init.putfield(internalName, "c" + i, JQ_VALUE_DESC);
+      }
+      init.vreturn();
+      init.finish();
+      return writer.toByteArray();
+    }
+
+    private void emitConstant(JqValue value) {
+      int index = constants.size();
+      constants.add(value);
+      code.aload(0);
+      code.getfield(internalName, "c" + index, JQ_VALUE_DESC);
+    }
+
+    /**
+     * Emits code leaving the value of {@code expression} on the operand stack, reading the
+     * expression's input from the given local slot.
+     */
+    private void emit(Expression expression, int input) {
+      if (expression instanceof Identity) {
+        code.aload(input);
+      } else if (expression instanceof Literal) {
+        emitConstant(((Literal) expression).getValue());
+      } else if (expression instanceof Variable) {
+        Variable variable = (Variable) expression;
+        code.aload(2);
+        if (variable.getDepth() == 0) {
+          code.pushInt(variable.getSlot());
+          code.invokevirtual(ENVIRONMENT, "get", "(I)" + JQ_VALUE_DESC);
+        } else {
+          code.pushInt(variable.getDepth());
+          code.pushInt(variable.getSlot());
+          code.invokevirtual(ENVIRONMENT, "get", "(II)" + JQ_VALUE_DESC);
+        }
+      } else if (expression instanceof Not) {
+        code.aload(input);
+        code.invokestatic(INTRINSICS, "not", UNARY_DESC);
+      } else if (expression instanceof FieldAccess) {
+        FieldAccess access = (FieldAccess) expression;
+        emit(access.getBase(), input);
+        code.ldcString(access.getFieldName());
+        code.invokeinterface(JQ_VALUE, "get", "(Ljava/lang/String;)" + JQ_VALUE_DESC);
+      } else if (expression instanceof FieldPath) {
+        FieldPath path = (FieldPath) expression;
+        emit(path.getBase(), input);
+        for (String fieldName : path.getFieldNames()) {
+          code.ldcString(fieldName);
+          code.invokeinterface(JQ_VALUE, "get", "(Ljava/lang/String;)" + JQ_VALUE_DESC);
+        }
+      } else if (expression instanceof ArrayIndexing) {
+        ArrayIndexing indexing = (ArrayIndexing) expression;
+        emit(indexing.getBase(), input);
+        code.pushInt(indexing.getIndex());
+        code.invokeinterface(JQ_VALUE, "get", "(I)" + JQ_VALUE_DESC);
+      } else if (expression instanceof Pipe) {
+        Pipe pipe = (Pipe) expression;
+        emit(pipe.getLeft(), input);
+        int local = code.newLocal();
+        code.astore(local);
+        emit(pipe.getRight(), local);
+      } else if (expression instanceof Arithmetic) {
+        Arithmetic arithmetic = (Arithmetic) expression;
+        emit(arithmetic.getLeft(), input);
+        emit(arithmetic.getRight(), input);
+        code.invokeinterface(JQ_VALUE, arithmeticMethod(arithmetic.getOperator()),
+            UNARY_DESC);
+      } else if (expression instanceof Comparison) {
+        Comparison comparison = (Comparison) expression;
+        emit(comparison.getLeft(), input);
+        emit(comparison.getRight(), input);
+        code.invokestatic(INTRINSICS, comparisonMethod(comparison.getOperator()), BINARY_DESC);
+      } else if (expression instanceof UnaryMinus) {
+        emit(((UnaryMinus) expression).getOperand(), input);
+        code.invokestatic(INTRINSICS, "negate", UNARY_DESC);
+      } else if (expression instanceof ObjectConstruction) {
+        emitObject((ObjectConstruction) expression, input);
+      } else if (expression instanceof ArrayConstruction) {
+        emitArray((ArrayConstruction) expression, input);
+      } else {
+        throw new IllegalStateException("Not a scalar expression: " + expression);
+      }
+    }
+
+    private void emitObject(ObjectConstruction object, int input) {
+      String setDesc = "(Ljava/lang/String;" + JQ_VALUE_DESC + ")L" + TRANSIENT_OBJECT + ";";
+      code.newObject(TRANSIENT_OBJECT);
+      code.dup();
+      code.invokespecial(TRANSIENT_OBJECT, "<init>", "()V");
+      for (Map.Entry<String, Expression> field : object.getFields().entrySet()) {
+        code.ldcString(field.getKey());
+        emit(field.getValue(), input);
+        code.invokevirtual(TRANSIENT_OBJECT, "set", setDesc);
+      }
+      code.invokevirtual(TRANSIENT_OBJECT, "persistent",
+          "()Lcom/dortegau/jq4java/json/JqObject;");
+    }
+
+    private void emitArray(ArrayConstruction array, int input) {
+      String addDesc = "(" + JQ_VALUE_DESC + ")L" + TRANSIENT_ARRAY + ";";
+      code.newObject(TRANSIENT_ARRAY);
+      code.dup();
+      code.invokespecial(TRANSIENT_ARRAY, "<init>", "()V");
+      for (Expression element : array.getElements()) {
+        for (Expression part : commaParts(element)) {
+          emit(part, input);
+          code.invokevirtual(TRANSIENT_ARRAY, "add", addDesc);
+        }
+      }
+      code.invokevirtual(TRANSIENT_ARRAY, "persistent",
+          "()Lcom/dortegau/jq4java/json/JqArray;");
+    }
+  }
+}
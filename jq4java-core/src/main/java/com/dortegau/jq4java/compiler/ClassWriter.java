@@ -0,0 +1,368 @@
+package com.dortegau.jq4java.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class file writer for the straight-line classes emitted by {@link BytecodeCompiler}.
+ *
+ * <p>Only the constant pool entries and instructions the generator needs are supported. Generated
+ * methods never branch, so the class files target Java 8 without a {@code StackMapTable}.
+ */
+final class ClassWriter {
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  private static final int MAJOR_VERSION = 52;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+  private final DataOutputStream pool = new DataOutputStream(poolBytes);
+  private final Map<String, Integer> poolIndex = new HashMap<>();
+  private int poolCount = 1;
+
+  private final int thisClass;
+  private final int superClass;
+  private final List<Integer> interfaces = new ArrayList<>();
+  private final List<byte[]> fields = new ArrayList<>();
+  private final List<byte[]> methods = new ArrayList<>();
+
+  ClassWriter(String internalName, String superName, String... interfaceNames) {
+    this.thisClass = classRef(internalName);
+    this.superClass = classRef(superName);
+    for (String name : interfaceNames) {
+      interfaces.add(classRef(name));
+    }
+  }
+
+  private int entry(String key, int tag, PoolWriter writer) {
+    Integer existing = poolIndex.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      pool.writeByte(tag);
+      writer.write(pool);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    int index = poolCount++;
+    poolIndex.put(key, index);
+    return index;
+  }
+
+  private interface PoolWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  int utf8(String value) {
+    return entry("U" + value, CONSTANT_UTF8, out -> out.writeUTF(value));
+  }
+
+  int classRef(String internalName) {
+    int name = utf8(internalName);
+    return entry("C" + internalName, CONSTANT_CLASS, out -> out.writeShort(name));
+  }
+
+  int string(String value) {
+    int text = utf8(value);
+    return entry("S" + value, CONSTANT_STRING, out -> out.writeShort(text));
+  }
+
+  int integer(int value) {
+    return entry("I" + value, CONSTANT_INTEGER, out -> out.writeInt(value));
+  }
+
+  private int nameAndType(String name, String descriptor) {
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    return entry("N" + name + ":" + descriptor, CONSTANT_NAME_AND_TYPE, out -> {
+      out.writeShort(nameIndex);
+      out.writeShort(descriptorIndex);
+    });
+  }
+
+  private int memberRef(int tag, String owner, String name, String descriptor) {
+    int ownerIndex = classRef(owner);
+    int nameAndTypeIndex = nameAndType(name, descriptor);
+    return entry(tag + owner + "." + name + ":" + descriptor, tag, out -> {
+      out.writeShort(ownerIndex);
+      out.writeShort(nameAndTypeIndex);
+    });
+  }
+
+  int fieldRef(String owner, String name, String descriptor) {
+    return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+  }
+
+  int methodRef(String owner, String name, String descriptor) {
+    return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+  }
+
+  int interfaceMethodRef(String owner, String name, String descriptor) {
+    return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+  }
+
+  void addField(int access, String name, String descriptor) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeShort(access);
+      out.writeShort(utf8(name));
+      out.writeShort(utf8(descriptor));
+      out.writeShort(0);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    fields.add(bytes.toByteArray());
+  }
+
+  Code addMethod(int access, String name, String descriptor, int parameterSlots) {
+    Code code = new Code(access, utf8(name), utf8(descriptor), parameterSlots);
+    methods.add(null);
+    code.slot = methods.size() - 1;
+    return code;
+  }
+
+  byte[] toByteArray() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(MAJOR_VERSION);
+      out.writeShort(poolCount);
+      pool.flush();
+      poolBytes.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(interfaces.size());
+      for (int index : interfaces) {
+        out.writeShort(index);
+      }
+      out.writeShort(fields.size());
+      for (byte[] field : fields) {
+        out.write(field);
+      }
+      out.writeShort(methods.size());
+      for (byte[] method : methods) {
+        if (method == null) {
+          throw new IllegalStateException("Method body was not finished");
+        }
+        out.write(method);
+      }
+      out.writeShort(0);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Builder for a single method body that tracks operand stack depth and local slots.
+   */
+  final class Code {
+    private final int access;
+    private final int nameIndex;
+    private final int descriptorIndex;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int slot;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    private Code(int access, int nameIndex, int descriptorIndex, int parameterSlots) {
+      this.access = access;
+      this.nameIndex = nameIndex;
+      this.descriptorIndex = descriptorIndex;
+      this.maxLocals = parameterSlots;
+    }
+
+    private void op(int opcode, int stackDelta) {
+      bytes.write(opcode);
+      stack += stackDelta;
+      maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u2(int value) {
+      bytes.write(value >>> 8);
+      bytes.write(value);
+    }
+
+    int newLocal() {
+      return maxLocals++;
+    }
+
+    void aload(int local) {
+      if (local <= 3) {
+        op(0x2a + local, 1);
+      } else {
+        op(0x19, 1);
+        bytes.write(local);
+      }
+    }
+
+    void astore(int local) {
+      if (local <= 3) {
+        op(0x4b + local, -1);
+      } else {
+        op(0x3a, -1);
+        bytes.write(local);
+      }
+    }
+
+    void pushInt(int value) {
+      if (value >= -1 && value <= 5) {
+        op(0x03 + value, 1);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        op(0x10, 1);
+        bytes.write(value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        op(0x11, 1);
+        u2(value);
+      } else {
+        ldc(integer(value));
+      }
+    }
+
+    void ldcString(String value) {
+      ldc(string(value));
+    }
+
+    private void ldc(int index) {
+      if (index < 256) {
+        op(0x12, 1);
+        bytes.write(index);
+      } else {
+        op(0x13, 1);
+        u2(index);
+      }
+    }
+
+    void aaload() {
+      op(0x32, -1);
+    }
+
+    void dup() {
+      op(0x59, 1);
+    }
+
+    void newObject(String internalName) {
+      op(0xbb, 1);
+      u2(classRef(internalName));
+    }
+
+    void checkcast(String internalName) {
+      op(0xc0, 0);
+      u2(classRef(internalName));
+    }
+
+    void getfield(String owner, String name, String descriptor) {
+      op(0xb4, 0);
+      u2(fieldRef(owner, name, descriptor));
+    }
+
+    void putfield(String owner, String name, String descriptor) {
+      op(0xb5, -2);
+      u2(fieldRef(owner, name, descriptor));
+    }
+
+    void invokespecial(String owner, String name, String descriptor) {
+      op(0xb7, stackEffect(descriptor) - 1);
+      u2(methodRef(owner, name, descriptor));
+    }
+
+    void invokevirtual(String owner, String name, String descriptor) {
+      op(0xb6, stackEffect(descriptor) - 1);
+      u2(methodRef(owner, name, descriptor));
+    }
+
+    void invokestatic(String owner, String name, String descriptor) {
+      op(0xb8, stackEffect(descriptor));
+      u2(methodRef(owner, name, descriptor));
+    }
+
+    void invokeinterface(String owner, String name, String descriptor) {
+      op(0xb9, stackEffect(descriptor) - 1);
+      u2(interfaceMethodRef(owner, name, descriptor));
+      bytes.write(argumentSlots(descriptor) + 1);
+      bytes.write(0);
+    }
+
+    void areturn() {
+      op(0xb0, -1);
+    }
+
+    void ireturn() {
+      op(0xac, -1);
+    }
+
+    void vreturn() {
+      op(0xb1, 0);
+    }
+
+    void finish() {
+      byte[] code = bytes.toByteArray();
+      ByteArrayOutputStream method = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(method);
+      try {
+        out.writeShort(access);
+        out.writeShort(nameIndex);
+        out.writeShort(descriptorIndex);
+        out.writeShort(1);
+        out.writeShort(utf8("Code"));
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      methods.set(slot, method.toByteArray());
+    }
+  }
+
+  private static int argumentSlots(String descriptor) {
+    int slots = 0;
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      char c = descriptor.charAt(i);
+      if (c == 'J' || c == 'D') {
+        slots += 2;
+        i++;
+      } else {
+        slots++;
+        while (descriptor.charAt(i) == '[') {
+          i++;
+        }
+        i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+      }
+    }
+    return slots;
+  }
+
+  private static int stackEffect(String descriptor) {
+    char returnType = descriptor.charAt(descriptor.indexOf(')') + 1);
+    int returned = returnType == 'V' ? 0 : (returnType == 'J' || returnType == 'D') ? 2 : 1;
+    return returned - argumentSlots(descriptor);
+  }
+}
@@ -0,0 +1,48 @@
+package com.dortegau.jq4java.compiler;
+
+import com.dortegau.jq4java.ast.UnaryMinus;
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Static helpers invoked from generated classes.
+ *
+ * <p>Generated code is branch-free, so every operation that needs a conditional lives here as
+ * one small method per operator that the JIT can inline at the call site. This class is public
+ * only because generated classes live in their own class loader.
+ */
+public final class Intrinsics {
+  private Intrinsics() {
+  }
+
+  public static JqValue equal(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(left.equals(right));
+  }
+
+  public static JqValue notEqual(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(!left.equals(right));
+  }
+
+  public static JqValue less(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(left.compareTo(right) < 0);
+  }
+
+  public static JqValue lessOrEqual(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(left.compareTo(right) <= 0);
+  }
+
+  public static JqValue greater(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(left.compareTo(right) > 0);
+  }
+
+  public static JqValue greaterOrEqual(JqValue left, JqValue right) {
+    return JqValue.fromBoolean(left.compareTo(right) >= 0);
+  }
+
+  public static JqValue not(JqValue value) {
+    return JqValue.fromBoolean(!value.isTruthy());
+  }
+
+  public static JqValue negate(JqValue value) {
+    return UnaryMinus.negate(value);
+  }
+}
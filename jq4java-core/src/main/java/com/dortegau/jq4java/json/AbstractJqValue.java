@@ -0,0 +1,186 @@
+package com.dortegau.jq4java.json;
+
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Shared base for the native {@link JqValue} node classes.
+ *
+ * <p>Every operation defaults to the error jq reports for a value that does not support it,
+ * so each concrete node only overrides what its type actually implements.
+ */
+abstract class AbstractJqValue implements JqValue {
+
+  @Override
+  public String toString() {
+    return JsonWriter.toJson(this);
+  }
+
+  @Override
+  public JqValue get(String key) {
+    throw new RuntimeException("Cannot index " + typeName() + " with string \"" + key + "\"");
+  }
+
+  @Override
+  public JqValue get(int index) {
+    return JqNull.NULL;
+  }
+
+  @Override
+  public JqValue set(String key, JqValue value) {
+    throw new RuntimeException(typeName() + " (" + this + ") cannot have key '" + key + "'");
+  }
+
+  @Override
+  public JqValue set(int index, JqValue value) {
+    throw new RuntimeException(
+        typeName() + " (" + this + ") cannot be indexed with '" + index + "'");
+  }
+
+  @Override
+  public boolean isArray() {
+    return false;
+  }
+
+  @Override
+  public Stream<JqValue> stream() {
+    return Stream.empty();
+  }
+
+  @Override
+  public Iterable<JqValue> elements() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public JqValue updateElements(Function<JqValue, JqValue> updater) {
+    throw new RuntimeException("Cannot iterate over " + typeName() + " (" + this + ")");
+  }
+
+  @Override
+  public JqValue slice(Integer start, Integer end) {
+    return JqNull.NULL;
+  }
+
+  @Override
+  public JqValue length() {
+    throw new RuntimeException(typeName() + " (" + this + ") has no length");
+  }
+
+  @Override
+  public JqValue utf8ByteLength() {
+    throw new RuntimeException(
+        typeName() + " (" + this + ") only strings have UTF-8 byte length");
+  }
+
+  @Override
+  public JqValue add(JqValue other) {
+    // null is the identity of addition, so .count += 1 works on a missing key
+    if (other instanceof JqNull) {
+      return this;
+    }
+    throw new RuntimeException("Cannot add values of these types");
+  }
+
+  @Override
+  public JqValue add() {
+    throw new RuntimeException("Cannot add elements of non-array");
+  }
+
+  @Override
+  public JqValue subtract(JqValue other) {
+    throw new RuntimeException(typeName() + " (" + this + ") and " + other.typeName()
+        + " (" + other + ") cannot be subtracted");
+  }
+
+  @Override
+  public JqValue multiply(JqValue other) {
+    throw new RuntimeException("Cannot multiply values of these types");
+  }
+
+  @Override
+  public JqValue divide(JqValue other) {
+    throw new RuntimeException("Cannot divide values of these types");
+  }
+
+  @Override
+  public JqValue modulo(JqValue other) {
+    throw new RuntimeException("Cannot modulo values of these types");
+  }
+
+  @Override
+  public boolean isTruthy() {
+    return true;
+  }
+
+  @Override
+  public JqValue type() {
+    return jqType().value();
+  }
+
+  @Override
+  public JqValue keys() {
+    throw new RuntimeException(typeName() + " (" + this + ") has no keys");
+  }
+
+  @Override
+  public boolean isNull() {
+    return false;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return false;
+  }
+
+  @Override
+  public double asNumber() {
+    throw new RuntimeException("Value is not a number: " + this);
+  }
+
+  @Override
+  public boolean isString() {
+    return false;
+  }
+
+  @Override
+  public String asString() {
+    throw new RuntimeException("Value is not a string: " + this);
+  }
+
+  @Override
+  public JqValue flatten(int depth) {
+    throw new RuntimeException("Cannot flatten non-array");
+  }
+
+  @Override
+  public JqValue sort() {
+    throw new RuntimeException("Cannot sort non-array");
+  }
+
+  @Override
+  public JqValue reverse() {
+    throw new RuntimeException("Cannot reverse non-array");
+  }
+
+  @Override
+  public JqValue unique() {
+    throw new RuntimeException("Cannot get unique elements from non-array");
+  }
+
+  @Override
+  public JqValue transpose() {
+    throw new RuntimeException("Cannot transpose non-array");
+  }
+
+  @Override
+  public JqValue abs() {
+    throw new RuntimeException(typeName() + " (" + this + ") cannot be used with abs");
+  }
+
+  @Override
+  public int compareTo(JqValue other) {
+    return Ordering.compare(this, other);
+  }
+}
@@ -0,0 +1,215 @@
+package com.dortegau.jq4java.json;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Structural equality and hashing for arrays and objects.
+ *
+ * <p>Like {@link JsonWriter}, both walks keep an explicit stack instead of recursing, so
+ * comparing or hashing a document is bounded only by the heap, never by the thread stack, even
+ * at the parser's maximum nesting depth.
+ *
+ * <p>{@link #equal(JqValue, JqValue)} stops at the first difference in document order. Before
+ * descending into two containers it compares their sizes and, when both already know them,
+ * their cached hash codes, so most unequal pairs are rejected without visiting any element.
+ *
+ * <p>{@link #hash(JqValue)} stores each container's hash in its {@code hash} field the first
+ * time it is computed. The field is written without synchronization, the same single-check
+ * idiom as {@link String#hashCode()}: the value is a pure function of an immutable tree, so a
+ * thread that sees the default {@code 0} simply computes the same result again.
+ */
+final class Equality {
+
+  private Equality() {
+  }
+
+  /**
+   * Returns whether two values are structurally equal. Object keys are compared regardless of
+   * insertion order, as in jq.
+   */
+  static boolean equal(JqValue left, JqValue right) {
+    if (!shallowEqual(left, right)) {
+      return false;
+    }
+    if (!(left instanceof JqArray) && !(left instanceof JqObject)) {
+      return true;
+    }
+
+    // Each frame holds the iterator over the left container and either the iterator over the
+    // right array or the right object, whose fields are looked up by key.
+    Iterator<?>[] lefts = new Iterator<?>[16];
+    Object[] rights = new Object[16];
+    int depth = push(lefts, rights, 0, left, right);
+    while (depth > 0) {
+      Iterator<?> top = lefts[depth - 1];
+      if (!top.hasNext()) {
+        lefts[--depth] = null;
+        rights[depth] = null;
+        continue;
+      }
+      JqValue a;
+      JqValue b;
+      Object other = rights[depth - 1];
+      if (other instanceof JqObject) {
+        JqObject.Entry entry = (JqObject.Entry) top.next();
+        JqObject.Entry match = ((JqObject) other).entry(entry.key);
+        if (match == null) {
+          return false;
+        }
+        a = entry.value;
+        b = match.value;
+      } else {
+        a = (JqValue) top.next();
+        b = (JqValue) ((Iterator<?>) other).next();
+      }
+      if (a == b) {
+        continue;
+      }
+      if (!shallowEqual(a, b)) {
+        return false;
+      }
+      if (a instanceof JqArray || a instanceof JqObject) {
+        if (depth == lefts.length) {
+          lefts = Arrays.copyOf(lefts, depth * 2);
+          rights = Arrays.copyOf(rights, depth * 2);
+        }
+        depth = push(lefts, rights, depth, a, b);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compares scalars completely and containers by class, size and any cached hash codes.
+   */
+  private static boolean shallowEqual(JqValue a, JqValue b) {
+    if (a == b) {
+      return true;
+    }
+    if (a instanceof JqArray) {
+      if (!(b instanceof JqArray)) {
+        return false;
+      }
+      JqArray x = (JqArray) a;
+      JqArray y = (JqArray) b;
+      return x.size() == y.size() && (x.hash == 0 || y.hash == 0 || x.hash == y.hash);
+    }
+    if (a instanceof JqObject) {
+      if (!(b instanceof JqObject)) {
+        return false;
+      }
+      JqObject x = (JqObject) a;
+      JqObject y = (JqObject) b;
+      return x.size() == y.size() && (x.hash == 0 || y.hash == 0 || x.hash == y.hash);
+    }
+    return a.equals(b);
+  }
+
+  private static int push(Iterator<?>[] lefts, Object[] rights, int depth, JqValue a,
+      JqValue b) {
+    if (a instanceof JqArray) {
+      lefts[depth] = a.elements().iterator();
+      rights[depth] = b.elements().iterator();
+    } else {
+      lefts[depth] = ((JqObject) a).entries().iterator();
+      rights[depth] = b;
+    }
+    return depth + 1;
+  }
+
+  /**
+   * Returns the hash code of an array or object, computing and caching it on every container
+   * in the tree that does not have one yet.
+   *
+   * <p>Arrays combine element hashes like {@link java.util.List#hashCode()}; objects sum
+   * {@code key.hashCode() ^ value.hashCode()} like {@link java.util.Map#hashCode()}, so the
+   * result does not depend on key order.
+   */
+  static int hash(JqValue root) {
+    int cached = cachedHash(root);
+    if (cached != 0) {
+      return cached;
+    }
+
+    JqValue[] containers = new JqValue[16];
+    Iterator<?>[] iterators = new Iterator<?>[16];
+    String[] keys = new String[16];
+    int[] sums = new int[16];
+    int depth = 0;
+    JqValue current = root;
+    while (true) {
+      // Descend into a container whose hash is not cached yet.
+      if (depth == containers.length) {
+        containers = Arrays.copyOf(containers, depth * 2);
+        iterators = Arrays.copyOf(iterators, depth * 2);
+        keys = Arrays.copyOf(keys, depth * 2);
+        sums = Arrays.copyOf(sums, depth * 2);
+      }
+      containers[depth] = current;
+      if (current instanceof JqArray) {
+        iterators[depth] = current.elements().iterator();
+        sums[depth] = 1;
+      } else {
+        iterators[depth] = ((JqObject) current).entries().iterator();
+        sums[depth] = 0;
+      }
+      depth++;
+
+      current = null;
+      while (current == null) {
+        int top = depth - 1;
+        Iterator<?> iterator = iterators[top];
+        if (!iterator.hasNext()) {
+          int hash = finish(containers[top], sums[top]);
+          containers[top] = null;
+          iterators[top] = null;
+          depth = top;
+          if (depth == 0) {
+            return hash;
+          }
+          combine(containers, keys, sums, depth - 1, hash);
+          continue;
+        }
+        Object next = iterator.next();
+        JqValue child;
+        if (next instanceof JqObject.Entry) {
+          JqObject.Entry entry = (JqObject.Entry) next;
+          keys[top] = entry.key;
+          child = entry.value;
+        } else {
+          child = (JqValue) next;
+        }
+        int childHash = child instanceof JqArray || child instanceof JqObject
+            ? cachedHash(child) : child.hashCode();
+        if (childHash == 0 && (child instanceof JqArray || child instanceof JqObject)) {
+          current = child;
+        } else {
+          combine(containers, keys, sums, top, childHash);
+        }
+      }
+    }
+  }
+
+  private static void combine(JqValue[] containers, String[] keys, int[] sums, int level,
+      int childHash) {
+    if (containers[level] instanceof JqArray) {
+      sums[level] = 31 * sums[level] + childHash;
+    } else {
+      sums[level] += keys[level].hashCode() ^ childHash;
+    }
+  }
+
+  private static int cachedHash(JqValue container) {
+    return container instanceof JqArray ? ((JqArray) container).hash : ((JqObject) container).hash;
+  }
+
+  private static int finish(JqValue container, int hash) {
+    if (container instanceof JqArray) {
+      ((JqArray) container).hash = hash;
+    } else {
+      ((JqObject) container).hash = hash;
+    }
+    return hash;
+  }
+}
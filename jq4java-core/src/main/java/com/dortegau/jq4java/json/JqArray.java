@@ -0,0 +1,294 @@
+package com.dortegau.jq4java.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable jq array. Elements live in a {@link PersistentVector}, so {@link #set(int,
+ * JqValue)} shares every untouched leaf with the original array.
+ */
+public final class JqArray extends AbstractJqValue {
+  static final JqArray EMPTY = new JqArray(PersistentVector.<JqValue>empty());
+
+  private final PersistentVector<JqValue> elements;
+
+  /** Cached {@link #hashCode()}, or {@code 0} until first computed; see {@link Equality}. */
+  int hash;
+
+  JqArray(JqValue[] elements) {
+    this(PersistentVector.<JqValue>of(elements));
+  }
+
+  JqArray(PersistentVector<JqValue> elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * Returns an array holding the given values in order.
+   *
+   * @param values the elements of the array
+   * @return the corresponding jq array
+   */
+  public static JqArray of(List<JqValue> values) {
+    if (values.isEmpty()) {
+      return EMPTY;
+    }
+    return new JqArray(values.toArray(new JqValue[0]));
+  }
+
+  public int size() {
+    return elements.size();
+  }
+
+  /**
+   * Returns a transient copy of this array for in-place updates.
+   *
+   * @return a transient holding the same elements
+   */
+  public TransientArray asTransient() {
+    return new TransientArray(elements.asTransient());
+  }
+
+  private JqValue[] toArray() {
+    Object[] values = elements.toArray();
+    return Arrays.copyOf(values, values.length, JqValue[].class);
+  }
+
+  @Override
+  public JqValue get(int index) {
+    int actualIndex = index < 0 ? elements.size() + index : index;
+    if (actualIndex >= 0 && actualIndex < elements.size()) {
+      return elements.get(actualIndex);
+    }
+    return JqNull.NULL;
+  }
+
+  @Override
+  public JqValue set(int index, JqValue value) {
+    int actualIndex = index < 0 ? elements.size() + index : index;
+    if (actualIndex < 0 || actualIndex >= elements.size()) {
+      throw new RuntimeException("Index " + index + " is out of bounds");
+    }
+    return new JqArray(elements.assoc(actualIndex, value));
+  }
+
+  @Override
+  public boolean isArray() {
+    return true;
+  }
+
+  @Override
+  public Stream<JqValue> stream() {
+    Spliterator<JqValue> spliterator = Spliterators.spliterator(elements.iterator(),
+        elements.size(), Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  @Override
+  public Iterable<JqValue> elements() {
+    return elements;
+  }
+
+  @Override
+  public JqValue updateElements(Function<JqValue, JqValue> updater) {
+    TransientArray updated = asTransient();
+    for (int i = 0; i < updated.size(); i++) {
+      updated.set(i, updater.apply(updated.get(i)));
+    }
+    return updated.persistent();
+  }
+
+  @Override
+  public JqValue slice(Integer start, Integer end) {
+    int len = elements.size();
+    int actualStart = start == null ? 0 : (start < 0 ? len + start : start);
+    int actualEnd = end == null ? len : (end < 0 ? len + end : end);
+    actualStart = Math.max(0, Math.min(actualStart, len));
+    actualEnd = Math.max(0, Math.min(actualEnd, len));
+    if (actualStart >= actualEnd) {
+      return EMPTY;
+    }
+    return new JqArray(PersistentVector.<JqValue>of(elements.toArray(actualStart, actualEnd)));
+  }
+
+  @Override
+  public JqValue length() {
+    return JqNumber.of(elements.size());
+  }
+
+  @Override
+  public JqValue add(JqValue other) {
+    if (other instanceof JqArray) {
+      TransientArray result = asTransient();
+      for (JqValue item : ((JqArray) other).elements) {
+        result.add(item);
+      }
+      return result.persistent();
+    }
+    return super.add(other);
+  }
+
+  @Override
+  public JqValue add() {
+    if (elements.size() == 0) {
+      return JqNull.NULL;
+    }
+
+    JqValue first = elements.get(0);
+
+    if (first instanceof JqNumber) {
+      double sum = 0;
+      for (JqValue item : elements) {
+        if (!(item instanceof JqNumber)) {
+          throw new RuntimeException("Cannot add mixed types");
+        }
+        sum += ((JqNumber) item).doubleValue();
+      }
+      return JqNumber.of(sum);
+    }
+
+    if (first instanceof JqString) {
+      StringBuilder sb = new StringBuilder();
+      for (JqValue item : elements) {
+        if (!(item instanceof JqString)) {
+          throw new RuntimeException("Cannot add mixed types");
+        }
+        sb.append(item.asString());
+      }
+      return JqString.of(sb.toString());
+    }
+
+    if (first instanceof JqArray) {
+      TransientArray result = new TransientArray();
+      for (JqValue item : elements) {
+        if (!(item instanceof JqArray)) {
+          throw new RuntimeException("Cannot add mixed types");
+        }
+        for (JqValue element : ((JqArray) item).elements) {
+          result.add(element);
+        }
+      }
+      return result.persistent();
+    }
+
+    if (first instanceof JqObject) {
+      JqObject result = JqObject.EMPTY;
+      for (JqValue item : elements) {
+        if (!(item instanceof JqObject)) {
+          throw new RuntimeException("Cannot add mixed types");
+        }
+        result = result.merge((JqObject) item);
+      }
+      return result;
+    }
+
+    throw new RuntimeException("Cannot add elements of this type");
+  }
+
+  @Override
+  public JqValue keys() {
+    JqValue[] indices = new JqValue[elements.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = JqNumber.of(i);
+    }
+    return new JqArray(indices);
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.ARRAY;
+  }
+
+  @Override
+  public JqValue flatten(int depth) {
+    List<JqValue> result = new ArrayList<>();
+    flattenInto(result, depth);
+    return of(result);
+  }
+
+  private void flattenInto(List<JqValue> result, int depth) {
+    for (JqValue item : elements) {
+      if (depth > 0 && item instanceof JqArray) {
+        ((JqArray) item).flattenInto(result, depth - 1);
+      } else {
+        result.add(item);
+      }
+    }
+  }
+
+  @Override
+  public JqValue sort() {
+    JqValue[] sorted = toArray();
+    Ordering.sort(sorted);
+    return new JqArray(sorted);
+  }
+
+  @Override
+  public JqValue reverse() {
+    JqValue[] reversed = toArray();
+    for (int i = 0, j = reversed.length - 1; i < j; i++, j--) {
+      JqValue tmp = reversed[i];
+      reversed[i] = reversed[j];
+      reversed[j] = tmp;
+    }
+    return new JqArray(reversed);
+  }
+
+  @Override
+  public JqValue unique() {
+    JqValue[] sorted = toArray();
+    Ordering.sort(sorted);
+    List<JqValue> unique = new ArrayList<>();
+    JqValue prev = null;
+    for (JqValue item : sorted) {
+      if (prev == null || !item.equals(prev)) {
+        unique.add(item);
+      }
+      prev = item;
+    }
+    return of(unique);
+  }
+
+  @Override
+  public JqValue transpose() {
+    int maxLength = 0;
+    for (JqValue item : elements) {
+      if (item instanceof JqArray) {
+        maxLength = Math.max(maxLength, ((JqArray) item).size());
+      }
+    }
+
+    List<JqValue> result = new ArrayList<>();
+    for (int col = 0; col < maxLength; col++) {
+      List<JqValue> column = new ArrayList<>();
+      for (JqValue item : elements) {
+        if (item instanceof JqArray) {
+          JqArray row = (JqArray) item;
+          if (col < row.size()) {
+            column.add(row.elements.get(col));
+          }
+        }
+      }
+      if (!column.isEmpty()) {
+        result.add(of(column));
+      }
+    }
+    return of(result);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof JqArray && Equality.equal(this, (JqArray) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return Equality.hash(this);
+  }
+}
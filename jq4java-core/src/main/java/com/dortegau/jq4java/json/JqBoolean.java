@@ -0,0 +1,45 @@
+package com.dortegau.jq4java.json;
+
+/**
+ * The jq {@code true} and {@code false} values.
+ */
+public final class JqBoolean extends AbstractJqValue {
+  /** The {@code true} value. */
+  public static final JqBoolean TRUE = new JqBoolean(true);
+  /** The {@code false} value. */
+  public static final JqBoolean FALSE = new JqBoolean(false);
+
+  private final boolean value;
+
+  private JqBoolean(boolean value) {
+    this.value = value;
+  }
+
+  public static JqBoolean of(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  public boolean booleanValue() {
+    return value;
+  }
+
+  @Override
+  public boolean isTruthy() {
+    return value;
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.BOOLEAN;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj == this;
+  }
+
+  @Override
+  public int hashCode() {
+    return value ? 1231 : 1237;
+  }
+}
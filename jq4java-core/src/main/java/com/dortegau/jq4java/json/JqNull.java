@@ -0,0 +1,85 @@
+package com.dortegau.jq4java.json;
+
+import java.util.function.Function;
+
+/**
+ * The jq {@code null} value.
+ */
+public final class JqNull extends AbstractJqValue {
+  /** The only instance. */
+  public static final JqNull NULL = new JqNull();
+
+  private static final JqValue ZERO = JqNumber.of(0);
+
+  private JqNull() {
+  }
+
+  @Override
+  public JqValue get(String key) {
+    return this;
+  }
+
+  /**
+   * Setting a key of {@code null} creates an object holding it, as in {@code null | .a += 1},
+   * so updates can start from an absent value.
+   */
+  @Override
+  public JqValue set(String key, JqValue value) {
+    return new TransientObject().set(key, value).persistent();
+  }
+
+  /**
+   * Setting an element of {@code null} creates an array padded with {@code null} up to it.
+   */
+  @Override
+  public JqValue set(int index, JqValue value) {
+    if (index < 0) {
+      throw new RuntimeException("Out of bounds negative array index");
+    }
+    TransientArray array = new TransientArray();
+    for (int i = 0; i < index; i++) {
+      array.add(this);
+    }
+    return array.add(value).persistent();
+  }
+
+  @Override
+  public JqValue add(JqValue other) {
+    return other;
+  }
+
+  @Override
+  public JqValue length() {
+    return ZERO;
+  }
+
+  @Override
+  public boolean isTruthy() {
+    return false;
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.NULL;
+  }
+
+  @Override
+  public JqValue updateElements(Function<JqValue, JqValue> updater) {
+    return this;
+  }
+
+  @Override
+  public boolean isNull() {
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj == this;
+  }
+
+  @Override
+  public int hashCode() {
+    return 0;
+  }
+}
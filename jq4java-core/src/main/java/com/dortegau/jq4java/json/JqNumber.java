@@ -0,0 +1,252 @@
+package com.dortegau.jq4java.json;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * A jq number. Like jq, every number is an IEEE 754 double.
+ */
+public final class JqNumber extends AbstractJqValue {
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1024;
+  private static final JqNumber[] CACHE = new JqNumber[CACHE_HIGH - CACHE_LOW];
+  static final double MAX_PLAIN_INTEGER = 1e17;
+
+  static {
+    for (int i = 0; i < CACHE.length; i++) {
+      CACHE[i] = new JqNumber(i + CACHE_LOW);
+    }
+  }
+
+  private final double value;
+
+  private JqNumber(double value) {
+    this.value = value;
+  }
+
+  /**
+   * Returns the number for the given double, reusing cached instances for small integers.
+   *
+   * @param value the numeric value
+   * @return the corresponding jq number
+   */
+  public static JqNumber of(double value) {
+    if (value >= CACHE_LOW && value < CACHE_HIGH) {
+      int index = (int) value;
+      if (index == value && !(value == 0 && 1 / value < 0)) {
+        return CACHE[index - CACHE_LOW];
+      }
+    }
+    return new JqNumber(value);
+  }
+
+  /**
+   * Returns the number for the given long value.
+   *
+   * @param value the numeric value
+   * @return the corresponding jq number
+   */
+  public static JqNumber of(long value) {
+    if (value >= CACHE_LOW && value < CACHE_HIGH) {
+      return CACHE[(int) value - CACHE_LOW];
+    }
+    return new JqNumber(value);
+  }
+
+  public double doubleValue() {
+    return value;
+  }
+
+  /**
+   * Appends a double the way jq prints numbers: integers without a fraction, other values in
+   * their shortest round-trip form, switching to exponent notation outside [1e-5, 1e17).
+   */
+  static void appendNumber(StringBuilder sb, double number) {
+    if (Double.isNaN(number)) {
+      sb.append("null");
+      return;
+    }
+    double value = number;
+    if (Double.isInfinite(value)) {
+      value = value > 0 ? Double.MAX_VALUE : -Double.MAX_VALUE;
+    }
+    if (value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGER) {
+      if (value == 0 && 1 / value < 0) {
+        sb.append("-0");
+      } else {
+        sb.append((long) value);
+      }
+      return;
+    }
+    if (value < 0) {
+      sb.append('-');
+      value = -value;
+    }
+
+    String repr = Double.toString(value);
+    int exponentIndex = repr.indexOf('E');
+    String mantissa = exponentIndex < 0 ? repr : repr.substring(0, exponentIndex);
+    int exponent = exponentIndex < 0 ? 0 : Integer.parseInt(repr.substring(exponentIndex + 1));
+    int dot = mantissa.indexOf('.');
+    StringBuilder digits = new StringBuilder(mantissa.length());
+    digits.append(mantissa, 0, dot).append(mantissa, dot + 1, mantissa.length());
+    int pointPosition = dot + exponent;
+
+    int leading = 0;
+    while (leading < digits.length() - 1 && digits.charAt(leading) == '0') {
+      leading++;
+    }
+    digits.delete(0, leading);
+    pointPosition -= leading;
+    int end = digits.length();
+    while (end > 1 && digits.charAt(end - 1) == '0') {
+      end--;
+    }
+    digits.setLength(end);
+
+    // Before Java 19, Double.toString can return more digits than the value needs, for some
+    // values that need 16 or more and for subnormals, so those drop digits while they read back
+    if (digits.length() >= 16 || value < Double.MIN_NORMAL) {
+      BigDecimal shortest = shortestDecimal(value, digits.length());
+      if (shortest != null) {
+        digits.setLength(0);
+        digits.append(shortest.unscaledValue());
+        pointPosition = digits.length() - shortest.scale();
+      }
+    }
+
+    int scientificExponent = pointPosition - 1;
+    if (scientificExponent < -5 || scientificExponent >= 17) {
+      sb.append(digits.charAt(0));
+      if (digits.length() > 1) {
+        sb.append('.').append(digits, 1, digits.length());
+      }
+      sb.append('e').append(scientificExponent < 0 ? '-' : '+');
+      int magnitude = Math.abs(scientificExponent);
+      if (magnitude < 10) {
+        sb.append('0');
+      }
+      sb.append(magnitude);
+    } else if (pointPosition <= 0) {
+      sb.append("0.");
+      for (int i = pointPosition; i < 0; i++) {
+        sb.append('0');
+      }
+      sb.append(digits);
+    } else if (pointPosition >= digits.length()) {
+      sb.append(digits);
+      for (int i = digits.length(); i < pointPosition; i++) {
+        sb.append('0');
+      }
+    } else {
+      sb.append(digits, 0, pointPosition).append('.').append(digits, pointPosition,
+          digits.length());
+    }
+  }
+
+  /**
+   * Returns the decimal with the fewest significant digits, below {@code precision}, that reads
+   * back as {@code value}, or {@code null} if there is none.
+   */
+  private static BigDecimal shortestDecimal(double value, int precision) {
+    BigDecimal exact = new BigDecimal(value);
+    BigDecimal shortest = null;
+    for (int digits = precision - 1; digits > 0; digits--) {
+      BigDecimal rounded = exact.round(new MathContext(digits, RoundingMode.HALF_EVEN));
+      if (rounded.doubleValue() != value) {
+        break;
+      }
+      shortest = rounded;
+    }
+    return shortest == null ? null : shortest.stripTrailingZeros();
+  }
+
+  @Override
+  public JqValue length() {
+    return of(Math.abs(value));
+  }
+
+  @Override
+  public JqValue add(JqValue other) {
+    if (other instanceof JqNumber) {
+      return of(value + ((JqNumber) other).value);
+    }
+    return super.add(other);
+  }
+
+  @Override
+  public JqValue subtract(JqValue other) {
+    if (other instanceof JqNumber) {
+      return of(value - ((JqNumber) other).value);
+    }
+    return super.subtract(other);
+  }
+
+  @Override
+  public JqValue multiply(JqValue other) {
+    if (other instanceof JqNumber) {
+      return of(value * ((JqNumber) other).value);
+    }
+    return super.multiply(other);
+  }
+
+  @Override
+  public JqValue divide(JqValue other) {
+    if (other instanceof JqNumber) {
+      double divisor = ((JqNumber) other).value;
+      if (divisor == 0) {
+        throw divisionByZero();
+      }
+      return of(value / divisor);
+    }
+    return super.divide(other);
+  }
+
+  @Override
+  public JqValue modulo(JqValue other) {
+    if (other instanceof JqNumber) {
+      double divisor = ((JqNumber) other).value;
+      if (divisor == 0) {
+        throw divisionByZero();
+      }
+      return of(value % divisor);
+    }
+    return super.modulo(other);
+  }
+
+  private RuntimeException divisionByZero() {
+    return new RuntimeException("number (" + this
+        + ") and number (0) cannot be divided because the divisor is zero");
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.NUMBER;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return true;
+  }
+
+  @Override
+  public double asNumber() {
+    return value;
+  }
+
+  @Override
+  public JqValue abs() {
+    return of(Math.abs(value));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof JqNumber && ((JqNumber) obj).value == value;
+  }
+
+  @Override
+  public int hashCode() {
+    return value == 0 ? 0 : Double.hashCode(value);
+  }
+}
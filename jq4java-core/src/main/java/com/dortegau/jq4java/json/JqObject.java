@@ -0,0 +1,259 @@
+package com.dortegau.jq4java.json;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable jq object. Keys keep their insertion order.
+ *
+ * <p>Fields are stored as a {@link PersistentVector} of entries in insertion order plus a
+ * {@link PersistentHashIndex} from key to entry position, so {@link #set(String, JqValue)}
+ * copies O(log n) nodes instead of the whole object. Small objects skip the index and scan
+ * their entries directly.
+ */
+public final class JqObject extends AbstractJqValue {
+  static final JqObject EMPTY = new JqObject(PersistentVector.<Entry>empty(), null);
+  static final int INDEX_THRESHOLD = 8;
+
+  /** A single key/value pair of an object. */
+  static final class Entry {
+    final String key;
+    final JqValue value;
+
+    Entry(String key, JqValue value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private final PersistentVector<Entry> entries;
+  private final PersistentHashIndex index;
+
+  /** Cached {@link #hashCode()}, or {@code 0} until first computed; see {@link Equality}. */
+  int hash;
+
+  JqObject(PersistentVector<Entry> entries, PersistentHashIndex index) {
+    this.entries = entries;
+    this.index = index;
+  }
+
+  /**
+   * Returns an object holding the given fields in iteration order.
+   *
+   * @param fields the fields of the object
+   * @return the corresponding jq object
+   */
+  public static JqObject of(Map<String, JqValue> fields) {
+    if (fields.isEmpty()) {
+      return EMPTY;
+    }
+    Entry[] array = new Entry[fields.size()];
+    int i = 0;
+    for (Map.Entry<String, JqValue> field : fields.entrySet()) {
+      array[i++] = new Entry(field.getKey(), field.getValue());
+    }
+    PersistentVector<Entry> entries = PersistentVector.of(array);
+    return new JqObject(entries, buildIndex(entries));
+  }
+
+  /**
+   * Returns an object over entries whose keys are already known to be distinct.
+   */
+  static JqObject ofDistinct(Entry[] array) {
+    if (array.length == 0) {
+      return EMPTY;
+    }
+    PersistentVector<Entry> entries = PersistentVector.of(array);
+    return new JqObject(entries, buildIndex(entries));
+  }
+
+  private static PersistentHashIndex buildIndex(PersistentVector<Entry> entries) {
+    if (entries.size() <= INDEX_THRESHOLD) {
+      return null;
+    }
+    PersistentHashIndex index = PersistentHashIndex.EMPTY;
+    int position = 0;
+    for (Entry entry : entries) {
+      index = index.put(entry.key, position++);
+    }
+    return index;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the key stored at the given insertion position.
+   *
+   * @param position the insertion position, between zero and {@link #size()} - 1
+   * @return the key at that position
+   */
+  public String keyAt(int position) {
+    return entries.get(position).key;
+  }
+
+  /**
+   * Returns the value stored at the given insertion position.
+   *
+   * @param position the insertion position, between zero and {@link #size()} - 1
+   * @return the value at that position
+   */
+  public JqValue valueAt(int position) {
+    return entries.get(position).value;
+  }
+
+  Iterable<Entry> entries() {
+    return entries;
+  }
+
+  /**
+   * Returns a transient copy of this object for in-place updates.
+   *
+   * @return a transient holding the same fields
+   */
+  public TransientObject asTransient() {
+    return new TransientObject(entries.asTransient(), index);
+  }
+
+  /**
+   * Returns the entry stored under a key, or {@code null} if the object does not have it.
+   */
+  Entry entry(String key) {
+    int position = positionOf(key);
+    return position < 0 ? null : entries.get(position);
+  }
+
+  private int positionOf(String key) {
+    if (index != null) {
+      return index.get(key);
+    }
+    int position = 0;
+    for (Entry entry : entries) {
+      if (entry.key.equals(key)) {
+        return position;
+      }
+      position++;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns an object with the fields of {@code other} added, overriding existing keys.
+   */
+  JqObject merge(JqObject other) {
+    if (other.size() == 0) {
+      return this;
+    }
+    TransientObject result = asTransient();
+    for (Entry entry : other.entries) {
+      result.set(entry.key, entry.value);
+    }
+    return result.persistent();
+  }
+
+  private JqObject with(String key, JqValue value) {
+    int position = positionOf(key);
+    if (position >= 0) {
+      return new JqObject(entries.assoc(position, new Entry(key, value)), index);
+    }
+    PersistentVector<Entry> newEntries = entries.conj(new Entry(key, value));
+    PersistentHashIndex newIndex = index != null
+        ? index.put(key, entries.size())
+        : buildIndex(newEntries);
+    return new JqObject(newEntries, newIndex);
+  }
+
+  @Override
+  public JqValue get(String key) {
+    int position = positionOf(key);
+    return position < 0 ? JqNull.NULL : entries.get(position).value;
+  }
+
+  @Override
+  public JqValue set(String key, JqValue value) {
+    return with(key, value);
+  }
+
+  @Override
+  public Stream<JqValue> stream() {
+    Spliterator<Entry> spliterator = Spliterators.spliterator(entries.iterator(),
+        entries.size(), Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).map(entry -> entry.value);
+  }
+
+  @Override
+  public Iterable<JqValue> elements() {
+    return () -> new Iterator<JqValue>() {
+      private final Iterator<Entry> fields = entries.iterator();
+
+      @Override
+      public boolean hasNext() {
+        return fields.hasNext();
+      }
+
+      @Override
+      public JqValue next() {
+        return fields.next().value;
+      }
+    };
+  }
+
+  @Override
+  public JqValue updateElements(Function<JqValue, JqValue> updater) {
+    TransientObject updated = asTransient();
+    for (int i = 0; i < updated.size(); i++) {
+      updated.setValueAt(i, updater.apply(updated.valueAt(i)));
+    }
+    return updated.persistent();
+  }
+
+  @Override
+  public JqValue length() {
+    return JqNumber.of(entries.size());
+  }
+
+  @Override
+  public JqValue keys() {
+    String[] names = sortedKeys();
+    JqValue[] keys = new JqValue[names.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = JqString.of(names[i]);
+    }
+    return new JqArray(keys);
+  }
+
+  /**
+   * Returns the keys in jq order, by Unicode code point.
+   */
+  String[] sortedKeys() {
+    String[] names = new String[entries.size()];
+    int i = 0;
+    for (Entry entry : entries) {
+      names[i++] = entry.key;
+    }
+    Arrays.sort(names, Ordering::compareStrings);
+    return names;
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.OBJECT;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof JqObject && Equality.equal(this, (JqObject) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return Equality.hash(this);
+  }
+}
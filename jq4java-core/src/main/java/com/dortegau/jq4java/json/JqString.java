@@ -0,0 +1,72 @@
+package com.dortegau.jq4java.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A jq string.
+ */
+public final class JqString extends AbstractJqValue {
+  private static final JqString EMPTY = new JqString("");
+
+  private final String value;
+
+  private JqString(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Returns the jq string holding the given text.
+   *
+   * @param value the string contents
+   * @return the corresponding jq string
+   */
+  public static JqString of(String value) {
+    if (value.isEmpty()) {
+      return EMPTY;
+    }
+    return new JqString(value);
+  }
+
+  @Override
+  public JqValue length() {
+    return JqNumber.of(value.codePointCount(0, value.length()));
+  }
+
+  @Override
+  public JqValue utf8ByteLength() {
+    return JqNumber.of(value.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Override
+  public JqValue add(JqValue other) {
+    if (other instanceof JqString) {
+      return of(value + ((JqString) other).value);
+    }
+    return super.add(other);
+  }
+
+  @Override
+  public JqType jqType() {
+    return JqType.STRING;
+  }
+
+  @Override
+  public boolean isString() {
+    return true;
+  }
+
+  @Override
+  public String asString() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof JqString && ((JqString) obj).value.equals(value);
+  }
+
+  @Override
+  public int hashCode() {
+    return value.hashCode();
+  }
+}
@@ -0,0 +1,40 @@
+package com.dortegau.jq4java.json;
+
+/**
+ * The six jq value types, in the order jq sorts them. Booleans share one tag; {@code false}
+ * still sorts before {@code true} within it.
+ */
+public enum JqType {
+  NULL("null"),
+  BOOLEAN("boolean"),
+  NUMBER("number"),
+  STRING("string"),
+  ARRAY("array"),
+  OBJECT("object");
+
+  private final String typeName;
+  private final JqValue value;
+
+  JqType(String typeName) {
+    this.typeName = typeName;
+    this.value = JqString.of(typeName);
+  }
+
+  /**
+   * Returns the name jq reports for this type, such as {@code "object"}.
+   *
+   * @return the type name without quotes
+   */
+  public String typeName() {
+    return typeName;
+  }
+
+  /**
+   * Returns the type name as a jq string, the result of the {@code type} builtin.
+   *
+   * @return the shared string value for this type
+   */
+  public JqValue value() {
+    return value;
+  }
+}
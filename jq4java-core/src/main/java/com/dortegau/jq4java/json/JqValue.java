@@ -1,7 +1,12 @@
 package com.dortegau.jq4java.json;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -20,6 +25,22 @@ public interface JqValue extends Comparable<JqValue> {
 
   Stream<JqValue> stream();
 
+  /**
+   * Returns the values {@code .[]} yields for this value, in order.
+   *
+   * @return the array elements or object values, or an empty iterable for other values
+   */
+  Iterable<JqValue> elements();
+
+  /**
+   * Returns a copy of this value with every value {@code .[]} reaches replaced by the result
+   * of the updater, as in {@code .[] |= f}.
+   *
+   * @param updater the function computing each replacement value
+   * @return the updated value
+   */
+  JqValue updateElements(Function<JqValue, JqValue> updater);
+
   default JqValue slice(Integer start, Integer end) {
     throw new UnsupportedOperationException("slice not supported");
   }
@@ -29,23 +50,83 @@ public interface JqValue extends Comparable<JqValue> {
   }
 
   static JqValue nullValue() {
-    return OrgJsonValue.nullValue();
+    return JqNull.NULL;
+  }
+
+  /**
+   * Parses a JSON text into a value.
+   *
+   * @param json the JSON text
+   * @return the parsed value
+   */
+  static JqValue parse(String json) {
+    return JsonReader.parse(json);
+  }
+
+  /**
+   * Parses a single UTF-8 encoded JSON document from a stream without buffering it as text.
+   * The stream is read to its end but not closed.
+   *
+   * @param json the UTF-8 encoded JSON input
+   * @return the parsed value
+   * @throws IOException if reading the stream fails
+   */
+  static JqValue parse(InputStream json) throws IOException {
+    return JsonReader.parseDocument(new JsonReader(json));
+  }
+
+  /**
+   * Parses a single UTF-8 encoded JSON document from the remaining bytes of a buffer.
+   *
+   * @param json the UTF-8 encoded JSON input
+   * @return the parsed value
+   */
+  static JqValue parse(ByteBuffer json) {
+    try {
+      return JsonReader.parseDocument(new JsonReader(json));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
+  /**
+   * Creates a value from the source text of a jq literal: {@code null}, {@code true},
+   * {@code false}, a number or a quoted JSON string.
+   *
+   * @param value the literal source text
+   * @return the value the literal denotes
+   */
   static JqValue literal(String value) {
-    return OrgJsonValue.literal(value);
+    switch (value) {
+      case "null":
+        return JqNull.NULL;
+      case "true":
+        return JqBoolean.TRUE;
+      case "false":
+        return JqBoolean.FALSE;
+      default:
+        break;
+    }
+    if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+      return parse(value);
+    }
+    try {
+      return JqNumber.of(Double.parseDouble(value));
+    } catch (NumberFormatException e) {
+      return JqString.of(value);
+    }
   }
 
   static JqValue array(List<JqValue> values) {
-    return OrgJsonValue.array(values);
+    return JqArray.of(values);
   }
 
   static JqValue object(Map<String, JqValue> fields) {
-    return OrgJsonValue.object(fields);
+    return JqObject.of(fields);
   }
 
   static JqValue fromBoolean(boolean value) {
-    return OrgJsonValue.fromBoolean(value);
+    return JqBoolean.of(value);
   }
 
   JqValue length();
@@ -64,10 +145,24 @@ public interface JqValue extends Comparable<JqValue> {
 
   JqValue modulo(JqValue other);
 
+  /**
+   * Returns whether jq treats this value as true: everything except {@code null} and
+   * {@code false}. Constant time, whatever the size of the value.
+   *
+   * @return false for null and false, true otherwise
+   */
   boolean isTruthy();
 
   JqValue keys();
 
+  /**
+   * Returns the type tag of this value. Constant time and allocation-free; prefer it to
+   * {@link #type()} or {@link #typeName()} when only branching on the type.
+   *
+   * @return the type of this value
+   */
+  JqType jqType();
+
   JqValue type();
 
   boolean isNull();
@@ -86,23 +181,19 @@ public interface JqValue extends Comparable<JqValue> {
    * @return the type name of this JSON value
    */
   default String typeName() {
-    String typeJson = type().toString();
-    if (typeJson.length() >= 2 && typeJson.startsWith("\"") && typeJson.endsWith("\"")) {
-      return typeJson.substring(1, typeJson.length() - 1);
-    }
-    return typeJson;
+    return jqType().typeName();
   }
 
   static JqValue fromLong(long value) {
-    return OrgJsonValue.fromLong(value);
+    return JqNumber.of(value);
   }
 
   static JqValue fromDouble(double value) {
-    return OrgJsonValue.fromDouble(value);
+    return JqNumber.of(value);
   }
 
   static JqValue fromString(String value) {
-    return OrgJsonValue.fromString(value);
+    return JqString.of(value);
   }
 
   JqValue flatten(int depth);
@@ -0,0 +1,657 @@
+package com.dortegau.jq4java.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a sequence of JSON values from UTF-8 bytes straight into {@link JqValue} nodes.
+ *
+ * <p>Input is consumed through a fixed-size byte buffer, so a document is never materialized
+ * as a {@code String}. Strings made only of ASCII characters without escapes are created
+ * directly from the buffer; other strings are decoded into a reusable {@code char[]}. Numbers
+ * of up to 15 significant digits with small exponents are converted exactly without building
+ * text, and only longer ones fall back to {@link Double#parseDouble(String)}.
+ *
+ * <p>Values may be separated by any amount of whitespace, which makes the reader suitable for
+ * newline-delimited JSON. Instances are not thread-safe.
+ */
+public final class JsonReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_DEPTH = 10000;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final char REPLACEMENT = (char) 0xFFFD;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final InputStream stream;
+  private final ByteBuffer source;
+  private byte[] buffer;
+  private int position;
+  private int limit;
+
+  private Level[] levels = new Level[8];
+  private char[] chars = new char[128];
+  private int charCount;
+
+  private long offset;
+  private int line = 1;
+  private long lineStart;
+
+  /**
+   * Creates a reader over a stream. The stream is read in chunks and closed by {@link #close()}.
+   *
+   * @param stream the UTF-8 encoded JSON input
+   */
+  public JsonReader(InputStream stream) {
+    this.stream = stream;
+    this.source = null;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Creates a reader over the remaining bytes of a buffer. Heap buffers are read in place.
+   *
+   * @param source the UTF-8 encoded JSON input
+   */
+  public JsonReader(ByteBuffer source) {
+    this.stream = null;
+    if (source.hasArray()) {
+      this.source = null;
+      this.buffer = source.array();
+      this.position = source.arrayOffset() + source.position();
+      this.limit = source.arrayOffset() + source.limit();
+      this.offset = -position;
+      this.lineStart = -position;
+    } else {
+      this.source = source.duplicate();
+      this.buffer = new byte[Math.min(BUFFER_SIZE, Math.max(1, source.remaining()))];
+    }
+  }
+
+  /**
+   * Creates a reader over a slice of a larger input that starts at the beginning of the given
+   * line, so that error positions refer to the whole input.
+   *
+   * @param source the UTF-8 encoded JSON input
+   * @param firstLine the line number of the first byte of {@code source}
+   */
+  public JsonReader(ByteBuffer source, int firstLine) {
+    this(source);
+    this.line = firstLine;
+  }
+
+  /**
+   * Parses a complete JSON document held in a string.
+   */
+  static JqValue parse(String json) {
+    try {
+      byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      return parseDocument(new JsonReader(ByteBuffer.wrap(bytes)));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reads exactly one JSON value and fails if anything but whitespace follows it.
+   */
+  static JqValue parseDocument(JsonReader reader) throws IOException {
+    JqValue value = reader.next();
+    if (value == null) {
+      throw reader.error("Expected JSON value");
+    }
+    if (reader.skipWhitespace() >= 0) {
+      throw reader.error("Unexpected trailing characters");
+    }
+    return value;
+  }
+
+  /**
+   * Returns the next JSON value, or {@code null} once only whitespace remains.
+   *
+   * @return the parsed value, or {@code null} at the end of the input
+   * @throws IOException if reading the underlying stream fails
+   * @throws RuntimeException if the input is not valid JSON
+   */
+  public JqValue next() throws IOException {
+    if (skipWhitespace() < 0) {
+      return null;
+    }
+    return readValue();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (stream != null) {
+      stream.close();
+    }
+  }
+
+  /**
+   * Reads one value. Nesting is tracked on an explicit stack of reusable {@link Level}s rather
+   * than by recursion, so deep documents fail with a depth error instead of a
+   * {@link StackOverflowError}.
+   */
+  private JqValue readValue() throws IOException {
+    int depth = 0;
+    while (true) {
+      JqValue value;
+      int c = skipWhitespace();
+      switch (c) {
+        case '[':
+        case '{':
+          position++;
+          int close = c == '[' ? ']' : '}';
+          if (skipWhitespace() == close) {
+            position++;
+            value = c == '[' ? JqArray.EMPTY : JqObject.EMPTY;
+            break;
+          }
+          if (depth == MAX_DEPTH) {
+            throw error("Exceeds depth limit for parsing");
+          }
+          Level level = level(depth++);
+          level.start(c == '{');
+          if (level.object) {
+            level.pendingKey = readKey();
+          }
+          continue;
+        case '"':
+          position++;
+          value = JqString.of(readString());
+          break;
+        case 't':
+          expectWord("true");
+          value = JqBoolean.TRUE;
+          break;
+        case 'f':
+          expectWord("false");
+          value = JqBoolean.FALSE;
+          break;
+        case 'n':
+          expectWord("null");
+          value = JqNull.NULL;
+          break;
+        case -1:
+          throw error("Unfinished JSON term at EOF");
+        default:
+          if (c != '-' && c != '.' && (c < '0' || c > '9')) {
+            throw error("Unexpected character '" + (char) c + "'");
+          }
+          value = readNumber();
+          break;
+      }
+
+      while (true) {
+        if (depth == 0) {
+          return value;
+        }
+        c = skipWhitespace();
+        if (c < 0) {
+          throw error("Unfinished JSON term at EOF");
+        }
+        position++;
+        Level level = levels[depth - 1];
+        level.add(value);
+        if (c == ',') {
+          if (level.object) {
+            level.pendingKey = readKey();
+          }
+          break;
+        }
+        if (c != (level.object ? '}' : ']')) {
+          position--;
+          throw error(level.object ? "Expected ',' or '}' in object"
+              : "Expected ',' or ']' in array");
+        }
+        value = level.finish();
+        depth--;
+      }
+    }
+  }
+
+  private Level level(int depth) {
+    if (depth == levels.length) {
+      levels = Arrays.copyOf(levels, depth * 2);
+    }
+    Level level = levels[depth];
+    if (level == null) {
+      level = new Level();
+      levels[depth] = level;
+    }
+    return level;
+  }
+
+  /**
+   * Scratch space for the array or object being read at one nesting depth. Levels are reused
+   * for every container at that depth, so only the final, exactly sized arrays are allocated
+   * per container.
+   */
+  private static final class Level {
+    boolean object;
+    String pendingKey;
+    private String[] keys = new String[8];
+    private JqValue[] values = new JqValue[8];
+    private int size;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    void start(boolean isObject) {
+      object = isObject;
+      size = 0;
+      positions.clear();
+    }
+
+    void add(JqValue value) {
+      if (object) {
+        int existing = positionOf(pendingKey);
+        if (existing >= 0) {
+          values[existing] = value;
+          return;
+        }
+        if (size == JqObject.INDEX_THRESHOLD) {
+          for (int i = 0; i < size; i++) {
+            positions.put(keys[i], i);
+          }
+        }
+        if (size >= JqObject.INDEX_THRESHOLD) {
+          positions.put(pendingKey, size);
+        }
+      }
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size] = pendingKey;
+      values[size++] = value;
+    }
+
+    private int positionOf(String key) {
+      if (size > JqObject.INDEX_THRESHOLD) {
+        Integer position = positions.get(key);
+        return position == null ? -1 : position;
+      }
+      for (int i = 0; i < size; i++) {
+        if (keys[i].equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    JqValue finish() {
+      JqValue result;
+      if (object) {
+        JqObject.Entry[] entries = new JqObject.Entry[size];
+        for (int i = 0; i < size; i++) {
+          entries[i] = new JqObject.Entry(keys[i], values[i]);
+        }
+        result = JqObject.ofDistinct(entries);
+      } else {
+        result = new JqArray(Arrays.copyOf(values, size));
+      }
+      Arrays.fill(keys, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      return result;
+    }
+  }
+
+  private String readKey() throws IOException {
+    int c = skipWhitespace();
+    if (c != '"') {
+      throw error(c < 0 ? "Unfinished JSON term at EOF" : "Object keys must be strings");
+    }
+    position++;
+    String key = readString();
+    if (skipWhitespace() != ':') {
+      throw error("Expected ':' after object key");
+    }
+    position++;
+    return key;
+  }
+
+  private void expectWord(String word) throws IOException {
+    for (int i = 0; i < word.length(); i++) {
+      if (read() != word.charAt(i)) {
+        throw error("Invalid literal, expected '" + word + "'");
+      }
+    }
+  }
+
+  /**
+   * Reads a string whose opening quote was consumed, returning its decoded contents.
+   */
+  private String readString() throws IOException {
+    byte[] bytes = buffer;
+    int start = position;
+    for (int i = start; i < limit; i++) {
+      byte b = bytes[i];
+      if (b == '"') {
+        position = i + 1;
+        return new String(bytes, start, i - start, StandardCharsets.ISO_8859_1);
+      }
+      if (b == '\\' || b < 0x20) {
+        break;
+      }
+    }
+    charCount = 0;
+    return readStringSlow();
+  }
+
+  private String readStringSlow() throws IOException {
+    while (true) {
+      int b = read();
+      if (b == '"') {
+        return new String(chars, 0, charCount);
+      }
+      if (b < 0) {
+        throw error("Unfinished string at EOF");
+      }
+      if (b == '\\') {
+        readEscape();
+      } else if (b < 0x20) {
+        throw error("Invalid string: control characters from U+0000 through U+001F must be "
+            + "escaped");
+      } else if (b < 0x80) {
+        appendChar((char) b);
+      } else {
+        readMultiByte(b);
+      }
+    }
+  }
+
+  private void readEscape() throws IOException {
+    int c = read();
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        appendChar((char) c);
+        break;
+      case 'b':
+        appendChar('\b');
+        break;
+      case 'f':
+        appendChar('\f');
+        break;
+      case 'n':
+        appendChar('\n');
+        break;
+      case 'r':
+        appendChar('\r');
+        break;
+      case 't':
+        appendChar('\t');
+        break;
+      case 'u':
+        readUnicodeEscape();
+        break;
+      default:
+        throw error("Invalid escape");
+    }
+  }
+
+  /**
+   * Decodes the hex digits of a unicode escape, joining a surrogate pair when a second escape
+   * completes it. A lone surrogate becomes U+FFFD, as in jq.
+   */
+  private void readUnicodeEscape() throws IOException {
+    char unit = (char) readHex4();
+    while (Character.isHighSurrogate(unit)) {
+      if (peek() != '\\') {
+        appendChar(REPLACEMENT);
+        return;
+      }
+      read();
+      if (peek() != 'u') {
+        appendChar(REPLACEMENT);
+        readEscape();
+        return;
+      }
+      read();
+      char next = (char) readHex4();
+      if (Character.isLowSurrogate(next)) {
+        appendChar(unit);
+        appendChar(next);
+        return;
+      }
+      appendChar(REPLACEMENT);
+      unit = next;
+    }
+    appendChar(Character.isLowSurrogate(unit) ? REPLACEMENT : unit);
+  }
+
+  private int readHex4() throws IOException {
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int digit = Character.digit(read(), 16);
+      if (digit < 0) {
+        throw error("Invalid \\uXXXX escape");
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  /**
+   * Decodes a UTF-8 sequence starting with {@code lead}. Malformed sequences become U+FFFD,
+   * as in jq.
+   */
+  private void readMultiByte(int lead) throws IOException {
+    int extra;
+    int codePoint;
+    int min;
+    if (lead >= 0xC2 && lead <= 0xDF) {
+      extra = 1;
+      codePoint = lead & 0x1F;
+      min = 0x80;
+    } else if (lead >= 0xE0 && lead <= 0xEF) {
+      extra = 2;
+      codePoint = lead & 0x0F;
+      min = 0x800;
+    } else if (lead >= 0xF0 && lead <= 0xF4) {
+      extra = 3;
+      codePoint = lead & 0x07;
+      min = 0x10000;
+    } else {
+      appendChar(REPLACEMENT);
+      return;
+    }
+    for (int i = 0; i < extra; i++) {
+      int next = peek();
+      if ((next & 0xC0) != 0x80) {
+        appendChar(REPLACEMENT);
+        return;
+      }
+      position++;
+      codePoint = (codePoint << 6) | (next & 0x3F);
+    }
+    if (codePoint < min || codePoint > 0x10FFFF
+        || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+      appendChar(REPLACEMENT);
+    } else if (codePoint >= 0x10000) {
+      appendChar(Character.highSurrogate(codePoint));
+      appendChar(Character.lowSurrogate(codePoint));
+    } else {
+      appendChar((char) codePoint);
+    }
+  }
+
+  private void appendChar(char c) {
+    if (charCount == chars.length) {
+      char[] grown = new char[chars.length * 2];
+      System.arraycopy(chars, 0, grown, 0, charCount);
+      chars = grown;
+    }
+    chars[charCount++] = c;
+  }
+
+  /**
+   * Reads a number, accumulating its digits into a long mantissa and a decimal exponent.
+   * Every character is also kept in the scratch buffer for the slow path.
+   */
+  private JqValue readNumber() throws IOException {
+    charCount = 0;
+    boolean negative = false;
+    if (peek() == '-') {
+      negative = true;
+      appendChar((char) read());
+    }
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+
+    // Like jq, accept leading zeros and a missing integer or fraction part ("01", "1.", ".5"),
+    // as long as the mantissa has at least one digit
+    boolean hasDigits = false;
+    int c;
+    while (isDigit(c = peek())) {
+      appendChar((char) read());
+      hasDigits = true;
+      if (mantissa == 0 && c == '0') {
+        continue;
+      }
+      if (significantDigits < 18) {
+        mantissa = mantissa * 10 + (c - '0');
+        significantDigits += 1;
+      } else {
+        exponent++;
+        significantDigits = 19;
+      }
+    }
+
+    if (peek() == '.') {
+      appendChar((char) read());
+      while (isDigit(c = peek())) {
+        appendChar((char) read());
+        hasDigits = true;
+        if (mantissa == 0 && c == '0') {
+          exponent--;
+        } else if (significantDigits < 18) {
+          mantissa = mantissa * 10 + (c - '0');
+          significantDigits += 1;
+          exponent--;
+        } else {
+          significantDigits = 19;
+        }
+      }
+    }
+    if (!hasDigits) {
+      throw error("Invalid numeric literal");
+    }
+
+    c = peek();
+    if (c == 'e' || c == 'E') {
+      appendChar((char) read());
+      boolean negativeExponent = false;
+      c = peek();
+      if (c == '+' || c == '-') {
+        negativeExponent = c == '-';
+        appendChar((char) read());
+      }
+      if (!isDigit(peek())) {
+        throw error("Invalid numeric literal");
+      }
+      int explicitExponent = 0;
+      while (isDigit(c = peek())) {
+        appendChar((char) read());
+        if (explicitExponent < 100000) {
+          explicitExponent = explicitExponent * 10 + (c - '0');
+        }
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+
+    double value;
+    if (significantDigits <= 15 && mantissa <= MAX_EXACT_MANTISSA
+        && exponent >= -22 && exponent <= 22) {
+      value = exponent >= 0
+          ? mantissa * POWERS_OF_TEN[exponent]
+          : mantissa / POWERS_OF_TEN[-exponent];
+      if (negative) {
+        value = -value;
+      }
+    } else {
+      value = Double.parseDouble(new String(chars, 0, charCount));
+    }
+    return JqNumber.of(value);
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Skips whitespace and returns the next byte without consuming it, or -1 at the end.
+   */
+  private int skipWhitespace() throws IOException {
+    while (true) {
+      if (position >= limit && !fill()) {
+        return -1;
+      }
+      byte b = buffer[position];
+      if (b == '\n') {
+        position++;
+        line++;
+        lineStart = offset + position;
+      } else if (b == ' ' || b == '\t' || b == '\r') {
+        position++;
+      } else {
+        return b & 0xFF;
+      }
+    }
+  }
+
+  private int peek() throws IOException {
+    if (position >= limit && !fill()) {
+      return -1;
+    }
+    return buffer[position] & 0xFF;
+  }
+
+  private int read() throws IOException {
+    if (position >= limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  /**
+   * Refills the buffer from the source. Returns false at the end of the input.
+   */
+  private boolean fill() throws IOException {
+    if (stream == null && source == null) {
+      return false;
+    }
+    offset += limit;
+    position = 0;
+    limit = 0;
+    int read;
+    if (stream != null) {
+      read = stream.read(buffer, 0, buffer.length);
+    } else {
+      read = Math.min(buffer.length, source.remaining());
+      source.get(buffer, 0, read);
+      if (read == 0) {
+        read = -1;
+      }
+    }
+    if (read <= 0) {
+      return false;
+    }
+    limit = read;
+    return true;
+  }
+
+  private RuntimeException error(String message) {
+    long column = offset + position - lineStart;
+    return new RuntimeException(message + " at line " + line + ", column " + column);
+  }
+}
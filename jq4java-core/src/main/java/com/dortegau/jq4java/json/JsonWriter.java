@@ -0,0 +1,315 @@
+package com.dortegau.jq4java.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Streaming serializer that writes compact JSON text for {@link JqValue} trees.
+ *
+ * <p>Characters are staged in a private buffer and handed to the underlying {@link Writer} in
+ * blocks. Strings are escaped straight into that buffer one unescaped run at a time and integral
+ * numbers are formatted digit by digit, so no intermediate {@code String} is built per value.
+ * Arrays and objects are walked with an explicit stack, so nesting depth is bounded only by the
+ * heap. Instances are not thread-safe.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+  private static final int SMALL_BUFFER_SIZE = 128;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Writer out;
+  private final StringBuilder target;
+  private final char[] buffer;
+  private int position;
+  private Iterator<?>[] iterators = new Iterator<?>[16];
+  private boolean[] inObject = new boolean[16];
+  private StringBuilder scratch;
+
+  /**
+   * Creates a writer that emits JSON text to the given character stream.
+   *
+   * @param out the destination, which receives output in buffer-sized blocks
+   */
+  public JsonWriter(Writer out) {
+    this(out, null, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a writer that emits UTF-8 encoded JSON text to the given byte stream.
+   *
+   * @param out the destination stream
+   */
+  public JsonWriter(OutputStream out) {
+    this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  private JsonWriter(Writer out, StringBuilder target, int bufferSize) {
+    this.out = out;
+    this.target = target;
+    this.buffer = new char[bufferSize];
+  }
+
+  /**
+   * Returns the compact JSON text of a value; backs {@link AbstractJqValue#toString()}.
+   */
+  static String toJson(JqValue value) {
+    StringBuilder sb = new StringBuilder();
+    JsonWriter writer = new JsonWriter(null, sb, SMALL_BUFFER_SIZE);
+    try {
+      writer.write(value);
+      writer.drain();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes the compact JSON text of a value.
+   *
+   * @param value the value to serialize
+   * @return this writer
+   * @throws IOException if the underlying writer fails
+   */
+  public JsonWriter write(JqValue value) throws IOException {
+    int depth = 0;
+    JqValue current = value;
+    while (true) {
+      if (current instanceof JqArray) {
+        Iterator<JqValue> elements = current.elements().iterator();
+        if (elements.hasNext()) {
+          put('[');
+          depth = push(depth, elements, false);
+          current = elements.next();
+          continue;
+        }
+        put('[');
+        put(']');
+      } else if (current instanceof JqObject) {
+        Iterator<JqObject.Entry> entries = ((JqObject) current).entries().iterator();
+        if (entries.hasNext()) {
+          put('{');
+          depth = push(depth, entries, true);
+          current = writeKey(entries.next());
+          continue;
+        }
+        put('{');
+        put('}');
+      } else {
+        writeScalar(current);
+      }
+
+      current = null;
+      while (depth > 0) {
+        Iterator<?> top = iterators[depth - 1];
+        if (top.hasNext()) {
+          put(',');
+          Object next = top.next();
+          current = inObject[depth - 1] ? writeKey((JqObject.Entry) next) : (JqValue) next;
+          break;
+        }
+        put(inObject[depth - 1] ? '}' : ']');
+        iterators[--depth] = null;
+      }
+      if (current == null) {
+        return this;
+      }
+    }
+  }
+
+  /**
+   * Writes a line feed, the separator between top-level results.
+   *
+   * @return this writer
+   * @throws IOException if the underlying writer fails
+   */
+  public JsonWriter newLine() throws IOException {
+    put('\n');
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    drain();
+    if (out != null) {
+      out.close();
+    }
+  }
+
+  private int push(int depth, Iterator<?> iterator, boolean object) {
+    if (depth == iterators.length) {
+      iterators = Arrays.copyOf(iterators, depth * 2);
+      inObject = Arrays.copyOf(inObject, depth * 2);
+    }
+    iterators[depth] = iterator;
+    inObject[depth] = object;
+    return depth + 1;
+  }
+
+  private JqValue writeKey(JqObject.Entry entry) throws IOException {
+    writeQuoted(entry.key);
+    put(':');
+    return entry.value;
+  }
+
+  private void writeScalar(JqValue value) throws IOException {
+    if (value instanceof JqString) {
+      writeQuoted(value.asString());
+    } else if (value instanceof JqNumber) {
+      writeNumber(((JqNumber) value).doubleValue());
+    } else if (value instanceof JqBoolean) {
+      putText(value.isTruthy() ? "true" : "false");
+    } else if (value instanceof JqNull) {
+      putText("null");
+    } else {
+      putText(value.toJson());
+    }
+  }
+
+  private void writeQuoted(String text) throws IOException {
+    put('"');
+    int length = text.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      putRange(text, start, i);
+      putEscape(c);
+      start = i + 1;
+    }
+    putRange(text, start, length);
+    put('"');
+  }
+
+  private void putEscape(char c) throws IOException {
+    reserve(6);
+    buffer[position++] = '\\';
+    switch (c) {
+      case '\\':
+      case '"':
+        buffer[position++] = c;
+        break;
+      case '\b':
+        buffer[position++] = 'b';
+        break;
+      case '\f':
+        buffer[position++] = 'f';
+        break;
+      case '\n':
+        buffer[position++] = 'n';
+        break;
+      case '\r':
+        buffer[position++] = 'r';
+        break;
+      case '\t':
+        buffer[position++] = 't';
+        break;
+      default:
+        buffer[position++] = 'u';
+        buffer[position++] = '0';
+        buffer[position++] = '0';
+        buffer[position++] = HEX[c >> 4];
+        buffer[position++] = HEX[c & 0xf];
+    }
+  }
+
+  private void writeNumber(double number) throws IOException {
+    if (number == Math.rint(number) && Math.abs(number) < JqNumber.MAX_PLAIN_INTEGER) {
+      if (number == 0 && 1 / number < 0) {
+        putText("-0");
+      } else {
+        writeLong((long) number);
+      }
+      return;
+    }
+    if (scratch == null) {
+      scratch = new StringBuilder(32);
+    }
+    scratch.setLength(0);
+    JqNumber.appendNumber(scratch, number);
+    int length = scratch.length();
+    reserve(length);
+    scratch.getChars(0, length, buffer, position);
+    position += length;
+  }
+
+  private void writeLong(long number) throws IOException {
+    reserve(20);
+    long remaining = number;
+    if (remaining < 0) {
+      buffer[position++] = '-';
+      remaining = -remaining;
+    }
+    int digits = 1;
+    for (long rest = remaining / 10; rest != 0; rest /= 10) {
+      digits++;
+    }
+    int end = position + digits;
+    int cursor = end;
+    do {
+      buffer[--cursor] = (char) ('0' + remaining % 10);
+      remaining /= 10;
+    } while (remaining != 0);
+    position = end;
+  }
+
+  private void put(char c) throws IOException {
+    if (position == buffer.length) {
+      drain();
+    }
+    buffer[position++] = c;
+  }
+
+  private void putText(String text) throws IOException {
+    putRange(text, 0, text.length());
+  }
+
+  private void putRange(String text, int start, int end) throws IOException {
+    int from = start;
+    while (from < end) {
+      if (position == buffer.length) {
+        drain();
+      }
+      int count = Math.min(end - from, buffer.length - position);
+      text.getChars(from, from + count, buffer, position);
+      position += count;
+      from += count;
+    }
+  }
+
+  private void reserve(int count) throws IOException {
+    if (buffer.length - position < count) {
+      drain();
+    }
+  }
+
+  private void drain() throws IOException {
+    if (position == 0) {
+      return;
+    }
+    if (target != null) {
+      target.append(buffer, 0, position);
+    } else {
+      out.write(buffer, 0, position);
+    }
+    position = 0;
+  }
+}
@@ -0,0 +1,289 @@
+package com.dortegau.jq4java.json;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * jq's total order over values and the sort built on it.
+ *
+ * <p>Values order first by type, {@code null < false < true < numbers < strings < arrays <
+ * objects}, then within a type: numbers numerically with {@code nan} below every other number,
+ * strings by Unicode code point (the byte order of their UTF-8 text), arrays element by element
+ * with a shorter prefix first, and objects by their sorted key lists and then by their values
+ * in key order.
+ *
+ * <p>Like {@link Equality}, comparison keeps an explicit stack, so it never recurses however
+ * deeply values are nested. Scalar comparisons allocate nothing.
+ */
+final class Ordering {
+  private static final Comparator<JqValue> BY_STRING =
+      (a, b) -> compareStrings(a.asString(), b.asString());
+  private static final Comparator<JqValue> BY_VALUE = Ordering::compare;
+
+  private Ordering() {
+  }
+
+  /**
+   * Returns the position of a value's type in jq's order, with {@code false} and {@code true}
+   * split into their own ranks.
+   */
+  private static int rank(JqValue value) {
+    JqType type = value.jqType();
+    switch (type) {
+      case NULL:
+        return 0;
+      case BOOLEAN:
+        return value.isTruthy() ? 2 : 1;
+      default:
+        return type.ordinal() + 1;
+    }
+  }
+
+  static int compare(JqValue left, JqValue right) {
+    int order = compareShallow(left, right);
+    if (order != 0 || !(left instanceof JqArray || left instanceof JqObject) || left == right) {
+      return order;
+    }
+
+    // Each frame holds iterators over the two arrays, or the two objects with their shared
+    // sorted keys and the index of the next key whose values are compared.
+    Object[] lefts = new Object[16];
+    Object[] rights = new Object[16];
+    String[][] keys = new String[16][];
+    int[] positions = new int[16];
+    int depth = 0;
+    JqValue a = left;
+    JqValue b = right;
+    while (true) {
+      if (a != null) {
+        if (depth == lefts.length) {
+          lefts = Arrays.copyOf(lefts, depth * 2);
+          rights = Arrays.copyOf(rights, depth * 2);
+          keys = Arrays.copyOf(keys, depth * 2);
+          positions = Arrays.copyOf(positions, depth * 2);
+        }
+        if (a instanceof JqArray) {
+          lefts[depth] = a.elements().iterator();
+          rights[depth] = b.elements().iterator();
+        } else {
+          String[] leftKeys = ((JqObject) a).sortedKeys();
+          int keyOrder = compareKeys(leftKeys, ((JqObject) b).sortedKeys());
+          if (keyOrder != 0) {
+            return keyOrder;
+          }
+          lefts[depth] = a;
+          rights[depth] = b;
+          keys[depth] = leftKeys;
+          positions[depth] = 0;
+        }
+        depth++;
+        a = null;
+      }
+      if (depth == 0) {
+        return 0;
+      }
+
+      int top = depth - 1;
+      JqValue x;
+      JqValue y;
+      if (lefts[top] instanceof Iterator) {
+        Iterator<?> xs = (Iterator<?>) lefts[top];
+        Iterator<?> ys = (Iterator<?>) rights[top];
+        if (!xs.hasNext() || !ys.hasNext()) {
+          if (xs.hasNext() != ys.hasNext()) {
+            return xs.hasNext() ? 1 : -1;
+          }
+          depth = pop(lefts, rights, keys, top);
+          continue;
+        }
+        x = (JqValue) xs.next();
+        y = (JqValue) ys.next();
+      } else {
+        String[] names = keys[top];
+        if (positions[top] == names.length) {
+          depth = pop(lefts, rights, keys, top);
+          continue;
+        }
+        String key = names[positions[top]++];
+        x = ((JqObject) lefts[top]).get(key);
+        y = ((JqObject) rights[top]).get(key);
+      }
+      if (x == y) {
+        continue;
+      }
+      order = compareShallow(x, y);
+      if (order != 0) {
+        return order;
+      }
+      if (x instanceof JqArray || x instanceof JqObject) {
+        a = x;
+        b = y;
+      }
+    }
+  }
+
+  private static int pop(Object[] lefts, Object[] rights, String[][] keys, int top) {
+    lefts[top] = null;
+    rights[top] = null;
+    keys[top] = null;
+    return top;
+  }
+
+  /**
+   * Compares scalars completely; containers only by type, so equal results for two arrays or two
+   * objects still need their contents compared.
+   */
+  private static int compareShallow(JqValue a, JqValue b) {
+    int order = Integer.compare(rank(a), rank(b));
+    if (order != 0) {
+      return order;
+    }
+    if (a instanceof JqNumber) {
+      return compareNumbers(a.asNumber(), b.asNumber());
+    }
+    if (a instanceof JqString) {
+      return compareStrings(a.asString(), b.asString());
+    }
+    return 0;
+  }
+
+  /**
+   * Compares numbers as jq does: {@code nan} sorts below every number and {@code -0 == 0}.
+   */
+  static int compareNumbers(double a, double b) {
+    if (a < b) {
+      return -1;
+    }
+    if (a > b) {
+      return 1;
+    }
+    if (a == b) {
+      return 0;
+    }
+    return Boolean.compare(!Double.isNaN(a), !Double.isNaN(b));
+  }
+
+  /**
+   * Compares strings by code point. UTF-16 order agrees except where a surrogate pair meets a
+   * character at or above U+E000, so only that case is adjusted.
+   */
+  static int compareStrings(String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    for (int i = 0; i < length; i++) {
+      char x = a.charAt(i);
+      char y = b.charAt(i);
+      if (x != y) {
+        if (x >= Character.MIN_SURROGATE && y >= Character.MIN_SURROGATE) {
+          return Integer.compare(fixup(x), fixup(y));
+        }
+        return x - y;
+      }
+    }
+    return a.length() - b.length();
+  }
+
+  private static int fixup(char c) {
+    return Character.isSurrogate(c) ? c + 0x2000 : c - 0x800;
+  }
+
+  private static int compareKeys(String[] a, String[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int order = compareStrings(a[i], b[i]);
+      if (order != 0) {
+        return order;
+      }
+    }
+    return Integer.compare(a.length, b.length);
+  }
+
+  /**
+   * Sorts values in place into jq order. The sort is stable.
+   *
+   * <p>Values are first bucketed by type rank in one pass. Numbers are then sorted as a
+   * primitive {@code double[]} and strings by a code point comparator; only arrays and objects
+   * need the general comparison. Buckets are written back in rank order.
+   */
+  static void sort(JqValue[] values) {
+    int[] counts = new int[7];
+    boolean signedZero = false;
+    for (JqValue value : values) {
+      int rank = rank(value);
+      counts[rank]++;
+      if (rank == 3 && value.asNumber() == 0 && 1 / value.asNumber() < 0) {
+        signedZero = true;
+      }
+    }
+    for (int rank = 0; rank < counts.length; rank++) {
+      if (counts[rank] == values.length) {
+        sortRank(values, 0, values.length, rank, signedZero);
+        return;
+      }
+    }
+
+    int[] starts = new int[counts.length];
+    for (int rank = 1; rank < counts.length; rank++) {
+      starts[rank] = starts[rank - 1] + counts[rank - 1];
+    }
+    JqValue[] bucketed = new JqValue[values.length];
+    int[] next = starts.clone();
+    for (JqValue value : values) {
+      bucketed[next[rank(value)]++] = value;
+    }
+    for (int rank = 0; rank < counts.length; rank++) {
+      sortRank(bucketed, starts[rank], starts[rank] + counts[rank], rank, signedZero);
+    }
+    System.arraycopy(bucketed, 0, values, 0, values.length);
+  }
+
+  private static void sortRank(JqValue[] values, int from, int to, int rank,
+      boolean signedZero) {
+    if (to - from < 2) {
+      return;
+    }
+    switch (rank) {
+      case 3:
+        if (signedZero) {
+          // -0 and 0 compare equal but print differently, so keep their input order
+          Arrays.sort(values, from, to, BY_VALUE);
+        } else {
+          sortNumbers(values, from, to);
+        }
+        break;
+      case 4:
+        Arrays.sort(values, from, to, BY_STRING);
+        break;
+      case 5:
+      case 6:
+        Arrays.sort(values, from, to, BY_VALUE);
+        break;
+      default:
+        // null, false and true: every element of the bucket is the same value
+    }
+  }
+
+  /**
+   * Sorts numbers by their primitive values. Numbers equal in value are indistinguishable, so
+   * rebuilding them from the sorted keys is the same as moving the originals.
+   */
+  private static void sortNumbers(JqValue[] values, int from, int to) {
+    double[] keys = new double[to - from];
+    for (int i = from; i < to; i++) {
+      keys[i - from] = values[i].asNumber();
+    }
+    Arrays.sort(keys);
+    // Arrays.sort puts NaN last; jq puts it first
+    int nans = 0;
+    while (nans < keys.length && Double.isNaN(keys[keys.length - 1 - nans])) {
+      nans++;
+    }
+    int out = from;
+    for (int i = 0; i < nans; i++) {
+      values[out++] = JqNumber.of(Double.NaN);
+    }
+    for (int i = 0; i < keys.length - nans; i++) {
+      values[out++] = JqNumber.of(keys[i]);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.dortegau.jq4java.json;
+
+/**
+ * An immutable hash array mapped trie from object keys to their position in insertion order.
+ *
+ * <p>Adding a key copies only the nodes along its hash path, so objects with many keys can
+ * gain a field in O(log32 n) without rebuilding their index.
+ */
+final class PersistentHashIndex {
+  static final PersistentHashIndex EMPTY = new PersistentHashIndex(BitmapNode.EMPTY);
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private final Node root;
+
+  private PersistentHashIndex(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the position stored for {@code key}, or -1 when the key is absent.
+   */
+  int get(String key) {
+    return root.find(0, hash(key), key);
+  }
+
+  /**
+   * Returns an index that maps {@code key} to {@code position}.
+   */
+  PersistentHashIndex put(String key, int position) {
+    return new PersistentHashIndex(root.put(0, hash(key), key, position));
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private abstract static class Node {
+    abstract int find(int shift, int hash, String key);
+
+    abstract Node put(int shift, int hash, String key, int position);
+  }
+
+  /**
+   * A node holding up to 32 slots selected by five hash bits. Each slot is a key and its
+   * position, or a {@code null} key and a child node.
+   */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    final int bitmap;
+    final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    int find(int shift, int hash, String key) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return -1;
+      }
+      int idx = index(bit);
+      Object keyOrNull = array[2 * idx];
+      Object valOrNode = array[2 * idx + 1];
+      if (keyOrNull == null) {
+        return ((Node) valOrNode).find(shift + BITS, hash, key);
+      }
+      return key.equals(keyOrNull) ? (Integer) valOrNode : -1;
+    }
+
+    @Override
+    Node put(int shift, int hash, String key, int position) {
+      int bit = bitpos(hash, shift);
+      int idx = index(bit);
+      if ((bitmap & bit) != 0) {
+        Object keyOrNull = array[2 * idx];
+        Object valOrNode = array[2 * idx + 1];
+        Object[] newArray = array.clone();
+        if (keyOrNull == null) {
+          newArray[2 * idx + 1] = ((Node) valOrNode).put(shift + BITS, hash, key, position);
+        } else if (key.equals(keyOrNull)) {
+          newArray[2 * idx + 1] = position;
+        } else {
+          newArray[2 * idx] = null;
+          newArray[2 * idx + 1] = createNode(shift + BITS, (String) keyOrNull,
+              (Integer) valOrNode, hash, key, position);
+        }
+        return new BitmapNode(bitmap, newArray);
+      }
+      int n = Integer.bitCount(bitmap);
+      Object[] newArray = new Object[2 * (n + 1)];
+      System.arraycopy(array, 0, newArray, 0, 2 * idx);
+      newArray[2 * idx] = key;
+      newArray[2 * idx + 1] = position;
+      System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1), 2 * (n - idx));
+      return new BitmapNode(bitmap | bit, newArray);
+    }
+
+    private static Node createNode(int shift, String key1, int position1, int hash2,
+        String key2, int position2) {
+      int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, position1, key2, position2});
+      }
+      return EMPTY.put(shift, hash1, key1, position1).put(shift, hash2, key2, position2);
+    }
+  }
+
+  /**
+   * A node holding keys whose full hashes are equal, searched linearly.
+   */
+  private static final class CollisionNode extends Node {
+    final int hash;
+    final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    @Override
+    int find(int shift, int hash, String key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return (Integer) array[i + 1];
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Node put(int shift, int hash, String key, int position) {
+      if (hash != this.hash) {
+        Object[] wrapper = new Object[] {null, this};
+        return new BitmapNode(bitpos(this.hash, shift), wrapper).put(shift, hash, key, position);
+      }
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          Object[] newArray = array.clone();
+          newArray[i + 1] = position;
+          return new CollisionNode(hash, newArray);
+        }
+      }
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = position;
+      return new CollisionNode(hash, newArray);
+    }
+  }
+}
@@ -0,0 +1,406 @@
+package com.dortegau.jq4java.json;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable vector backed by a 32-way trie with a tail buffer.
+ *
+ * <p>Updates copy only the path from the root to the touched leaf, so {@link #assoc} and
+ * {@link #conj} allocate O(log32 n) nodes and share everything else with the original.
+ *
+ * @param <E> the element type
+ */
+final class PersistentVector<E> implements Iterable<E> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+  @SuppressWarnings("rawtypes")
+  private static final PersistentVector EMPTY =
+      new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  /**
+   * A trie node; inner nodes hold child nodes, leaves hold elements. A node whose
+   * {@code edit} token matches an active {@link Transient} belongs to it and may be mutated
+   * in place.
+   */
+  static final class Node {
+    final Object edit;
+    final Object[] array;
+
+    Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+  }
+
+  private final int count;
+  private final int shift;
+  private final Node root;
+  private final Object[] tail;
+
+  private PersistentVector(int count, int shift, Node root, Object[] tail) {
+    this.count = count;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> PersistentVector<E> empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Builds a vector holding the given elements, constructing the trie bottom-up.
+   */
+  static <E> PersistentVector<E> of(Object[] elements) {
+    int size = elements.length;
+    if (size == 0) {
+      return empty();
+    }
+    int tailLength = ((size - 1) & MASK) + 1;
+    int treeSize = size - tailLength;
+    Object[] tail = new Object[tailLength];
+    System.arraycopy(elements, treeSize, tail, 0, tailLength);
+    if (treeSize == 0) {
+      return new PersistentVector<>(size, BITS, EMPTY_NODE, tail);
+    }
+
+    Node[] level = new Node[treeSize >>> BITS];
+    for (int i = 0; i < level.length; i++) {
+      Object[] leaf = new Object[WIDTH];
+      System.arraycopy(elements, i << BITS, leaf, 0, WIDTH);
+      level[i] = new Node(null, leaf);
+    }
+    int shift = BITS;
+    while (true) {
+      Node[] parents = new Node[(level.length + MASK) >>> BITS];
+      for (int i = 0; i < parents.length; i++) {
+        Object[] children = new Object[WIDTH];
+        int from = i << BITS;
+        System.arraycopy(level, from, children, 0, Math.min(WIDTH, level.length - from));
+        parents[i] = new Node(null, children);
+      }
+      if (parents.length == 1) {
+        return new PersistentVector<>(size, shift, parents[0], tail);
+      }
+      level = parents;
+      shift += BITS;
+    }
+  }
+
+  int size() {
+    return count;
+  }
+
+  private int tailOffset() {
+    return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+  }
+
+  private Object[] leafFor(int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+    Node node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Node) node.array[(index >>> level) & MASK];
+    }
+    return node.array;
+  }
+
+  @SuppressWarnings("unchecked")
+  E get(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+    return (E) leafFor(index)[index & MASK];
+  }
+
+  /**
+   * Returns a vector with the element at {@code index} replaced, or appended when
+   * {@code index} equals the size.
+   */
+  PersistentVector<E> assoc(int index, E value) {
+    if (index == count) {
+      return conj(value);
+    }
+    if (index < 0 || index > count) {
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+    if (index >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = value;
+      return new PersistentVector<>(count, shift, root, newTail);
+    }
+    return new PersistentVector<>(count, shift, doAssoc(shift, root, index, value), tail);
+  }
+
+  private static Node doAssoc(int level, Node node, int index, Object value) {
+    Object[] array = node.array.clone();
+    if (level == 0) {
+      array[index & MASK] = value;
+    } else {
+      int subIndex = (index >>> level) & MASK;
+      array[subIndex] = doAssoc(level - BITS, (Node) node.array[subIndex], index, value);
+    }
+    return new Node(null, array);
+  }
+
+  /**
+   * Returns a vector with the given element appended.
+   */
+  PersistentVector<E> conj(E value) {
+    if (count - tailOffset() < WIDTH) {
+      Object[] newTail = new Object[tail.length + 1];
+      System.arraycopy(tail, 0, newTail, 0, tail.length);
+      newTail[tail.length] = value;
+      return new PersistentVector<>(count + 1, shift, root, newTail);
+    }
+    Node tailNode = new Node(null, tail);
+    Node newRoot;
+    int newShift = shift;
+    if ((count >>> BITS) > (1 << shift)) {
+      Object[] array = new Object[WIDTH];
+      array[0] = root;
+      array[1] = newPath(shift, tailNode);
+      newRoot = new Node(null, array);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tailNode);
+    }
+    return new PersistentVector<>(count + 1, newShift, newRoot, new Object[] {value});
+  }
+
+  private Node pushTail(int level, Node parent, Node tailNode) {
+    int subIndex = ((count - 1) >>> level) & MASK;
+    Object[] array = parent.array.clone();
+    Node toInsert;
+    if (level == BITS) {
+      toInsert = tailNode;
+    } else {
+      Node child = (Node) parent.array[subIndex];
+      toInsert = child != null
+          ? pushTail(level - BITS, child, tailNode)
+          : newPath(level - BITS, tailNode);
+    }
+    array[subIndex] = toInsert;
+    return new Node(null, array);
+  }
+
+  private static Node newPath(int level, Node node) {
+    if (level == 0) {
+      return node;
+    }
+    Object[] array = new Object[WIDTH];
+    array[0] = newPath(level - BITS, node);
+    return new Node(null, array);
+  }
+
+  /**
+   * Copies the elements in {@code [from, to)} into a new array.
+   */
+  Object[] toArray(int from, int to) {
+    Object[] result = new Object[to - from];
+    int i = from;
+    while (i < to) {
+      Object[] leaf = leafFor(i);
+      int offset = i & MASK;
+      int length = Math.min(leaf.length - offset, to - i);
+      System.arraycopy(leaf, offset, result, i - from, length);
+      i += length;
+    }
+    return result;
+  }
+
+  Object[] toArray() {
+    return toArray(0, count);
+  }
+
+  /**
+   * Returns a transient copy of this vector that can be updated in place.
+   */
+  Transient<E> asTransient() {
+    return new Transient<>(this);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int index;
+      private Object[] leaf = count > 0 ? leafFor(0) : null;
+
+      @Override
+      public boolean hasNext() {
+        return index < count;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (index >= count) {
+          throw new NoSuchElementException();
+        }
+        if (index > 0 && (index & MASK) == 0) {
+          leaf = leafFor(index);
+        }
+        return (E) leaf[index++ & MASK];
+      }
+    };
+  }
+
+  /**
+   * A mutable view of a vector owned by a single caller.
+   *
+   * <p>Nodes are copied the first time they are written and tagged with this transient's edit
+   * token; later writes to the same node happen in place. {@link #persistent()} drops the token
+   * in O(1), which freezes every node it tagged, and returns an immutable vector.
+   */
+  static final class Transient<E> {
+    private Object edit = new Object();
+    private int count;
+    private int shift;
+    private Node root;
+    private Object[] tail;
+
+    private Transient(PersistentVector<E> vector) {
+      this.count = vector.count;
+      this.shift = vector.shift;
+      this.root = new Node(edit, vector.root.array.clone());
+      this.tail = new Object[WIDTH];
+      System.arraycopy(vector.tail, 0, tail, 0, vector.tail.length);
+    }
+
+    private void ensureEditable() {
+      if (edit == null) {
+        throw new IllegalStateException("Transient used after persistent() call");
+      }
+    }
+
+    private Node editable(Node node) {
+      return node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    int size() {
+      ensureEditable();
+      return count;
+    }
+
+    private int tailOffset() {
+      return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+    }
+
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+      ensureEditable();
+      if (index < 0 || index >= count) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      if (index >= tailOffset()) {
+        return (E) tail[index & MASK];
+      }
+      Node node = root;
+      for (int level = shift; level > 0; level -= BITS) {
+        node = (Node) node.array[(index >>> level) & MASK];
+      }
+      return (E) node.array[index & MASK];
+    }
+
+    /**
+     * Replaces the element at {@code index}, or appends when {@code index} equals the size.
+     */
+    Transient<E> assoc(int index, E value) {
+      ensureEditable();
+      if (index == count) {
+        return conj(value);
+      }
+      if (index < 0 || index > count) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      if (index >= tailOffset()) {
+        tail[index & MASK] = value;
+        return this;
+      }
+      root = doAssoc(shift, root, index, value);
+      return this;
+    }
+
+    private Node doAssoc(int level, Node node, int index, Object value) {
+      Node result = editable(node);
+      if (level == 0) {
+        result.array[index & MASK] = value;
+      } else {
+        int subIndex = (index >>> level) & MASK;
+        result.array[subIndex] = doAssoc(level - BITS, (Node) result.array[subIndex], index,
+            value);
+      }
+      return result;
+    }
+
+    Transient<E> conj(E value) {
+      ensureEditable();
+      int i = count;
+      if (i - tailOffset() < WIDTH) {
+        tail[i & MASK] = value;
+        count++;
+        return this;
+      }
+      Node tailNode = new Node(edit, tail);
+      tail = new Object[WIDTH];
+      tail[0] = value;
+      if ((count >>> BITS) > (1 << shift)) {
+        Node newRoot = new Node(edit, new Object[WIDTH]);
+        newRoot.array[0] = root;
+        newRoot.array[1] = newPath(edit, shift, tailNode);
+        root = newRoot;
+        shift += BITS;
+      } else {
+        root = pushTail(shift, root, tailNode);
+      }
+      count++;
+      return this;
+    }
+
+    private Node pushTail(int level, Node parent, Node tailNode) {
+      Node result = editable(parent);
+      int subIndex = ((count - 1) >>> level) & MASK;
+      Node toInsert;
+      if (level == BITS) {
+        toInsert = tailNode;
+      } else {
+        Node child = (Node) result.array[subIndex];
+        toInsert = child != null
+            ? pushTail(level - BITS, child, tailNode)
+            : newPath(edit, level - BITS, tailNode);
+      }
+      result.array[subIndex] = toInsert;
+      return result;
+    }
+
+    private static Node newPath(Object edit, int level, Node node) {
+      if (level == 0) {
+        return node;
+      }
+      Node result = new Node(edit, new Object[WIDTH]);
+      result.array[0] = newPath(edit, level - BITS, node);
+      return result;
+    }
+
+    /**
+     * Freezes this transient and returns the resulting immutable vector.
+     */
+    PersistentVector<E> persistent() {
+      ensureEditable();
+      edit = null;
+      if (count == 0) {
+        return empty();
+      }
+      int tailLength = count - tailOffset();
+      Object[] trimmedTail = new Object[tailLength];
+      System.arraycopy(tail, 0, trimmedTail, 0, tailLength);
+      return new PersistentVector<>(count, shift, root, trimmedTail);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.dortegau.jq4java.json;
+
+/**
+ * A mutable array owned by a single update or reduction.
+ *
+ * <p>Writes go in place once the touched trie node has been copied, so rewriting every
+ * element of an n-element array costs O(n) instead of O(n log n). Call {@link #persistent()}
+ * once to freeze the result; the transient must not be used afterwards.
+ */
+public final class TransientArray {
+  private final PersistentVector.Transient<JqValue> elements;
+
+  /**
+   * Creates an empty transient array.
+   */
+  public TransientArray() {
+    this(PersistentVector.<JqValue>empty().asTransient());
+  }
+
+  TransientArray(PersistentVector.Transient<JqValue> elements) {
+    this.elements = elements;
+  }
+
+  public int size() {
+    return elements.size();
+  }
+
+  public JqValue get(int index) {
+    return elements.get(index);
+  }
+
+  /**
+   * Replaces the element at the given position.
+   *
+   * @param index the position to replace, between zero and {@link #size()} - 1
+   * @param value the new element
+   * @return this transient
+   */
+  public TransientArray set(int index, JqValue value) {
+    if (index < 0 || index >= elements.size()) {
+      throw new RuntimeException("Index " + index + " is out of bounds");
+    }
+    elements.assoc(index, value);
+    return this;
+  }
+
+  public TransientArray add(JqValue value) {
+    elements.conj(value);
+    return this;
+  }
+
+  public JqArray persistent() {
+    return new JqArray(elements.persistent());
+  }
+}
@@ -0,0 +1,110 @@
+package com.dortegau.jq4java.json;
+
+/**
+ * A mutable object owned by a single update or reduction.
+ *
+ * <p>Replacing the value of an existing key writes the entry in place; new keys are appended
+ * in insertion order. Call {@link #persistent()} once to freeze the result; the transient must
+ * not be used afterwards.
+ */
+public final class TransientObject {
+  private final PersistentVector.Transient<JqObject.Entry> entries;
+  private PersistentHashIndex index;
+
+  /**
+   * Creates an empty transient object.
+   */
+  public TransientObject() {
+    this(PersistentVector.<JqObject.Entry>empty().asTransient(), null);
+  }
+
+  TransientObject(PersistentVector.Transient<JqObject.Entry> entries,
+      PersistentHashIndex index) {
+    this.entries = entries;
+    this.index = index;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private int positionOf(String key) {
+    if (index != null) {
+      return index.get(key);
+    }
+    int size = entries.size();
+    for (int i = 0; i < size; i++) {
+      if (entries.get(i).key.equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the key stored at the given insertion position.
+   *
+   * @param position the insertion position, between zero and {@link #size()} - 1
+   * @return the key at that position
+   */
+  public String keyAt(int position) {
+    return entries.get(position).key;
+  }
+
+  /**
+   * Returns the value stored at the given insertion position.
+   *
+   * @param position the insertion position, between zero and {@link #size()} - 1
+   * @return the value at that position
+   */
+  public JqValue valueAt(int position) {
+    return entries.get(position).value;
+  }
+
+  /**
+   * Replaces the value stored at the given insertion position.
+   *
+   * @param position the insertion position, between zero and {@link #size()} - 1
+   * @param value the new value
+   * @return this transient
+   */
+  public TransientObject setValueAt(int position, JqValue value) {
+    entries.assoc(position, new JqObject.Entry(entries.get(position).key, value));
+    return this;
+  }
+
+  public JqValue get(String key) {
+    int position = positionOf(key);
+    return position < 0 ? JqNull.NULL : entries.get(position).value;
+  }
+
+  /**
+   * Sets the value of a key, appending the key when it is not present yet.
+   *
+   * @param key the key to set
+   * @param value the new value
+   * @return this transient
+   */
+  public TransientObject set(String key, JqValue value) {
+    int position = positionOf(key);
+    if (position >= 0) {
+      entries.assoc(position, new JqObject.Entry(key, value));
+      return this;
+    }
+    position = entries.size();
+    entries.conj(new JqObject.Entry(key, value));
+    if (index != null) {
+      index = index.put(key, position);
+    } else if (position + 1 > JqObject.INDEX_THRESHOLD) {
+      index = PersistentHashIndex.EMPTY;
+      for (int i = 0; i <= position; i++) {
+        index = index.put(entries.get(i).key, i);
+      }
+    }
+    return this;
+  }
+
+  public JqObject persistent() {
+    return new JqObject(entries.persistent(), index);
+  }
+}
@@ -0,0 +1,290 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Alternative;
+import com.dortegau.jq4java.ast.And;
+import com.dortegau.jq4java.ast.Arithmetic;
+import com.dortegau.jq4java.ast.ArrayConstruction;
+import com.dortegau.jq4java.ast.ArrayIndexing;
+import com.dortegau.jq4java.ast.ArrayIteration;
+import com.dortegau.jq4java.ast.Binding;
+import com.dortegau.jq4java.ast.Comma;
+import com.dortegau.jq4java.ast.Comparison;
+import com.dortegau.jq4java.ast.Conditional;
+import com.dortegau.jq4java.ast.Definitions;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.FieldAccess;
+import com.dortegau.jq4java.ast.FieldPath;
+import com.dortegau.jq4java.ast.Foreach;
+import com.dortegau.jq4java.ast.FunctionCall;
+import com.dortegau.jq4java.ast.FunctionDefinition;
+import com.dortegau.jq4java.ast.Index;
+import com.dortegau.jq4java.ast.MapFunction;
+import com.dortegau.jq4java.ast.ObjectConstruction;
+import com.dortegau.jq4java.ast.Or;
+import com.dortegau.jq4java.ast.OuterFrame;
+import com.dortegau.jq4java.ast.OutputCount;
+import com.dortegau.jq4java.ast.Paths;
+import com.dortegau.jq4java.ast.Pipe;
+import com.dortegau.jq4java.ast.Reduce;
+import com.dortegau.jq4java.ast.Select;
+import com.dortegau.jq4java.ast.UnaryMinus;
+import com.dortegau.jq4java.ast.UpdateAssignment;
+import com.dortegau.jq4java.ast.Walk;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bottom-up traversal shared by the optimization passes.
+ *
+ * <p>Children of the composite nodes listed here are rewritten first and the node is rebuilt
+ * only when a child changed. Update assignment targets are left alone because they must stay
+ * {@link com.dortegau.jq4java.ast.UpdatableExpression} paths; other nodes are treated as leaves.
+ */
+public final class AstRewriter {
+  private AstRewriter() {
+  }
+
+  /**
+   * Applies {@code rule} to every node of the tree, children before parents.
+   *
+   * @param expression the root of the tree
+   * @param rule the rewrite applied to each node after its children were rewritten
+   * @return the rewritten tree
+   */
+  public static Expression transform(Expression expression, UnaryOperator<Expression> rule) {
+    return rule.apply(rewriteChildren(expression, child -> transform(child, rule)));
+  }
+
+  /**
+   * Rebuilds a node with each direct child replaced by {@code rewrite(child)}.
+   *
+   * @param expression the node whose children are rewritten
+   * @param rewrite the rewrite applied to each direct child
+   * @return the rebuilt node, or {@code expression} itself when no child changed
+   */
+  public static Expression rewriteChildren(Expression expression,
+                                           UnaryOperator<Expression> rewrite) {
+    if (expression instanceof Pipe) {
+      Pipe pipe = (Pipe) expression;
+      Expression left = rewrite.apply(pipe.getLeft());
+      Expression right = rewrite.apply(pipe.getRight());
+      return left == pipe.getLeft() && right == pipe.getRight() ? pipe : new Pipe(left, right);
+    }
+    if (expression instanceof Comma) {
+      List<Expression> parts = rewriteAll(((Comma) expression).getExpressions(), rewrite);
+      return parts == null ? expression : new Comma(parts);
+    }
+    if (expression instanceof FieldAccess) {
+      FieldAccess access = (FieldAccess) expression;
+      Expression base = rewrite.apply(access.getBase());
+      return base == access.getBase() ? access : new FieldAccess(access.getFieldName(), base);
+    }
+    if (expression instanceof FieldPath) {
+      FieldPath path = (FieldPath) expression;
+      Expression base = rewrite.apply(path.getBase());
+      return base == path.getBase() ? path : new FieldPath(path.getFieldNames(), base);
+    }
+    if (expression instanceof ArrayIndexing) {
+      ArrayIndexing indexing = (ArrayIndexing) expression;
+      Expression base = rewrite.apply(indexing.getBase());
+      return base == indexing.getBase() ? indexing : new ArrayIndexing(indexing.getIndex(), base);
+    }
+    if (expression instanceof ArrayIteration) {
+      ArrayIteration iteration = (ArrayIteration) expression;
+      Expression base = rewrite.apply(iteration.getBase());
+      return base == iteration.getBase() ? iteration : new ArrayIteration(base);
+    }
+    if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      Expression left = rewrite.apply(arithmetic.getLeft());
+      Expression right = rewrite.apply(arithmetic.getRight());
+      return left == arithmetic.getLeft() && right == arithmetic.getRight()
+          ? arithmetic : arithmetic.withOperands(left, right);
+    }
+    if (expression instanceof Comparison) {
+      Comparison comparison = (Comparison) expression;
+      Expression left = rewrite.apply(comparison.getLeft());
+      Expression right = rewrite.apply(comparison.getRight());
+      return left == comparison.getLeft() && right == comparison.getRight()
+          ? comparison : comparison.withOperands(left, right);
+    }
+    if (expression instanceof And) {
+      And and = (And) expression;
+      Expression left = rewrite.apply(and.getLeft());
+      Expression right = rewrite.apply(and.getRight());
+      return left == and.getLeft() && right == and.getRight() ? and : new And(left, right);
+    }
+    if (expression instanceof Or) {
+      Or or = (Or) expression;
+      Expression left = rewrite.apply(or.getLeft());
+      Expression right = rewrite.apply(or.getRight());
+      return left == or.getLeft() && right == or.getRight() ? or : new Or(left, right);
+    }
+    if (expression instanceof Alternative) {
+      Alternative alternative = (Alternative) expression;
+      Expression left = rewrite.apply(alternative.getLeft());
+      Expression right = rewrite.apply(alternative.getRight());
+      return left == alternative.getLeft() && right == alternative.getRight()
+          ? alternative : new Alternative(left, right);
+    }
+    if (expression instanceof UnaryMinus) {
+      UnaryMinus minus = (UnaryMinus) expression;
+      Expression operand = rewrite.apply(minus.getOperand());
+      return operand == minus.getOperand() ? minus : new UnaryMinus(operand);
+    }
+    if (expression instanceof Select) {
+      Select select = (Select) expression;
+      Expression condition = rewrite.apply(select.getCondition());
+      return condition == select.getCondition() ? select : new Select(condition);
+    }
+    if (expression instanceof MapFunction) {
+      MapFunction map = (MapFunction) expression;
+      Expression expr = rewrite.apply(map.getExpr());
+      return expr == map.getExpr() ? map : new MapFunction(expr);
+    }
+    if (expression instanceof Walk) {
+      Walk walk = (Walk) expression;
+      Expression function = rewrite.apply(walk.getFunction());
+      return function == walk.getFunction() ? walk : new Walk(function);
+    }
+    if (expression instanceof Paths && ((Paths) expression).getFilter() != null) {
+      Paths paths = (Paths) expression;
+      Expression filter = rewrite.apply(paths.getFilter());
+      return filter == paths.getFilter() ? paths : new Paths(filter);
+    }
+    if (expression instanceof ArrayConstruction) {
+      List<Expression> elements =
+          rewriteAll(((ArrayConstruction) expression).getElements(), rewrite);
+      return elements == null ? expression : new ArrayConstruction(elements);
+    }
+    if (expression instanceof OutputCount) {
+      List<Expression> elements = rewriteAll(((OutputCount) expression).getElements(), rewrite);
+      return elements == null ? expression : new OutputCount(elements);
+    }
+    if (expression instanceof ObjectConstruction) {
+      return rewriteObject((ObjectConstruction) expression, rewrite);
+    }
+    if (expression instanceof Conditional) {
+      return rewriteConditional((Conditional) expression, rewrite);
+    }
+    if (expression instanceof Index) {
+      Index index = (Index) expression;
+      Expression base = rewrite.apply(index.getBase());
+      Expression key = rewrite.apply(index.getIndex());
+      return base == index.getBase() && key == index.getIndex() ? index : new Index(base, key);
+    }
+    if (expression instanceof Reduce) {
+      Reduce reduce = (Reduce) expression;
+      Expression source = rewrite.apply(reduce.getSource());
+      Expression init = rewrite.apply(reduce.getInit());
+      Expression update = rewrite.apply(reduce.getUpdate());
+      return source == reduce.getSource() && init == reduce.getInit()
+          && update == reduce.getUpdate()
+          ? reduce : new Reduce(source, reduce.getPattern(), init, update);
+    }
+    if (expression instanceof Binding) {
+      Binding binding = (Binding) expression;
+      Expression source = rewrite.apply(binding.getSource());
+      Expression body = rewrite.apply(binding.getBody());
+      return source == binding.getSource() && body == binding.getBody()
+          ? binding : new Binding(source, binding.getPattern(), body);
+    }
+    if (expression instanceof Definitions) {
+      return rewriteDefinitions((Definitions) expression, rewrite);
+    }
+    if (expression instanceof FunctionCall) {
+      FunctionCall call = (FunctionCall) expression;
+      List<Expression> arguments = rewriteAll(call.getArguments(), rewrite);
+      return arguments == null ? call : call.withArguments(arguments);
+    }
+    if (expression instanceof OuterFrame) {
+      OuterFrame outer = (OuterFrame) expression;
+      Expression inner = rewrite.apply(outer.getExpression());
+      return inner == outer.getExpression() ? outer : new OuterFrame(inner, outer.getDepth());
+    }
+    if (expression instanceof Foreach) {
+      return rewriteForeach((Foreach) expression, rewrite);
+    }
+    if (expression instanceof UpdateAssignment) {
+      UpdateAssignment assignment = (UpdateAssignment) expression;
+      Expression value = rewrite.apply(assignment.getValueExpression());
+      return value == assignment.getValueExpression() ? assignment
+          : new UpdateAssignment(assignment.getTarget(), assignment.getOperator(), value);
+    }
+    return expression;
+  }
+
+  private static List<Expression> rewriteAll(List<Expression> expressions,
+                                             UnaryOperator<Expression> rewrite) {
+    List<Expression> rewritten = new ArrayList<>(expressions.size());
+    boolean changed = false;
+    for (Expression expression : expressions) {
+      Expression result = rewrite.apply(expression);
+      changed |= result != expression;
+      rewritten.add(result);
+    }
+    return changed ? rewritten : null;
+  }
+
+  private static Expression rewriteObject(ObjectConstruction object,
+                                          UnaryOperator<Expression> rewrite) {
+    Map<String, Expression> fields = new LinkedHashMap<>();
+    boolean changed = false;
+    for (Map.Entry<String, Expression> field : object.getFields().entrySet()) {
+      Expression value = rewrite.apply(field.getValue());
+      changed |= value != field.getValue();
+      fields.put(field.getKey(), value);
+    }
+    return changed ? new ObjectConstruction(fields) : object;
+  }
+
+  private static Expression rewriteDefinitions(Definitions definitions,
+                                               UnaryOperator<Expression> rewrite) {
+    List<FunctionDefinition> rewritten = new ArrayList<>();
+    boolean changed = false;
+    for (FunctionDefinition definition : definitions.getDefinitions()) {
+      Expression body = rewrite.apply(definition.getBody());
+      changed |= body != definition.getBody();
+      rewritten.add(body == definition.getBody() ? definition : definition.withBody(body));
+    }
+    Expression body = rewrite.apply(definitions.getBody());
+    return changed || body != definitions.getBody()
+        ? new Definitions(rewritten, body) : definitions;
+  }
+
+  private static Expression rewriteForeach(Foreach foreach, UnaryOperator<Expression> rewrite) {
+    Expression source = rewrite.apply(foreach.getSource());
+    Expression init = rewrite.apply(foreach.getInit());
+    Expression update = rewrite.apply(foreach.getUpdate());
+    Expression extract = rewrite.apply(foreach.getExtract());
+    boolean changed = source != foreach.getSource() || init != foreach.getInit()
+        || update != foreach.getUpdate() || extract != foreach.getExtract();
+    return changed
+        ? new Foreach(source, foreach.getPattern(), init, update, extract)
+        : foreach;
+  }
+
+  private static Expression rewriteConditional(Conditional conditional,
+                                               UnaryOperator<Expression> rewrite) {
+    Expression condition = rewrite.apply(conditional.getCondition());
+    Expression thenExpr = rewrite.apply(conditional.getThenExpr());
+    boolean changed = condition != conditional.getCondition()
+        || thenExpr != conditional.getThenExpr();
+    List<Conditional.ElifBranch> elifBranches = new ArrayList<>();
+    for (Conditional.ElifBranch branch : conditional.getElifBranches()) {
+      Expression elifCondition = rewrite.apply(branch.getCondition());
+      Expression elifThen = rewrite.apply(branch.getThenExpr());
+      changed |= elifCondition != branch.getCondition() || elifThen != branch.getThenExpr();
+      elifBranches.add(new Conditional.ElifBranch(elifCondition, elifThen));
+    }
+    Expression elseExpr = conditional.getElseExpr() == null
+        ? null : rewrite.apply(conditional.getElseExpr());
+    changed |= elseExpr != conditional.getElseExpr();
+    return changed
+        ? new Conditional(condition, thenExpr, elifBranches, elseExpr)
+        : conditional;
+  }
+}
@@ -0,0 +1,69 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.And;
+import com.dortegau.jq4java.ast.Arithmetic;
+import com.dortegau.jq4java.ast.Comparison;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Literal;
+import com.dortegau.jq4java.ast.Or;
+import com.dortegau.jq4java.ast.UnaryMinus;
+import com.dortegau.jq4java.json.JqValue;
+
+/**
+ * Evaluates arithmetic, comparisons, {@code and}/{@code or} and unary minus over literals at
+ * compile time, e.g. {@code 60 * 60 * 24} becomes {@code 86400}.
+ *
+ * <p>Operations that fail, such as division by zero, are left in place so the error is still
+ * raised when the program runs.
+ */
+public final class ConstantFolding implements OptimizationPass {
+  public static final String NAME = "constant-folding";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Expression apply(Expression expression) {
+    return AstRewriter.transform(expression, ConstantFolding::fold);
+  }
+
+  private static Expression fold(Expression expression) {
+    if (!isFoldable(expression)) {
+      return expression;
+    }
+    try {
+      return new Literal(expression.first(JqValue.nullValue()));
+    } catch (RuntimeException e) {
+      return expression;
+    }
+  }
+
+  private static boolean isFoldable(Expression expression) {
+    if (expression instanceof Arithmetic) {
+      Arithmetic arithmetic = (Arithmetic) expression;
+      return isLiteral(arithmetic.getLeft()) && isLiteral(arithmetic.getRight());
+    }
+    if (expression instanceof Comparison) {
+      Comparison comparison = (Comparison) expression;
+      return isLiteral(comparison.getLeft()) && isLiteral(comparison.getRight());
+    }
+    if (expression instanceof And) {
+      And and = (And) expression;
+      return isLiteral(and.getLeft()) && isLiteral(and.getRight());
+    }
+    if (expression instanceof Or) {
+      Or or = (Or) expression;
+      return isLiteral(or.getLeft()) && isLiteral(or.getRight());
+    }
+    if (expression instanceof UnaryMinus) {
+      return isLiteral(((UnaryMinus) expression).getOperand());
+    }
+    return false;
+  }
+
+  private static boolean isLiteral(Expression expression) {
+    return expression instanceof Literal;
+  }
+}
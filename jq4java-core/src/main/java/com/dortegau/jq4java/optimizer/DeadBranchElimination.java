@@ -0,0 +1,72 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Conditional;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Identity;
+import com.dortegau.jq4java.ast.Literal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes {@code if} branches whose condition is a literal.
+ *
+ * <p>A truthy literal condition replaces the conditional with its branch (or turns it into the
+ * {@code else} of the branches before it); {@code elif} branches with a falsy literal condition
+ * are dropped. Run after {@link ConstantFolding} to also catch conditions like {@code 1 < 2}.
+ */
+public final class DeadBranchElimination implements OptimizationPass {
+  public static final String NAME = "dead-branch-elimination";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Expression apply(Expression expression) {
+    return AstRewriter.transform(expression, DeadBranchElimination::eliminate);
+  }
+
+  private static Expression eliminate(Expression expression) {
+    if (!(expression instanceof Conditional)) {
+      return expression;
+    }
+    Conditional conditional = (Conditional) expression;
+    Boolean main = literalTruthiness(conditional.getCondition());
+    if (Boolean.TRUE.equals(main)) {
+      return conditional.getThenExpr();
+    }
+
+    List<Conditional.ElifBranch> kept = new ArrayList<>();
+    Expression elseExpr = conditional.getElseExpr();
+    boolean changed = false;
+    for (Conditional.ElifBranch branch : conditional.getElifBranches()) {
+      Boolean truthy = literalTruthiness(branch.getCondition());
+      if (truthy == null) {
+        kept.add(branch);
+        continue;
+      }
+      changed = true;
+      if (truthy) {
+        elseExpr = branch.getThenExpr();
+        break;
+      }
+    }
+
+    if (Boolean.FALSE.equals(main) && kept.isEmpty()) {
+      return elseExpr != null ? elseExpr : new Identity();
+    }
+    // A falsy main condition with surviving elifs is kept: promoting an elif would change it
+    // from first-value to all-values evaluation.
+    return changed
+        ? new Conditional(conditional.getCondition(), conditional.getThenExpr(), kept, elseExpr)
+        : conditional;
+  }
+
+  private static Boolean literalTruthiness(Expression expression) {
+    if (!(expression instanceof Literal)) {
+      return null;
+    }
+    return ((Literal) expression).getValue().isTruthy();
+  }
+}
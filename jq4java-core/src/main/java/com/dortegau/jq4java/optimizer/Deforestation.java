@@ -0,0 +1,46 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.ArrayConstruction;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Length;
+import com.dortegau.jq4java.ast.OutputCount;
+import com.dortegau.jq4java.ast.Pipe;
+
+/**
+ * Removes intermediate arrays that are only measured: {@code [.[] | f] | length} becomes an
+ * {@link OutputCount} that counts the outputs of {@code .[] | f} without collecting them.
+ */
+public final class Deforestation implements OptimizationPass {
+  public static final String NAME = "deforestation";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Expression apply(Expression expression) {
+    return AstRewriter.transform(expression, Deforestation::deforest);
+  }
+
+  private static Expression deforest(Expression expression) {
+    if (!(expression instanceof Pipe) || !isLength(((Pipe) expression).getRight())) {
+      return expression;
+    }
+    Expression left = ((Pipe) expression).getLeft();
+    if (left instanceof ArrayConstruction) {
+      return new OutputCount(((ArrayConstruction) left).getElements());
+    }
+    // Pipes associate to the left, so "x | [f] | length" arrives as ((x | [f]) | length).
+    if (left instanceof Pipe && ((Pipe) left).getRight() instanceof ArrayConstruction) {
+      Pipe inner = (Pipe) left;
+      ArrayConstruction array = (ArrayConstruction) inner.getRight();
+      return new Pipe(inner.getLeft(), new OutputCount(array.getElements()));
+    }
+    return expression;
+  }
+
+  private static boolean isLength(Expression expression) {
+    return expression instanceof Length;
+  }
+}
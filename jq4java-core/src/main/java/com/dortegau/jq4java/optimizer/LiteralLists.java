@@ -0,0 +1,44 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Comma;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Literal;
+import com.dortegau.jq4java.ast.LiteralList;
+import com.dortegau.jq4java.json.JqValue;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces a comma of literals, such as {@code "a", "b", "c"}, with a {@link LiteralList} whose
+ * values are built once.
+ */
+public final class LiteralLists implements OptimizationPass {
+  public static final String NAME = "literal-lists";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Expression apply(Expression expression) {
+    return AstRewriter.transform(expression, LiteralLists::precompute);
+  }
+
+  private static Expression precompute(Expression expression) {
+    if (!(expression instanceof Comma)) {
+      return expression;
+    }
+    List<JqValue> values = new ArrayList<>();
+    for (Expression part : ((Comma) expression).getExpressions()) {
+      if (part instanceof Literal) {
+        values.add(((Literal) part).getValue());
+      } else if (part instanceof LiteralList) {
+        values.addAll(((LiteralList) part).getValues());
+      } else {
+        return expression;
+      }
+    }
+    return new LiteralList(values);
+  }
+}
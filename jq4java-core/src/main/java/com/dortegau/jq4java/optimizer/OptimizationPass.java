@@ -0,0 +1,25 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Expression;
+
+/**
+ * A single AST-to-AST rewrite run by the {@link Optimizer}.
+ *
+ * <p>Passes must preserve the outputs and errors of the expression for every input.
+ */
+public interface OptimizationPass {
+  /**
+   * Returns the name used to switch this pass off, for example {@code "constant-folding"}.
+   *
+   * @return the pass name
+   */
+  String name();
+
+  /**
+   * Rewrites the given AST.
+   *
+   * @param expression the AST to optimize
+   * @return the rewritten AST, or the same instance when nothing changed
+   */
+  Expression apply(Expression expression);
+}
@@ -0,0 +1,89 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Expression;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered, immutable list of {@link OptimizationPass}es applied to a parsed program.
+ *
+ * <p>{@link #standard()} enables every built-in pass; individual passes can be switched off by
+ * name to measure their effect:
+ *
+ * <pre>{@code
+ * Optimizer noFusion = Optimizer.standard().without(PathFusion.NAME);
+ * Expression program = Jq.compile(".a.b.c", noFusion);
+ * }</pre>
+ */
+public final class Optimizer {
+  private static final Optimizer NONE = new Optimizer(Collections.emptyList());
+
+  private final List<OptimizationPass> passes;
+
+  private Optimizer(List<OptimizationPass> passes) {
+    this.passes = Collections.unmodifiableList(passes);
+  }
+
+  /**
+   * Returns an optimizer running all built-in passes. Constant folding runs first so that the
+   * later passes see its literals.
+   *
+   * @return the default optimizer
+   */
+  public static Optimizer standard() {
+    List<OptimizationPass> passes = new ArrayList<>();
+    passes.add(new ConstantFolding());
+    passes.add(new DeadBranchElimination());
+    passes.add(new LiteralLists());
+    passes.add(new PathFusion());
+    passes.add(new Deforestation());
+    return new Optimizer(passes);
+  }
+
+  public static Optimizer none() {
+    return NONE;
+  }
+
+  public List<OptimizationPass> passes() {
+    return passes;
+  }
+
+  /**
+   * Returns an optimizer with the named pass removed.
+   *
+   * @param passName the {@link OptimizationPass#name()} to switch off
+   * @return an optimizer without that pass
+   */
+  public Optimizer without(String passName) {
+    List<OptimizationPass> remaining = new ArrayList<>(passes);
+    remaining.removeIf(pass -> pass.name().equals(passName));
+    return new Optimizer(remaining);
+  }
+
+  /**
+   * Returns an optimizer that runs the given pass after the existing ones.
+   *
+   * @param pass the pass to append
+   * @return an optimizer with the pass added
+   */
+  public Optimizer with(OptimizationPass pass) {
+    List<OptimizationPass> extended = new ArrayList<>(passes);
+    extended.add(pass);
+    return new Optimizer(extended);
+  }
+
+  /**
+   * Runs every pass in order over the given AST.
+   *
+   * @param expression the AST produced by the parser
+   * @return the optimized AST
+   */
+  public Expression optimize(Expression expression) {
+    Expression result = expression;
+    for (OptimizationPass pass : passes) {
+      result = pass.apply(result);
+    }
+    return result;
+  }
+}
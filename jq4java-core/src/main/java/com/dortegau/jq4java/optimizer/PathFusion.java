@@ -0,0 +1,46 @@
+package com.dortegau.jq4java.optimizer;
+
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.FieldAccess;
+import com.dortegau.jq4java.ast.FieldPath;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fuses nested field accesses such as {@code .a.b.c} into a single {@link FieldPath} lookup.
+ */
+public final class PathFusion implements OptimizationPass {
+  public static final String NAME = "path-fusion";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Expression apply(Expression expression) {
+    return AstRewriter.transform(expression, PathFusion::fuse);
+  }
+
+  private static Expression fuse(Expression expression) {
+    if (!(expression instanceof FieldAccess)) {
+      return expression;
+    }
+    FieldAccess access = (FieldAccess) expression;
+    Expression base = access.getBase();
+    List<String> names = new ArrayList<>();
+    if (base instanceof FieldAccess) {
+      FieldAccess inner = (FieldAccess) base;
+      names.add(inner.getFieldName());
+      base = inner.getBase();
+    } else if (base instanceof FieldPath) {
+      FieldPath inner = (FieldPath) base;
+      names.addAll(inner.getFieldNames());
+      base = inner.getBase();
+    } else {
+      return expression;
+    }
+    names.add(access.getFieldName());
+    return new FieldPath(names, base);
+  }
+}
@@ -6,59 +6,322 @@ import com.dortegau.jq4java.ast.Arithmetic;
 import com.dortegau.jq4java.ast.ArrayConstruction;
 import com.dortegau.jq4java.ast.ArrayIndexing;
 import com.dortegau.jq4java.ast.ArrayIteration;
+import com.dortegau.jq4java.ast.ArrayPattern;
 import com.dortegau.jq4java.ast.ArraySlicing;
+import com.dortegau.jq4java.ast.Binding;
+import com.dortegau.jq4java.ast.BuiltinRegistry;
+import com.dortegau.jq4java.ast.ClosureCall;
 import com.dortegau.jq4java.ast.Comma;
 import com.dortegau.jq4java.ast.Comparison;
 import com.dortegau.jq4java.ast.Conditional;
+import com.dortegau.jq4java.ast.Definitions;
 import com.dortegau.jq4java.ast.Expression;
 import com.dortegau.jq4java.ast.FieldAccess;
-import com.dortegau.jq4java.ast.FormatFunction;
+import com.dortegau.jq4java.ast.Foreach;
+import com.dortegau.jq4java.ast.FunctionCall;
+import com.dortegau.jq4java.ast.FunctionDefinition;
 import com.dortegau.jq4java.ast.Identity;
-import com.dortegau.jq4java.ast.In;
+import com.dortegau.jq4java.ast.Index;
 import com.dortegau.jq4java.ast.InterpolatedString;
 import com.dortegau.jq4java.ast.Literal;
-import com.dortegau.jq4java.ast.MapFunction;
-import com.dortegau.jq4java.ast.MapValuesFunction;
 import com.dortegau.jq4java.ast.Not;
 import com.dortegau.jq4java.ast.ObjectConstruction;
+import com.dortegau.jq4java.ast.ObjectPattern;
 import com.dortegau.jq4java.ast.Or;
+import com.dortegau.jq4java.ast.OuterFrame;
+import com.dortegau.jq4java.ast.Pattern;
 import com.dortegau.jq4java.ast.Pipe;
-import com.dortegau.jq4java.ast.Range;
-import com.dortegau.jq4java.ast.Select;
+import com.dortegau.jq4java.ast.RecursiveDescent;
+import com.dortegau.jq4java.ast.Reduce;
 import com.dortegau.jq4java.ast.UnaryMinus;
 import com.dortegau.jq4java.ast.UpdatableExpression;
 import com.dortegau.jq4java.ast.UpdateAssignment;
-import com.dortegau.jq4java.ast.WithEntries;
-import com.dortegau.jq4java.ast.ZeroArgFunction;
+import com.dortegau.jq4java.ast.Variable;
 import com.dortegau.jq4java.json.JqValue;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
 
 /**
  * Visitor implementation that builds AST nodes from the parse tree.
+ *
+ * <p>Variables are resolved here: each declaration gets the next free slot of the
+ * {@link com.dortegau.jq4java.ast.Environment}, and each reference is bound to the innermost
+ * declaration of its name, so an undefined variable is reported before the program runs.
+ *
+ * <p>User-defined functions are resolved here too. A small definition that does not call
+ * itself is expanded at each call site, with its filter parameters replaced by the arguments,
+ * so it costs nothing at run time. Any other definition is built once into a
+ * {@link FunctionDefinition} whose calls run in frames of their own.
  */
 public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
+  // Largest body, in tokens, of a definition expanded at its call sites
+  private static final int INLINE_LIMIT = 48;
+
+  // Declarations in scope, innermost last
+  private final List<Declaration> scope = new ArrayList<>();
+  // Functions and filter parameters in scope, innermost last
+  private final List<FunctionBinding> functions = new ArrayList<>();
+  // Definitions whose calls run in frames of their own, by the index their calls use
+  private final List<FunctionDefinition> definitions = new ArrayList<>();
+  // Frame nesting of the code being built, and the next free slot of its frame
+  private int level;
+  private int slots;
 
   @Override
   public Expression visitProgram(JqGrammarParser.ProgramContext ctx) {
     return visitExpression(ctx.expression());
   }
 
+  /**
+   * Returns the complete program for an AST built by this builder, which holds the functions
+   * its calls refer to.
+   */
+  Expression program(Expression body) {
+    return definitions.isEmpty() ? body : new Definitions(definitions, body);
+  }
+
   @Override
   public Expression visitExpression(JqGrammarParser.ExpressionContext ctx) {
-    List<JqGrammarParser.CommaExprContext> commaExprs = ctx.commaExpr();
-    if (commaExprs.size() == 1) {
-      return visitCommaExpr(commaExprs.get(0));
+    List<ParserRuleContext> parts = new ArrayList<>();
+    for (ParseTree child : ctx.children) {
+      if (child instanceof ParserRuleContext) {
+        parts.add((ParserRuleContext) child);
+      }
     }
-    Expression result = visitCommaExpr(commaExprs.get(0));
-    for (int i = 1; i < commaExprs.size(); i++) {
-      result = new Pipe(result, visitCommaExpr(commaExprs.get(i)));
+    return buildPipe(parts, 0);
+  }
+
+  /**
+   * Builds the pipe of definitions and comma expressions starting at {@code from}. Definitions
+   * are in scope for the rest of the pipe, and a stage ending in {@code SOURCE as PATTERN}
+   * scopes the pattern's variables over it, the rest becoming the body of the {@link Binding}.
+   */
+  private Expression buildPipe(List<ParserRuleContext> parts, int from) {
+    Expression result = null;
+    for (int i = from; i < parts.size(); i++) {
+      Expression stage;
+      if (parts.get(i) instanceof JqGrammarParser.FuncDefContext) {
+        int defined = functions.size();
+        define((JqGrammarParser.FuncDefContext) parts.get(i));
+        stage = buildPipe(parts, i + 1);
+        endFunctions(defined);
+      } else {
+        JqGrammarParser.CommaExprContext commaExpr =
+            (JqGrammarParser.CommaExprContext) parts.get(i);
+        List<JqGrammarParser.UpdateExprContext> updateExprs = commaExpr.updateExpr();
+        JqGrammarParser.BindingHeadContext head =
+            bindingHead(updateExprs.get(updateExprs.size() - 1));
+        if (head == null) {
+          stage = visitCommaExpr(commaExpr);
+          result = result == null ? stage : new Pipe(result, stage);
+          continue;
+        }
+        if (i + 1 == parts.size()) {
+          throw missingBindingBody(head);
+        }
+        List<Expression> expressions = new ArrayList<>();
+        for (int j = 0; j < updateExprs.size() - 1; j++) {
+          expressions.add(visit(updateExprs.get(j)));
+        }
+        Expression source = visit(head.postfix());
+        int declared = scope.size();
+        Pattern pattern = buildPattern(head.pattern());
+        Expression body = buildPipe(parts, i + 1);
+        endScope(declared);
+        expressions.add(new Binding(source, pattern, body));
+        stage = expressions.size() == 1 ? expressions.get(0) : new Comma(expressions);
+      }
+      return result == null ? stage : new Pipe(result, stage);
     }
     return result;
   }
 
+  /**
+   * Brings a function into scope. The caller removes it when its scope ends.
+   */
+  private void define(JqGrammarParser.FuncDefContext ctx) {
+    String name = ctx.IDENTIFIER().getText();
+    int arity = ctx.param().size();
+    if (!callsItself(ctx.expression(), name, arity)
+        && ctx.expression().getSourceInterval().length() <= INLINE_LIMIT) {
+      functions.add(FunctionBinding.inlined(name, arity, ctx, scope.size(), functions.size()));
+      return;
+    }
+
+    int index = definitions.size();
+    definitions.add(null);
+    functions.add(FunctionBinding.function(name, arity, level, index));
+    final int outerSlots = slots;
+    final int declared = scope.size();
+    final int defined = functions.size();
+    level++;
+    slots = 0;
+    Variable[] values = new Variable[arity];
+    for (int i = 0; i < arity; i++) {
+      String param = ctx.param(i).getText();
+      functions.add(FunctionBinding.parameter(paramName(param), level, i));
+      if (param.startsWith("$")) {
+        values[i] = declare(param);
+      }
+    }
+    Expression body = visit(ctx.expression());
+    // def f($a): BODY means def f(a): a as $a | BODY
+    for (int i = arity - 1; i >= 0; i--) {
+      if (values[i] != null) {
+        body = new Binding(new ClosureCall(values[i].getName(), i, 0), values[i], body);
+      }
+    }
+    definitions.set(index, new FunctionDefinition(name, arity, slots, body));
+    endScope(declared);
+    endFunctions(defined);
+    level--;
+    slots = outerSlots;
+  }
+
+  private static String paramName(String param) {
+    return param.startsWith("$") ? param.substring(1) : param;
+  }
+
+  /**
+   * Returns whether the parse tree contains a call that may resolve to the given function.
+   * Shadowing is ignored, which only errs towards not inlining.
+   */
+  private static boolean callsItself(ParseTree tree, String name, int arity) {
+    if (tree instanceof JqGrammarParser.FunctionCallContext) {
+      JqGrammarParser.FunctionCallContext call = (JqGrammarParser.FunctionCallContext) tree;
+      if (call.IDENTIFIER().getText().equals(name) && call.expression().size() == arity) {
+        return true;
+      }
+    } else if (tree instanceof JqGrammarParser.ZeroArgFunctionContext) {
+      if (arity == 0 && tree.getText().equals(name)) {
+        return true;
+      }
+    }
+    for (int i = 0; i < tree.getChildCount(); i++) {
+      if (callsItself(tree.getChild(i), name, arity)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Resolves a call to the innermost function or filter parameter in scope with that name and
+   * arity, returning {@code null} when there is none.
+   */
+  private Expression call(String name, List<JqGrammarParser.ExpressionContext> argumentCtxs) {
+    for (int i = functions.size() - 1; i >= 0; i--) {
+      FunctionBinding function = functions.get(i);
+      if (!function.name.equals(name) || function.arity != argumentCtxs.size()) {
+        continue;
+      }
+      if (function.inlined != null) {
+        return expand(function, argumentCtxs);
+      }
+      if (function.argument != null) {
+        return function.level == level
+            ? function.argument : new OuterFrame(function.argument, level - function.level);
+      }
+      if (function.parameter) {
+        return new ClosureCall(name, function.index, level - function.level);
+      }
+      List<Expression> arguments = new ArrayList<>();
+      for (JqGrammarParser.ExpressionContext argumentCtx : argumentCtxs) {
+        arguments.add(visit(argumentCtx));
+      }
+      return new FunctionCall(name, function.index, level - function.level, arguments);
+    }
+    return null;
+  }
+
+  /**
+   * Builds the body of an inlined function at a call site: in the scope of its definition,
+   * with each filter parameter standing for the argument built in the scope of the caller.
+   */
+  private Expression expand(FunctionBinding function,
+                            List<JqGrammarParser.ExpressionContext> argumentCtxs) {
+    List<Expression> arguments = new ArrayList<>();
+    for (JqGrammarParser.ExpressionContext argumentCtx : argumentCtxs) {
+      arguments.add(visit(argumentCtx));
+    }
+    final List<Declaration> hiddenVariables =
+        new ArrayList<>(scope.subList(function.variableScope, scope.size()));
+    final List<FunctionBinding> hiddenFunctions =
+        new ArrayList<>(functions.subList(function.functionScope, functions.size()));
+    endScope(function.variableScope);
+    endFunctions(function.functionScope);
+
+    List<JqGrammarParser.ParamContext> params = function.inlined.param();
+    Variable[] values = new Variable[params.size()];
+    for (int i = 0; i < params.size(); i++) {
+      String param = params.get(i).getText();
+      functions.add(FunctionBinding.argument(paramName(param), arguments.get(i), level));
+      if (param.startsWith("$")) {
+        values[i] = declare(param);
+      }
+    }
+    Expression body = visit(function.inlined.expression());
+    for (int i = params.size() - 1; i >= 0; i--) {
+      if (values[i] != null) {
+        body = new Binding(arguments.get(i), values[i], body);
+      }
+    }
+
+    endScope(function.variableScope);
+    endFunctions(function.functionScope);
+    scope.addAll(hiddenVariables);
+    functions.addAll(hiddenFunctions);
+    return body;
+  }
+
+  /**
+   * Removes the functions defined since the scope had {@code size} entries.
+   */
+  private void endFunctions(int size) {
+    functions.subList(size, functions.size()).clear();
+  }
+
+  /**
+   * Returns the {@code SOURCE as PATTERN} an update expression consists of, or {@code null}.
+   */
+  private static JqGrammarParser.BindingHeadContext bindingHead(
+      JqGrammarParser.UpdateExprContext ctx) {
+    if (ctx.alternativeExpr().size() != 1
+        || ctx.alternativeExpr(0).conditionalExpr().size() != 1
+        || !(ctx.alternativeExpr(0).conditionalExpr(0)
+            instanceof JqGrammarParser.NonConditionalExprContext)) {
+      return null;
+    }
+    JqGrammarParser.LogicalExprContext logical =
+        ((JqGrammarParser.NonConditionalExprContext) ctx.alternativeExpr(0).conditionalExpr(0))
+            .logicalExpr();
+    if (logical.comparisonExpr().size() != 1
+        || logical.comparisonExpr(0).arithmeticExpr().size() != 1
+        || logical.comparisonExpr(0).arithmeticExpr(0).postfix().size() != 1) {
+      return null;
+    }
+    JqGrammarParser.PostfixContext postfix =
+        logical.comparisonExpr(0).arithmeticExpr(0).postfix(0);
+    return postfix instanceof JqGrammarParser.BindingHeadContext
+        ? (JqGrammarParser.BindingHeadContext) postfix : null;
+  }
+
+  private static RuntimeException missingBindingBody(JqGrammarParser.BindingHeadContext ctx) {
+    return new RuntimeException("Parse error at " + ctx.AS().getSymbol().getLine() + ":"
+        + ctx.AS().getSymbol().getCharPositionInLine() + ": 'as' must be followed by '|'");
+  }
+
+  @Override
+  public Expression visitBindingHead(JqGrammarParser.BindingHeadContext ctx) {
+    // Reached only when the binding is not a whole pipe stage, as in 1 + . as $x | $x
+    throw missingBindingBody(ctx);
+  }
+
   @Override
   public Expression visitCommaExpr(JqGrammarParser.CommaExprContext ctx) {
     List<JqGrammarParser.UpdateExprContext> updateExprs = ctx.updateExpr();
@@ -161,7 +424,7 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
     Expression result = visitArithmeticExpr(arithmeticExprs.get(0));
     for (int i = 1; i < arithmeticExprs.size(); i++) {
       String operator = ctx.getChild(i * 2 - 1).getText();
-      result = new Comparison(result, operator, visitArithmeticExpr(arithmeticExprs.get(i)));
+      result = Comparison.of(result, operator, visitArithmeticExpr(arithmeticExprs.get(i)));
     }
     return result;
   }
@@ -175,7 +438,7 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
     Expression result = visit(postfixes.get(0));
     for (int i = 1; i < postfixes.size(); i++) {
       String operator = ctx.getChild(i * 2 - 1).getText();
-      result = new Arithmetic(result, operator, visit(postfixes.get(i)));
+      result = Arithmetic.of(result, operator, visit(postfixes.get(i)));
     }
     return result;
   }
@@ -197,14 +460,14 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
     if (slice.start != null) {
       Expression startExpr = visit(slice.start);
       if (startExpr instanceof Literal) {
-        start = Integer.parseInt(((Literal) startExpr).getValue());
+        start = Integer.parseInt(((Literal) startExpr).getText());
       }
     }
     
     if (slice.end != null) {
       Expression endExpr = visit(slice.end);
       if (endExpr instanceof Literal) {
-        end = Integer.parseInt(((Literal) endExpr).getValue());
+        end = Integer.parseInt(((Literal) endExpr).getText());
       }
     }
     
@@ -214,20 +477,7 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
   @Override
   public Expression visitArrayIndexExpr(JqGrammarParser.ArrayIndexExprContext ctx) {
     Expression base = visit(ctx.postfix());
-    Expression indexExpr = visit(ctx.expression());
-    
-    if (indexExpr instanceof Literal) {
-      String value = ((Literal) indexExpr).getValue();
-      if (value.startsWith("\"")) {
-        String fieldName = unquoteString(value);
-        return new FieldAccess(fieldName, base);
-      } else {
-        int index = Integer.parseInt(value);
-        return new ArrayIndexing(index, base);
-      }
-    }
-    
-    throw new RuntimeException("Array/object index must be a literal");
+    return index(base, visit(ctx.expression()));
   }
 
   @Override
@@ -274,14 +524,14 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
     if (slice.start != null) {
       Expression startExpr = visit(slice.start);
       if (startExpr instanceof Literal) {
-        start = Integer.parseInt(((Literal) startExpr).getValue());
+        start = Integer.parseInt(((Literal) startExpr).getText());
       }
     }
     
     if (slice.end != null) {
       Expression endExpr = visit(slice.end);
       if (endExpr instanceof Literal) {
-        end = Integer.parseInt(((Literal) endExpr).getValue());
+        end = Integer.parseInt(((Literal) endExpr).getText());
       }
     }
     
@@ -290,20 +540,24 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
 
   @Override
   public Expression visitRootArrayIndex(JqGrammarParser.RootArrayIndexContext ctx) {
-    Expression indexExpr = visit(ctx.expression());
-    
+    return index(new Identity(), visit(ctx.expression()));
+  }
+
+  /**
+   * Builds {@code base[indexExpr]}. Literal string and integer keys get the dedicated
+   * {@link FieldAccess} and {@link ArrayIndexing} nodes; other keys are computed at runtime.
+   */
+  private Expression index(Expression base, Expression indexExpr) {
     if (indexExpr instanceof Literal) {
-      String value = ((Literal) indexExpr).getValue();
-      if (value.startsWith("\"")) {
-        String fieldName = unquoteString(value);
-        return new FieldAccess(fieldName, new Identity());
-      } else {
-        int index = Integer.parseInt(value);
-        return new ArrayIndexing(index, new Identity());
+      JqValue key = ((Literal) indexExpr).getValue();
+      if (key.isString()) {
+        return new FieldAccess(key.asString(), base);
+      }
+      if (key.isNumber() && key.asNumber() == (int) key.asNumber()) {
+        return new ArrayIndexing((int) key.asNumber(), base);
       }
     }
-    
-    throw new RuntimeException("Array/object index must be a literal");
+    return new Index(base, indexExpr);
   }
 
   @Override
@@ -327,6 +581,12 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
     return new Identity();
   }
 
+  @Override
+  public Expression visitRecursiveDescentExpr(
+      JqGrammarParser.RecursiveDescentExprContext ctx) {
+    return new RecursiveDescent();
+  }
+
   @Override
   public Expression visitTrueLiteral(JqGrammarParser.TrueLiteralContext ctx) {
     return new Literal("true");
@@ -398,7 +658,7 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
           int exprStart = i + 2;
           int exprEnd = findInterpolationEnd(raw, exprStart);
           String expressionSource = raw.substring(exprStart, exprEnd);
-          expressions.add(JqParser.parse(expressionSource));
+          expressions.add(JqParser.parse(expressionSource, this));
           i = exprEnd;
         } else {
           current.append(decodeEscapeSequence(raw, i + 1));
@@ -478,9 +738,124 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
 
 
 
+  @Override
+  public Expression visitVariableExpr(JqGrammarParser.VariableExprContext ctx) {
+    return reference(ctx.VARIABLE().getText().substring(1));
+  }
+
+  /**
+   * Returns the innermost declaration of a variable.
+   */
+  private Variable reference(String name) {
+    for (int i = scope.size() - 1; i >= 0; i--) {
+      Declaration declaration = scope.get(i);
+      if (declaration.variable.getName().equals(name)) {
+        return declaration.level == level ? declaration.variable : new Variable(name,
+            declaration.variable.getSlot(), level - declaration.level);
+      }
+    }
+    throw new RuntimeException("$" + name + " is not defined");
+  }
+
+  @Override
+  public Expression visitReduceExpr(JqGrammarParser.ReduceExprContext ctx) {
+    Expression source = visit(ctx.postfix());
+    Expression init = visit(ctx.expression(0));
+    int declared = scope.size();
+    Pattern pattern = buildPattern(ctx.pattern());
+    Expression update = visit(ctx.expression(1));
+    endScope(declared);
+    return new Reduce(source, pattern, init, update);
+  }
+
+  @Override
+  public Expression visitForeachExpr(JqGrammarParser.ForeachExprContext ctx) {
+    Expression source = visit(ctx.postfix());
+    Expression init = visit(ctx.expression(0));
+    int declared = scope.size();
+    Pattern pattern = buildPattern(ctx.pattern());
+    Expression update = visit(ctx.expression(1));
+    Expression extract = ctx.expression().size() > 2 ? visit(ctx.expression(2)) : new Identity();
+    endScope(declared);
+    return new Foreach(source, pattern, init, update, extract);
+  }
+
+  /**
+   * Builds a binding pattern, bringing its variables into scope in order, so computed keys of
+   * an object pattern see the variables bound before them. The caller ends their scope.
+   */
+  private Pattern buildPattern(JqGrammarParser.PatternContext ctx) {
+    if (ctx instanceof JqGrammarParser.VariablePatternContext) {
+      return declare(((JqGrammarParser.VariablePatternContext) ctx).VARIABLE().getText());
+    }
+    if (ctx instanceof JqGrammarParser.ArrayPatternContext) {
+      List<Pattern> elements = new ArrayList<>();
+      for (JqGrammarParser.PatternContext element
+          : ((JqGrammarParser.ArrayPatternContext) ctx).pattern()) {
+        elements.add(buildPattern(element));
+      }
+      return new ArrayPattern(elements);
+    }
+    List<ObjectPattern.Entry> entries = new ArrayList<>();
+    for (JqGrammarParser.ObjectPatternFieldContext fieldCtx
+        : ((JqGrammarParser.ObjectPatternContext) ctx).objectPatternField()) {
+      entries.add(buildPatternEntry(fieldCtx));
+    }
+    return new ObjectPattern(entries);
+  }
+
+  private ObjectPattern.Entry buildPatternEntry(JqGrammarParser.ObjectPatternFieldContext ctx) {
+    if (ctx instanceof JqGrammarParser.VariableKeyPatternContext) {
+      JqGrammarParser.VariableKeyPatternContext variableCtx =
+          (JqGrammarParser.VariableKeyPatternContext) ctx;
+      Variable variable = declare(variableCtx.VARIABLE().getText());
+      Pattern pattern = variableCtx.pattern() == null ? null : buildPattern(variableCtx.pattern());
+      return new ObjectPattern.Entry(
+          new Literal(JqValue.fromString(variable.getName())), variable, pattern);
+    }
+    if (ctx instanceof JqGrammarParser.IdentifierKeyPatternContext) {
+      JqGrammarParser.IdentifierKeyPatternContext identifierCtx =
+          (JqGrammarParser.IdentifierKeyPatternContext) ctx;
+      return new ObjectPattern.Entry(
+          new Literal(JqValue.fromString(identifierCtx.IDENTIFIER().getText())),
+          null, buildPattern(identifierCtx.pattern()));
+    }
+    if (ctx instanceof JqGrammarParser.StringKeyPatternContext) {
+      JqGrammarParser.StringKeyPatternContext stringCtx =
+          (JqGrammarParser.StringKeyPatternContext) ctx;
+      return new ObjectPattern.Entry(
+          new Literal(JqValue.fromString(unquoteString(stringCtx.STRING().getText()))),
+          null, buildPattern(stringCtx.pattern()));
+    }
+    JqGrammarParser.ComputedKeyPatternContext computedCtx =
+        (JqGrammarParser.ComputedKeyPatternContext) ctx;
+    Expression key = visit(computedCtx.expression());
+    return new ObjectPattern.Entry(key, null, buildPattern(computedCtx.pattern()));
+  }
+
+  /**
+   * Brings a new variable into scope; the caller removes it when its scope ends.
+   */
+  private Variable declare(String token) {
+    Variable variable = new Variable(token.substring(1), slots++);
+    scope.add(new Declaration(variable, level));
+    return variable;
+  }
+
+  /**
+   * Removes the variables declared since the scope had {@code size} entries.
+   */
+  private void endScope(int size) {
+    scope.subList(size, scope.size()).clear();
+  }
+
   @Override
   public Expression visitFunctionCall(JqGrammarParser.FunctionCallContext ctx) {
     String functionName = ctx.IDENTIFIER().getText();
+    Expression user = call(functionName, ctx.expression());
+    if (user != null) {
+      return user;
+    }
     List<Expression> arguments = new ArrayList<>();
 
     // Collect all arguments (first one plus any after semicolons)
@@ -488,49 +863,20 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
       arguments.add(visit(exprCtx));
     }
 
-    switch (functionName) {
-      case "map":
-        if (arguments.size() != 1) {
-          throw new RuntimeException("map/" + arguments.size() + " is not defined");
-        }
-        return new MapFunction(arguments.get(0));
-      case "map_values":
-        if (arguments.size() != 1) {
-          throw new RuntimeException("map_values/" + arguments.size() + " is not defined");
-        }
-        return new MapValuesFunction(arguments.get(0));
-      case "with_entries":
-        if (arguments.size() != 1) {
-          throw new RuntimeException("with_entries/" + arguments.size() + " is not defined");
-        }
-        return new WithEntries(arguments.get(0));
-      case "select":
-        if (arguments.size() != 1) {
-          throw new RuntimeException("select/" + arguments.size() + " is not defined");
-        }
-        return new Select(arguments.get(0));
-      case "in":
-        if (arguments.size() != 1) {
-          throw new RuntimeException("in/" + arguments.size() + " is not defined");
-        }
-        return new In(arguments.get(0));
-      case "range":
-        return new Range(arguments);
-      default:
-        throw new RuntimeException("Unknown function: " + functionName);
-    }
+    return BuiltinRegistry.resolve(functionName, arguments);
   }
 
   @Override
   public Expression visitZeroArgFunction(JqGrammarParser.ZeroArgFunctionContext ctx) {
     String functionName = ctx.IDENTIFIER().getText();
-    return new ZeroArgFunction(functionName);
+    Expression user = call(functionName, Collections.emptyList());
+    return user != null ? user : BuiltinRegistry.resolve(functionName, Collections.emptyList());
   }
 
   @Override
   public Expression visitFormatFunction(JqGrammarParser.FormatFunctionContext ctx) {
     String formatName = ctx.IDENTIFIER().getText();
-    return new FormatFunction(formatName);
+    return BuiltinRegistry.resolveFormat(formatName);
   }
 
   @Override
@@ -564,6 +910,11 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
             (JqGrammarParser.ShorthandFieldContext) fieldCtx;
         key = shorthandCtx.IDENTIFIER().getText();
         value = new FieldAccess(key, new Identity());
+      } else if (fieldCtx instanceof JqGrammarParser.VariableFieldContext) {
+        JqGrammarParser.VariableFieldContext variableCtx =
+            (JqGrammarParser.VariableFieldContext) fieldCtx;
+        key = variableCtx.VARIABLE().getText().substring(1);
+        value = reference(key);
       } else {
         throw new RuntimeException(
             "Unknown object field type: " + fieldCtx.getClass().getName());
@@ -578,4 +929,68 @@ public class JqAstBuilder extends JqGrammarBaseVisitor<Expression> {
   public Expression visitParenExpr(JqGrammarParser.ParenExprContext ctx) {
     return visit(ctx.expression());
   }
+
+  /**
+   * A variable declaration with the frame nesting it was declared at.
+   */
+  private static final class Declaration {
+    final Variable variable;
+    final int level;
+
+    Declaration(Variable variable, int level) {
+      this.variable = variable;
+      this.level = level;
+    }
+  }
+
+  /**
+   * A function or filter parameter in scope.
+   */
+  private static final class FunctionBinding {
+    final String name;
+    final int arity;
+    // Frame nesting of a function's definition, or of the function owning a parameter
+    final int level;
+    // Definition index of a function, or position of a parameter
+    final int index;
+    final boolean parameter;
+    // The argument a parameter of an inlined function stands for
+    final Expression argument;
+    // A definition expanded at its call sites, and the scope sizes where it was defined
+    final JqGrammarParser.FuncDefContext inlined;
+    final int variableScope;
+    final int functionScope;
+
+    private FunctionBinding(String name, int arity, int level, int index, boolean parameter,
+                            Expression argument, JqGrammarParser.FuncDefContext inlined,
+                            int variableScope, int functionScope) {
+      this.name = name;
+      this.arity = arity;
+      this.level = level;
+      this.index = index;
+      this.parameter = parameter;
+      this.argument = argument;
+      this.inlined = inlined;
+      this.variableScope = variableScope;
+      this.functionScope = functionScope;
+    }
+
+    static FunctionBinding function(String name, int arity, int level, int index) {
+      return new FunctionBinding(name, arity, level, index, false, null, null, 0, 0);
+    }
+
+    static FunctionBinding parameter(String name, int level, int index) {
+      return new FunctionBinding(name, 0, level, index, true, null, null, 0, 0);
+    }
+
+    static FunctionBinding argument(String name, Expression argument, int level) {
+      return new FunctionBinding(name, 0, level, 0, true, argument, null, 0, 0);
+    }
+
+    static FunctionBinding inlined(String name, int arity, JqGrammarParser.FuncDefContext ctx,
+                                   int variableScope, int functionScope) {
+      return new FunctionBinding(name, arity, 0, 0, false, null, ctx, variableScope,
+          functionScope);
+    }
+  }
 }
@@ -15,6 +15,15 @@ public class JqParser {
    * @return the parsed expression
    */
   public static Expression parse(String program) {
+    JqAstBuilder builder = new JqAstBuilder();
+    return builder.program(parse(program, builder));
+  }
+
+  /**
+   * Parses a jq expression with the given builder, so that a nested program such as a string
+   * interpolation sees the variables in scope where it appears.
+   */
+  static Expression parse(String program, JqAstBuilder builder) {
     JqGrammarLexer lexer = new JqGrammarLexer(CharStreams.fromString(program));
     CommonTokenStream tokens = new CommonTokenStream(lexer);
     JqGrammarParser grammarParser = new JqGrammarParser(tokens);
@@ -30,7 +39,6 @@ public class JqParser {
       }
     });
     JqGrammarParser.ProgramContext tree = grammarParser.program();
-    JqAstBuilder builder = new JqAstBuilder();
     return builder.visit(tree);
   }
 }
\ No newline at end of file
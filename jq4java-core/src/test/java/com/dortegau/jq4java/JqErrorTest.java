@@ -1,10 +1,17 @@
 package com.dortegau.jq4java;
 
+import com.dortegau.jq4java.ast.Arithmetic;
+import com.dortegau.jq4java.ast.Comparison;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Literal;
+import com.dortegau.jq4java.json.JqNull;
+import com.dortegau.jq4java.json.JqValue;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -87,52 +94,72 @@ class JqErrorTest {
   }
 
   @Test
-  void testObjectKeyWithoutValue() {
+  void testUndefinedVariable() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("{\"key\":}", "{}"));
-    assertTrue(ex.getMessage().contains("Parse error"));
+        () -> Jq.execute("$x + 1", "null"));
+    assertTrue(ex.getMessage().contains("$x is not defined"));
+
+    ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute("(reduce .[] as $x (0; . + $x)) + $x", "[1]"));
+    assertTrue(ex.getMessage().contains("$x is not defined"));
   }
 
   @Test
-  void testObjectTrailingComma() {
+  void testBindingRequiresBody() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("{\"a\": 1,}", "{}"));
-    assertTrue(ex.getMessage().contains("Parse error"));
+        () -> Jq.execute(". as $x", "1"));
+    assertTrue(ex.getMessage().contains("'as' must be followed by '|'"));
+    assertThrows(RuntimeException.class, () -> Jq.execute("1 + . as $x | $x", "1"));
+    assertThrows(RuntimeException.class, () -> Jq.execute(". as [$a] | $a", "{}"));
   }
 
   @Test
-  void testAlternativeWithoutRight() {
+  void testFunctionResolvedByNameAndArity() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute(".foo //", "{}"));
-    assertTrue(ex.getMessage().contains("Parse error"));
+        () -> Jq.execute("def f(x): x; f", "null"));
+    assertTrue(ex.getMessage().contains("f/0 is not defined"));
+
+    ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute("(def f: 1; f) | f", "null"));
+    assertTrue(ex.getMessage().contains("f/0 is not defined"));
   }
 
   @Test
-  void testAlternativeWithoutLeft() {
+  void testErrorDeepInRecursionFailsCleanly() {
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> Jq.execute(
+        "def depth: if type == \"array\" then (.[0] | depth) + 1 else . + \"a\" end; "
+            + "reduce range(100000) as $i (1; [.]) | depth", "null"));
+    assertEquals("Cannot add values of these types", ex.getMessage());
+    // The evaluation that failed leaves nothing behind for the next one
+    assertEquals("3", Jq.execute("def f: if . < 3 then . + 1 | f else . end; f", "0"));
+  }
+
+  @Test
+  void testObjectKeyWithoutValue() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("// \"default\"", "{}"));
+        () -> Jq.execute("{\"key\":}", "{}"));
     assertTrue(ex.getMessage().contains("Parse error"));
   }
 
   @Test
-  void testCompareIncompatibleTypes() {
+  void testObjectTrailingComma() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("\"hello\" < 5", "null"));
-    assertTrue(ex.getMessage().contains("Cannot compare"));
+        () -> Jq.execute("{\"a\": 1,}", "{}"));
+    assertTrue(ex.getMessage().contains("Parse error"));
   }
 
   @Test
-  void testCompareArrays() {
+  void testAlternativeWithoutRight() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("[1,2] < [3,4]", "null"));
-    assertTrue(ex.getMessage().contains("Cannot compare"));
+        () -> Jq.execute(".foo //", "{}"));
+    assertTrue(ex.getMessage().contains("Parse error"));
   }
 
   @Test
-  void testCompareObjects() {
+  void testAlternativeWithoutLeft() {
     RuntimeException ex = assertThrows(RuntimeException.class,
-        () -> Jq.execute("{\"a\":1} < {\"b\":2}", "null"));
-    assertTrue(ex.getMessage().contains("Cannot compare"));
+        () -> Jq.execute("// \"default\"", "{}"));
+    assertTrue(ex.getMessage().contains("Parse error"));
   }
 
   @Test
@@ -153,8 +180,7 @@ class JqErrorTest {
   void testMultipleComparisonsWithoutParens() {
     RuntimeException ex = assertThrows(RuntimeException.class,
         () -> Jq.execute("1 < 2 < 3", "null"));
-    assertTrue(ex.getMessage().contains("Parse error") 
-        || ex.getMessage().contains("Cannot compare"));
+    assertTrue(ex.getMessage().contains("Parse error"));
   }
 
   @Test
@@ -206,6 +232,13 @@ class JqErrorTest {
     assertTrue(ex.getMessage().contains("divisor is zero") || ex.getMessage().contains("divide by zero"));
   }
 
+  @Test
+  void testIterationUpdateOnNumber() {
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute(".[] += 1", "5"));
+    assertTrue(ex.getMessage().contains("Cannot iterate over number"));
+  }
+
   @Test
   void testKeysOnNull() {
     RuntimeException ex = assertThrows(RuntimeException.class,
@@ -796,4 +829,104 @@ class JqErrorTest {
         () -> Jq.execute("1 += 2", "0"));
     assertTrue(ex.getMessage().contains("Left-hand side of update assignment is not updatable"));
   }
+
+  static Stream<Arguments> operatorNodeErrors() {
+    return Stream.of(
+        Arguments.of("+", "[]", "1", "Cannot add values of these types"),
+        Arguments.of("-", "{}", "1", "object ({}) and number (1) cannot be subtracted"),
+        Arguments.of("-", "\"a\"", "\"b\"", "string (\"a\") and string (\"b\") cannot be subtracted"),
+        Arguments.of("*", "{}", "2", "Cannot multiply values of these types"),
+        Arguments.of("/", "\"a\"", "1", "Cannot divide values of these types"),
+        Arguments.of("/", "1", "0", "number (1) and number (0) cannot be divided because the divisor is zero"),
+        Arguments.of("%", "\"a\"", "2", "Cannot modulo values of these types"),
+        Arguments.of("%", "5", "0", "number (5) and number (0) cannot be divided because the divisor is zero")
+    );
+  }
+
+  @ParameterizedTest
+  @MethodSource("operatorNodeErrors")
+  void testOperatorNodeErrors(String operator, String left, String right, String message) {
+    Expression node = Arithmetic.of(
+        new Literal(JqValue.parse(left)), operator, new Literal(JqValue.parse(right)));
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> node.first(JqNull.NULL));
+    assertEquals(message, ex.getMessage());
+  }
+
+  @Test
+  void testUnknownOperators() {
+    Expression one = new Literal("1");
+    RuntimeException arithmetic = assertThrows(RuntimeException.class,
+        () -> Arithmetic.of(one, "^", one));
+    assertEquals("Unknown arithmetic operator: ^", arithmetic.getMessage());
+    RuntimeException comparison = assertThrows(RuntimeException.class,
+        () -> Comparison.of(one, "<>", one));
+    assertEquals("Unknown operator: <>", comparison.getMessage());
+  }
+
+  @Test
+  void testBytecodeCompiledProgramReportsInterpreterErrors() {
+    Expression compiled = Jq.compile("{total: (.a + .b)}", CompileOption.BYTECODE);
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute(compiled, "{\"a\":1,\"b\":\"x\"}"));
+    assertTrue(ex.getMessage().contains("Cannot add values of these types"));
+  }
+
+  @Test
+  void testConstantFoldingKeepsRuntimeErrors() {
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute("if false then 1 else 1 / 0 end", "null"));
+    assertTrue(ex.getMessage().contains("cannot be divided because the divisor is zero"));
+  }
+
+  @Test
+  void testDeforestedLengthKeepsIterationErrors() {
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute("[.[] | .a] | length", "[1]"));
+    assertTrue(ex.getMessage().contains("Cannot index number with string \"a\""));
+  }
+
+  @Test
+  void testUnknownFunctionWithArguments() {
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute("foo(1)", "null"));
+    assertTrue(ex.getMessage().contains("foo/1 is not defined"));
+  }
+
+  static Stream<Arguments> invalidJsonInputs() {
+    return Stream.of(
+        Arguments.of("", "Expected JSON value"),
+        Arguments.of("[1,2", "Unfinished JSON term at EOF"),
+        Arguments.of("{\"a\" 1}", "Expected ':' after object key"),
+        Arguments.of("{a:1}", "Object keys must be strings"),
+        Arguments.of("[1 2]", "Expected ',' or ']' in array"),
+        Arguments.of("\"abc", "Unfinished string at EOF"),
+        Arguments.of("\"a\tb\"", "control characters"),
+        Arguments.of("\"\\x\"", "Invalid escape"),
+        Arguments.of("0 1", "Unexpected trailing characters"),
+        Arguments.of("-", "Invalid numeric literal"),
+        Arguments.of(".", "Invalid numeric literal"),
+        Arguments.of("-.e1", "Invalid numeric literal"),
+        Arguments.of("1e", "Invalid numeric literal"),
+        Arguments.of("tru", "Invalid literal"),
+        Arguments.of("{}\n  x", "at line 2, column 2")
+    );
+  }
+
+  @ParameterizedTest
+  @MethodSource("invalidJsonInputs")
+  void testInvalidJsonInput(String input, String expectedMessage) {
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> Jq.execute(".", input));
+    assertTrue(ex.getMessage().contains(expectedMessage), ex.getMessage());
+  }
+
+  @Test
+  void testJsonInputDepthLimit() {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < 10001; i++) {
+      json.append('[');
+    }
+    RuntimeException ex = assertThrows(RuntimeException.class,
+        () -> Jq.execute(".", json.toString()));
+    assertTrue(ex.getMessage().contains("Exceeds depth limit for parsing"));
+  }
 }
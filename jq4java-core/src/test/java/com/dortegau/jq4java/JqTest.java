@@ -3,9 +3,37 @@ package com.dortegau.jq4java;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.dortegau.jq4java.ast.Arithmetic;
+import com.dortegau.jq4java.ast.Comparison;
+import com.dortegau.jq4java.ast.Expression;
+import com.dortegau.jq4java.ast.Identity;
+import com.dortegau.jq4java.ast.Literal;
+import com.dortegau.jq4java.ast.Repeat;
+import com.dortegau.jq4java.json.JqType;
+import com.dortegau.jq4java.json.JqValue;
+import com.dortegau.jq4java.json.JsonWriter;
+import com.dortegau.jq4java.optimizer.OptimizationPass;
+import com.dortegau.jq4java.optimizer.Optimizer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -295,7 +323,12 @@ class JqTest {
         "'.foo *= 3' ; '{\"foo\": 4}' ; '{\"foo\":12}'",
         "'.foo /= 2' ; '{\"foo\": 6}' ; '{\"foo\":3}'",
         "'.foo %= 5' ; '{\"foo\": 12}' ; '{\"foo\":2}'",
-        "'.[1] += 5' ; '[0,1,2]' ; '[0,6,2]'"
+        "'.[1] += 5' ; '[0,1,2]' ; '[0,6,2]'",
+        "'.[] += 1' ; '[0,1,2]' ; '[1,2,3]'",
+        "'.[] *= 2' ; '{\"a\": 1}' ; '{\"a\":2}'",
+        "'.items[].price *= 2' ; '{\"items\": [{\"price\": 1}, {\"price\": 2.5}]}' ; '{\"items\":[{\"price\":2},{\"price\":5}]}'",
+        "'.[][] //= 0' ; '[[null,1],[2,null]]' ; '[[0,1],[2,0]]'",
+        "'.[] += 1' ; 'null' ; 'null'"
     }, delimiter = ';')
     void testArithmeticUpdateAssignments(String program, String input, String expected) {
         assertEquals(expected, Jq.execute(program, input));
@@ -305,7 +338,207 @@ class JqTest {
     void testUpdateAssignmentUsesOriginalInputForRightHandSide() {
         String program = ".foo += .bar";
         String input = "{\"foo\":1,\"bar\":2}";
-        assertEquals("{\"bar\":2,\"foo\":3}", Jq.execute(program, input));
+        assertEquals("{\"foo\":3,\"bar\":2}", Jq.execute(program, input));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'1.0'; '1'",
+        "'-1.0'; '-1'",
+        "'[1.0,2.50]'; '[1,2.5]'",
+        "'1e3'; '1000'",
+        "'1E2'; '100'",
+        "'2.5e-3'; '0.0025'",
+        "'1e-7'; '1e-07'",
+        "'1.5e300'; '1.5e+300'",
+        "'1e17'; '1e+17'",
+        "'-0'; '-0'",
+        "'-0.0'; '-0'",
+        "'123456789012'; '123456789012'",
+        "'10000000000000000'; '10000000000000000'",
+        "'100000000000000000000'; '1e+20'",
+        "'9007199254740993'; '9007199254740992'",
+        "'123456789.125'; '123456789.125'",
+        "'-1379281780459260400'; '-1.3792817804592604e+18'",
+        "'282879384806159000'; '2.82879384806159e+17'",
+        "'5e-324'; '5e-324'",
+        "'0.1'; '0.1'",
+        "'0.30000000000000004'; '0.30000000000000004'"
+    }, delimiter = ';')
+    void testNumberFormatting(String input, String expected) {
+        assertEquals(expected, Jq.execute(".", input));
+    }
+
+    @Test
+    void testObjectsKeepInsertionOrder() {
+        String input = "{\"b\":1,\"a\":{\"d\":1,\"c\":2}}";
+        assertEquals(input, Jq.execute(".", input));
+        assertEquals("[\"a\",\"b\"]", Jq.execute("keys", input));
+        assertEquals("{\"z\":1,\"y\":2,\"x\":3}", Jq.execute("{z: 1, y: 2, x: 3}", "null"));
+    }
+
+    @Test
+    void testValuesAreStructurallyEqual() {
+        JqValue object = JqValue.parse("{\"a\":[1,{\"b\":null}],\"c\":\"s\"}");
+        JqValue reordered = JqValue.parse("{\"c\":\"s\",\"a\":[1.0,{\"b\":null}]}");
+        assertEquals(object, reordered);
+        assertEquals(object.hashCode(), reordered.hashCode());
+        assertEquals(JqValue.parse("-0"), JqValue.parse("0"));
+        assertEquals(JqValue.parse("-0").hashCode(), JqValue.parse("0").hashCode());
+        assertNotEquals(JqValue.parse("[1,2]"), JqValue.parse("[2,1]"));
+        assertNotEquals(JqValue.parse("1"), JqValue.parse("\"1\""));
+        assertNotEquals(JqValue.parse("{\"a\":1}"), JqValue.parse("{\"a\":1,\"b\":2}"));
+        assertEquals("true", Jq.execute(".[0] == .[1]", "[{\"a\":1,\"b\":2},{\"b\":2,\"a\":1}]"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'[.[]]'; '{\"b\":1,\"a\":[2]}'; '[1,[2]]'",
+        "'[.[] | length]'; '{\"x\":\"abc\",\"y\":[1,2]}'; '[3,2]'",
+        "'[.[]]'; '{}'; '[]'",
+        "'.[] += 1'; '{\"b\":1,\"a\":2}'; '{\"b\":2,\"a\":3}'",
+        "'.[] *= 2'; '{\"a\":1,\"b\":2}'; '{\"a\":2,\"b\":4}'",
+        "'.a[] += 1'; '{\"a\":{\"x\":1,\"y\":2}}'; '{\"a\":{\"x\":2,\"y\":3}}'",
+        "'[.[][]]'; '{\"a\":[1,2],\"b\":[3]}'; '[1,2,3]'"
+    }, delimiter = ';')
+    void testObjectIteration(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'7'; '+'; '2'; 'AddNode'; '9'",
+        "'\"a\"'; '+'; '\"b\"'; 'AddNode'; '\"ab\"'",
+        "'[1]'; '+'; '[2]'; 'AddNode'; '[1,2]'",
+        "'null'; '+'; '1'; 'AddNode'; '1'",
+        "'7'; '-'; '2'; 'SubtractNode'; '5'",
+        "'7'; '*'; '2'; 'MultiplyNode'; '14'",
+        "'7'; '/'; '2'; 'DivideNode'; '3.5'",
+        "'7'; '%'; '2'; 'ModuloNode'; '1'",
+        "'-7'; '%'; '2'; 'ModuloNode'; '-1'",
+        "'1'; '=='; '1.0'; 'EqNode'; 'true'",
+        "'{\"a\":1,\"b\":2}'; '=='; '{\"b\":2,\"a\":1}'; 'EqNode'; 'true'",
+        "'1'; '!='; '\"1\"'; 'NeNode'; 'true'",
+        "'[1]'; '<'; '[1,0]'; 'LtNode'; 'true'",
+        "'null'; '<'; 'false'; 'LtNode'; 'true'",
+        "'\"a\"'; '<='; '\"a\"'; 'LeNode'; 'true'",
+        "'{}'; '>'; '[]'; 'GtNode'; 'true'",
+        "'1'; '>='; '2'; 'GeNode'; 'false'"
+    }, delimiter = ';')
+    void testOperatorNodes(String left, String operator, String right, String nodeClass,
+                           String expected) {
+        Expression leftValue = new Literal(JqValue.parse(left));
+        Expression rightValue = new Literal(JqValue.parse(right));
+        boolean arithmetic = "+-*/%".contains(operator);
+        Expression node = arithmetic
+            ? Arithmetic.of(leftValue, operator, rightValue)
+            : Comparison.of(leftValue, operator, rightValue);
+        assertEquals(nodeClass, node.getClass().getSimpleName());
+        assertEquals(operator, arithmetic
+            ? ((Arithmetic) node).getOperator() : ((Comparison) node).getOperator());
+        assertEquals(expected, node.first(JqValue.parse("null")).toJson());
+        assertEquals(expected, Jq.execute(left + " " + operator + " " + right, "null"));
+    }
+
+    @Test
+    void testLiteralsFromValues() {
+        JqValue value = JqValue.parse("{\"a\":[1,2.5,\"x\"]}");
+        Literal literal = new Literal(value);
+        assertSame(value, literal.getValue());
+        assertSame(value, literal.first(JqValue.parse("null")));
+        assertEquals("{\"a\":[1,2.5,\"x\"]}", literal.getText());
+        assertEquals("1.5", new Literal("1.50").getValue().toJson());
+        assertEquals("\"a\\nb\"", new Literal("\"a\\nb\"").getValue().toJson());
+        Expression sum = Arithmetic.of(new Literal(JqValue.parse("2")), "+", new Identity());
+        assertEquals("3", sum.first(JqValue.parse("1")).toJson());
+    }
+
+    @Test
+    void testStreamAdapterYieldsResultsInOrder() {
+        Expression expression = Jq.compile(".[] | {name: .name}");
+        JqValue input = JqValue.parse("[{\"name\":\"a\"},{\"name\":\"b\"}]");
+        assertEquals(Arrays.asList("{\"name\":\"a\"}", "{\"name\":\"b\"}"),
+            Jq.stream(expression, input).map(JqValue::toJson).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testStreamAdapterIsLazy() {
+        JqValue zero = JqValue.parse("0");
+        assertEquals("0", Jq.stream(Jq.compile("range(1000000000000)"), zero)
+            .findFirst().get().toJson());
+        assertEquals(Arrays.asList("0", "1", "2"),
+            Jq.stream(Jq.compile("range(1000000000000)"), zero)
+                .limit(3).map(JqValue::toJson).collect(Collectors.toList()));
+        assertEquals(1000L, Jq.stream(Jq.compile("range(1000)"), zero).count());
+        assertEquals(Jq.compile("[range(100)]").first(zero),
+            JqValue.array(Jq.stream(Jq.compile("range(100)"), zero).collect(Collectors.toList())));
+    }
+
+    @Test
+    void testStreamAdapterFailsAfterEarlierResults() {
+        Iterator<JqValue> results =
+            Jq.stream(Jq.compile(".[] | 10 / ."), JqValue.parse("[1,2,0]")).iterator();
+        assertEquals("10", results.next().toJson());
+        assertEquals("5", results.next().toJson());
+        RuntimeException error = assertThrows(RuntimeException.class, results::next);
+        assertTrue(error.getMessage().contains("divisor is zero"));
+    }
+
+    @Test
+    void testStreamAdapterBoundsReevaluation() {
+        JqValue zero = JqValue.parse("0");
+        long[] evaluations = {0};
+        long[] outputs = {0};
+        Expression infinite = counting(Jq.compile("range(1000000000000)"), evaluations, outputs);
+        assertEquals(1000L, Jq.stream(infinite, zero).limit(1000).count());
+        assertEquals(10, evaluations[0]);
+        assertTrue(outputs[0] < 4 * 1000, "outputs: " + outputs[0]);
+
+        evaluations[0] = 0;
+        Expression finite = counting(Jq.compile("range(1000)"), evaluations, outputs);
+        assertEquals(1000, Jq.stream(finite, zero).collect(Collectors.toList()).size());
+        assertEquals(1, evaluations[0]);
+
+        evaluations[0] = 0;
+        Iterator<JqValue> results = Jq.stream(finite, zero).iterator();
+        assertEquals("0", results.next().toJson());
+        assertEquals("1", results.next().toJson());
+        assertEquals("2", results.next().toJson());
+        List<JqValue> rest = new ArrayList<>();
+        results.forEachRemaining(rest::add);
+        assertEquals(997, rest.size());
+        assertEquals("3", rest.get(0).toJson());
+        assertEquals(3, evaluations[0]);
+    }
+
+    private static Expression counting(Expression expression, long[] evaluations,
+            long[] outputs) {
+        return (input, env, out) -> {
+            evaluations[0]++;
+            return expression.evaluate(input, env, value -> {
+                outputs[0]++;
+                return out.accept(value);
+            });
+        };
+    }
+
+    @Test
+    void testUpdateAssignmentOnLargeContainers() {
+        StringBuilder array = new StringBuilder("[");
+        StringBuilder object = new StringBuilder("{");
+        for (int i = 0; i < 2000; i++) {
+            String separator = i > 0 ? "," : "";
+            array.append(separator).append(i);
+            object.append(separator).append("\"k").append(i).append("\":").append(i);
+        }
+        array.append(']');
+        object.append('}');
+
+        assertEquals("1501\n1499\n1999\n2000",
+            Jq.execute(".[1500] += 1 | .[1500], .[1499], .[-1], length", array.toString()));
+        assertEquals("1501\n1499\n2000\n0\n1501",
+            Jq.execute(".k1500 += 1 | .k1500, .k1499, length, .k0, (.k1500 += 0 | .k1500)",
+                object.toString()));
     }
 
     @ParameterizedTest
@@ -585,7 +818,8 @@ class JqTest {
     @ParameterizedTest
     @CsvSource({
         "builtins, null, array",
-        "'builtins | length > 0', null, true"
+        "'builtins | length > 0', null, true",
+        "'builtins | .[0:3]', null, '[\"length/0\",\"utf8bytelength/0\",\"keys/0\"]'"
     })
     void testBuiltins(String program, String input, String expected) {
         String result = Jq.execute(program, input);
@@ -607,7 +841,10 @@ class JqTest {
         "'null | length', null, 0",
         "'5 | length', null, 5",
         "'0 | length', null, 0",
-        "'-3 | length', null, 3"
+        "'-3 | length', null, 3",
+        "'-1.5 | length', null, 1.5",
+        "'3000000000 | length', null, 3000000000",
+        "'\"\u00e9\ud83d\ude00\" | length', null, 2"
     })
     void testLength(String program, String input, String expected) {
         assertEquals(expected, Jq.execute(program, input));
@@ -736,7 +973,10 @@ class JqTest {
         "'[10 == 10, 10 != 10, 10 != 11, 10 == 11]' ; '{}' ; '[true,false,true,false]'",
         "'[\"hello\" == \"hello\", \"hello\" != \"hello\", \"hello\" == \"world\", \"hello\" != \"world\"]' ; '{}' ; '[true,false,false,true]'",
         "'[[1,2,3] == [1,2,3], [1,2,3] != [1,2,3], [1,2,3] == [4,5,6], [1,2,3] != [4,5,6]]' ; '{}' ; '[true,false,false,true]'",
-        "'[{\"foo\":42} == {\"foo\":42}, {\"foo\":42} != {\"foo\":42}, {\"foo\":42} != {\"bar\":42}, {\"foo\":42} == {\"bar\":42}]' ; '{}' ; '[true,false,true,false]'"
+        "'[{\"foo\":42} == {\"foo\":42}, {\"foo\":42} != {\"foo\":42}, {\"foo\":42} != {\"bar\":42}, {\"foo\":42} == {\"bar\":42}]' ; '{}' ; '[true,false,true,false]'",
+        "'[null < false, false < true, true < 0, 0 < \"\", \"\" < [], [] < {}, {} < null]' ; '{}' ; '[true,true,true,true,true,true,false]'",
+        "'[\"hello\" < 5, [1,2] < [3,4], [1,2] < [1,2,0], [2] < [1,9], [[1]] < [[0,5]]]' ; '{}' ; '[false,true,true,false,false]'",
+        "'[{\"a\":1} < {\"b\":2}, {\"b\":1} < {\"a\":1,\"b\":1}, {\"a\":2} < {\"a\":1}, {\"a\":[1]} >= {\"a\":[1]}]' ; '{}' ; '[true,false,false,true]'"
     }, delimiter = ';')
     void testComparisonOperators(String program, String input, String expected) {
         assertEquals(expected, Jq.execute(program, input));
@@ -1113,4 +1353,727 @@ class JqTest {
     void testInFunction(String program, String input, String expected) {
         assertEquals(expected, Jq.execute(program, input));
     }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'.a.b' ; '{\"a\":{\"b\":5}}'",
+        "'.[1]' ; '[1,2,3]'",
+        "'.a + 1 | . * 2' ; '{\"a\":3}'",
+        "'.a - .b, .a / .b, .a % .b' ; '{\"a\":7,\"b\":2}'",
+        "'.price > 10 and .stock == 0' ; '{\"price\":12,\"stock\":0}'",
+        "'.a == 1, .a != 1, .a < 2, .a <= 0, .a >= 1' ; '{\"a\":1}'",
+        "'{name: .user.name, age: (.user.age + 1), tag: \"x\"}' ; '{\"user\":{\"name\":\"bob\",\"age\":41}}'",
+        "'[.a, .b, (.a | not), -.a]' ; '{\"a\":1,\"b\":null}'",
+        "'.[] | {id: .id, big: (.v > 2)}' ; '[{\"id\":1,\"v\":1},{\"id\":2,\"v\":3}]'",
+        "'map(select(.v > 1) | .id)' ; '[{\"id\":1,\"v\":1},{\"id\":2,\"v\":3}]'",
+        "'[.[] | .a * 2]' ; '[{\"a\":1},{\"a\":2}]'",
+        "'.items[].price *= 2' ; '{\"items\":[{\"price\":1},{\"price\":2}]}'",
+        "'{a: (.x, .y)}' ; '{\"x\":1,\"y\":2}'",
+        "'.a // \"none\" | length' ; '{\"a\":null}'",
+        "'. as $top | def r: if . > 0 then (. - 1 | r) else $top.a + 1 end; 3 | r' ; '{\"a\":1}'",
+        "'walk(if type == \"number\" then . * 2 else . end), [paths(. == 2)]' ; '{\"a\":[1,2]}'"
+    }, delimiter = ';')
+    void testBytecodeCompilationMatchesInterpreter(String program, String input) {
+        Expression interpreted = Jq.compile(program);
+        Expression compiled = Jq.compile(program, CompileOption.BYTECODE);
+        assertEquals(Jq.execute(interpreted, input), Jq.execute(compiled, input));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'60 * 60 * 24' ; 'null' ; '86400'",
+        "'\"a\" + \"b\", 1 < 2, -(3), true and false' ; 'null' ; '\"ab\"\ntrue\n-3\nfalse'",
+        "'.a.b.c' ; '{\"a\":{\"b\":{\"c\":7}}}' ; '7'",
+        "'.a.b.c' ; '{\"a\":null}' ; 'null'",
+        "'.[] | .x.y' ; '[{\"x\":{\"y\":1}},{\"x\":{\"y\":2}}]' ; '1\n2'",
+        "'1, \"two\", null, [3]' ; 'null' ; '1\n\"two\"\nnull\n[3]'",
+        "'[1, 2, 3]' ; 'null' ; '[1,2,3]'",
+        "'[.[] | select(. > 1)] | length' ; '[1,2,3]' ; '2'",
+        "'.items | [.[] | .tags[]] | length' ; '{\"items\":[{\"tags\":[1,2]},{\"tags\":[3]}]}' ; '3'",
+        "'if true then .a else .b end' ; '{\"a\":1,\"b\":2}' ; '1'",
+        "'if 1 > 2 then .a end' ; '{\"a\":1}' ; '{\"a\":1}'",
+        "'if .x then 1 elif false then 2 elif null then 3 else 4 end' ; '{\"x\":false}' ; '4'",
+        "'if .x then 1 elif true then 2 else 3 end' ; '{\"x\":false}' ; '2'",
+        "'if false then 1 elif .x then 2 else 3 end' ; '{\"x\":true}' ; '2'",
+        "'.a += 1 + 2' ; '{\"a\":1}' ; '{\"a\":4}'"
+    }, delimiter = ';')
+    void testOptimizerPassesPreserveResults(String program, String input, String expected) {
+        Optimizer standard = Optimizer.standard();
+        assertEquals(expected, Jq.execute(Jq.compile(program, standard), input));
+        assertEquals(expected, Jq.execute(Jq.compile(program, Optimizer.none()), input));
+        for (OptimizationPass pass : standard.passes()) {
+            Expression withoutPass = Jq.compile(program, standard.without(pass.name()));
+            assertEquals(expected, Jq.execute(withoutPass, input), pass.name());
+            Expression onlyPass = Jq.compile(program, Optimizer.none().with(pass));
+            assertEquals(expected, Jq.execute(onlyPass, input), pass.name());
+        }
+        Expression compiled = Jq.compile(program, standard, CompileOption.BYTECODE);
+        assertEquals(expected, Jq.execute(compiled, input));
+    }
+
+    @Test
+    void testProgramCacheEvictsLeastRecentlyUsedPrograms() {
+        ProgramCache cache = ProgramCache.builder().maximumSize(2).build();
+        Expression first = cache.get(".a");
+        cache.get(".b");
+        assertTrue(first == cache.get(".a"));
+        cache.get(".c");
+
+        assertEquals(2, cache.size());
+        assertTrue(first == cache.get(".a"));
+        cache.get(".b");
+
+        ProgramCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(4, stats.missCount());
+        assertEquals(4, stats.compileCount());
+        assertEquals(2, stats.evictionCount());
+        assertEquals(1.0 / 3, stats.hitRate(), 1e-9);
+        assertEquals("1", Jq.execute(cache.get(".a"), "{\"a\":1}"));
+    }
+
+    @Test
+    void testProgramCacheExpiresProgramsAfterTtl() {
+        long[] now = {0};
+        ProgramCache cache = ProgramCache.builder()
+            .expireAfterWrite(10, TimeUnit.SECONDS)
+            .ticker(() -> now[0])
+            .build();
+        Expression compiled = cache.get(".a");
+        now[0] = TimeUnit.SECONDS.toNanos(9);
+        assertTrue(compiled == cache.get(".a"));
+        now[0] = TimeUnit.SECONDS.toNanos(10);
+        assertTrue(compiled != cache.get(".a"));
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void testProgramCacheCompilesConcurrentMissesOnce() throws Exception {
+        int threads = 8;
+        ProgramCache[] cache = new ProgramCache[1];
+        cache[0] = ProgramCache.builder()
+            .compiler(program -> {
+                // Hold the compile until every other caller is waiting on it, or give up
+                long waiting = (program.equals("bad") ? 2 : 1) * (threads - 1);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (cache[0].stats().hitCount() < waiting && System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+                if (program.equals("bad")) {
+                    throw new IllegalStateException("compile failed");
+                }
+                return Jq.compile(program);
+            })
+            .build();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (String program : new String[] {".a", "bad"}) {
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<Expression>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        try {
+                            return cache[0].get(program);
+                        } catch (IllegalStateException e) {
+                            return null;
+                        }
+                    }));
+                }
+                Expression first = results.get(0).get(60, TimeUnit.SECONDS);
+                for (Future<Expression> result : results) {
+                    assertTrue(first == result.get(60, TimeUnit.SECONDS));
+                }
+                assertEquals(program.equals("bad"), first == null);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        ProgramCache.Stats stats = cache[0].stats();
+        assertEquals(2, stats.compileCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(1, cache[0].size());
+    }
+
+    @Test
+    void testStaticExecuteReusesCachedPrograms() {
+        ProgramCache previous = Jq.programCache();
+        ProgramCache cache = ProgramCache.builder()
+            .compiler(program -> Jq.compile(program, CompileOption.BYTECODE))
+            .build();
+        Jq.setProgramCache(cache);
+        try {
+            assertEquals("2", Jq.execute(".a + 1", "{\"a\":1}"));
+            assertEquals("3", Jq.execute(".a + 1", "{\"a\":2}"));
+            assertEquals(1, cache.stats().hitCount());
+            assertEquals(1, cache.stats().compileCount());
+        } finally {
+            Jq.setProgramCache(previous);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'{\"b\":1,\"a\":2,\"b\":3}' ; '{\"b\":3,\"a\":2}'",
+        "'{\"k1\":1,\"k2\":2,\"k3\":3,\"k4\":4,\"k5\":5,\"k6\":6,\"k7\":7,\"k8\":8,\"k9\":9,\"k1\":10,\"k9\":11}' ; '{\"k1\":10,\"k2\":2,\"k3\":3,\"k4\":4,\"k5\":5,\"k6\":6,\"k7\":7,\"k8\":8,\"k9\":11}'",
+        "'[0, -0, 1.5, -2.25e3, 1E2, 0.001, 123456789012345678901, 1e400]' ; '[0,-0,1.5,-2250,100,0.001,1.2345678901234568e+20,1.7976931348623157e+308]'",
+        "'0.1' ; '0.1'",
+        "'[01, -007.25e1, 1., .5, -.5, 1.e2]' ; '[1,-72.5,1,0.5,-0.5,100]'",
+        "'\"\\ud800 \\udc00 \\ud800\\n \\ud800\\u0041 \\ud800\\ud83d\\ude00\"' ; '\"\ufffd \ufffd \ufffd\\n \ufffdA \ufffd\ud83d\ude00\"'",
+        "'\"caf\u00e9 \\u00e9 \\ud83d\\ude00 \\n\\t\\\"\\\\\\/\"' ; '\"caf\u00e9 \u00e9 \ud83d\ude00 \\n\\t\\\"\\\\/\"'",
+        "'  [ 1 , { \"a\" : [ ] , \"b\" : { } } ]  ' ; '[1,{\"a\":[],\"b\":{}}]'"
+    }, delimiter = ';')
+    void testJsonInputParsing(String input, String expected) {
+        assertEquals(expected, Jq.execute(".", input));
+    }
+
+    @Test
+    void testJsonInputParsingFromStream() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i)
+                .append(",\"name\":\"n\u00e9").append(i).append("\"}");
+        }
+        json.append("]");
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        JqValue parsed = JqValue.parse(new ByteArrayInputStream(bytes));
+        assertEquals("20000", Jq.execute(Jq.compile("length"), parsed));
+        assertEquals("\"n\u00e919999\"", Jq.execute(Jq.compile(".[-1].name"), parsed));
+        assertEquals(parsed, JqValue.parse(ByteBuffer.wrap(bytes)));
+        assertEquals(parsed, JqValue.parse(ByteBuffer.allocateDirect(bytes.length).put(bytes)
+            .flip()));
+    }
+
+    @Test
+    void testStreamingOutput() throws Exception {
+        StringWriter out = new StringWriter();
+        JqValue input = JqValue.parse("[1,-0,1.5,1e100,\"a\\\"\\n\\u0001\",[],{}]");
+        Jq.execute(Jq.compile(".[]"), input, out);
+        assertEquals("1\n-0\n1.5\n1e+100\n\"a\\\"\\n\\u0001\"\n[]\n{}\n", out.toString());
+
+        StringWriter none = new StringWriter();
+        Jq.execute(Jq.compile(".[]"), JqValue.parse("[]"), none);
+        assertEquals("", none.toString());
+
+        StringBuilder json = new StringBuilder("{\"text\":\"");
+        for (int i = 0; i < 5000; i++) {
+            json.append("caf\u00e9 \\t");
+        }
+        json.append("\",\"nested\":");
+        for (int i = 0; i < 9000; i++) {
+            json.append('[');
+        }
+        json.append("{\"k\":123456789012}");
+        for (int i = 0; i < 9000; i++) {
+            json.append(']');
+        }
+        json.append('}');
+        JqValue value = JqValue.parse(json.toString());
+        assertEquals(json.toString(), value.toJson());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(bytes)) {
+            writer.write(value).newLine();
+        }
+        assertEquals(json + "\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStructuralEqualityAndHashing() {
+        JqValue a = JqValue.parse("{\"a\":[1,{\"b\":null}],\"c\":\"x\",\"d\":{}}");
+        JqValue b = JqValue.parse("{\"d\":{},\"c\":\"x\",\"a\":[1.0,{\"b\":null}]}");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(a.hashCode(), a.hashCode());
+        assertTrue(a.equals(b) && b.equals(a));
+
+        String[] different = {
+            "{\"a\":[1,{\"b\":false}],\"c\":\"x\",\"d\":{}}",
+            "{\"a\":[1,{\"b\":null}],\"c\":\"x\",\"e\":{}}",
+            "{\"a\":[1,{\"b\":null}],\"c\":\"x\"}",
+            "{\"a\":[{\"b\":null},1],\"c\":\"x\",\"d\":{}}",
+            "{\"a\":[1,{\"b\":null}],\"c\":\"x\",\"d\":[]}",
+            "[[1,{\"b\":null}],\"x\",{}]"
+        };
+        for (String json : different) {
+            JqValue other = JqValue.parse(json);
+            assertTrue(!a.equals(other) && !other.equals(a), json);
+            // Cached hashes on both sides must not change the answer.
+            other.hashCode();
+            assertTrue(!a.equals(other) && !other.equals(a), json);
+        }
+
+        assertEquals("true", Jq.execute(".[0] == .[1]", "[{\"b\":2,\"a\":1},{\"a\":1,\"b\":2}]"));
+        assertEquals("true", Jq.execute(".[0] == .[1]", "[{\"x\":[1,2,3]},{\"x\":[1,2,3]}]"));
+        assertEquals("true", Jq.execute(".[0] != .[1]", "[{\"x\":[1,2,3]},{\"x\":[1,2,4]}]"));
+
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 4500; i++) {
+            deep.append("{\"k\":[");
+        }
+        deep.append("0");
+        for (int i = 0; i < 4500; i++) {
+            deep.append("]}");
+        }
+        JqValue left = JqValue.parse(deep.toString());
+        JqValue right = JqValue.parse(deep.toString());
+        JqValue changed = JqValue.parse(deep.toString().replace("[0]", "[1]"));
+        assertEquals(left, right);
+        assertEquals(left.hashCode(), right.hashCode());
+        assertTrue(!left.equals(changed));
+    }
+
+    @Test
+    void testTypeTagsAndTruthiness() {
+        String[] values = {"null", "false", "true", "0", "\"\"", "[]", "{}"};
+        JqType[] types = {JqType.NULL, JqType.BOOLEAN, JqType.BOOLEAN, JqType.NUMBER,
+            JqType.STRING, JqType.ARRAY, JqType.OBJECT};
+        for (int i = 0; i < values.length; i++) {
+            JqValue value = JqValue.parse(values[i]);
+            assertEquals(types[i], value.jqType());
+            assertEquals(types[i].typeName(), value.typeName());
+            assertEquals("\"" + types[i].typeName() + "\"", Jq.execute("type", values[i]));
+            assertEquals(i > 1, value.isTruthy(), values[i]);
+            assertEquals(i > 1 ? "1" : "2", Jq.execute("if . then 1 else 2 end", values[i]));
+            assertEquals(i > 1 ? values[i] : "2", Jq.execute(". // 2", values[i]));
+        }
+
+        assertEquals("[{\"key\":\"a\\\"b\",\"value\":1}]", Jq.execute("to_entries", "{\"a\\\"b\":1}"));
+        assertEquals("{\"a\\\"b\":1}", Jq.execute("from_entries", "[{\"key\":\"a\\\"b\",\"value\":1}]"));
+        assertEquals("{\"a\\\"b\":2}", Jq.execute("map_values(. + 1)", "{\"a\\\"b\":1}"));
+    }
+
+    @Test
+    void testSortUsesJqOrdering() {
+        assertEquals("[null,false,true,-1,0,2.5,\"\",\"B\",\"a\",[],[0],[1,2],{},{\"a\":1},{\"a\":2},{\"b\":0}]",
+            Jq.execute("sort", "[{\"b\":0},[1,2],\"a\",2.5,true,{\"a\":2},null,[],\"B\",-1,{},"
+                + "false,[0],0,\"\",{\"a\":1}]"));
+        assertEquals("[-3,0,0.5,1,1,100000]", Jq.execute("sort", "[1,100000,0.5,-3,1,0]"));
+        assertEquals("[-0,0,-0]", Jq.execute("sort", "[-0,0,-0]"));
+        // Code point order: U+FF5E sorts before U+1F600, unlike UTF-16 order
+        assertEquals("[\"a\",\"\uff5e\",\"\ud83d\ude00\"]",
+            JqValue.parse("[\"\ud83d\ude00\",\"\uff5e\",\"a\"]").sort().toJson());
+        assertEquals("[\"a\",\"\uff5e\",\"\ud83d\ude00\"]",
+            Jq.execute("keys", "{\"\ud83d\ude00\":1,\"\uff5e\":2,\"a\":3}"));
+        assertEquals("[1,[1],{\"a\":1}]", Jq.execute("unique", "[{\"a\":1},[1],1,{\"a\":1},[1],1]"));
+
+        List<JqValue> numbers = new ArrayList<>();
+        numbers.add(JqValue.fromDouble(2));
+        numbers.add(JqValue.fromDouble(Double.NaN));
+        numbers.add(JqValue.fromDouble(-1));
+        JqValue sorted = JqValue.array(numbers).sort();
+        assertTrue(Double.isNaN(sorted.get(0).asNumber()));
+        assertEquals(-1, sorted.get(1).asNumber());
+        assertEquals(2, sorted.get(2).asNumber());
+
+        StringBuilder big = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++) {
+            big.append(i > 0 ? "," : "").append((i * 7919) % 100000);
+        }
+        JqValue bigSorted = JqValue.parse(big.append(']').toString()).sort();
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, bigSorted.get(i).asNumber());
+        }
+    }
+
+    @Test
+    void testGeneratorsAreLazyAndCombineLikeJq() {
+        JqValue input = JqValue.nullValue();
+        assertEquals("0", Jq.compile("range(1000000000000)").first(input).toJson());
+        assertEquals("5", Jq.compile("range(5; 1000000000000) | . * 1").first(input).toJson());
+        assertEquals("7", Jq.compile("(null, false, range(7; 1000000000000)) // 1").first(input).toJson());
+        assertEquals("true", Jq.compile("range(1000000000000) < 1").first(input).toJson());
+        assertEquals("\"x\"", Jq.compile("if range(1000000000000) then \"x\" else \"y\" end")
+            .first(input).toJson());
+        assertEquals("{\"a\":0}", Jq.compile("{a: range(1000000000000)}").first(input).toJson());
+
+        assertEquals("1\n2", Jq.execute("(1, null, 2) // 3", "null"));
+        assertEquals("3\n4", Jq.execute("(null, false) // (3, 4)", "null"));
+        assertEquals("1\n2\n1", Jq.execute("if (true, false, 0) then 1 else 2 end", "null"));
+        assertEquals("\"b\"\n\"c\"",
+            Jq.execute("if false then \"a\" elif (true, null) then \"b\" else \"c\" end", "null"));
+        assertEquals("{\"a\":1,\"b\":3}\n{\"a\":1,\"b\":4}\n{\"a\":2,\"b\":3}\n{\"a\":2,\"b\":4}",
+            Jq.execute("{a: (1, 2), b: (3, 4)}", "null"));
+        assertEquals("[0,1,2,0,1,2,3,1,2,1,2,3]", Jq.execute("[range(0, 1; 3, 4)]", "null"));
+        assertEquals("{\"a\":1}\n{\"a\":2}", Jq.execute(".a += (1, 2)", "{\"a\":0}"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'[limit(3; .[])]' ; '[1,2,3,4,5]' ; '[1,2,3]'",
+        "'[limit(10; .[])]' ; '[1,2]' ; '[1,2]'",
+        "'[limit(0; .[])]' ; '[1,2]' ; '[]'",
+        "'[limit(-1; .[])]' ; '[1,2]' ; '[1,2]'",
+        "'[limit(1, 2; .[])]' ; '[7,8,9]' ; '[7,7,8]'",
+        "'[limit(2; .[] | select(. > 2))]' ; '[1,2,3,4,5]' ; '[3,4]'",
+        "'first(.[] | select(. > 2))' ; '[1,2,3,4,5]' ; '3'",
+        "'[first(.[] | select(. > 9))]' ; '[1,2]' ; '[]'",
+        "'last(.[])' ; '[1,2,3]' ; '3'",
+        "'[last(.[])]' ; '[]' ; '[]'",
+        "'[first, last]' ; '[1,2,3]' ; '[1,3]'",
+        "'nth(1; .[])' ; '[5,6,7]' ; '6'",
+        "'[nth(5; .[])]' ; '[5,6,7]' ; '[]'",
+        "'[nth(0, 2; .[])]' ; '[5,6,7]' ; '[5,7]'",
+        "'until(. > 100; . * 2)' ; '1' ; '128'",
+        "'[while(. < 100; . * 2)]' ; '1' ; '[1,2,4,8,16,32,64]'",
+        "'[.[] | until(. >= 3; . + 1)]' ; '[0,5]' ; '[3,5]'",
+        "'[limit(5; repeat(. * 2))]' ; '1' ; '[1,2,4,8,16]'",
+        "'[repeat(select(. < 3) | . + 1)]' ; '0' ; '[0,1,2,3]'",
+        "'[limit(6; repeat(. + 1, . + 10))]' ; '0' ; '[0,1,2,3,4,5]'"
+    }, delimiter = ';')
+    void testGeneratorControlBuiltins(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @Test
+    void testRepeatBoundsReevaluationOfUpdate() {
+        long[] evaluations = {0};
+        long[] outputs = {0};
+        Expression update = counting(Jq.compile("select(. == 0) | range(1; 1001)"),
+            evaluations, outputs);
+        assertEquals(1001, new Repeat(update).collect(JqValue.parse("0")).size());
+        // 1000 single evaluations of the leaves, and 10 windows over the outputs of 0
+        assertEquals(1010, evaluations[0]);
+        assertTrue(outputs[0] < 4 * 1000, "outputs: " + outputs[0]);
+    }
+
+    @Test
+    void testGeneratorControlStopsUpstream() {
+        assertEquals("1000000", Jq.execute("until(. >= 1000000; . + 1)", "0"));
+        assertEquals("[0,1,2]", Jq.execute("[limit(3; range(1000000000000))]", "null"));
+        assertEquals("999999", Jq.execute("nth(999999; repeat(. + 1))", "0"));
+        // The update is itself an unbounded generator: only the outputs reached are evaluated
+        assertEquals("[0,0,0]",
+            Jq.execute("[limit(3; 0 | repeat(range(1000000000000)))]", "null"));
+        assertEquals("[1,1,1,1,1]",
+            Jq.execute("[limit(5; 1 | recurse(range(.; 1000000000000)))]", "null"));
+        assertEquals("[0,0,0]", Jq.execute("[limit(3; 0 | repeat(., 1 / 0))]", "null"));
+
+        int[] visited = new int[1];
+        Expression counting = (input, env, out) -> {
+            for (int i = 0; i < 1000000; i++) {
+                visited[0]++;
+                if (!out.accept(JqValue.fromLong(i))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+        List<JqValue> results = new com.dortegau.jq4java.ast.Limit(
+            Jq.compile("3"), counting).collect(JqValue.nullValue());
+        assertEquals(3, results.size());
+        assertEquals(3, visited[0]);
+        visited[0] = 0;
+        assertEquals("0", new com.dortegau.jq4java.ast.First(counting)
+            .first(JqValue.nullValue()).toJson());
+        assertEquals(1, visited[0]);
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'reduce .[] as $x (0; . + $x)' ; '[1,2,3]' ; '6'",
+        "'reduce .[] as $r ([]; . + [$r])' ; '[1,2,3]' ; '[1,2,3]'",
+        "'reduce .[] as $r ([]; . + [$r, $r * 10])' ; '[1,2]' ; '[1,10,2,20]'",
+        "'reduce .[] as $x ({}; .[$x.k] += 1)' ; '[{\"k\":\"a\"},{\"k\":\"b\"},{\"k\":\"a\"}]' ; '{\"a\":2,\"b\":1}'",
+        "'reduce .[] as $x (null; .[$x] += 1)' ; '[\"a\",\"a\"]' ; '{\"a\":2}'",
+        "'reduce .[] as $x ({}; .total += $x)' ; '[1,2,3]' ; '{\"total\":6}'",
+        "'reduce range(5) as $i ([]; . + [$i | . * .])' ; 'null' ; '[0,1,4,9,16]'",
+        "'reduce .[] as $x (.; . + [$x])' ; '[1]' ; '[1,1]'",
+        "'[reduce .[] as $x (0, 10; . + $x)]' ; '[1,2]' ; '[3,13]'",
+        "'reduce .[] as $x (0; . * $x, . + $x)' ; '[2,3]' ; '5'",
+        "'reduce .[] as $x (0; select($x != 2) | . + $x)' ; '[1,2,3]' ; '3'",
+        "'reduce .[] as $x (7; . + $x)' ; '[]' ; '7'",
+        "'[foreach .[] as $x (0; . + $x)]' ; '[1,2,3]' ; '[1,3,6]'",
+        "'[foreach .[] as $x (0; . + $x; [$x, .])]' ; '[1,2]' ; '[[1,1],[2,3]]'",
+        "'[foreach .[] as $x (0; . + $x, . - $x)]' ; '[1,2]' ; '[1,-1,1,-3]'",
+        "'[limit(3; foreach range(1000000000000) as $i (0; . + $i))]' ; 'null' ; '[0,1,3]'",
+        "'reduce .[] as $x (0; . + (reduce $x[] as $y (0; . + $y)))' ; '[[1,2],[3]]' ; '6'",
+        "'reduce .[] as $x (0; (reduce (10, 20) as $x (0; . + $x)) + $x + .)' ; '[1,2]' ; '63'",
+        "'.[.k]' ; '{\"k\":\"v\",\"v\":5}' ; '5'",
+        "'.a[.i]' ; '{\"a\":[7,8,9],\"i\":1}' ; '8'",
+        "'.[.k] += 1' ; '{\"k\":\"n\",\"n\":1}' ; '{\"k\":\"n\",\"n\":2}'",
+        "'reduce .[] as $x (\"\"; . + \"\\($x),\")' ; '[1,2]' ; '\"1,2,\"'"
+    }, delimiter = ';')
+    void testReduceAndForeach(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @Test
+    void testReduceAccumulatesInPlaceWithoutTouchingSharedValues() {
+        StringBuilder input = new StringBuilder("[");
+        for (int i = 0; i < 200000; i++) {
+            input.append(i == 0 ? "" : ",").append("{\"k\":\"k").append(i % 1000).append("\"}");
+        }
+        input.append("]");
+        assertEquals("1000", Jq.execute(
+            "reduce .[] as $x ({}; .[$x.k] += 1) | length", input.toString()));
+        assertEquals("200", Jq.execute(
+            "reduce .[] as $x ({}; .[$x.k] += 1) | .k7", input.toString()));
+        assertEquals("200000", Jq.execute(
+            "reduce .[] as $r ([]; . + [$r]) | length", input.toString()));
+
+        // The initial state is the input itself, which must stay unchanged
+        assertEquals("[9,0,1,2]\n[9]", Jq.execute("(reduce range(3) as $i (.; . + [$i])), .", "[9]"));
+        assertEquals("{\"a\":6,\"b\":1}\n{\"a\":5}",
+            Jq.execute("(reduce (\"a\", \"b\") as $k (.; .[$k] += 1)), .", "{\"a\":5}"));
+        // A step that leaves the in-place shape, here an empty update, falls back for good
+        assertEquals("{\"a\":2}",
+            Jq.execute("reduce .[] as $x ({}; .a += ($x | select(. != 0)))", "[1,0,2]"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'. as $x | $x + 1' ; '1' ; '2'",
+        "'.config as $cfg | [.events[] | {e: ., u: $cfg.u}]' ; '{\"config\":{\"u\":\"x\"},\"events\":[1,2]}' ; '[{\"e\":1,\"u\":\"x\"},{\"e\":2,\"u\":\"x\"}]'",
+        "'.a as $x | .b' ; '{\"a\":1,\"b\":2}' ; '2'",
+        "'[.[] as [$a, $b] | $a + $b]' ; '[[1,2],[3,4]]' ; '[3,7]'",
+        "'. as [$a, [$b]] | [$a, $b]' ; '[1]' ; '[1,null]'",
+        "'. as {a: $x, $b, \"c\": [$d]} | [$x, $b, $d]' ; '{\"a\":1,\"b\":2,\"c\":[3]}' ; '[1,2,3]'",
+        "'. as {$a: [$b]} | [$a, $b]' ; '{\"a\":[7]}' ; '[[7],7]'",
+        "'. as {k: $k, ($k): $v} | $v' ; '{\"k\":\"z\",\"z\":4}' ; '4'",
+        "'. as $x | {$x}' ; '5' ; '{\"x\":5}'",
+        "'. as $x | [$x, ((. + 1) as $x | $x), $x]' ; '1' ; '[1,2,1]'",
+        "'[1, . as $x | $x, 2]' ; '9' ; '[1,9,2]'",
+        "'[(1, 2) as $x | $x * 10]' ; 'null' ; '[10,20]'",
+        "'[.[] as $x | .[] as $y | $x * $y]' ; '[1,2]' ; '[1,2,2,4]'",
+        "'.[0] as $x | . as [$y] | $x == $y' ; '[3]' ; 'true'",
+        "'reduce .[] as [$k, $v] ({}; .[$k] += $v)' ; '[[\"a\",1],[\"b\",2],[\"a\",3]]' ; '{\"a\":4,\"b\":2}'",
+        "'[foreach .[] as {a: $a} (0; . + $a)]' ; '[{\"a\":1},{\"a\":2}]' ; '[1,3]'",
+        "'\"\\(. as $x | $x)\"' ; '3' ; '\"3\"'"
+    }, delimiter = ';')
+    void testVariableBindingAndDestructuring(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'def inc: . + 1; [.[] | inc]' ; '[1,2]' ; '[2,3]'",
+        "'def twice(f): f | f; twice(. * 3)' ; '2' ; '18'",
+        "'def addvalue($v): map(. + $v); addvalue(10)' ; '[1,2]' ; '[11,12]'",
+        "'def addvalue(f): f as $x | map(. + $x); addvalue(.[0])' ; '[1,2]' ; '[2,3]'",
+        "'def pair(a; $b): [a, $b, b]; pair(.x; .y)' ; '{\"x\":1,\"y\":2}' ; '[1,2,2]'",
+        "'[def f($a): $a * 10; f(1, 2)]' ; 'null' ; '[10,20]'",
+        "'def f: def g: 3; g * 2; f' ; 'null' ; '6'",
+        "'def f: . + 1; def g: f | f; g' ; '1' ; '3'",
+        "'1 | def f: . + 1; f' ; 'null' ; '2'",
+        "'def length: 42; [1] | length' ; 'null' ; '42'",
+        "'. as $x | def f: $x + 1; 10 as $x | f' ; '1' ; '2'",
+        "'def f(g): def h: g; [h, (1 | h)]; f(. + 10)' ; '5' ; '[15,11]'",
+        "'def fact: if . <= 1 then 1 else . * (. - 1 | fact) end; fact' ; '10' ; '3628800'",
+        "'def f($n): if $n <= 1 then 1 else $n * f($n - 1) end; f(10)' ; 'null' ; '3628800'",
+        "'def fib: if . < 2 then . else (. - 1 | fib) + (. - 2 | fib) end; fib' ; '20' ; '6765'",
+        "'def upto($n): if . < $n then ., (. + 1 | upto($n)) else select(false) end; [upto(4)]' ; '0' ; '[0,1,2,3]'",
+        "'def r: if length > 0 then .[1:] | r, 0 else 1 end; [r]' ; '[1,2]' ; '[1,0,0]'",
+        "'def m(f): if length == 0 then [] else [.[0] | f] + (.[1:] | m(f)) end; m(. * 2)' ; '[1,2,3]' ; '[2,4,6]'",
+        "'[limit(3; def f: ., (. + 1 | f); f)]' ; '0' ; '[0,1,2]'",
+        "'[limit(3; def f: range(1000000000); f)]' ; 'null' ; '[0,1,2]'",
+        "'def w(f): if type == \"array\" then map(w(f)) | f else f end; w(if type == \"number\" then . + 1 else . end)' ; '[1,[2,[3]]]' ; '[2,[3,[4]]]'",
+        "'def f: (1, 2) as $x | ($x, $x * 10, null) // 0; [f]' ; 'null' ; '[1,10,2,20]'",
+        "'def f: {a: (1, 2), b: (3, 4)}; [f]' ; 'null' ; '[{\"a\":1,\"b\":3},{\"a\":1,\"b\":4},{\"a\":2,\"b\":3},{\"a\":2,\"b\":4}]'",
+        "'def f: .[] | select(. > 1) | (. < 3 and true), (. > 2 or false); [f]' ; '[1,2,3]' ; '[true,false,false,true]'",
+        "'def f: range(3) as $i | 10 / (2 - $i); [limit(2; f)]' ; 'null' ; '[5,10]'",
+        // Tail calls see the caller's bindings as they were when the call was made
+        "'def f(x): if . > 100 then [., x] else (. + 1000 | f(x)) end; def g: if . > 0 then ((10,20) as $x | 0 | f($x)), (. - 1 | g) else select(false) end; [1 | g]' ; 'null' ; '[[1000,10],[1000,20]]'",
+        "'def f($a): if . > 100 then . + $a else (. + 1000 | f($a)) end; def g: if . > 0 then ((10,20) as $x | 0 | f($x)), (. - 1 | g) else select(false) end; [1 | g]' ; 'null' ; '[1010,1020]'",
+        "'def g: (1,2) as $y | def h: if . > 0 then [$y, .] else (. + 1 | h) end; 0 | h; [g]' ; 'null' ; '[[1,1],[2,1]]'"
+    }, delimiter = ';')
+    void testFunctionDefinitions(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @Test
+    void testFunctionOutputsComeBeforeLaterErrors() {
+        List<String> outputs = new ArrayList<>();
+        Expression program = Jq.compile("def f: limit(5; .[] | 10 / .) | . + 1; f");
+        assertThrows(RuntimeException.class, () -> program.evaluate(JqValue.parse("[1,2,0]"),
+            value -> outputs.add(value.toJson())));
+        assertEquals(Arrays.asList("11", "6"), outputs);
+    }
+
+    @Test
+    void testRecursionDoesNotOverflowTheStack() {
+        assertEquals("\"done\"", Jq.execute(
+            "def count: if . == 0 then \"done\" else (. - 1 | count) end; count", "1000000"));
+        assertEquals("1000000", Jq.execute(
+            "def upto($n): if . < $n then ., (. + 1 | upto($n)) else select(false) end;"
+                + " [upto(1000000)] | length", "0"));
+        // Not tail calls: each level waits for the one below it, with its pending work on the heap
+        assertEquals("500", Jq.execute(
+            "def cnt: if length == 0 then 0 else (.[1:] | cnt) + 1 end; [range(500)] | cnt",
+            "null"));
+        String depth = "def depth: if type == \"array\" then (.[0] | depth) + 1 else 0 end; ";
+        String deep = "reduce range(100000) as $i (1; [.]) | ";
+        assertEquals("100000", Jq.execute(depth + deep + "depth", "null"));
+        assertEquals("2", Jq.execute(
+            "def w(f): if type == \"array\" then map(w(f)) | f else f end; "
+                + "def leaf: if type == \"array\" then .[0] | leaf else . end; "
+                + deep + "w(if type == \"number\" then . + 1 else . end) | leaf", "null"));
+        assertEquals("100000", Jq.execute("def d: if type == \"array\" then "
+            + "(.[] | d) as $n | {a: ($n + 1)} | .a // 0 else 0 end; " + deep + "d", "null"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "'[..]'; '{\"a\":[1,{\"b\":2}],\"c\":3}'; '[{\"a\":[1,{\"b\":2}],\"c\":3},[1,{\"b\":2}],1,{\"b\":2},2,3]'",
+        "'[recurse]'; '[[1],2]'; '[[[1],2],[1],1,2]'",
+        "'[..] | length'; '[]'; '1'",
+        "'[..]'; '3'; '[3]'",
+        "'first(..)'; '[[1],2]'; '[[1],2]'",
+        "'[limit(3; ..)]'; '[[1,[2]],3]'; '[[[1,[2]],3],[1,[2]],1]'",
+        "'[recurse(if type == \"array\" then .[] else select(false) end)]'; '[[1],2]'; '[[[1],2],[1],1,2]'",
+        "'[recurse(. * 2; . < 20)]'; '1'; '[1,2,4,8,16]'",
+        "'[recurse(.a; . != null)] | length'; '{\"a\":{\"a\":{\"a\":null}}}'; '3'",
+        "'[paths]'; '{\"a\":[1,{\"b\":2}],\"c\":3}'; '[[\"a\"],[\"a\",0],[\"a\",1],[\"a\",1,\"b\"],[\"c\"]]'",
+        "'[paths]'; '5'; '[]'",
+        "'[paths(type == \"number\")]'; '{\"a\":[1,{\"b\":2}],\"c\":3}'; '[[\"a\",0],[\"a\",1,\"b\"],[\"c\"]]'",
+        "'walk(if type == \"number\" then . + 1 else . end)'; '{\"a\":[1,{\"b\":2}],\"c\":3}'; '{\"a\":[2,{\"b\":3}],\"c\":4}'",
+        "'walk(if type == \"array\" then sort else . end)'; '[3,[2,1],{\"z\":[5,4]}]'; '[3,[1,2],{\"z\":[4,5]}]'",
+        "'walk(if type == \"number\" then ., . * 10 else . end)'; '[1,[2]]'; '[1,10,[2,20]]'",
+        "'walk(if type == \"number\" then select(. != 2) else . end)'; '[1,[2,3],2]'; '[1,[3]]'",
+        "'walk(if type == \"number\" then select(false) else . end)'; '{\"x\":4,\"y\":\"s\",\"z\":[5]}'; '{\"y\":\"s\",\"z\":[]}'",
+        "'walk(if type == \"number\" then ., . + 1 else . end)'; '{\"x\":4}'; '{\"x\":4}'",
+        "'walk(if type == \"object\" then with_entries(select(.key != \"a\")) else . end)'; '{\"a\":1,\"b\":{\"a\":2}}'; '{\"b\":{}}'",
+        "'[walk(., 1)]'; '[2]'; '[[2,1],1]'",
+        "'walk(. + 1)'; '2'; '3'"
+    }, delimiter = ';')
+    void testRecursiveDescent(String program, String input, String expected) {
+        assertEquals(expected, Jq.execute(program, input));
+    }
+
+    @Test
+    void testRecursiveDescentOnDeepDocuments() {
+        String deep = "reduce range(100000) as $i (1; [.]) | ";
+        assertEquals("100001", Jq.execute(deep + "[..] | length", "null"));
+        assertEquals("100000", Jq.execute(deep + "[paths] | length", "null"));
+        assertEquals("2", Jq.execute(
+            deep + "walk(if type == \"number\" then . + 1 else . end) | last(..)", "null"));
+    }
+
+    @Test
+    void testWalkSharesUnchangedBranches() {
+        JqValue input = JqValue.parse("{\"a\":{\"b\":[1,2]},\"c\":{\"d\":[3]}}");
+        Expression walk = Jq.compile("walk(if . == 1 then 10 else . end)");
+        JqValue walked = walk.first(input);
+        Expression c = Jq.compile(".c");
+        assertEquals("{\"a\":{\"b\":[10,2]},\"c\":{\"d\":[3]}}", walked.toJson());
+        assertSame(c.first(input), c.first(walked));
+        assertSame(input, Jq.compile("walk(.)").first(input));
+    }
+
+    @Test
+    void testParallelExecutionPreservesOrder() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            String path = i % 7 == 0 ? "/x/" + "long".substring(0, i % 4) : "/p" + i;
+            ndjson.append("{\"status\":").append(i % 5 == 0 ? 503 : 200)
+                .append(",\"ts\":").append(i).append(",\"path\":\"").append(path).append("\"}\n");
+            if (i % 5 == 0) {
+                expected.append("{\"ts\":").append(i).append(",\"path\":\"").append(path)
+                    .append("\"}\n");
+            }
+        }
+        byte[] input = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+        Expression filter = Jq.compile("select(.status >= 500) | {ts, path}");
+
+        for (int chunkSize : new int[] {16, 1000, ParallelExecutor.DEFAULT_CHUNK_SIZE}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new ParallelExecutor(filter, 4, chunkSize, e -> {
+                throw e;
+            }).run(new ByteArrayInputStream(input), out);
+            assertEquals(expected.toString(),
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Jq.executeParallel(filter, new ByteArrayInputStream(input), out, 3);
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParallelExecutionReportsErrorsInOrder() throws Exception {
+        byte[] input = "1\n\"a\"\n2\n{}\n3\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder log = new StringBuilder();
+        new ParallelExecutor(Jq.compile(". + 1"), 2, 4, e -> {
+            log.append(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n").length)
+                .append(':').append(e.getMessage()).append('\n');
+        }).run(new ByteArrayInputStream(input), out);
+        assertEquals("2\n3\n4\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals("1:Cannot add values of these types\n2:Cannot add values of these types\n",
+            log.toString());
+
+        byte[] invalid = "1\n2\n3\n[4,}\n5\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        RuntimeException error = assertThrows(RuntimeException.class, () ->
+            new ParallelExecutor(Jq.compile("."), 2, 4, e -> {
+                throw e;
+            }).run(new ByteArrayInputStream(invalid), partial));
+        assertTrue(error.getMessage().contains("at line 4"), error.getMessage());
+        assertEquals("1\n2\n3\n", new String(partial.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCompiledProgramsAreSafeToShareAcrossThreads() throws Exception {
+        String[] programs = {
+            "{ts, path, n: (.tags | length)}",
+            "[.tags[] | select(. != \"b\")] | length",
+            ".ts * 2 + 1, (.path | length)",
+            "keys",
+            ".tags |= map(. + \"!\")",
+            "if .ts % 3 == 0 then .path else .tags[0] end"
+        };
+        JqValue[] inputs = new JqValue[200];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = JqValue.parse("{\"ts\":" + i + ",\"path\":\"/p/" + i
+                + "\",\"tags\":[\"a\",\"b\",\"c" + i + "\"]}");
+        }
+        Expression[] shared = new Expression[programs.length * 2];
+        String[][] expected = new String[shared.length][inputs.length];
+        for (int p = 0; p < programs.length; p++) {
+            shared[2 * p] = Jq.compile(programs[p]);
+            shared[2 * p + 1] = Jq.compile(programs[p], CompileOption.BYTECODE);
+            for (int i = 0; i < inputs.length; i++) {
+                expected[2 * p][i] = Jq.execute(shared[2 * p], inputs[i]);
+                expected[2 * p + 1][i] = expected[2 * p][i];
+            }
+        }
+
+        for (int threads : new int[] {1, 2, 4, 8, 16}) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<Integer>> results = new ArrayList<>();
+            try {
+                for (int t = 0; t < threads; t++) {
+                    int offset = t;
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        int checked = 0;
+                        for (int round = 0; round < 64 / threads; round++) {
+                            int p = (offset + round) % programs.length;
+                            assertEquals(expected[2 * p][0],
+                                Jq.execute(Jq.compile(programs[p]), inputs[0]));
+                            for (int e = 0; e < shared.length; e++) {
+                                for (int i = round % 4; i < inputs.length; i += 4) {
+                                    assertEquals(expected[e][i], Jq.execute(shared[e], inputs[i]));
+                                    checked++;
+                                }
+                            }
+                        }
+                        return checked;
+                    }));
+                }
+                int checked = 0;
+                for (Future<Integer> result : results) {
+                    checked += result.get(60, TimeUnit.SECONDS);
+                }
+                assertEquals(threads * (64 / threads) * shared.length * inputs.length / 4,
+                    checked);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
 }